@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.benchmark;
+
+
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.config.TlsConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.yookue.springstarter.httpclient.property.AsyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.util.AsyncHttpClientBuilderUtils;
+
+
+/**
+ * Benchmarks for the async clients built by {@link com.yookue.springstarter.httpclient.util.AsyncHttpClientBuilderUtils}
+ * <p>
+ * HTTP/2 runs with prior knowledge over plain text, so all the exchanges of a route are multiplexed over one connection.
+ * The async client does not decompress content, so compression is only covered by the sync benchmarks.
+ *
+ * @author David Hsing
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = {Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Threads(value = 16)
+public class AsyncHttpClientBenchmark {
+    @Param(value = {"4", "32"})
+    private int poolSize;
+
+    @Param(value = {"STRICT", "LAX"})
+    private PoolConcurrencyPolicy concurrencyPolicy;
+
+    @Param(value = {"HTTP_1_1", "HTTP_2"})
+    private String protocol;
+
+    @Param(value = {"1024", "65536"})
+    private int bodySize;
+
+    private BenchmarkServer server;
+    private CloseableHttpAsyncClient client;
+    private String uri;
+
+    @Setup(value = Level.Trial)
+    public void setup() throws IOException {
+        boolean http2 = "HTTP_2".equals(protocol);    // $NON-NLS-1$
+        server = new BenchmarkServer(http2 ? HttpVersionPolicy.FORCE_HTTP_2 : HttpVersionPolicy.FORCE_HTTP_1);
+        server.start();
+        uri = server.getBytesUri(bodySize);
+        AsyncHttpClientProperties properties = new AsyncHttpClientProperties();
+        properties.getConnectionPool().setMaxTotal(poolSize);
+        properties.getConnectionPool().setMaxPerRoute(poolSize);
+        properties.getConnectionPool().setConcurrencyPolicy(concurrencyPolicy);
+        client = AsyncHttpClientBuilderUtils.clientBuilder(properties, AsyncHttpClientBuilderUtils.connectionManagerBuilder(properties)
+                .setDefaultTlsConfig(TlsConfig.custom().setVersionPolicy(http2 ? HttpVersionPolicy.FORCE_HTTP_2 : HttpVersionPolicy.FORCE_HTTP_1).build())
+                .build())
+            .build();
+        client.start();
+    }
+
+    @TearDown(value = Level.Trial)
+    public void tearDown() {
+        client.close(CloseMode.GRACEFUL);
+        server.close();
+    }
+
+    @Benchmark
+    public int execute() throws ExecutionException, InterruptedException {
+        return client.execute(AsyncRequestBuilder.get(uri).build(), new BasicResponseConsumer<>(new DiscardingEntityConsumer<>()), null).get().getHead().getCode();
+    }
+}
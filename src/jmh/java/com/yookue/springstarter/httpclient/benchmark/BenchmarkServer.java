@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.benchmark;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.zip.GZIPOutputStream;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
+import org.apache.hc.core5.http.nio.AsyncServerRequestHandler;
+import org.apache.hc.core5.http.nio.entity.AsyncEntityProducers;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncResponseBuilder;
+import org.apache.hc.core5.http.nio.support.BasicRequestConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http2.HttpVersionPolicy;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.apache.hc.core5.reactor.ListenerEndpoint;
+
+
+/**
+ * Local httpcore5 server for benchmarks
+ * <p>
+ * Serves {@code /bytes/{size}} with a compressible payload of the given size, over HTTP/1.1 or prior-knowledge HTTP/2.
+ * The payload is gzipped when the request accepts it.
+ *
+ * @author David Hsing
+ */
+public class BenchmarkServer implements AutoCloseable {
+    public static final String BYTES_PATH = "/bytes/";    // $NON-NLS-1$
+
+    private final Map<Integer, Payload> payloads = new ConcurrentHashMap<>();
+    private final HttpVersionPolicy versionPolicy;
+    private HttpAsyncServer server;
+    private int port;
+
+    public BenchmarkServer() {
+        this(HttpVersionPolicy.FORCE_HTTP_1);
+    }
+
+    public BenchmarkServer(@Nonnull HttpVersionPolicy versionPolicy) {
+        this.versionPolicy = versionPolicy;
+    }
+
+    public void start() throws IOException {
+        server = H2ServerBootstrap.bootstrap()
+            .setIOReactorConfig(IOReactorConfig.custom().setIoThreadCount(Runtime.getRuntime().availableProcessors()).build())
+            .setVersionPolicy(versionPolicy)
+            .register(BYTES_PATH + "*", new PayloadHandler())    // $NON-NLS-1$
+            .create();
+        server.start();
+        try {
+            ListenerEndpoint endpoint = server.listen(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), URIScheme.HTTP).get();
+            port = ((InetSocketAddress) endpoint.getAddress()).getPort();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        }
+    }
+
+    @Nonnull
+    public String getBaseUri() {
+        return "http://127.0.0.1:" + port;    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    public String getBytesUri(int size) {
+        return getBaseUri() + BYTES_PATH + size;
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.close(CloseMode.IMMEDIATE);
+        }
+    }
+
+
+    private static class Payload {
+        private final byte[] raw;
+        private final byte[] gzipped;
+
+        private Payload(int size) {
+            byte[] pattern = "benchmark-payload-0123456789-abcdefghijklmnopqrstuvwxyz\n".getBytes(StandardCharsets.US_ASCII);    // $NON-NLS-1$
+            raw = new byte[size];
+            for (int i = 0; i < size; i++) {
+                raw[i] = pattern[i % pattern.length];
+            }
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(size / 4, 64));
+            try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+                gzip.write(raw);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+            gzipped = output.toByteArray();
+        }
+    }
+
+
+    private class PayloadHandler implements AsyncServerRequestHandler<Message<HttpRequest, Void>> {
+        @Override
+        public AsyncRequestConsumer<Message<HttpRequest, Void>> prepare(HttpRequest request, EntityDetails entityDetails, HttpContext context) {
+            return new BasicRequestConsumer<>(entityDetails == null ? null : new DiscardingEntityConsumer<>());
+        }
+
+        @Override
+        public void handle(Message<HttpRequest, Void> message, ResponseTrigger trigger, HttpContext context) throws HttpException, IOException {
+            HttpRequest request = message.getHead();
+            int size;
+            try {
+                size = Integer.parseInt(StringUtils.substringBefore(StringUtils.substringAfter(request.getPath(), BYTES_PATH), "?"));    // $NON-NLS-1$
+            } catch (NumberFormatException ex) {
+                trigger.submitResponse(AsyncResponseBuilder.create(HttpStatus.SC_BAD_REQUEST).build(), context);
+                return;
+            }
+            Payload payload = payloads.computeIfAbsent(size, Payload::new);
+            Header acceptEncoding = request.getFirstHeader(HttpHeaders.ACCEPT_ENCODING);
+            boolean gzip = acceptEncoding != null && StringUtils.containsIgnoreCase(acceptEncoding.getValue(), "gzip");    // $NON-NLS-1$
+            AsyncResponseBuilder builder = AsyncResponseBuilder.create(HttpStatus.SC_OK);
+            builder.setEntity(AsyncEntityProducers.create(gzip ? payload.gzipped : payload.raw, ContentType.TEXT_PLAIN));
+            if (gzip) {
+                builder.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");    // $NON-NLS-1$
+            }
+            trigger.submitResponse(builder.build(), context);
+        }
+    }
+}
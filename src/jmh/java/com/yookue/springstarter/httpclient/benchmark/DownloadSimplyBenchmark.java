@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.benchmark;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientExecutorUtils;
+
+
+/**
+ * Benchmarks for {@link com.yookue.springstarter.httpclient.util.SyncHttpClientExecutorUtils#downloadSimply} at several body sizes
+ * <p>
+ * The body is written to a null output stream, so the numbers exclude disk I/O
+ *
+ * @author David Hsing
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = {Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Threads(value = 4)
+public class DownloadSimplyBenchmark {
+    @Param(value = {"1024", "65536", "1048576", "16777216"})
+    private int bodySize;
+
+    private BenchmarkServer server;
+    private CloseableHttpClient client;
+    private String uri;
+
+    @Setup(value = Level.Trial)
+    public void setup() throws IOException {
+        server = new BenchmarkServer();
+        server.start();
+        uri = server.getBytesUri(bodySize);
+        client = SyncHttpClientBuilderUtils.clientBuilder(new SyncHttpClientProperties()).build();
+    }
+
+    @TearDown(value = Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public boolean downloadSimply() throws IOException, URISyntaxException {
+        return SyncHttpClientExecutorUtils.downloadSimply(client, uri, OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.benchmark;
+
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.routing.RoutingSupport;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.template.RequestTemplate;
+import com.yookue.springstarter.httpclient.template.RequestTemplates;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+
+
+/**
+ * Benchmarks for {@link com.yookue.springstarter.httpclient.template.RequestTemplate} against {@link org.apache.hc.core5.http.io.support.ClassicRequestBuilder}
+ * <p>
+ * The render benchmarks build the same request with the same headers, and the builder pays for the target host that the client derives from it.
+ * Run with {@code -prof gc} to compare the bytes allocated per operation.
+ *
+ * @author David Hsing
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = Mode.AverageTime)
+@OutputTimeUnit(value = TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Threads(value = 4)
+public class RequestTemplateBenchmark {
+    private static final String CLIENT_HEADER = "X-Client";    // $NON-NLS-1$
+    private static final String CLIENT_NAME = "benchmark";    // $NON-NLS-1$
+
+    private BenchmarkServer server;
+    private CloseableHttpClient client;
+    private String uri;
+    private RequestTemplate template;
+
+    @Setup(value = Level.Trial)
+    public void setup() throws IOException {
+        server = new BenchmarkServer();
+        server.start();
+        uri = server.getBytesUri(1024);
+        template = new RequestTemplates().compile("GET", uri + "?trace={trace}&page={page}", Map.of(CLIENT_HEADER, CLIENT_NAME));    // $NON-NLS-1$ // $NON-NLS-2$
+        client = SyncHttpClientBuilderUtils.clientBuilder(new SyncHttpClientProperties()).build();
+    }
+
+    @TearDown(value = Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void renderBuilder(Blackhole blackhole) throws HttpException {
+        ClassicHttpRequest request = buildRequest();
+        blackhole.consume(request);
+        blackhole.consume(RoutingSupport.determineHost(request));
+    }
+
+    @Benchmark
+    public void renderTemplate(Blackhole blackhole) {
+        blackhole.consume(template.render("a1b2c3", 7));    // $NON-NLS-1$
+        blackhole.consume(template.getTarget());
+    }
+
+    @Benchmark
+    public long executeBuilder() throws IOException {
+        return client.execute(buildRequest(), response -> SyncHttpClientBenchmark.drain(response.getEntity()));
+    }
+
+    @Benchmark
+    public long executeTemplate() throws IOException {
+        return template.execute(client, null, response -> SyncHttpClientBenchmark.drain(response.getEntity()), "a1b2c3", 7);    // $NON-NLS-1$
+    }
+
+    private ClassicHttpRequest buildRequest() {
+        return ClassicRequestBuilder.get(uri)
+            .addParameter("trace", "a1b2c3")    // $NON-NLS-1$ // $NON-NLS-2$
+            .addParameter("page", String.valueOf(7))    // $NON-NLS-1$
+            .addHeader(HttpHeaders.ACCEPT, ContentType.WILDCARD.getMimeType())
+            .addHeader(CLIENT_HEADER, CLIENT_NAME)
+            .build();
+    }
+}
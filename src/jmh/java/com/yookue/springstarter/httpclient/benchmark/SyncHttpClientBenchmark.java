@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.benchmark;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+
+
+/**
+ * Benchmarks for the sync clients built by {@link com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils}
+ * <p>
+ * Sixteen threads share one client, so the smaller pools show the cost of lease contention
+ *
+ * @author David Hsing
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(value = {Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(value = TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@Threads(value = 16)
+public class SyncHttpClientBenchmark {
+    @Param(value = {"4", "32"})
+    private int poolSize;
+
+    @Param(value = {"STRICT", "LAX"})
+    private PoolConcurrencyPolicy concurrencyPolicy;
+
+    @Param(value = {"true", "false"})
+    private boolean compression;
+
+    @Param(value = {"1024", "65536"})
+    private int bodySize;
+
+    private BenchmarkServer server;
+    private CloseableHttpClient client;
+    private String uri;
+
+    @Setup(value = Level.Trial)
+    public void setup() throws IOException {
+        server = new BenchmarkServer();
+        server.start();
+        uri = server.getBytesUri(bodySize);
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.getDefaultRequestConfig().setContentCompressionEnabled(compression);
+        properties.getConnectionPool().setMaxTotal(poolSize);
+        properties.getConnectionPool().setMaxPerRoute(poolSize);
+        properties.getConnectionPool().setConcurrencyPolicy(concurrencyPolicy);
+        client = SyncHttpClientBuilderUtils.clientBuilder(properties).build();
+    }
+
+    @TearDown(value = Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public long execute() throws IOException {
+        return client.execute(new HttpGet(uri), response -> drain(response.getEntity()));
+    }
+
+    static long drain(HttpEntity entity) throws IOException {
+        if (entity == null) {
+            return 0L;
+        }
+        try (InputStream stream = entity.getContent()) {
+            return stream.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
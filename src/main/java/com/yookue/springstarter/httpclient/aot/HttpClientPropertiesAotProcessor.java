@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.aot;
+
+
+import java.beans.PropertyDescriptor;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.ReflectionHints;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.Environment;
+import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import com.yookue.springstarter.httpclient.property.HttpClientProperties;
+
+
+/**
+ * {@link org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor} that registers the classes named in {@link com.yookue.springstarter.httpclient.property.HttpClientProperties}
+ * <p>
+ * The properties are bound at build time, each named class is registered for reflective instantiation,
+ * so the component slots keep working in a native image. The nested property groups, and the groups in the lists and maps, are walked as well.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.aot.HttpClientRuntimeHints
+ */
+@SuppressWarnings("unused")
+public class HttpClientPropertiesAotProcessor implements BeanFactoryInitializationAotProcessor {
+    @Nullable
+    @Override
+    public BeanFactoryInitializationAotContribution processAheadOfTime(@Nonnull ConfigurableListableBeanFactory beanFactory) {
+        if (!beanFactory.containsBean(ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME)) {
+            return null;
+        }
+        Environment environment = beanFactory.getBean(ConfigurableApplicationContext.ENVIRONMENT_BEAN_NAME, Environment.class);
+        HttpClientProperties properties = Binder.get(environment).bindOrCreate(HttpClientAutoConfiguration.PROPERTIES_PREFIX, HttpClientProperties.class);
+        Set<Class<?>> types = new LinkedHashSet<>();
+        collectTypes(properties.getSyncClient(), types);
+        collectTypes(properties.getAsyncClient(), types);
+        if (types.isEmpty()) {
+            return null;
+        }
+        return (generationContext, beanFactoryInitializationCode) -> {
+            ReflectionHints hints = generationContext.getRuntimeHints().reflection();
+            types.forEach(type -> hints.registerType(type, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS));
+        };
+    }
+
+    private void collectTypes(@Nonnull AbstractHttpClientProperties properties, @Nonnull Set<Class<?>> types) {
+        collectTypes(properties, types, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    private void collectTypes(@Nullable Object value, @Nonnull Set<Class<?>> types, @Nonnull Set<Object> visited) {
+        if (value instanceof Class<?> type) {
+            types.add(type);
+        } else if (value instanceof Collection<?> collection) {
+            collection.forEach(element -> collectTypes(element, types, visited));
+        } else if (value instanceof Map<?, ?> map) {
+            map.values().forEach(element -> collectTypes(element, types, visited));
+        } else if (isPropertyGroup(value) && visited.add(value)) {
+            BeanWrapper wrapper = new BeanWrapperImpl(value);
+            for (PropertyDescriptor descriptor : wrapper.getPropertyDescriptors()) {
+                if (descriptor.getReadMethod() != null && descriptor.getReadMethod().getDeclaringClass() != Object.class) {
+                    collectTypes(wrapper.getPropertyValue(descriptor.getName()), types, visited);
+                }
+            }
+        }
+    }
+
+    private boolean isPropertyGroup(@Nullable Object value) {
+        return value != null && !(value instanceof Enum<?>) && StringUtils.equals(value.getClass().getPackageName(), HttpClientProperties.class.getPackageName());
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.batch;
+
+
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+
+
+/**
+ * Combiner that builds a single bulk request from the items of a batch
+ *
+ * @param <I> the type of the items
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.batch.MicroBatcher
+ */
+@FunctionalInterface
+public interface MicroBatchCombiner<I> {
+    /**
+     * Returns the bulk request of the items
+     *
+     * @param items the items of the batch, in the order they were submitted
+     *
+     * @return the bulk request of the items
+     */
+    @Nonnull
+    SimpleHttpRequest combine(@Nonnull List<I> items) throws Exception;
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.batch;
+
+
+import java.io.Serializable;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * Thresholds that make a {@link com.yookue.springstarter.httpclient.batch.MicroBatcher} flush its pending items
+ * <p>
+ * A batch is flushed as soon as any threshold is reached.
+ *
+ * @author David Hsing
+ */
+@Getter
+@Setter
+@ToString
+@SuppressWarnings("unused")
+public class MicroBatchPolicy implements Serializable {
+    /**
+     * The maximum count of the items in a batch
+     */
+    private int maxItems = 100;
+
+    /**
+     * The maximum total weight of the items in a batch, usually in bytes, or {@code 0} for no limit
+     */
+    private long maxBytes = 1024L * 1024L;
+
+    /**
+     * The maximum time that the first item of a batch waits before the batch is flushed
+     */
+    private Duration maxDelay = Duration.ofMillis(10L);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.batch;
+
+
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+
+
+/**
+ * Splitter that extracts the result of each item from the bulk response
+ *
+ * @param <I> the type of the items
+ * @param <R> the type of the results
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.batch.MicroBatcher
+ */
+@FunctionalInterface
+public interface MicroBatchSplitter<I, R> {
+    /**
+     * Returns the results of the items
+     * <p>
+     * If the bulk response is a failure, throw an exception to fail every item of the batch.
+     *
+     * @param items the items of the batch, in the order they were submitted
+     * @param response the bulk response
+     *
+     * @return the results of the items, in the same order and of the same size as the items
+     */
+    @Nonnull
+    List<R> split(@Nonnull List<I> items, @Nonnull SimpleHttpResponse response) throws Exception;
+}
@@ -0,0 +1,253 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.batch;
+
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.async.HttpAsyncClient;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
+import lombok.Getter;
+
+
+/**
+ * Aggregator that sends the items submitted one at a time as bulk requests
+ * <p>
+ * The pending items are flushed as a batch once the count, the total weight or the delay of the {@link com.yookue.springstarter.httpclient.batch.MicroBatchPolicy} is reached.
+ * The {@link com.yookue.springstarter.httpclient.batch.MicroBatchCombiner} builds the bulk request of a batch,
+ * and the {@link com.yookue.springstarter.httpclient.batch.MicroBatchSplitter} completes the future of each item with its slice of the bulk response.
+ * If the bulk exchange fails, the futures of all the items of the batch fail with it.
+ * The delayed flushes are handed off from the timer to an executor, since building the bulk request runs the code of the combiner.
+ *
+ * @param <I> the type of the items
+ * @param <R> the type of the results
+ * @author David Hsing
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class MicroBatcher<I, R> implements Closeable {
+    private final HttpAsyncClient client;
+    private final MicroBatchCombiner<I> combiner;
+    private final MicroBatchSplitter<I, R> splitter;
+    private final ToLongFunction<? super I> weigher;
+    private final HashedWheelTimer timer;
+    private final Executor executor;
+
+    @Getter
+    private final MicroBatchPolicy policy;
+
+    private final Object lock = new Object();
+    private List<Pending<I, R>> pending = new ArrayList<>();
+    private long pendingBytes;
+    private Cancellable flushTask;
+    private boolean closed;
+
+    public MicroBatcher(@Nonnull HttpAsyncClient client, @Nonnull MicroBatchCombiner<I> combiner, @Nonnull MicroBatchSplitter<I, R> splitter, @Nullable MicroBatchPolicy policy) {
+        this(client, combiner, splitter, policy, null);
+    }
+
+    /**
+     * Constructs a new batcher
+     *
+     * @param client the async client to send the bulk requests
+     * @param combiner the combiner that builds the bulk request of a batch
+     * @param splitter the splitter that extracts the result of each item
+     * @param policy the thresholds to flush a batch
+     * @param weigher the function that returns the weight of an item against {@link com.yookue.springstarter.httpclient.batch.MicroBatchPolicy#getMaxBytes()}, or {@code null} to count no weight
+     */
+    public MicroBatcher(@Nonnull HttpAsyncClient client, @Nonnull MicroBatchCombiner<I> combiner, @Nonnull MicroBatchSplitter<I, R> splitter, @Nullable MicroBatchPolicy policy, @Nullable ToLongFunction<? super I> weigher) {
+        this(client, combiner, splitter, policy, weigher, null, null);
+    }
+
+    /**
+     * Constructs a new batcher
+     *
+     * @param client the async client to send the bulk requests
+     * @param combiner the combiner that builds the bulk request of a batch
+     * @param splitter the splitter that extracts the result of each item
+     * @param policy the thresholds to flush a batch
+     * @param weigher the function that returns the weight of an item against {@link com.yookue.springstarter.httpclient.batch.MicroBatchPolicy#getMaxBytes()}, or {@code null} to count no weight
+     * @param timer the timer that schedules the delayed flushes, {@code null} for {@link com.yookue.springstarter.httpclient.timer.HashedWheelTimer#getShared()}
+     * @param executor the executor that runs the delayed flushes, {@code null} for the common pool
+     */
+    public MicroBatcher(@Nonnull HttpAsyncClient client, @Nonnull MicroBatchCombiner<I> combiner, @Nonnull MicroBatchSplitter<I, R> splitter, @Nullable MicroBatchPolicy policy, @Nullable ToLongFunction<? super I> weigher, @Nullable HashedWheelTimer timer, @Nullable Executor executor) {
+        this.client = client;
+        this.combiner = combiner;
+        this.splitter = splitter;
+        this.policy = (policy == null) ? new MicroBatchPolicy() : policy;
+        this.weigher = (weigher == null) ? item -> 0L : weigher;
+        this.timer = (timer == null) ? HashedWheelTimer.getShared() : timer;
+        this.executor = (executor == null) ? ForkJoinPool.commonPool() : executor;
+    }
+
+    /**
+     * Submits an item to the next batch
+     *
+     * @param item the item to submit
+     *
+     * @return the future of the result of the item
+     */
+    @Nonnull
+    public CompletableFuture<R> submit(@Nonnull I item) {
+        Pending<I, R> entry = new Pending<>(item, Math.max(weigher.applyAsLong(item), 0L));
+        List<Pending<I, R>> overflow = null;
+        List<Pending<I, R>> full = null;
+        synchronized (lock) {
+            if (closed) {
+                entry.future.completeExceptionally(new IllegalStateException("Micro batcher is closed"));    // $NON-NLS-1$
+                return entry.future;
+            }
+            if (!pending.isEmpty() && policy.getMaxBytes() > 0L && pendingBytes + entry.bytes > policy.getMaxBytes()) {
+                overflow = drain();
+            }
+            pending.add(entry);
+            pendingBytes += entry.bytes;
+            if (pending.size() >= Math.max(policy.getMaxItems(), 1) || (policy.getMaxBytes() > 0L && pendingBytes >= policy.getMaxBytes())) {
+                full = drain();
+            } else if (flushTask == null) {
+                long delay = (policy.getMaxDelay() == null) ? 0L : policy.getMaxDelay().toNanos();
+                flushTask = timer.schedule(this::flush, delay, TimeUnit.NANOSECONDS, executor);
+            }
+        }
+        send(overflow);
+        send(full);
+        return entry.future;
+    }
+
+    /**
+     * Sends the pending items as a batch at once
+     */
+    public void flush() {
+        List<Pending<I, R>> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        send(batch);
+    }
+
+    /**
+     * Returns the count of the items that wait for the next batch
+     */
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Sends the pending items, then rejects any further submission
+     */
+    @Override
+    public void close() {
+        synchronized (lock) {
+            closed = true;
+        }
+        flush();
+    }
+
+    @Nullable
+    private List<Pending<I, R>> drain() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        if (pending.isEmpty()) {
+            return null;
+        }
+        List<Pending<I, R>> batch = pending;
+        pending = new ArrayList<>();
+        pendingBytes = 0L;
+        return batch;
+    }
+
+    private void send(@Nullable List<Pending<I, R>> batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+        List<I> items = new ArrayList<>(batch.size());
+        batch.forEach(entry -> items.add(entry.item));
+        SimpleHttpRequest request;
+        try {
+            request = combiner.combine(items);
+        } catch (Exception ex) {
+            fail(batch, ex);
+            return;
+        }
+        try {
+            client.execute(SimpleRequestProducer.create(request), SimpleResponseConsumer.create(), null, null, new FutureCallback<SimpleHttpResponse>() {
+                @Override
+                public void completed(SimpleHttpResponse response) {
+                    List<R> results;
+                    try {
+                        results = splitter.split(items, response);
+                    } catch (Exception ex) {
+                        fail(batch, ex);
+                        return;
+                    }
+                    if (results.size() != batch.size()) {
+                        fail(batch, new IllegalStateException(String.format("Micro batch splitter returned %d results for %d items", results.size(), batch.size())));    // $NON-NLS-1$
+                        return;
+                    }
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).future.complete(results.get(i));
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    fail(batch, ex);
+                }
+
+                @Override
+                public void cancelled() {
+                    batch.forEach(entry -> entry.future.cancel(false));
+                }
+            });
+        } catch (RuntimeException ex) {
+            fail(batch, ex);
+        }
+    }
+
+    private static <I, R> void fail(@Nonnull List<Pending<I, R>> batch, @Nonnull Exception cause) {
+        batch.forEach(entry -> entry.future.completeExceptionally(cause));
+    }
+
+
+    private static final class Pending<I, R> {
+        private final I item;
+        private final long bytes;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+
+        private Pending(@Nonnull I item, long bytes) {
+            this.item = item;
+            this.bytes = bytes;
+        }
+    }
+}
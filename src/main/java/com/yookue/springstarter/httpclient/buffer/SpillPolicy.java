@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.buffer;
+
+
+import java.io.Serializable;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+
+
+/**
+ * Limits of a {@link com.yookue.springstarter.httpclient.buffer.SpillableBuffer}
+ *
+ * @author David Hsing
+ */
+@Getter
+@Setter
+@ToString
+@SuppressWarnings("unused")
+public class SpillPolicy implements Serializable {
+    /**
+     * The maximum count of bytes kept on the heap, a larger body is spilled to a temp file
+     */
+    private int memoryThreshold = 1024 * 1024;
+
+    /**
+     * The maximum count of bytes of a body, or {@code 0} for no limit
+     */
+    private long maxBodySize;
+
+    /**
+     * The directory of the temp files, or {@code null} for the default temp directory
+     */
+    private String directory;
+}
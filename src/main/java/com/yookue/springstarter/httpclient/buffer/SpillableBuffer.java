@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.buffer;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import com.yookue.springstarter.httpclient.exception.ResponseBodyTooLargeException;
+
+
+/**
+ * Buffer of a body that stays on the heap below a threshold, and spills to a temp file above it
+ * <p>
+ * Once {@link #complete()} is called, a spilled body is read back through a memory mapped view of the temp file,
+ * so the bytes are paged in by the operating system instead of being copied to the heap.
+ * Writing more than the maximum body size throws a {@link com.yookue.springstarter.httpclient.exception.ResponseBodyTooLargeException}.
+ * Closing the buffer deletes the temp file.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.buffer.SpillPolicy
+ */
+@SuppressWarnings("unused")
+public class SpillableBuffer implements Closeable {
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private final SpillPolicy policy;
+    private byte[] heap;
+    private long length;
+    private Path file;
+    private FileChannel channel;
+    private MappedByteBuffer mapped;
+    private boolean completed;
+    private volatile boolean closed;
+
+    public SpillableBuffer(@Nonnull SpillPolicy policy) throws ResponseBodyTooLargeException {
+        this(policy, -1L);
+    }
+
+    /**
+     * Constructs a new buffer
+     *
+     * @param policy the limits of the buffer
+     * @param expectedLength the expected length of the body, or a negative value if unknown
+     *
+     * @throws com.yookue.springstarter.httpclient.exception.ResponseBodyTooLargeException if the expected length exceeds the maximum body size
+     */
+    public SpillableBuffer(@Nonnull SpillPolicy policy, long expectedLength) throws ResponseBodyTooLargeException {
+        this.policy = policy;
+        if (policy.getMaxBodySize() > 0L && expectedLength > policy.getMaxBodySize()) {
+            throw new ResponseBodyTooLargeException(policy.getMaxBodySize());
+        }
+        int threshold = Math.max(policy.getMemoryThreshold(), 0);
+        int capacity = (expectedLength >= 0L && expectedLength <= threshold) ? (int) expectedLength : Math.min(threshold, INITIAL_CAPACITY);
+        this.heap = new byte[capacity];
+    }
+
+    public void write(@Nonnull byte[] bytes, int offset, int count) throws IOException {
+        write(ByteBuffer.wrap(bytes, offset, count));
+    }
+
+    public void write(@Nonnull ByteBuffer src) throws IOException {
+        if (completed || closed) {
+            throw new IOException("Buffer is no longer writable");    // $NON-NLS-1$
+        }
+        int count = src.remaining();
+        if (count == 0) {
+            return;
+        }
+        if (policy.getMaxBodySize() > 0L && length + count > policy.getMaxBodySize()) {
+            throw new ResponseBodyTooLargeException(policy.getMaxBodySize());
+        }
+        if (channel == null && length + count > policy.getMemoryThreshold()) {
+            spill();
+        }
+        if (channel != null) {
+            while (src.hasRemaining()) {
+                channel.write(src);
+            }
+        } else {
+            int position = (int) length;
+            if (position + count > heap.length) {
+                heap = Arrays.copyOf(heap, Math.min(Math.max(heap.length << 1, position + count), policy.getMemoryThreshold()));
+            }
+            src.get(heap, position, count);
+        }
+        length += count;
+    }
+
+    /**
+     * Marks the end of the body, and maps the temp file if the body has been spilled
+     */
+    public void complete() throws IOException {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        if (channel != null) {
+            try {
+                if (length <= Integer.MAX_VALUE) {
+                    mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, length);
+                }
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public boolean isSpilled() {
+        return file != null;
+    }
+
+    @Nullable
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Returns a read only view of the whole body, which is a memory mapped view if the body has been spilled
+     *
+     * @return a read only view of the whole body
+     *
+     * @throws java.io.IOException if the buffer is not completed, or the spilled body is too large to map
+     */
+    @Nonnull
+    public ByteBuffer toByteBuffer() throws IOException {
+        requireReadable();
+        if (file == null) {
+            return ByteBuffer.wrap(heap, 0, (int) length).asReadOnlyBuffer();
+        }
+        if (mapped == null) {
+            throw new IOException("Body of " + length + " bytes is too large to map");    // $NON-NLS-1$
+        }
+        return mapped.asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a new stream of the whole body, which can be called any times
+     *
+     * @return a new stream of the whole body
+     */
+    @Nonnull
+    public InputStream getInputStream() throws IOException {
+        requireReadable();
+        if (file != null && mapped == null) {
+            return Files.newInputStream(file);
+        }
+        return new ByteBufferInputStream(toByteBuffer());
+    }
+
+    /**
+     * Returns the whole body as a byte array, which copies a spilled body to the heap
+     *
+     * @return the whole body as a byte array
+     */
+    @Nonnull
+    public byte[] toByteArray() throws IOException {
+        try (InputStream stream = getInputStream()) {
+            return stream.readAllBytes();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        heap = null;
+        mapped = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void spill() throws IOException {
+        Path directory = StringUtils.isBlank(policy.getDirectory()) ? null : Paths.get(policy.getDirectory());
+        file = (directory == null) ? Files.createTempFile("httpclient-", ".body") : Files.createTempFile(directory, "httpclient-", ".body");    // $NON-NLS-1$ // $NON-NLS-2$
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        ByteBuffer pending = ByteBuffer.wrap(heap, 0, (int) length);
+        while (pending.hasRemaining()) {
+            channel.write(pending);
+        }
+        heap = null;
+    }
+
+    private void requireReadable() throws IOException {
+        if (closed) {
+            throw new IOException("Buffer is closed");    // $NON-NLS-1$
+        }
+        if (!completed) {
+            throw new IOException("Buffer is not completed");    // $NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * {@link java.io.InputStream} over a {@link java.nio.ByteBuffer}
+     */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(@Nonnull ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] bytes, int offset, int count) {
+            if (count == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(count, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.min(Math.max(count, 0L), buffer.remaining());
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.buffer;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+
+
+/**
+ * Repeatable {@link org.apache.hc.core5.http.HttpEntity} backed by a completed {@link com.yookue.springstarter.httpclient.buffer.SpillableBuffer}
+ * <p>
+ * Closing the entity deletes the temp file of a spilled body.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.handler.SpillingResponseHandler
+ */
+@SuppressWarnings("unused")
+public class SpilledHttpEntity extends AbstractHttpEntity {
+    private final SpillableBuffer buffer;
+
+    public SpilledHttpEntity(@Nonnull SpillableBuffer buffer, @Nullable String contentType, @Nullable String contentEncoding) {
+        super(contentType, contentEncoding);
+        this.buffer = buffer;
+    }
+
+    /**
+     * Reads the given entity into a new buffer, and returns an entity backed by the buffer
+     *
+     * @param entity the entity to read
+     * @param policy the limits of the buffer
+     *
+     * @return an entity backed by the buffer
+     *
+     * @throws com.yookue.springstarter.httpclient.exception.ResponseBodyTooLargeException if the entity exceeds the maximum body size
+     */
+    @Nonnull
+    public static SpilledHttpEntity of(@Nonnull HttpEntity entity, @Nonnull SpillPolicy policy) throws IOException {
+        SpillableBuffer buffer = new SpillableBuffer(policy, entity.getContentLength());
+        try (InputStream stream = entity.getContent()) {
+            if (stream != null) {
+                byte[] bytes = new byte[8192];
+                for (int count = stream.read(bytes); count != -1; count = stream.read(bytes)) {
+                    buffer.write(bytes, 0, count);
+                }
+            }
+            buffer.complete();
+        } catch (IOException | RuntimeException ex) {
+            buffer.close();
+            throw ex;
+        }
+        return new SpilledHttpEntity(buffer, entity.getContentType(), entity.getContentEncoding());
+    }
+
+    @Nonnull
+    public SpillableBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return buffer.length();
+    }
+
+    @Nonnull
+    @Override
+    public InputStream getContent() throws IOException {
+        return buffer.getInputStream();
+    }
+
+    @Override
+    public void writeTo(@Nonnull OutputStream output) throws IOException {
+        try (InputStream stream = buffer.getInputStream()) {
+            stream.transferTo(output);
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+
+    @Override
+    public void close() {
+        buffer.close();
+    }
+}
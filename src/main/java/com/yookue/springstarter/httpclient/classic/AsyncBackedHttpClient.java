@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.classic;
+
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.client5.http.async.HttpAsyncClient;
+import org.apache.hc.client5.http.config.Configurable;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.classic.RequestFailedException;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.URIAuthority;
+import org.apache.hc.core5.reactor.IOReactorStatus;
+
+
+/**
+ * {@link org.apache.hc.client5.http.impl.classic.CloseableHttpClient} that executes the requests over an {@link org.apache.hc.client5.http.async.HttpAsyncClient}
+ * <p>
+ * The requests share the I/O reactor, the connection pool and the HTTP/2 multiplexing of the async client, and its exec chain applies.
+ * The request body is written by the calling thread, and the response is returned as soon as its head arrives,
+ * with the body piped from the I/O reactor to the reading thread. Closing the response before the end of the body aborts the exchange.
+ * Requests are not retried, since the request body is written only once.
+ * <p>
+ * An async client that has not been started is started on construction, and closing this client leaves the async client open.
+ *
+ * @author David Hsing
+ * @see org.apache.hc.client5.http.async.HttpAsyncClient
+ */
+@SuppressWarnings("unused")
+public class AsyncBackedHttpClient extends CloseableHttpClient {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final HttpAsyncClient client;
+    private final int bufferSize;
+
+    public AsyncBackedHttpClient(@Nonnull HttpAsyncClient client) {
+        this(client, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Constructs a new client
+     *
+     * @param client the async client to execute the requests
+     * @param bufferSize the size of the pipes of the request and response bodies
+     */
+    public AsyncBackedHttpClient(@Nonnull HttpAsyncClient client, int bufferSize) {
+        this.client = client;
+        this.bufferSize = Math.max(bufferSize, 1024);
+        if (client instanceof CloseableHttpAsyncClient closeableClient && closeableClient.getStatus() == IOReactorStatus.INACTIVE) {
+            closeableClient.start();
+        }
+    }
+
+    @Nonnull
+    public HttpAsyncClient getAsyncClient() {
+        return client;
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(@Nullable HttpHost target, @Nonnull ClassicHttpRequest request, @Nullable HttpContext context) throws IOException {
+        BasicHttpRequest head = new BasicHttpRequest(request.getMethod(), request.getPath());
+        if (target != null) {
+            head.setScheme(target.getSchemeName());
+            head.setAuthority(new URIAuthority(target));
+        } else {
+            head.setScheme(request.getScheme());
+            head.setAuthority(request.getAuthority());
+        }
+        if (request.getVersion() != null) {
+            head.setVersion(request.getVersion());
+        }
+        for (Header header : request.getHeaders()) {
+            // The framing of the body is up to the async protocol
+            if (!StringUtils.equalsAnyIgnoreCase(header.getName(), HttpHeaders.CONTENT_LENGTH, HttpHeaders.TRANSFER_ENCODING)) {
+                head.addHeader(header);
+            }
+        }
+        HttpClientContext clientContext = HttpClientContext.castOrCreate(context);
+        if (request instanceof Configurable configurable && configurable.getConfig() != null) {
+            clientContext.setRequestConfig(configurable.getConfig());
+        }
+        HttpEntity entity = request.getEntity();
+        PipedEntityProducer entityProducer = (entity == null) ? null : new PipedEntityProducer(entity, bufferSize);
+        Future<ClassicHttpResponse> future = client.execute(new BasicRequestProducer(head, entityProducer), new PipedResponseConsumer(bufferSize), null, clientContext, new FutureCallback<>() {
+            @Override
+            public void completed(ClassicHttpResponse response) {
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                abort(entityProducer);
+            }
+
+            @Override
+            public void cancelled() {
+                abort(entityProducer);
+            }
+        });
+        if (entityProducer != null) {
+            try {
+                entityProducer.writeEntity();
+            } catch (IOException | RuntimeException ex) {
+                if (!future.isDone()) {
+                    future.cancel(true);
+                    throw ex;
+                }
+            }
+        }
+        return awaitResponse(future);
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+    }
+
+    @Override
+    public void close() {
+    }
+
+    private static void abort(@Nullable PipedEntityProducer entityProducer) {
+        if (entityProducer != null) {
+            entityProducer.abort();
+        }
+    }
+
+    @Nonnull
+    private static CloseableHttpResponse awaitResponse(@Nonnull Future<ClassicHttpResponse> future) throws IOException {
+        try {
+            return CloseableHttpResponse.adapt(future.get());
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RequestFailedException("Request execution interrupted", ex);    // $NON-NLS-1$
+        } catch (CancellationException ex) {
+            throw new RequestFailedException("Request execution cancelled", ex);    // $NON-NLS-1$
+        } catch (ExecutionException ex) {
+            Throwable cause = (ex.getCause() != null) ? ex.getCause() : ex;
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new ClientProtocolException(cause.getMessage(), cause);
+        }
+    }
+}
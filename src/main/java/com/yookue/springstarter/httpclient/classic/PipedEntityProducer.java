@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.classic;
+
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.apache.hc.core5.http.nio.support.classic.ContentOutputStream;
+import org.apache.hc.core5.http.nio.support.classic.SharedOutputBuffer;
+
+
+/**
+ * {@link org.apache.hc.core5.http.nio.AsyncEntityProducer} that pipes a classic entity written by the calling thread to the I/O reactor
+ * <p>
+ * The calling thread blocks while the pipe is full, so the request body is never aggregated in memory.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.classic.AsyncBackedHttpClient
+ */
+final class PipedEntityProducer implements AsyncEntityProducer {
+    private final HttpEntity entity;
+    private final SharedOutputBuffer buffer;
+
+    PipedEntityProducer(@Nonnull HttpEntity entity, int bufferSize) {
+        this.entity = entity;
+        this.buffer = new SharedOutputBuffer(bufferSize);
+    }
+
+    /**
+     * Writes the entity into the pipe, which must be called by the thread that executes the request
+     */
+    void writeEntity() throws IOException {
+        try (OutputStream stream = new ContentOutputStream(buffer)) {
+            entity.writeTo(stream);
+        }
+    }
+
+    void abort() {
+        buffer.abort();
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return entity.getContentLength();
+    }
+
+    @Nullable
+    @Override
+    public String getContentType() {
+        return entity.getContentType();
+    }
+
+    @Nullable
+    @Override
+    public String getContentEncoding() {
+        return entity.getContentEncoding();
+    }
+
+    @Override
+    public boolean isChunked() {
+        return entity.isChunked();
+    }
+
+    @Nullable
+    @Override
+    public Set<String> getTrailerNames() {
+        return entity.getTrailerNames();
+    }
+
+    @Override
+    public int available() {
+        return buffer.length();
+    }
+
+    @Override
+    public void produce(@Nonnull DataStreamChannel channel) throws IOException {
+        buffer.flush(channel);
+    }
+
+    @Override
+    public void failed(@Nonnull Exception cause) {
+        buffer.abort();
+    }
+
+    @Override
+    public void releaseResources() {
+        if (!buffer.isEndStream()) {
+            buffer.abort();
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.classic;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+import org.apache.hc.core5.http.message.BasicClassicHttpResponse;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.apache.hc.core5.http.nio.support.classic.SharedInputBuffer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+
+/**
+ * {@link org.apache.hc.core5.http.nio.AsyncResponseConsumer} that hands out a classic response as soon as its head arrives
+ * <p>
+ * The body is piped from the I/O reactor to the reading thread, and the reactor stops reading while the pipe is full.
+ * Closing the body before its end aborts the exchange.
+ * If the exchange fails, the bytes received so far are still readable, then the stream fails rather than ends.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.classic.AsyncBackedHttpClient
+ */
+final class PipedResponseConsumer implements AsyncResponseConsumer<ClassicHttpResponse> {
+    private final int bufferSize;
+    private volatile SharedInputBuffer buffer;
+    private volatile CapacityChannel capacityChannel;
+    private volatile Exception failure;
+    private volatile boolean ended;
+    private volatile boolean discarded;
+
+    PipedResponseConsumer(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    @Override
+    public void consumeResponse(@Nonnull HttpResponse response, @Nullable EntityDetails entityDetails, @Nullable HttpContext context, @Nonnull FutureCallback<ClassicHttpResponse> resultCallback) throws HttpException, IOException {
+        BasicClassicHttpResponse result = new BasicClassicHttpResponse(response.getCode(), response.getReasonPhrase());
+        result.setVersion(response.getVersion());
+        result.setHeaders(response.getHeaders());
+        if (entityDetails != null) {
+            buffer = new SharedInputBuffer(bufferSize);
+            result.setEntity(new PipedEntity(entityDetails));
+        }
+        resultCallback.completed(result);
+    }
+
+    @Override
+    public void informationResponse(@Nonnull HttpResponse response, @Nullable HttpContext context) {
+    }
+
+    @Override
+    public void updateCapacity(@Nonnull CapacityChannel capacityChannel) throws IOException {
+        this.capacityChannel = capacityChannel;
+        if (discarded) {
+            capacityChannel.update(Integer.MAX_VALUE);
+        } else {
+            buffer.updateCapacity(capacityChannel);
+        }
+    }
+
+    @Override
+    public void consume(@Nonnull ByteBuffer src) throws IOException {
+        if (discarded) {
+            throw new InterruptedIOException("Response body closed before its end");    // $NON-NLS-1$
+        }
+        buffer.fill(src);
+    }
+
+    @Override
+    public void streamEnd(@Nullable List<? extends Header> trailers) {
+        ended = true;
+        buffer.markEndStream();
+    }
+
+    @Override
+    public void failed(@Nonnull Exception cause) {
+        failure = cause;
+        SharedInputBuffer current = buffer;
+        if (current != null) {
+            current.markEndStream();
+        }
+    }
+
+    @Override
+    public void releaseResources() {
+        SharedInputBuffer current = buffer;
+        if (current != null && !ended) {
+            current.markEndStream();
+        }
+    }
+
+    private void discard() throws IOException {
+        SharedInputBuffer current = buffer;
+        if (current == null || ended || discarded) {
+            return;
+        }
+        discarded = true;
+        current.abort();
+        CapacityChannel channel = capacityChannel;
+        if (channel != null) {
+            channel.update(Integer.MAX_VALUE);
+        }
+    }
+
+
+    /**
+     * Entity of the body that is being piped
+     */
+    private final class PipedEntity extends AbstractHttpEntity {
+        private final long contentLength;
+        private final InputStream stream = new PipedInputStream();
+
+        private PipedEntity(@Nonnull EntityDetails entityDetails) {
+            super(entityDetails.getContentType(), entityDetails.getContentEncoding(), entityDetails.isChunked());
+            this.contentLength = entityDetails.getContentLength();
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return false;
+        }
+
+        @Override
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        @Nonnull
+        @Override
+        public InputStream getContent() {
+            return stream;
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return !buffer.isEndStream() || buffer.hasData();
+        }
+
+        @Override
+        public void close() throws IOException {
+            stream.close();
+        }
+    }
+
+
+    /**
+     * Stream of the body that is being piped, which fails rather than ends if the exchange fails
+     */
+    private final class PipedInputStream extends InputStream {
+        private volatile boolean closed;
+
+        @Override
+        public int read() throws IOException {
+            ensureOpen();
+            int result = buffer.read();
+            if (result == -1) {
+                ensureIntact();
+            }
+            return result;
+        }
+
+        @Override
+        public int read(@Nonnull byte[] bytes, int offset, int count) throws IOException {
+            ensureOpen();
+            int result = buffer.read(bytes, offset, count);
+            if (result == -1) {
+                ensureIntact();
+            }
+            return result;
+        }
+
+        @Override
+        public int available() {
+            return buffer.length();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!closed) {
+                closed = true;
+                discard();
+            }
+        }
+
+        private void ensureOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");    // $NON-NLS-1$
+            }
+        }
+
+        private void ensureIntact() throws IOException {
+            Exception cause = failure;
+            if (cause != null) {
+                throw (cause instanceof IOException ex) ? ex : new IOException(cause);
+            }
+            if (!ended) {
+                throw new IOException("Response body is truncated");    // $NON-NLS-1$
+            }
+        }
+    }
+}
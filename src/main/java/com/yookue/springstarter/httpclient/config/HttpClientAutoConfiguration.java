@@ -20,16 +20,30 @@ package com.yookue.springstarter.httpclient.config;
 import jakarta.annotation.Nonnull;
 import org.apache.hc.client5.http.async.HttpAsyncClient;
 import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionManager;
 import org.apache.hc.core5.http.HttpVersion;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.AutoConfigureOrder;
+import org.springframework.boot.autoconfigure.condition.AllNestedConditions;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.core.Ordered;
+import com.yookue.springstarter.httpclient.aot.HttpClientRuntimeHints;
+import com.yookue.springstarter.httpclient.classic.AsyncBackedHttpClient;
+import com.yookue.springstarter.httpclient.pool.ConnectionEvictor;
 import com.yookue.springstarter.httpclient.property.HttpClientProperties;
+import com.yookue.springstarter.httpclient.refresh.RefreshableHttpAsyncClient;
+import com.yookue.springstarter.httpclient.refresh.RefreshableHttpClient;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
 import com.yookue.springstarter.httpclient.util.AsyncHttpClientBuilderUtils;
 import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
 
@@ -45,24 +59,99 @@ import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
 @ConditionalOnClass(value = HttpVersion.class)
 @EnableConfigurationProperties(value = HttpClientProperties.class)
 @AutoConfigureOrder(Ordered.LOWEST_PRECEDENCE - 1000)
+@ImportRuntimeHints(value = HttpClientRuntimeHints.class)
 public class HttpClientAutoConfiguration {
     public static final String PROPERTIES_PREFIX = "spring.http-client";    // $NON-NLS-1$
     public static final String SYNC_HTTP_CLIENT = "syncHttpClient";    // $NON-NLS-1$
     public static final String ASYNC_HTTP_CLIENT = "asyncHttpClient";    // $NON-NLS-1$
+    public static final String SYNC_CONNECTION_MANAGER = "syncHttpClientConnectionManager";    // $NON-NLS-1$
+    public static final String ASYNC_CONNECTION_MANAGER = "asyncHttpClientConnectionManager";    // $NON-NLS-1$
+    public static final String CONNECTION_EVICTOR = "httpClientConnectionEvictor";    // $NON-NLS-1$
+    public static final String HTTP_CLIENT_TIMER = "httpClientTimer";    // $NON-NLS-1$
+
+    @Bean(name = HTTP_CLIENT_TIMER, destroyMethod = "close")
+    @ConditionalOnMissingBean(name = HTTP_CLIENT_TIMER)
+    public HashedWheelTimer httpClientTimer() {
+        return new HashedWheelTimer();
+    }
+
+    @Bean(name = CONNECTION_EVICTOR, destroyMethod = "close")
+    @ConditionalOnMissingBean(name = CONNECTION_EVICTOR)
+    public ConnectionEvictor httpClientConnectionEvictor(@Nonnull HttpClientProperties properties, @Qualifier(value = HTTP_CLIENT_TIMER) @Nonnull HashedWheelTimer timer) {
+        return new ConnectionEvictor(timer, properties.getEvictionInterval());
+    }
+
+    @Bean(name = SYNC_CONNECTION_MANAGER)
+    @Conditional(value = SyncClientCondition.class)
+    @ConditionalOnClass(value = HttpClient.class)
+    @ConditionalOnMissingBean(name = {SYNC_CONNECTION_MANAGER, SYNC_HTTP_CLIENT})
+    public HttpClientConnectionManager syncHttpClientConnectionManager(@Nonnull HttpClientProperties properties, @Nonnull BeanFactory beanFactory) {
+        return SyncHttpClientBuilderUtils.connectionManager(properties.getSyncClient(), beanFactory);
+    }
 
     @Bean(name = SYNC_HTTP_CLIENT)
-    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".sync-client", name = "enabled", havingValue = "true", matchIfMissing = true)
+    @Conditional(value = SyncClientCondition.class)
     @ConditionalOnClass(value = HttpClient.class)
     @ConditionalOnMissingBean(name = SYNC_HTTP_CLIENT)
-    public HttpClient syncHttpClient(@Nonnull HttpClientProperties properties) {
-        return SyncHttpClientBuilderUtils.clientBuilder(properties.getSyncClient()).build();
+    public HttpClient syncHttpClient(@Nonnull HttpClientProperties properties, @Qualifier(value = SYNC_CONNECTION_MANAGER) @Nonnull HttpClientConnectionManager connectionManager, @Nonnull BeanFactory beanFactory) {
+        return new RefreshableHttpClient(properties.getSyncClient(), connectionManager, beanFactory);
+    }
+
+    @Bean(name = SYNC_HTTP_CLIENT)
+    @Conditional(value = AsyncBackedClientCondition.class)
+    @ConditionalOnClass(value = HttpClient.class)
+    @ConditionalOnMissingBean(name = SYNC_HTTP_CLIENT)
+    public HttpClient asyncBackedHttpClient(@Qualifier(value = ASYNC_HTTP_CLIENT) @Nonnull ObjectProvider<HttpAsyncClient> asyncHttpClient) {
+        HttpAsyncClient client = asyncHttpClient.getIfAvailable();
+        if (client == null) {
+            throw new IllegalStateException(String.format("Property '%s.sync-client.async-backed' requires an async client, enable '%s.async-client.enabled' or declare a bean named '%s'", PROPERTIES_PREFIX, PROPERTIES_PREFIX, ASYNC_HTTP_CLIENT));    // $NON-NLS-1$
+        }
+        return new AsyncBackedHttpClient(client);
+    }
+
+    @Bean(name = ASYNC_CONNECTION_MANAGER)
+    @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".async-client", name = "enabled", havingValue = "true", matchIfMissing = true)
+    @ConditionalOnClass(value = HttpAsyncClient.class)
+    @ConditionalOnMissingBean(name = {ASYNC_CONNECTION_MANAGER, ASYNC_HTTP_CLIENT})
+    public AsyncClientConnectionManager asyncHttpClientConnectionManager(@Nonnull HttpClientProperties properties, @Nonnull BeanFactory beanFactory) {
+        return AsyncHttpClientBuilderUtils.connectionManager(properties.getAsyncClient(), beanFactory);
     }
 
     @Bean(name = ASYNC_HTTP_CLIENT)
     @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".async-client", name = "enabled", havingValue = "true", matchIfMissing = true)
     @ConditionalOnClass(value = HttpAsyncClient.class)
     @ConditionalOnMissingBean(name = ASYNC_HTTP_CLIENT)
-    public HttpAsyncClient asyncHttpClient(@Nonnull HttpClientProperties properties) {
-        return AsyncHttpClientBuilderUtils.clientBuilder(properties.getAsyncClient()).build();
+    public HttpAsyncClient asyncHttpClient(@Nonnull HttpClientProperties properties, @Qualifier(value = ASYNC_CONNECTION_MANAGER) @Nonnull AsyncClientConnectionManager connectionManager, @Nonnull BeanFactory beanFactory) {
+        return new RefreshableHttpAsyncClient(properties.getAsyncClient(), connectionManager, beanFactory);
+    }
+
+
+    static class SyncClientCondition extends AllNestedConditions {
+        SyncClientCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".sync-client", name = "enabled", havingValue = "true", matchIfMissing = true)
+        static class OnEnabled {
+        }
+
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".sync-client", name = "async-backed", havingValue = "false", matchIfMissing = true)
+        static class OnNotAsyncBacked {
+        }
+    }
+
+
+    static class AsyncBackedClientCondition extends AllNestedConditions {
+        AsyncBackedClientCondition() {
+            super(ConfigurationPhase.REGISTER_BEAN);
+        }
+
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".sync-client", name = "enabled", havingValue = "true", matchIfMissing = true)
+        static class OnEnabled {
+        }
+
+        @ConditionalOnProperty(prefix = PROPERTIES_PREFIX + ".sync-client", name = "async-backed", havingValue = "true")
+        static class OnAsyncBacked {
+        }
     }
 }
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.config;
+
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionManager;
+import org.apache.hc.core5.http.HttpVersion;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.actuate.autoconfigure.endpoint.condition.ConditionalOnAvailableEndpoint;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import com.yookue.springstarter.httpclient.endpoint.HttpClientEndpoint;
+
+
+/**
+ * Configuration for http client actuator endpoint
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.endpoint.HttpClientEndpoint
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnClass(value = {HttpVersion.class, Endpoint.class})
+@ConditionalOnAvailableEndpoint(endpoint = HttpClientEndpoint.class)
+@AutoConfigureAfter(value = HttpClientAutoConfiguration.class)
+public class HttpClientEndpointAutoConfiguration {
+    @Bean
+    @ConditionalOnMissingBean
+    @SuppressWarnings("unchecked")
+    public HttpClientEndpoint httpClientEndpoint(@Qualifier(value = HttpClientAutoConfiguration.SYNC_CONNECTION_MANAGER) @Nonnull ObjectProvider<HttpClientConnectionManager> syncConnectionManager, @Qualifier(value = HttpClientAutoConfiguration.ASYNC_CONNECTION_MANAGER) @Nonnull ObjectProvider<AsyncClientConnectionManager> asyncConnectionManager) {
+        Map<String, ConnPoolControl<HttpRoute>> pools = new LinkedHashMap<>();
+        if (syncConnectionManager.getIfAvailable() instanceof ConnPoolControl<?> pool) {
+            pools.put(HttpClientAutoConfiguration.SYNC_HTTP_CLIENT, (ConnPoolControl<HttpRoute>) pool);
+        }
+        if (asyncConnectionManager.getIfAvailable() instanceof ConnPoolControl<?> pool) {
+            pools.put(HttpClientAutoConfiguration.ASYNC_HTTP_CLIENT, (ConnPoolControl<HttpRoute>) pool);
+        }
+        return new HttpClientEndpoint(pools);
+    }
+}
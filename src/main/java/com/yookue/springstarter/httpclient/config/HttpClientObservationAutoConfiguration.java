@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.config;
+
+
+import jakarta.annotation.Nonnull;
+import org.apache.hc.core5.http.HttpVersion;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import io.micrometer.observation.ObservationRegistry;
+import com.yookue.springstarter.httpclient.customizer.AsyncHttpClientBuilderCustomizer;
+import com.yookue.springstarter.httpclient.customizer.SyncHttpClientBuilderCustomizer;
+import com.yookue.springstarter.httpclient.observation.HttpClientObservationConvention;
+import com.yookue.springstarter.httpclient.observation.ObservationAsyncExecHandler;
+import com.yookue.springstarter.httpclient.observation.ObservationExecHandler;
+import com.yookue.springstarter.httpclient.observation.ObservationPoolListener;
+import com.yookue.springstarter.httpclient.pool.ConnectionPoolMonitor;
+
+
+/**
+ * Configuration for observing the exchanges of http clients
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.observation.ObservationExecHandler
+ * @see com.yookue.springstarter.httpclient.observation.ObservationAsyncExecHandler
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnClass(value = {HttpVersion.class, ObservationRegistry.class})
+@ConditionalOnBean(value = ObservationRegistry.class)
+@AutoConfigureAfter(name = "org.springframework.boot.actuate.autoconfigure.observation.ObservationAutoConfiguration")    // $NON-NLS-1$
+public class HttpClientObservationAutoConfiguration {
+    public static final String SYNC_BUILDER_CUSTOMIZER = "syncHttpClientObservationCustomizer";    // $NON-NLS-1$
+    public static final String ASYNC_BUILDER_CUSTOMIZER = "asyncHttpClientObservationCustomizer";    // $NON-NLS-1$
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX, name = "observation-enabled", havingValue = "true", matchIfMissing = true)
+    public ObservationPoolListener httpClientObservationPoolListener() {
+        return new ObservationPoolListener();
+    }
+
+    @Bean(name = SYNC_BUILDER_CUSTOMIZER)
+    @ConditionalOnMissingBean(name = SYNC_BUILDER_CUSTOMIZER)
+    @ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX, name = "observation-enabled", havingValue = "true", matchIfMissing = true)
+    public SyncHttpClientBuilderCustomizer syncHttpClientObservationCustomizer(@Nonnull ObservationRegistry registry, @Nonnull ObjectProvider<HttpClientObservationConvention> convention, @Nonnull ObservationPoolListener poolListener) {
+        return (builder, connectionManager) -> {
+            if (connectionManager instanceof ConnectionPoolMonitor monitor) {
+                monitor.addListener(poolListener);
+            }
+            builder.addExecInterceptorFirst(ObservationExecHandler.HANDLER_NAME, new ObservationExecHandler(registry, convention.getIfAvailable(), poolListener));
+        };
+    }
+
+    @Bean(name = ASYNC_BUILDER_CUSTOMIZER)
+    @ConditionalOnMissingBean(name = ASYNC_BUILDER_CUSTOMIZER)
+    @ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX, name = "observation-enabled", havingValue = "true", matchIfMissing = true)
+    public AsyncHttpClientBuilderCustomizer asyncHttpClientObservationCustomizer(@Nonnull ObservationRegistry registry, @Nonnull ObjectProvider<HttpClientObservationConvention> convention, @Nonnull ObservationPoolListener poolListener) {
+        return (builder, connectionManager) -> {
+            if (connectionManager instanceof ConnectionPoolMonitor monitor) {
+                monitor.addListener(poolListener);
+            }
+            builder.addExecInterceptorFirst(ObservationAsyncExecHandler.HANDLER_NAME, new ObservationAsyncExecHandler(registry, convention.getIfAvailable(), poolListener));
+        };
+    }
+}
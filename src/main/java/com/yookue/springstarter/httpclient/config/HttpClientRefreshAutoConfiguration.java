@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.config;
+
+
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.async.HttpAsyncClient;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.core5.http.HttpVersion;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import com.yookue.springstarter.httpclient.refresh.HttpClientRefreshListener;
+
+
+/**
+ * Configuration for refreshing http clients on environment changes
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.refresh.HttpClientRefreshListener
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnClass(value = {HttpVersion.class, EnvironmentChangeEvent.class})
+@AutoConfigureAfter(value = HttpClientAutoConfiguration.class)
+public class HttpClientRefreshAutoConfiguration {
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX, name = "refresh-enabled", havingValue = "true", matchIfMissing = true)
+    public HttpClientRefreshListener httpClientRefreshListener(@Nonnull Environment environment, @Qualifier(value = HttpClientAutoConfiguration.SYNC_HTTP_CLIENT) @Nonnull ObjectProvider<HttpClient> syncHttpClient, @Qualifier(value = HttpClientAutoConfiguration.ASYNC_HTTP_CLIENT) @Nonnull ObjectProvider<HttpAsyncClient> asyncHttpClient) {
+        return new HttpClientRefreshListener(environment, syncHttpClient, asyncHttpClient);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.config;
+
+
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.async.HttpAsyncClient;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.HttpVersion;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.AllNestedConditions;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.client.RestTemplateCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Conditional;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.HttpComponentsClientHttpConnector;
+
+
+/**
+ * Configuration for backing {@code RestClient}, {@code RestTemplate} and {@code WebClient} with the http clients
+ * <p>
+ * The builders that Spring Boot configures then share the pools of the {@code syncHttpClient} and {@code asyncHttpClient} beans.
+ * The request factory and the connector back off when a {@code ClientHttpRequestFactory} or a {@code ClientHttpConnector} bean is defined,
+ * and they leave closing the http clients to the client beans.
+ *
+ * @author David Hsing
+ * @see org.springframework.http.client.HttpComponentsClientHttpRequestFactory
+ * @see org.springframework.http.client.reactive.HttpComponentsClientHttpConnector
+ */
+@Configuration(proxyBeanMethods = false)
+@ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX, name = "enabled", havingValue = "true", matchIfMissing = true)
+@ConditionalOnClass(value = {HttpVersion.class, ClientHttpRequestFactory.class})
+@AutoConfigureAfter(value = HttpClientAutoConfiguration.class)
+@AutoConfigureBefore(name = {
+    "org.springframework.boot.autoconfigure.web.client.RestClientAutoConfiguration",    // $NON-NLS-1$
+    "org.springframework.boot.autoconfigure.web.client.RestTemplateAutoConfiguration",    // $NON-NLS-1$
+    "org.springframework.boot.autoconfigure.web.reactive.function.client.ClientHttpConnectorAutoConfiguration",    // $NON-NLS-1$
+    "org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientAutoConfiguration"    // $NON-NLS-1$
+})
+public class HttpClientWebAutoConfiguration {
+    public static final String SYNC_REQUEST_FACTORY = "syncHttpClientRequestFactory";    // $NON-NLS-1$
+    public static final String ASYNC_CLIENT_CONNECTOR = "asyncHttpClientConnector";    // $NON-NLS-1$
+    public static final String REST_CLIENT_CUSTOMIZER = "httpClientRestClientCustomizer";    // $NON-NLS-1$
+    public static final String REST_TEMPLATE_CUSTOMIZER = "httpClientRestTemplateCustomizer";    // $NON-NLS-1$
+    public static final String WEB_CLIENT_CUSTOMIZER = "httpClientWebClientCustomizer";    // $NON-NLS-1$
+
+
+    @Configuration(proxyBeanMethods = false)
+    @Conditional(value = RequestFactoryCondition.class)
+    @ConditionalOnClass(value = HttpClient.class)
+    static class RequestFactoryConfiguration {
+        @Bean(name = SYNC_REQUEST_FACTORY, destroyMethod = "")
+        @ConditionalOnMissingBean(value = ClientHttpRequestFactory.class)
+        public ClientHttpRequestFactory syncHttpClientRequestFactory(@Qualifier(value = HttpClientAutoConfiguration.SYNC_HTTP_CLIENT) @Nonnull HttpClient syncHttpClient) {
+            return new SharedClientHttpRequestFactory(syncHttpClient);
+        }
+
+        @Bean(name = REST_CLIENT_CUSTOMIZER)
+        @ConditionalOnBean(name = SYNC_REQUEST_FACTORY)
+        @ConditionalOnMissingBean(name = REST_CLIENT_CUSTOMIZER)
+        @ConditionalOnClass(name = "org.springframework.web.client.RestClient")    // $NON-NLS-1$
+        public RestClientCustomizer httpClientRestClientCustomizer(@Qualifier(value = SYNC_REQUEST_FACTORY) @Nonnull ClientHttpRequestFactory requestFactory) {
+            return builder -> builder.requestFactory(requestFactory);
+        }
+
+        @Bean(name = REST_TEMPLATE_CUSTOMIZER)
+        @ConditionalOnBean(name = SYNC_REQUEST_FACTORY)
+        @ConditionalOnMissingBean(name = REST_TEMPLATE_CUSTOMIZER)
+        @ConditionalOnClass(name = "org.springframework.web.client.RestTemplate")    // $NON-NLS-1$
+        public RestTemplateCustomizer httpClientRestTemplateCustomizer(@Qualifier(value = SYNC_REQUEST_FACTORY) @Nonnull ClientHttpRequestFactory requestFactory) {
+            return restTemplate -> restTemplate.setRequestFactory(requestFactory);
+        }
+    }
+
+
+    @Configuration(proxyBeanMethods = false)
+    @Conditional(value = ClientConnectorCondition.class)
+    @ConditionalOnClass(name = {"org.apache.hc.client5.http.async.HttpAsyncClient", "org.apache.hc.core5.reactive.ReactiveResponseConsumer", "reactor.core.publisher.Mono"})    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+    static class ClientConnectorConfiguration {
+        @Bean(name = ASYNC_CLIENT_CONNECTOR, destroyMethod = "")
+        @ConditionalOnMissingBean(value = ClientHttpConnector.class)
+        public ClientHttpConnector asyncHttpClientConnector(@Qualifier(value = HttpClientAutoConfiguration.ASYNC_HTTP_CLIENT) @Nonnull HttpAsyncClient asyncHttpClient) {
+            if (!(asyncHttpClient instanceof CloseableHttpAsyncClient closeableClient)) {
+                throw new IllegalStateException("Bean '" + HttpClientAutoConfiguration.ASYNC_HTTP_CLIENT + "' must be a CloseableHttpAsyncClient to back a ClientHttpConnector");    // $NON-NLS-1$ // $NON-NLS-2$
+            }
+            return new HttpComponentsClientHttpConnector(closeableClient);
+        }
+
+        @Bean(name = WEB_CLIENT_CUSTOMIZER)
+        @ConditionalOnBean(name = ASYNC_CLIENT_CONNECTOR)
+        @ConditionalOnMissingBean(name = WEB_CLIENT_CUSTOMIZER)
+        @ConditionalOnClass(name = "org.springframework.web.reactive.function.client.WebClient")    // $NON-NLS-1$
+        public WebClientCustomizer httpClientWebClientCustomizer(@Qualifier(value = ASYNC_CLIENT_CONNECTOR) @Nonnull ClientHttpConnector clientConnector) {
+            return builder -> builder.clientConnector(clientConnector);
+        }
+    }
+
+
+    /**
+     * Request factory that leaves closing the shared client to the client bean
+     * <p>
+     * {@link org.springframework.http.client.HttpComponentsClientHttpRequestFactory} is a {@link org.springframework.beans.factory.DisposableBean}
+     * that closes its client, which {@code destroyMethod = ""} alone does not prevent.
+     */
+    static class SharedClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+        SharedClientHttpRequestFactory(@Nonnull HttpClient httpClient) {
+            super(httpClient);
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+
+    static class RequestFactoryCondition extends AllNestedConditions {
+        RequestFactoryCondition() {
+            super(ConfigurationPhase.PARSE_CONFIGURATION);
+        }
+
+        @ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX, name = "web-integration-enabled", havingValue = "true", matchIfMissing = true)
+        static class OnWebIntegrationEnabled {
+        }
+
+        @ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX + ".sync-client", name = "enabled", havingValue = "true", matchIfMissing = true)
+        static class OnSyncClientEnabled {
+        }
+    }
+
+
+    static class ClientConnectorCondition extends AllNestedConditions {
+        ClientConnectorCondition() {
+            super(ConfigurationPhase.PARSE_CONFIGURATION);
+        }
+
+        @ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX, name = "web-integration-enabled", havingValue = "true", matchIfMissing = true)
+        static class OnWebIntegrationEnabled {
+        }
+
+        @ConditionalOnProperty(prefix = HttpClientAutoConfiguration.PROPERTIES_PREFIX + ".async-client", name = "enabled", havingValue = "true", matchIfMissing = true)
+        static class OnAsyncClientEnabled {
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.connect;
+
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Orders the resolved addresses of a host for the connect attempts of happy eyeballs
+ * <p>
+ * The address families are interleaved, starting with the family of the first resolved address.
+ * The addresses that failed to connect within the failure memory are tried last.
+ *
+ * @author David Hsing
+ * @see <a href="https://www.rfc-editor.org/rfc/rfc8305#section-4">RFC 8305 section 4</a>
+ */
+final class ConnectAddressSorter {
+    /**
+     * The count of remembered failures above which the expired ones are purged
+     */
+    private static final int PURGE_THRESHOLD = 256;
+
+    private final Map<InetAddress, Long> failures = new ConcurrentHashMap<>();
+    private final long failureMemoryNanos;
+
+    ConnectAddressSorter(@Nonnull Duration failureMemory) {
+        this.failureMemoryNanos = Math.max(failureMemory.toNanos(), 0L);
+    }
+
+    @Nonnull
+    List<InetAddress> sort(@Nonnull InetAddress[] addresses) {
+        long now = System.nanoTime();
+        List<InetAddress> primary = new ArrayList<>(addresses.length), secondary = new ArrayList<>(addresses.length), failing = new ArrayList<>();
+        boolean preferV6 = addresses.length > 0 && addresses[0] instanceof Inet6Address;
+        for (InetAddress address : addresses) {
+            if (isFailing(address, now)) {
+                failing.add(address);
+            } else if ((address instanceof Inet6Address) == preferV6) {
+                primary.add(address);
+            } else {
+                secondary.add(address);
+            }
+        }
+        List<InetAddress> result = new ArrayList<>(addresses.length);
+        for (int i = 0; i < Math.max(primary.size(), secondary.size()); i++) {
+            if (i < primary.size()) {
+                result.add(primary.get(i));
+            }
+            if (i < secondary.size()) {
+                result.add(secondary.get(i));
+            }
+        }
+        result.addAll(failing);
+        return result;
+    }
+
+    void failed(@Nonnull InetAddress address) {
+        if (failureMemoryNanos <= 0L) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (failures.size() >= PURGE_THRESHOLD) {
+            failures.values().removeIf(failedAt -> now - failedAt >= failureMemoryNanos);
+        }
+        failures.put(address, now);
+    }
+
+    void succeeded(@Nonnull InetAddress address) {
+        failures.remove(address);
+    }
+
+    private boolean isFailing(@Nonnull InetAddress address, long now) {
+        Long failedAt = failures.get(address);
+        return failedAt != null && now - failedAt < failureMemoryNanos;
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.connect;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.ConnectExceptionSupport;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionOperator;
+import org.apache.hc.client5.http.nio.ManagedAsyncClientConnection;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.concurrent.ComplexFuture;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.reactor.ConnectionInitiator;
+import org.apache.hc.core5.util.Timeout;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * {@link org.apache.hc.client5.http.nio.AsyncClientConnectionOperator} that races the connects to the resolved addresses of a host
+ * <p>
+ * A connect attempt starts every attempt delay, or as soon as the previous attempt fails, in the order of a {@link com.yookue.springstarter.httpclient.connect.ConnectAddressSorter}.
+ * Each attempt is delegated with the address pinned, the first connection that completes wins and the others are cancelled or closed.
+ * Hosts with a single address and literal addresses are left to the delegate operator.
+ * The delayed attempts are handed off from the timer to an executor, since starting an attempt may complete the callbacks of the exchange.
+ *
+ * @author David Hsing
+ * @see <a href="https://www.rfc-editor.org/rfc/rfc8305">RFC 8305</a>
+ * @see com.yookue.springstarter.httpclient.connect.HappyEyeballsConnectionOperator
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class HappyEyeballsAsyncConnectionOperator implements AsyncClientConnectionOperator {
+    private final AsyncClientConnectionOperator delegate;
+    private final DnsResolver dnsResolver;
+    private final long attemptDelayMillis;
+    private final ConnectAddressSorter addressSorter;
+    private final HashedWheelTimer timer;
+    private final Executor executor;
+
+    public HappyEyeballsAsyncConnectionOperator(@Nonnull AsyncClientConnectionOperator delegate, @Nullable DnsResolver dnsResolver, @Nonnull Duration attemptDelay, @Nonnull Duration failureMemory) {
+        this(delegate, dnsResolver, attemptDelay, failureMemory, null, null);
+    }
+
+    /**
+     * Constructs a new operator
+     *
+     * @param delegate the operator that makes each connect attempt
+     * @param dnsResolver the resolver of the addresses of the hosts, {@code null} for the system resolver
+     * @param attemptDelay the delay before starting the next attempt
+     * @param failureMemory the time that a failed address stays sorted last
+     * @param timer the timer that schedules the delayed attempts, {@code null} for {@link com.yookue.springstarter.httpclient.timer.HashedWheelTimer#getShared()}
+     * @param executor the executor that starts the delayed attempts, {@code null} for the common pool
+     */
+    public HappyEyeballsAsyncConnectionOperator(@Nonnull AsyncClientConnectionOperator delegate, @Nullable DnsResolver dnsResolver, @Nonnull Duration attemptDelay, @Nonnull Duration failureMemory, @Nullable HashedWheelTimer timer, @Nullable Executor executor) {
+        this.delegate = delegate;
+        this.dnsResolver = (dnsResolver != null) ? dnsResolver : SystemDefaultDnsResolver.INSTANCE;
+        this.attemptDelayMillis = Math.max(attemptDelay.toMillis(), 1L);
+        this.addressSorter = new ConnectAddressSorter(failureMemory);
+        this.timer = (timer == null) ? HashedWheelTimer.getShared() : timer;
+        this.executor = (executor == null) ? ForkJoinPool.commonPool() : executor;
+    }
+
+    @Override
+    public Future<ManagedAsyncClientConnection> connect(@Nonnull ConnectionInitiator connectionInitiator, @Nonnull HttpHost host, @Nullable SocketAddress localAddress, @Nullable Timeout connectTimeout, @Nullable Object attachment, @Nullable FutureCallback<ManagedAsyncClientConnection> callback) {
+        return connect(connectionInitiator, host, null, localAddress, connectTimeout, attachment, null, callback);
+    }
+
+    @Override
+    public Future<ManagedAsyncClientConnection> connect(@Nonnull ConnectionInitiator connectionInitiator, @Nonnull HttpHost endpointHost, @Nullable NamedEndpoint endpointName, @Nullable SocketAddress localAddress, @Nullable Timeout connectTimeout, @Nullable Object attachment, @Nullable HttpContext context, @Nullable FutureCallback<ManagedAsyncClientConnection> callback) {
+        if (endpointHost.getAddress() != null) {
+            return delegate.connect(connectionInitiator, endpointHost, endpointName, localAddress, connectTimeout, attachment, context, callback);
+        }
+        InetAddress[] addresses;
+        try {
+            addresses = dnsResolver.resolve(endpointHost.getHostName());
+            if (addresses == null || addresses.length == 0) {
+                throw new UnknownHostException(endpointHost.getHostName());
+            }
+        } catch (UnknownHostException ex) {
+            ComplexFuture<ManagedAsyncClientConnection> future = new ComplexFuture<>(callback);
+            future.failed(ex);
+            return future;
+        }
+        if (addresses.length == 1) {
+            return delegate.connect(connectionInitiator, pinHost(endpointHost, addresses[0]), endpointName, localAddress, connectTimeout, attachment, context, callback);
+        }
+        ComplexFuture<ManagedAsyncClientConnection> future = new ComplexFuture<>(callback);
+        Race race = new Race(future, endpointHost, addresses, attempt -> delegate.connect(connectionInitiator, pinHost(endpointHost, attempt.address), endpointName, localAddress, connectTimeout, attachment, context, attempt));
+        future.setDependency(race);
+        race.startNext();
+        return future;
+    }
+
+    @Override
+    public void upgrade(@Nonnull ManagedAsyncClientConnection conn, @Nonnull HttpHost host, @Nullable Object attachment) {
+        delegate.upgrade(conn, host, attachment);
+    }
+
+    @Override
+    public void upgrade(@Nonnull ManagedAsyncClientConnection conn, @Nonnull HttpHost endpointHost, @Nullable NamedEndpoint endpointName, @Nullable Object attachment, @Nullable HttpContext context, @Nullable FutureCallback<ManagedAsyncClientConnection> callback) {
+        delegate.upgrade(conn, endpointHost, endpointName, attachment, context, callback);
+    }
+
+    @Nonnull
+    private static HttpHost pinHost(@Nonnull HttpHost endpointHost, @Nonnull InetAddress address) {
+        return new HttpHost(endpointHost.getSchemeName(), address, endpointHost.getHostName(), endpointHost.getPort());
+    }
+
+
+    @FunctionalInterface
+    private interface AttemptStarter {
+        Future<ManagedAsyncClientConnection> start(@Nonnull Race.Attempt attempt);
+    }
+
+
+    /**
+     * The connect attempts to the addresses of a host, guarded by the monitor of the race
+     */
+    private final class Race implements Cancellable {
+        private final ComplexFuture<ManagedAsyncClientConnection> future;
+        private final HttpHost endpointHost;
+        private final InetAddress[] addresses;
+        private final List<InetAddress> candidates;
+        private final AttemptStarter starter;
+        private final List<Future<ManagedAsyncClientConnection>> attempts = new ArrayList<>();
+        private final List<Exception> failures = new ArrayList<>();
+        private Cancellable nextAttempt;
+        private int started;
+        private int running;
+        private boolean done;
+
+        private Race(@Nonnull ComplexFuture<ManagedAsyncClientConnection> future, @Nonnull HttpHost endpointHost, @Nonnull InetAddress[] addresses, @Nonnull AttemptStarter starter) {
+            this.future = future;
+            this.endpointHost = endpointHost;
+            this.addresses = addresses;
+            this.candidates = addressSorter.sort(addresses);
+            this.starter = starter;
+        }
+
+        private synchronized void startNext() {
+            if (done || started >= candidates.size()) {
+                return;
+            }
+            if (nextAttempt != null) {
+                nextAttempt.cancel();
+                nextAttempt = null;
+            }
+            Attempt attempt = new Attempt(candidates.get(started++));
+            running++;
+            attempts.add(starter.start(attempt));
+            if (!done && started < candidates.size() && nextAttempt == null) {
+                nextAttempt = timer.schedule(this::startNext, attemptDelayMillis, TimeUnit.MILLISECONDS, executor);
+            }
+        }
+
+        private synchronized void onCompleted(@Nonnull InetAddress address, @Nonnull ManagedAsyncClientConnection connection) {
+            running--;
+            addressSorter.succeeded(address);
+            if (done) {
+                connection.close(CloseMode.IMMEDIATE);
+                return;
+            }
+            finish();
+            if (!future.completed(connection)) {
+                connection.close(CloseMode.IMMEDIATE);
+            }
+        }
+
+        private synchronized void onFailed(@Nonnull InetAddress address, @Nonnull Exception ex) {
+            running--;
+            addressSorter.failed(address);
+            if (done) {
+                return;
+            }
+            failures.add(ex);
+            if (log.isDebugEnabled()) {
+                log.debug("{} connection to {} failed ({}), racing the remaining addresses", endpointHost, address, ex.getClass());    // $NON-NLS-1$
+            }
+            if (started < candidates.size()) {
+                startNext();
+            } else if (running == 0) {
+                finish();
+                Exception failure = failures.get(0);
+                for (int i = 1; i < failures.size(); i++) {
+                    failure.addSuppressed(failures.get(i));
+                }
+                future.failed((failure instanceof IOException cause) ? ConnectExceptionSupport.enhance(cause, endpointHost, addresses) : failure);
+            }
+        }
+
+        @Override
+        public synchronized boolean cancel() {
+            if (done) {
+                return false;
+            }
+            finish();
+            return true;
+        }
+
+        private void finish() {
+            done = true;
+            if (nextAttempt != null) {
+                nextAttempt.cancel();
+                nextAttempt = null;
+            }
+            for (Future<ManagedAsyncClientConnection> attempt : attempts) {
+                if (!attempt.isDone()) {
+                    attempt.cancel(true);
+                }
+            }
+        }
+
+
+        /**
+         * Callback of the connect attempt to one address
+         */
+        private final class Attempt implements FutureCallback<ManagedAsyncClientConnection> {
+            private final InetAddress address;
+
+            private Attempt(@Nonnull InetAddress address) {
+                this.address = address;
+            }
+
+            @Override
+            public void completed(ManagedAsyncClientConnection connection) {
+                onCompleted(address, connection);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                onFailed(address, ex);
+            }
+
+            @Override
+            public void cancelled() {
+                synchronized (Race.this) {
+                    running--;
+                }
+            }
+        }
+    }
+}
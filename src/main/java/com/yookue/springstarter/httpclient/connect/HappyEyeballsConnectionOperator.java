@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.connect;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLSocket;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.ConnectExceptionSupport;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.io.HttpClientConnectionOperator;
+import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.config.Lookup;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.Closer;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * {@link org.apache.hc.client5.http.io.HttpClientConnectionOperator} that races the connects to the resolved addresses of a host
+ * <p>
+ * A connect attempt starts every attempt delay, or as soon as the previous attempt fails, in the order of a {@link com.yookue.springstarter.httpclient.connect.ConnectAddressSorter}.
+ * The first socket that connects wins and the others are closed, then the winner is upgraded to TLS if the scheme requires.
+ * Hosts with a single address, literal addresses and socks proxies are left to the delegate operator.
+ *
+ * @author David Hsing
+ * @see <a href="https://www.rfc-editor.org/rfc/rfc8305">RFC 8305</a>
+ * @see com.yookue.springstarter.httpclient.connect.HappyEyeballsAsyncConnectionOperator
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class HappyEyeballsConnectionOperator implements HttpClientConnectionOperator {
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "httpclient-happy-eyeballs");    // $NON-NLS-1$
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final HttpClientConnectionOperator delegate;
+    private final SchemePortResolver schemePortResolver;
+    private final DnsResolver dnsResolver;
+    private final Lookup<TlsSocketStrategy> tlsSocketStrategyLookup;
+    private final long attemptDelayMillis;
+    private final ConnectAddressSorter addressSorter;
+
+    public HappyEyeballsConnectionOperator(@Nonnull HttpClientConnectionOperator delegate, @Nullable SchemePortResolver schemePortResolver, @Nullable DnsResolver dnsResolver, @Nullable Lookup<TlsSocketStrategy> tlsSocketStrategyLookup, @Nonnull Duration attemptDelay, @Nonnull Duration failureMemory) {
+        this.delegate = delegate;
+        this.schemePortResolver = (schemePortResolver != null) ? schemePortResolver : DefaultSchemePortResolver.INSTANCE;
+        this.dnsResolver = (dnsResolver != null) ? dnsResolver : SystemDefaultDnsResolver.INSTANCE;
+        this.tlsSocketStrategyLookup = tlsSocketStrategyLookup;
+        this.attemptDelayMillis = Math.max(attemptDelay.toMillis(), 1L);
+        this.addressSorter = new ConnectAddressSorter(failureMemory);
+    }
+
+    @Override
+    public void connect(@Nonnull ManagedHttpClientConnection conn, @Nonnull HttpHost host, @Nullable InetSocketAddress localAddress, @Nullable TimeValue connectTimeout, @Nonnull SocketConfig socketConfig, @Nonnull HttpContext context) throws IOException {
+        Timeout timeout = (connectTimeout != null) ? Timeout.of(connectTimeout.getDuration(), connectTimeout.getTimeUnit()) : null;
+        connect(conn, host, null, localAddress, timeout, socketConfig, null, context);
+    }
+
+    @Override
+    public void connect(@Nonnull ManagedHttpClientConnection conn, @Nonnull HttpHost endpointHost, @Nullable NamedEndpoint endpointName, @Nullable InetSocketAddress localAddress, @Nullable Timeout connectTimeout, @Nonnull SocketConfig socketConfig, @Nullable Object attachment, @Nonnull HttpContext context) throws IOException {
+        if (endpointHost.getAddress() != null || socketConfig.getSocksProxyAddress() != null) {
+            delegate.connect(conn, endpointHost, endpointName, localAddress, connectTimeout, socketConfig, attachment, context);
+            return;
+        }
+        InetAddress[] addresses = dnsResolver.resolve(endpointHost.getHostName());
+        if (addresses == null || addresses.length == 0) {
+            throw new UnknownHostException(endpointHost.getHostName());
+        }
+        if (addresses.length == 1) {
+            delegate.connect(conn, new HttpHost(endpointHost.getSchemeName(), addresses[0], endpointHost.getHostName(), endpointHost.getPort()), endpointName, localAddress, connectTimeout, socketConfig, attachment, context);
+            return;
+        }
+        int port = schemePortResolver.resolve(endpointHost.getSchemeName(), endpointHost);
+        Socket socket = race(endpointHost, addresses, port, localAddress, connectTimeout, socketConfig);
+        try {
+            conn.bind(socket);
+            conn.setSocketTimeout(socketConfig.getSoTimeout());
+            TlsSocketStrategy tlsSocketStrategy = (tlsSocketStrategyLookup != null) ? tlsSocketStrategyLookup.lookup(endpointHost.getSchemeName()) : null;
+            if (tlsSocketStrategy != null) {
+                NamedEndpoint tlsName = (endpointName != null) ? endpointName : endpointHost;
+                SSLSocket sslSocket = tlsSocketStrategy.upgrade(socket, tlsName.getHostName(), tlsName.getPort(), attachment, context);
+                conn.bind(sslSocket, socket);
+            }
+        } catch (IOException | RuntimeException ex) {
+            Closer.closeQuietly(socket);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void upgrade(@Nonnull ManagedHttpClientConnection conn, @Nonnull HttpHost host, @Nonnull HttpContext context) throws IOException {
+        delegate.upgrade(conn, host, context);
+    }
+
+    @Override
+    public void upgrade(@Nonnull ManagedHttpClientConnection conn, @Nonnull HttpHost endpointHost, @Nullable NamedEndpoint endpointName, @Nullable Object attachment, @Nonnull HttpContext context) throws IOException {
+        delegate.upgrade(conn, endpointHost, endpointName, attachment, context);
+    }
+
+    @Nonnull
+    private Socket race(@Nonnull HttpHost endpointHost, @Nonnull InetAddress[] addresses, int port, @Nullable InetSocketAddress localAddress, @Nullable Timeout connectTimeout, @Nonnull SocketConfig socketConfig) throws IOException {
+        List<InetAddress> candidates = addressSorter.sort(addresses);
+        int timeoutMillis = TimeValue.isPositive(connectTimeout) ? connectTimeout.toMillisecondsIntBound() : 0;
+        CompletionService<Socket> completionService = new ExecutorCompletionService<>(EXECUTOR);
+        Map<Future<Socket>, InetAddress> attempts = new HashMap<>(candidates.size());
+        List<Socket> sockets = new ArrayList<>(candidates.size());
+        List<IOException> failures = new ArrayList<>();
+        Socket winner = null;
+        int started = 0, running = 0;
+        try {
+            while (winner == null && (started < candidates.size() || running > 0)) {
+                if (started < candidates.size() && running == 0) {
+                    InetAddress address = candidates.get(started++);
+                    attempts.put(startAttempt(completionService, sockets, new InetSocketAddress(address, port), localAddress, timeoutMillis, socketConfig), address);
+                    running++;
+                    continue;
+                }
+                Future<Socket> done = (started < candidates.size()) ? completionService.poll(attemptDelayMillis, TimeUnit.MILLISECONDS) : completionService.take();
+                if (done == null) {
+                    InetAddress address = candidates.get(started++);
+                    attempts.put(startAttempt(completionService, sockets, new InetSocketAddress(address, port), localAddress, timeoutMillis, socketConfig), address);
+                    running++;
+                    continue;
+                }
+                running--;
+                InetAddress address = attempts.get(done);
+                try {
+                    winner = done.get();
+                    addressSorter.succeeded(address);
+                } catch (ExecutionException ex) {
+                    addressSorter.failed(address);
+                    failures.add((ex.getCause() instanceof IOException cause) ? cause : new IOException(ex.getCause()));
+                    if (log.isDebugEnabled()) {
+                        log.debug("{} connection to {} failed ({}), racing the remaining addresses", endpointHost, address, ex.getCause().getClass());    // $NON-NLS-1$
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while connecting to " + endpointHost);    // $NON-NLS-1$
+        } finally {
+            for (Socket socket : sockets) {
+                if (socket != winner) {
+                    Closer.closeQuietly(socket);
+                }
+            }
+        }
+        if (winner == null) {
+            IOException failure = failures.get(0);
+            for (int i = 1; i < failures.size(); i++) {
+                failure.addSuppressed(failures.get(i));
+            }
+            throw ConnectExceptionSupport.enhance(failure, endpointHost, addresses);
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("{} connected {}->{} out of {} addresses", endpointHost, winner.getLocalSocketAddress(), winner.getRemoteSocketAddress(), addresses.length);    // $NON-NLS-1$
+        }
+        return winner;
+    }
+
+    @Nonnull
+    private Future<Socket> startAttempt(@Nonnull CompletionService<Socket> completionService, @Nonnull List<Socket> sockets, @Nonnull InetSocketAddress remoteAddress, @Nullable InetSocketAddress localAddress, int timeoutMillis, @Nonnull SocketConfig socketConfig) throws IOException {
+        Socket socket = new Socket();
+        sockets.add(socket);
+        configureSocket(socket, socketConfig);
+        return completionService.submit(() -> {
+            if (localAddress != null) {
+                socket.bind(localAddress);
+            }
+            socket.connect(remoteAddress, timeoutMillis);
+            return socket;
+        });
+    }
+
+    private void configureSocket(@Nonnull Socket socket, @Nonnull SocketConfig socketConfig) throws IOException {
+        if (socketConfig.getSoTimeout() != null) {
+            socket.setSoTimeout(socketConfig.getSoTimeout().toMillisecondsIntBound());
+        }
+        socket.setReuseAddress(socketConfig.isSoReuseAddress());
+        socket.setTcpNoDelay(socketConfig.isTcpNoDelay());
+        socket.setKeepAlive(socketConfig.isSoKeepAlive());
+        if (socketConfig.getRcvBufSize() > 0) {
+            socket.setReceiveBufferSize(socketConfig.getRcvBufSize());
+        }
+        if (socketConfig.getSndBufSize() > 0) {
+            socket.setSendBufferSize(socketConfig.getSndBufSize());
+        }
+        int linger = socketConfig.getSoLinger().toSecondsIntBound();
+        if (linger >= 0) {
+            socket.setSoLinger(true, linger);
+        }
+    }
+}
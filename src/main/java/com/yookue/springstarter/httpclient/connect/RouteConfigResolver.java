@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.connect;
+
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.function.Resolver;
+import com.yookue.springstarter.httpclient.route.HostPatternMatcher;
+
+
+/**
+ * {@link org.apache.hc.core5.function.Resolver} of a config by the target host of a route
+ * <p>
+ * The routes are matched in the order they are added, and the first matching route wins, otherwise the default config applies.
+ *
+ * @param <T> the type of the config
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.route.HostPatternMatcher
+ */
+@SuppressWarnings("unused")
+public final class RouteConfigResolver<T> implements Resolver<HttpRoute, T> {
+    private final T defaultConfig;
+    private final List<HostPatternMatcher> matchers = new ArrayList<>();
+    private final List<T> configs = new ArrayList<>();
+
+    public RouteConfigResolver(@Nonnull T defaultConfig) {
+        this.defaultConfig = defaultConfig;
+    }
+
+    /**
+     * Adds the config for the given destination hosts
+     *
+     * @param hosts the host patterns, such as {@code api.example.com} or {@code *.example.com}
+     * @param config the config for the hosts
+     *
+     * @return this instance
+     */
+    @Nonnull
+    public RouteConfigResolver<T> addRoute(@Nullable Collection<String> hosts, @Nonnull T config) {
+        HostPatternMatcher matcher = HostPatternMatcher.compile(hosts);
+        if (!matcher.isEmpty()) {
+            matchers.add(matcher);
+            configs.add(config);
+        }
+        return this;
+    }
+
+    @Nonnull
+    public T getDefaultConfig() {
+        return defaultConfig;
+    }
+
+    @Nonnull
+    @Override
+    public T resolve(@Nullable HttpRoute route) {
+        if (route == null || matchers.isEmpty()) {
+            return defaultConfig;
+        }
+        String host = route.getTargetHost().getHostName();
+        for (int i = 0; i < matchers.size(); i++) {
+            if (matchers.get(i).matches(host)) {
+                return configs.get(i);
+            }
+        }
+        return defaultConfig;
+    }
+}
@@ -0,0 +1,424 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.connect;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketImpl;
+import java.net.SocketOption;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.io.Closer;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
+
+
+/**
+ * {@link java.net.Socket} over a {@link java.nio.channels.SocketChannel} of a unix domain socket
+ * <p>
+ * The JDK offers no socket view of the unix domain channels, while the classic connections are bound to sockets.
+ * The channel connects in blocking mode, closed by a timer task if the connect timeout elapses first.
+ * Then the channel is non-blocking, the streams wait on a selector to honor the socket timeout.
+ * The tcp options are meaningless for a unix domain socket and are ignored.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.connect.UnixDomainSocketConnectionOperator
+ */
+final class UnixDomainSocketAdapter extends Socket {
+    private final SocketChannel channel;
+    private final UnixDomainSocketAddress address;
+    private final InputStream input = new ChannelInputStream();
+    private final OutputStream output = new ChannelOutputStream();
+    private Selector readSelector;
+    private Selector writeSelector;
+    private volatile int soTimeout;
+    private volatile boolean inputShutdown;
+    private volatile boolean outputShutdown;
+
+    private UnixDomainSocketAdapter(@Nonnull SocketChannel channel, @Nonnull UnixDomainSocketAddress address) throws SocketException {
+        super((SocketImpl) null);
+        this.channel = channel;
+        this.address = address;
+    }
+
+    /**
+     * Connects to the unix domain socket of the address
+     * <p>
+     * A connect only blocks while the backlog of the listening socket is full.
+     *
+     * @param address the address of the unix domain socket
+     * @param connectTimeout the maximum time to connect, {@code null} or non-positive to wait without limit
+     * @param timer the timer that expires the connect
+     * @param executor the executor that closes the expired channel
+     *
+     * @return the connected socket
+     */
+    @Nonnull
+    static UnixDomainSocketAdapter connect(@Nonnull UnixDomainSocketAddress address, @Nullable Timeout connectTimeout, @Nonnull HashedWheelTimer timer, @Nonnull Executor executor) throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        Cancellable expiry = TimeValue.isPositive(connectTimeout) ? timer.schedule(() -> Closer.closeQuietly(channel), connectTimeout.toMilliseconds(), TimeUnit.MILLISECONDS, executor) : null;
+        try {
+            IOException failure = null;
+            try {
+                channel.connect(address);
+            } catch (IOException ex) {
+                failure = ex;
+            }
+            if (expiry != null && !expiry.cancel()) {
+                SocketTimeoutException exception = new SocketTimeoutException("Connect timed out");    // $NON-NLS-1$
+                exception.initCause(failure);
+                throw exception;
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            channel.configureBlocking(false);
+            return new UnixDomainSocketAdapter(channel, address);
+        } catch (IOException | RuntimeException ex) {
+            Closer.closeQuietly(channel);
+            throw ex;
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        ensureOpen();
+        return input;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        ensureOpen();
+        return output;
+    }
+
+    @Override
+    public void setSoTimeout(int timeout) throws SocketException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("Timeout can't be negative");    // $NON-NLS-1$
+        }
+        soTimeout = timeout;
+    }
+
+    @Override
+    public int getSoTimeout() {
+        return soTimeout;
+    }
+
+    @Override
+    public void setSendBufferSize(int size) throws SocketException {
+        setIntOption(StandardSocketOptions.SO_SNDBUF, size);
+    }
+
+    @Override
+    public int getSendBufferSize() throws SocketException {
+        return getIntOption(StandardSocketOptions.SO_SNDBUF);
+    }
+
+    @Override
+    public void setReceiveBufferSize(int size) throws SocketException {
+        setIntOption(StandardSocketOptions.SO_RCVBUF, size);
+    }
+
+    @Override
+    public int getReceiveBufferSize() throws SocketException {
+        return getIntOption(StandardSocketOptions.SO_RCVBUF);
+    }
+
+    @Override
+    public void setTcpNoDelay(boolean on) {
+    }
+
+    @Override
+    public boolean getTcpNoDelay() {
+        return true;
+    }
+
+    @Override
+    public void setSoLinger(boolean on, int linger) {
+    }
+
+    @Override
+    public int getSoLinger() {
+        return -1;
+    }
+
+    @Override
+    public void setKeepAlive(boolean on) {
+    }
+
+    @Override
+    public boolean getKeepAlive() {
+        return false;
+    }
+
+    @Override
+    public void setReuseAddress(boolean on) {
+    }
+
+    @Override
+    public boolean getReuseAddress() {
+        return false;
+    }
+
+    @Override
+    public void setOOBInline(boolean on) {
+    }
+
+    @Override
+    public boolean getOOBInline() {
+        return false;
+    }
+
+    @Override
+    public void setTrafficClass(int tc) {
+    }
+
+    @Override
+    public int getTrafficClass() {
+        return 0;
+    }
+
+    @Override
+    @Nullable
+    public InetAddress getInetAddress() {
+        return null;
+    }
+
+    @Override
+    @Nullable
+    public InetAddress getLocalAddress() {
+        return null;
+    }
+
+    @Override
+    public int getPort() {
+        return 0;
+    }
+
+    @Override
+    public int getLocalPort() {
+        return -1;
+    }
+
+    @Override
+    public SocketAddress getRemoteSocketAddress() {
+        return address;
+    }
+
+    @Override
+    @Nullable
+    public SocketAddress getLocalSocketAddress() {
+        try {
+            return channel.getLocalAddress();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean isConnected() {
+        return channel.isConnected();
+    }
+
+    @Override
+    public boolean isBound() {
+        return true;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return !channel.isOpen();
+    }
+
+    @Override
+    public void shutdownInput() throws IOException {
+        channel.shutdownInput();
+        inputShutdown = true;
+    }
+
+    @Override
+    public void shutdownOutput() throws IOException {
+        channel.shutdownOutput();
+        outputShutdown = true;
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return inputShutdown;
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return outputShutdown;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            Closer.closeQuietly(readSelector);
+            Closer.closeQuietly(writeSelector);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UnixDomainSocket[" + address + "]";    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    private void ensureOpen() throws SocketException {
+        if (!channel.isOpen()) {
+            throw new SocketException("Socket is closed");    // $NON-NLS-1$
+        }
+    }
+
+    private void setIntOption(@Nonnull SocketOption<Integer> option, int value) throws SocketException {
+        try {
+            channel.setOption(option, value);
+        } catch (IOException ex) {
+            throw toSocketException(ex);
+        }
+    }
+
+    private int getIntOption(@Nonnull SocketOption<Integer> option) throws SocketException {
+        try {
+            return channel.getOption(option);
+        } catch (IOException ex) {
+            throw toSocketException(ex);
+        }
+    }
+
+    @Nonnull
+    private SocketException toSocketException(@Nonnull IOException ex) {
+        if (ex instanceof SocketException socketException) {
+            return socketException;
+        }
+        SocketException exception = new SocketException(ex.getMessage());
+        exception.initCause(ex);
+        return exception;
+    }
+
+    private void await(@Nonnull Selector selector, int operation) throws IOException {
+        SelectionKey key = channel.keyFor(selector);
+        if (key == null) {
+            channel.register(selector, operation);
+        }
+        int timeout = soTimeout;
+        long deadline = (timeout > 0) ? System.currentTimeMillis() + timeout : 0L;
+        while (selector.select(timeout) == 0) {
+            if (!channel.isOpen()) {
+                throw new SocketException("Socket is closed");    // $NON-NLS-1$
+            }
+            if (timeout > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0L) {
+                    throw new SocketTimeoutException((operation == SelectionKey.OP_WRITE) ? "Write timed out" : "Read timed out");    // $NON-NLS-1$ // $NON-NLS-2$
+                }
+                timeout = (int) remaining;
+            }
+        }
+        selector.selectedKeys().clear();
+    }
+
+
+    private final class ChannelInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int count = read(single, 0, 1);
+            return (count < 0) ? -1 : (single[0] & 0xFF);
+        }
+
+        @Override
+        public int read(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            synchronized (this) {
+                for (;;) {
+                    int count = channel.read(buffer);
+                    if (count != 0) {
+                        return count;
+                    }
+                    if (readSelector == null) {
+                        readSelector = Selector.open();
+                    }
+                    await(readSelector, SelectionKey.OP_READ);
+                }
+            }
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            UnixDomainSocketAdapter.this.close();
+        }
+    }
+
+
+    private final class ChannelOutputStream extends OutputStream {
+        @Override
+        public void write(int value) throws IOException {
+            write(new byte[]{(byte) value}, 0, 1);
+        }
+
+        @Override
+        public void write(@Nonnull byte[] bytes, int offset, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, length);
+            synchronized (this) {
+                while (buffer.hasRemaining()) {
+                    if (channel.write(buffer) == 0) {
+                        if (writeSelector == null) {
+                            writeSelector = Selector.open();
+                        }
+                        await(writeSelector, SelectionKey.OP_WRITE);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            UnixDomainSocketAdapter.this.close();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.connect;
+
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import javax.net.ssl.SSLSocket;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.io.HttpClientConnectionOperator;
+import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.config.Lookup;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.Closer;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import com.yookue.springstarter.httpclient.route.HostPatternMatcher;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * {@link org.apache.hc.client5.http.io.HttpClientConnectionOperator} that connects some destination hosts through a unix domain socket
+ * <p>
+ * The route of a request is left untouched, so the pools, the {@code Host} header and the TLS server name still refer to the logical host.
+ * Hosts that do not match, and the hosts behind a socks proxy, are left to the delegate operator.
+ * The connect timeout is enforced by a timer, since a unix domain channel has no connect timeout of its own.
+ *
+ * @author David Hsing
+ * @see java.net.UnixDomainSocketAddress
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class UnixDomainSocketConnectionOperator implements HttpClientConnectionOperator {
+    private final HttpClientConnectionOperator delegate;
+    private final UnixDomainSocketAddress socketAddress;
+    private final HostPatternMatcher hostMatcher;
+    private final Lookup<TlsSocketStrategy> tlsSocketStrategyLookup;
+    private final HashedWheelTimer timer;
+    private final Executor executor;
+
+    public UnixDomainSocketConnectionOperator(@Nonnull HttpClientConnectionOperator delegate, @Nonnull Path socketPath, @Nullable HostPatternMatcher hostMatcher, @Nullable Lookup<TlsSocketStrategy> tlsSocketStrategyLookup) {
+        this(delegate, socketPath, hostMatcher, tlsSocketStrategyLookup, null, null);
+    }
+
+    /**
+     * Constructs a new operator
+     *
+     * @param delegate the operator of the hosts that do not connect through the socket
+     * @param socketPath the file path of the unix domain socket
+     * @param hostMatcher the destination hosts that connect through the socket, {@code null} or empty for all the hosts
+     * @param tlsSocketStrategyLookup the tls strategies by scheme, to layer tls over the socket
+     * @param timer the timer that expires the connects, {@code null} for {@link com.yookue.springstarter.httpclient.timer.HashedWheelTimer#getShared()}
+     * @param executor the executor that closes the expired connects, {@code null} for the common pool
+     */
+    public UnixDomainSocketConnectionOperator(@Nonnull HttpClientConnectionOperator delegate, @Nonnull Path socketPath, @Nullable HostPatternMatcher hostMatcher, @Nullable Lookup<TlsSocketStrategy> tlsSocketStrategyLookup, @Nullable HashedWheelTimer timer, @Nullable Executor executor) {
+        this.delegate = delegate;
+        this.socketAddress = UnixDomainSocketAddress.of(socketPath);
+        this.hostMatcher = hostMatcher;
+        this.tlsSocketStrategyLookup = tlsSocketStrategyLookup;
+        this.timer = (timer == null) ? HashedWheelTimer.getShared() : timer;
+        this.executor = (executor == null) ? ForkJoinPool.commonPool() : executor;
+    }
+
+    @Override
+    public void connect(@Nonnull ManagedHttpClientConnection conn, @Nonnull HttpHost host, @Nullable InetSocketAddress localAddress, @Nullable TimeValue connectTimeout, @Nonnull SocketConfig socketConfig, @Nonnull HttpContext context) throws IOException {
+        Timeout timeout = (connectTimeout != null) ? Timeout.of(connectTimeout.getDuration(), connectTimeout.getTimeUnit()) : null;
+        connect(conn, host, null, localAddress, timeout, socketConfig, null, context);
+    }
+
+    @Override
+    public void connect(@Nonnull ManagedHttpClientConnection conn, @Nonnull HttpHost endpointHost, @Nullable NamedEndpoint endpointName, @Nullable InetSocketAddress localAddress, @Nullable Timeout connectTimeout, @Nonnull SocketConfig socketConfig, @Nullable Object attachment, @Nonnull HttpContext context) throws IOException {
+        if (!isApplicable(endpointHost, socketConfig)) {
+            delegate.connect(conn, endpointHost, endpointName, localAddress, connectTimeout, socketConfig, attachment, context);
+            return;
+        }
+        Socket socket = UnixDomainSocketAdapter.connect(socketAddress, connectTimeout, timer, executor);
+        try {
+            if (socketConfig.getRcvBufSize() > 0) {
+                socket.setReceiveBufferSize(socketConfig.getRcvBufSize());
+            }
+            if (socketConfig.getSndBufSize() > 0) {
+                socket.setSendBufferSize(socketConfig.getSndBufSize());
+            }
+            conn.bind(socket);
+            conn.setSocketTimeout(socketConfig.getSoTimeout());
+            TlsSocketStrategy tlsSocketStrategy = (tlsSocketStrategyLookup != null) ? tlsSocketStrategyLookup.lookup(endpointHost.getSchemeName()) : null;
+            if (tlsSocketStrategy != null) {
+                NamedEndpoint tlsName = (endpointName != null) ? endpointName : endpointHost;
+                SSLSocket sslSocket = tlsSocketStrategy.upgrade(socket, tlsName.getHostName(), tlsName.getPort(), attachment, context);
+                conn.bind(sslSocket, socket);
+            }
+        } catch (IOException | RuntimeException ex) {
+            Closer.closeQuietly(socket);
+            throw ex;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("{} connected through {}", endpointHost, socketAddress);    // $NON-NLS-1$
+        }
+    }
+
+    @Override
+    public void upgrade(@Nonnull ManagedHttpClientConnection conn, @Nonnull HttpHost host, @Nonnull HttpContext context) throws IOException {
+        delegate.upgrade(conn, host, context);
+    }
+
+    @Override
+    public void upgrade(@Nonnull ManagedHttpClientConnection conn, @Nonnull HttpHost endpointHost, @Nullable NamedEndpoint endpointName, @Nullable Object attachment, @Nonnull HttpContext context) throws IOException {
+        delegate.upgrade(conn, endpointHost, endpointName, attachment, context);
+    }
+
+    private boolean isApplicable(@Nonnull HttpHost endpointHost, @Nonnull SocketConfig socketConfig) {
+        if (socketConfig.getSocksProxyAddress() != null) {
+            return false;
+        }
+        return hostMatcher == null || hostMatcher.isEmpty() || hostMatcher.matches(endpointHost.getHostName());
+    }
+}
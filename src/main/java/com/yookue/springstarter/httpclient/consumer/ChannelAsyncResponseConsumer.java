@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.consumer;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+
+
+/**
+ * {@link org.apache.hc.core5.http.nio.AsyncResponseConsumer} that writes the body of a successful response to a {@link java.nio.channels.WritableByteChannel}
+ * <p>
+ * Each incoming {@link java.nio.ByteBuffer} is written to the channel as it arrives, the body is never aggregated in memory.
+ * The bodies of other responses are discarded. The result is whether the response is {@code 200}.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.util.AsyncHttpClientExecutorUtils
+ */
+@SuppressWarnings("unused")
+public class ChannelAsyncResponseConsumer extends AbstractBinResponseConsumer<Boolean> {
+    private final WritableByteChannel channel;
+    private final boolean closeChannel;
+    private volatile boolean success;
+
+    /**
+     * Constructs a new consumer
+     *
+     * @param channel the channel to write the body to
+     * @param closeChannel whether to close the channel once the exchange completes or fails
+     */
+    public ChannelAsyncResponseConsumer(@Nonnull WritableByteChannel channel, boolean closeChannel) {
+        this.channel = channel;
+        this.closeChannel = closeChannel;
+    }
+
+    @Override
+    protected void start(@Nonnull HttpResponse response, @Nullable ContentType contentType) throws HttpException, IOException {
+        success = response.getCode() == HttpStatus.SC_OK;
+    }
+
+    @Override
+    protected int capacityIncrement() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    protected void data(@Nonnull ByteBuffer src, boolean endOfStream) throws IOException {
+        if (!success) {
+            src.position(src.limit());
+            return;
+        }
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    @Override
+    protected Boolean buildResult() {
+        closeQuietly();
+        return success;
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        closeQuietly();
+    }
+
+    @Override
+    public void releaseResources() {
+        closeQuietly();
+    }
+
+    private void closeQuietly() {
+        if (closeChannel && channel.isOpen()) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
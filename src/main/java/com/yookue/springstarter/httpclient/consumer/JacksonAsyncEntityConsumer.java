@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.consumer;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.nio.entity.AbstractBinAsyncEntityConsumer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+
+/**
+ * {@link org.apache.hc.core5.http.nio.AsyncEntityConsumer} that deserializes the entity from incremental {@link java.nio.ByteBuffer}s
+ * <p>
+ * The bytes are fed into the non-blocking jackson parser as they arrive, the body is never aggregated into a single buffer or {@code String}.
+ * Use it with {@link org.apache.hc.core5.http.nio.support.BasicResponseConsumer} to get the response together with the deserialized object.
+ *
+ * @param <T> the type of the deserialized object
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.handler.JacksonResponseHandler
+ * @see com.yookue.springstarter.httpclient.consumer.JacksonStreamingAsyncEntityConsumer
+ */
+@SuppressWarnings("unused")
+public class JacksonAsyncEntityConsumer<T> extends AbstractBinAsyncEntityConsumer<T> {
+    private final ObjectMapper mapper;
+    private final ObjectReader reader;
+    private volatile JacksonTokenizer tokenizer;
+    private volatile T result;
+    private volatile boolean resultPresent;
+
+    public JacksonAsyncEntityConsumer(@Nonnull ObjectMapper mapper, @Nonnull Class<T> valueType) {
+        this(mapper, mapper.constructType(valueType));
+    }
+
+    public JacksonAsyncEntityConsumer(@Nonnull ObjectMapper mapper, @Nonnull TypeReference<T> valueType) {
+        this(mapper, mapper.constructType(valueType));
+    }
+
+    public JacksonAsyncEntityConsumer(@Nonnull ObjectMapper mapper, @Nonnull JavaType valueType) {
+        this.mapper = mapper;
+        this.reader = mapper.readerFor(valueType);
+    }
+
+    @Override
+    protected void streamStart(@Nullable ContentType contentType) throws HttpException, IOException {
+        JacksonConsumerUtils.requireUnicodeContent(contentType);
+        result = null;
+        resultPresent = false;
+        tokenizer = new JacksonTokenizer(mapper, false);
+    }
+
+    @Override
+    protected int capacityIncrement() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    protected void data(@Nonnull ByteBuffer src, boolean endOfStream) throws IOException {
+        JacksonTokenizer current = tokenizer;
+        if (current == null) {
+            return;
+        }
+        current.feed(src, value -> {
+            if (resultPresent) {
+                throw new IOException("Unexpected trailing json content");    // $NON-NLS-1$
+            }
+            result = reader.readValue(value.asParser(mapper));
+            resultPresent = true;
+        });
+        if (endOfStream) {
+            current.endOfInput(value -> {
+                throw new IOException("Unexpected trailing json content");    // $NON-NLS-1$
+            });
+        }
+    }
+
+    @Nullable
+    @Override
+    protected T generateContent() {
+        return result;
+    }
+
+    @Override
+    public void releaseResources() {
+        JacksonTokenizer current = tokenizer;
+        if (current != null) {
+            tokenizer = null;
+            current.close();
+        }
+    }
+}
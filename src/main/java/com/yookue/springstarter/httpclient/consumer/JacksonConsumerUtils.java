@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.consumer;
+
+
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
+import jakarta.annotation.Nullable;
+import org.apache.hc.core5.http.ContentType;
+
+
+/**
+ * Utilities for the jackson entity consumers
+ *
+ * @author David Hsing
+ */
+abstract class JacksonConsumerUtils {
+    /**
+     * Check that the content could be fed into the non-blocking jackson parser, which accepts UTF-8 only
+     *
+     * @param contentType the content type of the entity
+     * @throws UnsupportedEncodingException if the content type declares a charset other than UTF-8
+     */
+    static void requireUnicodeContent(@Nullable ContentType contentType) throws UnsupportedEncodingException {
+        if (contentType != null && contentType.getCharset() != null && !StandardCharsets.UTF_8.equals(contentType.getCharset())) {
+            throw new UnsupportedEncodingException(String.format("Unsupported json charset: %s", contentType.getCharset().name()));    // $NON-NLS-1$
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.consumer;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.nio.entity.AbstractBinAsyncEntityConsumer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+
+/**
+ * {@link org.apache.hc.core5.http.nio.AsyncEntityConsumer} that emits the elements of a json array one at a time
+ * <p>
+ * Each element is deserialized as soon as its last byte arrives, so only one element is held in memory at any moment.
+ * If the top level value is not an array, it is emitted as a single element.
+ * The result of the consumer is the count of the emitted elements.
+ * <p>
+ * Note that the element consumer is invoked on the I/O reactor thread, so it should not block
+ *
+ * @param <T> the type of the array elements
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.handler.JacksonStreamingResponseHandler
+ * @see com.yookue.springstarter.httpclient.consumer.JacksonAsyncEntityConsumer
+ */
+@SuppressWarnings("unused")
+public class JacksonStreamingAsyncEntityConsumer<T> extends AbstractBinAsyncEntityConsumer<Long> {
+    private final ObjectMapper mapper;
+    private final ObjectReader reader;
+    private final Consumer<? super T> elementConsumer;
+    private final AtomicLong count = new AtomicLong();
+    private volatile JacksonTokenizer tokenizer;
+
+    public JacksonStreamingAsyncEntityConsumer(@Nonnull ObjectMapper mapper, @Nonnull Class<T> elementType, @Nonnull Consumer<? super T> elementConsumer) {
+        this(mapper, mapper.constructType(elementType), elementConsumer);
+    }
+
+    public JacksonStreamingAsyncEntityConsumer(@Nonnull ObjectMapper mapper, @Nonnull TypeReference<T> elementType, @Nonnull Consumer<? super T> elementConsumer) {
+        this(mapper, mapper.constructType(elementType), elementConsumer);
+    }
+
+    public JacksonStreamingAsyncEntityConsumer(@Nonnull ObjectMapper mapper, @Nonnull JavaType elementType, @Nonnull Consumer<? super T> elementConsumer) {
+        this.mapper = mapper;
+        this.reader = mapper.readerFor(elementType);
+        this.elementConsumer = elementConsumer;
+    }
+
+    @Override
+    protected void streamStart(@Nullable ContentType contentType) throws HttpException, IOException {
+        JacksonConsumerUtils.requireUnicodeContent(contentType);
+        count.set(0L);
+        tokenizer = new JacksonTokenizer(mapper, true);
+    }
+
+    @Override
+    protected int capacityIncrement() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    protected void data(@Nonnull ByteBuffer src, boolean endOfStream) throws IOException {
+        JacksonTokenizer current = tokenizer;
+        if (current == null) {
+            return;
+        }
+        current.feed(src, this::emit);
+        if (endOfStream) {
+            current.endOfInput(this::emit);
+        }
+    }
+
+    @Nonnull
+    @Override
+    protected Long generateContent() {
+        return count.get();
+    }
+
+    @Override
+    public void releaseResources() {
+        JacksonTokenizer current = tokenizer;
+        if (current != null) {
+            tokenizer = null;
+            current.close();
+        }
+    }
+
+    private void emit(@Nonnull TokenBuffer value) throws IOException {
+        T element = reader.readValue(value.asParser(mapper));
+        elementConsumer.accept(element);
+        count.incrementAndGet();
+    }
+}
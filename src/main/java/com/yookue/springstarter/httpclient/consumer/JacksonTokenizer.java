@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.consumer;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import jakarta.annotation.Nonnull;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteBufferFeeder;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+
+/**
+ * Tokenizer that splits incremental {@link java.nio.ByteBuffer}s into complete json values with the non-blocking jackson parser
+ * <p>
+ * Each complete value is collected in a {@link com.fasterxml.jackson.databind.util.TokenBuffer}, which could be deserialized without touching the bytes again
+ *
+ * @author David Hsing
+ */
+class JacksonTokenizer {
+    @FunctionalInterface
+    interface ValueCallback {
+        void accept(@Nonnull TokenBuffer value) throws IOException;
+    }
+
+    private final JsonParser parser;
+    private final ByteBufferFeeder feeder;
+    private final boolean forceBigDecimal;
+    private final boolean tokenizeArrayElements;
+    private TokenBuffer tokenBuffer;
+    private int objectDepth;
+    private int arrayDepth;
+
+    JacksonTokenizer(@Nonnull ObjectMapper mapper, boolean tokenizeArrayElements) throws IOException {
+        this.parser = mapper.getFactory().createNonBlockingByteBufferParser();
+        this.feeder = (ByteBufferFeeder) parser.getNonBlockingInputFeeder();
+        this.forceBigDecimal = mapper.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        this.tokenizeArrayElements = tokenizeArrayElements;
+        this.tokenBuffer = createTokenBuffer();
+    }
+
+    /**
+     * Feed the bytes into the parser and emit every value that has been completed
+     * <p>
+     * All the tokens available are drained before returning, so the buffer could be reused by the caller afterwards
+     */
+    void feed(@Nonnull ByteBuffer buffer, @Nonnull ValueCallback callback) throws IOException {
+        if (buffer.hasRemaining()) {
+            feeder.feedInput(buffer);
+            drain(callback);
+        }
+    }
+
+    void endOfInput(@Nonnull ValueCallback callback) throws IOException {
+        feeder.endOfInput();
+        drain(callback);
+        if (objectDepth != 0 || arrayDepth != 0) {
+            throw new IOException("Unexpected end of json content");    // $NON-NLS-1$
+        }
+    }
+
+    void close() {
+        try {
+            parser.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void drain(@Nonnull ValueCallback callback) throws IOException {
+        for (JsonToken token = parser.nextToken(); token != null && token != JsonToken.NOT_AVAILABLE; token = parser.nextToken()) {
+            updateDepth(token);
+            validateText(token);
+            if (tokenizeArrayElements) {
+                processArrayToken(token, callback);
+            } else {
+                processValueToken(token, callback);
+            }
+        }
+    }
+
+    private void updateDepth(@Nonnull JsonToken token) {
+        switch (token) {
+            case START_OBJECT -> objectDepth++;
+            case END_OBJECT -> objectDepth--;
+            case START_ARRAY -> arrayDepth++;
+            case END_ARRAY -> arrayDepth--;
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Check the string length limit of the mapper, which {@link com.fasterxml.jackson.databind.util.TokenBuffer} skips when copying the raw text characters
+     */
+    private void validateText(@Nonnull JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_STRING) {
+            parser.streamReadConstraints().validateStringLength(parser.getTextLength());
+        }
+    }
+
+    private void processValueToken(@Nonnull JsonToken token, @Nonnull ValueCallback callback) throws IOException {
+        tokenBuffer.copyCurrentEvent(parser);
+        if ((token.isStructEnd() || token.isScalarValue()) && objectDepth == 0 && arrayDepth == 0) {
+            emit(callback);
+        }
+    }
+
+    private void processArrayToken(@Nonnull JsonToken token, @Nonnull ValueCallback callback) throws IOException {
+        boolean topLevelArrayToken = objectDepth == 0 && ((token == JsonToken.START_ARRAY && arrayDepth == 1) || (token == JsonToken.END_ARRAY && arrayDepth == 0));
+        if (topLevelArrayToken) {
+            return;
+        }
+        tokenBuffer.copyCurrentEvent(parser);
+        if (objectDepth == 0 && arrayDepth <= 1 && (token.isStructEnd() || token.isScalarValue())) {
+            emit(callback);
+        }
+    }
+
+    private void emit(@Nonnull ValueCallback callback) throws IOException {
+        TokenBuffer value = tokenBuffer;
+        tokenBuffer = createTokenBuffer();
+        callback.accept(value);
+    }
+
+    @Nonnull
+    private TokenBuffer createTokenBuffer() {
+        TokenBuffer result = new TokenBuffer(parser);
+        result.forceUseOfBigDecimal(forceBigDecimal);
+        return result;
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.consumer;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.hc.client5.http.async.methods.AbstractBinResponseConsumer;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
+import com.yookue.springstarter.httpclient.buffer.SpillPolicy;
+import com.yookue.springstarter.httpclient.buffer.SpillableBuffer;
+
+
+/**
+ * {@link org.apache.hc.core5.http.nio.AsyncResponseConsumer} that buffers the response body by a {@link com.yookue.springstarter.httpclient.buffer.SpillPolicy}
+ * <p>
+ * The bytes stay on the heap below the memory threshold, and are spilled to a temp file above it.
+ * A declared or received length above the maximum body size fails the exchange with a {@link com.yookue.springstarter.httpclient.exception.ResponseBodyTooLargeException}.
+ * The result carries the response and the completed buffer, or a {@code null} buffer if the response has no body, close the buffer once done.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.handler.SpillingResponseHandler
+ */
+@SuppressWarnings("unused")
+public class SpillingAsyncResponseConsumer extends AbstractBinResponseConsumer<Message<HttpResponse, SpillableBuffer>> {
+    private final SpillPolicy policy;
+    private volatile HttpResponse response;
+    private volatile SpillableBuffer buffer;
+
+    public SpillingAsyncResponseConsumer(@Nonnull SpillPolicy policy) {
+        this.policy = policy;
+    }
+
+    @Override
+    protected void start(@Nonnull HttpResponse response, @Nullable ContentType contentType) throws HttpException, IOException {
+        this.response = response;
+        if (contentType != null) {
+            Header header = response.getFirstHeader(HttpHeaders.CONTENT_LENGTH);
+            buffer = new SpillableBuffer(policy, (header == null) ? -1L : NumberUtils.toLong(header.getValue(), -1L));
+        }
+    }
+
+    @Override
+    protected int capacityIncrement() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    protected void data(@Nonnull ByteBuffer src, boolean endOfStream) throws IOException {
+        buffer.write(src);
+        if (endOfStream) {
+            buffer.complete();
+        }
+    }
+
+    @Override
+    protected Message<HttpResponse, SpillableBuffer> buildResult() {
+        Message<HttpResponse, SpillableBuffer> result = new Message<>(response, buffer);
+        response = null;
+        buffer = null;
+        return result;
+    }
+
+    @Override
+    public void failed(Exception cause) {
+        releaseResources();
+    }
+
+    @Override
+    public void releaseResources() {
+        SpillableBuffer pending = buffer;
+        buffer = null;
+        if (pending != null) {
+            pending.close();
+        }
+    }
+}
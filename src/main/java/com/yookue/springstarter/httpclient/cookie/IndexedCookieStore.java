@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.cookie;
+
+
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.cookie.Cookie;
+import org.apache.hc.client5.http.cookie.CookieStore;
+import org.apache.hc.core5.concurrent.Cancellable;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
+
+
+/**
+ * {@link org.apache.hc.client5.http.cookie.CookieStore} that indexes the cookies by identity, name and domain
+ * <p>
+ * The cookies are kept in concurrent maps, so that the reads never lock, and the writes are serialized.
+ * The list of {@link #getCookies()} is cached until the next write, rather than copied on every request.
+ * The expired cookies are swept in the background, by a timer that hands the sweeps off to an executor, and stops once the store is garbage collected.
+ *
+ * @author David Hsing
+ * @see org.apache.hc.client5.http.cookie.BasicCookieStore
+ */
+@SuppressWarnings("unused")
+public class IndexedCookieStore implements CookieStore {
+    public static final Duration DEFAULT_SWEEP_INTERVAL = Duration.ofMinutes(1L);
+
+    private final Map<CookieKey, Cookie> cookies = new ConcurrentHashMap<>();
+    private final Map<String, Map<CookieKey, Cookie>> nameIndex = new ConcurrentHashMap<>();
+    private final Map<String, Map<CookieKey, Cookie>> domainIndex = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile long modCount;
+    private volatile Snapshot snapshot;
+
+    public IndexedCookieStore() {
+        this(DEFAULT_SWEEP_INTERVAL);
+    }
+
+    /**
+     * Constructs a new store
+     *
+     * @param sweepInterval the interval of sweeping the expired cookies, {@code null} or non-positive to sweep only on {@link #clearExpired(Instant)}
+     */
+    public IndexedCookieStore(@Nullable Duration sweepInterval) {
+        this(sweepInterval, null, null);
+    }
+
+    /**
+     * Constructs a new store
+     *
+     * @param sweepInterval the interval of sweeping the expired cookies, {@code null} or non-positive to sweep only on {@link #clearExpired(Instant)}
+     * @param timer the timer that schedules the sweeps, {@code null} for {@link com.yookue.springstarter.httpclient.timer.HashedWheelTimer#getShared()}
+     * @param executor the executor that runs the sweeps, {@code null} for the common pool
+     */
+    public IndexedCookieStore(@Nullable Duration sweepInterval, @Nullable HashedWheelTimer timer, @Nullable Executor executor) {
+        if (sweepInterval != null && !sweepInterval.isZero() && !sweepInterval.isNegative()) {
+            ExpirySweeper.schedule(this, sweepInterval, (timer == null) ? HashedWheelTimer.getShared() : timer, (executor == null) ? ForkJoinPool.commonPool() : executor);
+        }
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        if (cookie == null) {
+            return;
+        }
+        CookieKey key = new CookieKey(cookie);
+        synchronized (writeLock) {
+            removeIndexed(key);
+            if (!cookie.isExpired(Instant.now())) {
+                cookies.put(key, cookie);
+                nameIndex.computeIfAbsent(key.name, name -> new ConcurrentHashMap<>()).put(key, cookie);
+                domainIndex.computeIfAbsent(key.domain, domain -> new ConcurrentHashMap<>()).put(key, cookie);
+            }
+            modCount++;
+        }
+    }
+
+    @Override
+    public List<Cookie> getCookies() {
+        long version = modCount;
+        Snapshot current = snapshot;
+        if (current != null && current.version == version) {
+            return current.cookies;
+        }
+        List<Cookie> result = List.copyOf(cookies.values());
+        snapshot = new Snapshot(version, result);
+        return result;
+    }
+
+    /**
+     * Returns the cookies of the given name
+     *
+     * @param name the cookie name
+     *
+     * @return the cookies of the given name, in any domain or path
+     */
+    @Nonnull
+    public List<Cookie> getCookies(@Nullable String name) {
+        Map<CookieKey, Cookie> matches = (name == null) ? null : nameIndex.get(name);
+        return (matches == null) ? Collections.emptyList() : List.copyOf(matches.values());
+    }
+
+    /**
+     * Returns any cookie of the given name
+     *
+     * @param name the cookie name
+     *
+     * @return any cookie of the given name, or {@code null} if there is none
+     */
+    @Nullable
+    public Cookie getCookie(@Nullable String name) {
+        Map<CookieKey, Cookie> matches = (name == null) ? null : nameIndex.get(name);
+        if (matches == null) {
+            return null;
+        }
+        for (Cookie cookie : matches.values()) {
+            return cookie;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the cookie of the given identity
+     *
+     * @param domain the cookie domain, compared ignoring case
+     * @param path the cookie path, {@code null} means {@code /}
+     * @param name the cookie name
+     *
+     * @return the cookie of the given identity, or {@code null} if there is none
+     */
+    @Nullable
+    public Cookie getCookie(@Nullable String domain, @Nullable String path, @Nonnull String name) {
+        return cookies.get(new CookieKey(name, domain, path));
+    }
+
+    /**
+     * Returns the cookies of the given domain
+     *
+     * @param domain the cookie domain, compared ignoring case
+     *
+     * @return the cookies of the given domain, in any path
+     */
+    @Nonnull
+    public List<Cookie> getCookiesByDomain(@Nullable String domain) {
+        Map<CookieKey, Cookie> matches = domainIndex.get(CookieKey.normalizeDomain(domain));
+        return (matches == null) ? Collections.emptyList() : List.copyOf(matches.values());
+    }
+
+    @Override
+    @Deprecated
+    public boolean clearExpired(Date date) {
+        return clearExpired((date == null) ? null : date.toInstant());
+    }
+
+    @Override
+    public boolean clearExpired(Instant instant) {
+        if (instant == null) {
+            return false;
+        }
+        boolean removed = false;
+        for (Map.Entry<CookieKey, Cookie> entry : cookies.entrySet()) {
+            if (entry.getValue().isExpired(instant)) {
+                synchronized (writeLock) {
+                    if (cookies.get(entry.getKey()) == entry.getValue()) {
+                        removeIndexed(entry.getKey());
+                        modCount++;
+                        removed = true;
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (writeLock) {
+            cookies.clear();
+            nameIndex.clear();
+            domainIndex.clear();
+            modCount++;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getCookies().toString();
+    }
+
+    private void removeIndexed(@Nonnull CookieKey key) {
+        if (cookies.remove(key) == null) {
+            return;
+        }
+        removeIndexed(nameIndex, key.name, key);
+        removeIndexed(domainIndex, key.domain, key);
+    }
+
+    private static void removeIndexed(@Nonnull Map<String, Map<CookieKey, Cookie>> index, @Nonnull String indexKey, @Nonnull CookieKey key) {
+        Map<CookieKey, Cookie> matches = index.get(indexKey);
+        if (matches != null) {
+            matches.remove(key);
+            if (matches.isEmpty()) {
+                index.remove(indexKey);
+            }
+        }
+    }
+
+
+    /**
+     * Identity of a cookie, which follows {@link org.apache.hc.client5.http.cookie.CookieIdentityComparator}
+     */
+    private static final class CookieKey {
+        private final String name;
+        private final String domain;
+        private final String path;
+        private final int hash;
+
+        private CookieKey(@Nonnull Cookie cookie) {
+            this(cookie.getName(), cookie.getDomain(), cookie.getPath());
+        }
+
+        private CookieKey(@Nonnull String name, @Nullable String domain, @Nullable String path) {
+            this.name = name;
+            this.domain = normalizeDomain(domain);
+            this.path = Objects.toString(path, "/");    // $NON-NLS-1$
+            this.hash = Objects.hash(this.name, this.domain, this.path);
+        }
+
+        @Nonnull
+        private static String normalizeDomain(@Nullable String domain) {
+            return (domain == null) ? StringUtils.EMPTY : domain.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return this == other || (other instanceof CookieKey key && name.equals(key.name) && domain.equals(key.domain) && path.equals(key.path));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+
+    private static final class Snapshot {
+        private final long version;
+        private final List<Cookie> cookies;
+
+        private Snapshot(long version, @Nonnull List<Cookie> cookies) {
+            this.version = version;
+            this.cookies = cookies;
+        }
+    }
+
+
+    private static final class ExpirySweeper implements Runnable {
+        private final WeakReference<IndexedCookieStore> storeReference;
+        private volatile Cancellable future;
+
+        private ExpirySweeper(@Nonnull IndexedCookieStore store) {
+            this.storeReference = new WeakReference<>(store);
+        }
+
+        private static void schedule(@Nonnull IndexedCookieStore store, @Nonnull Duration interval, @Nonnull HashedWheelTimer timer, @Nonnull Executor executor) {
+            ExpirySweeper sweeper = new ExpirySweeper(store);
+            long millis = Math.max(interval.toMillis(), 1L);
+            sweeper.future = timer.scheduleWithFixedDelay(sweeper, millis, millis, TimeUnit.MILLISECONDS, executor);
+        }
+
+        @Override
+        public void run() {
+            IndexedCookieStore store = storeReference.get();
+            if (store == null) {
+                Cancellable scheduled = future;
+                if (scheduled != null) {
+                    scheduled.cancel();
+                }
+                return;
+            }
+            store.clearExpired(Instant.now());
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.customizer;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionManager;
+
+
+/**
+ * Callback to customize the {@link org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder} of the async http client
+ * <p>
+ * The beans of this type are applied, in order, every time the client is built, including the rebuilds on refresh.
+ * So the customization must be repeatable.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.util.AsyncHttpClientBuilderUtils
+ */
+@FunctionalInterface
+public interface AsyncHttpClientBuilderCustomizer {
+    void customize(@Nonnull HttpAsyncClientBuilder builder, @Nullable AsyncClientConnectionManager connectionManager);
+}
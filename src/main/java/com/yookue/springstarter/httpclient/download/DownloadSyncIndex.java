@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.download;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Local index of the validators of the downloaded files, which makes repeated downloads conditional
+ * <p>
+ * Each target file is recorded with the {@code ETag}, {@code Last-Modified} and size of its body, and the time it was last synced.
+ * The index is kept in a properties file, which is replaced atomically on each change.
+ * If a maximum total size is set, the least recently synced files are deleted until the indexed files fit in it.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.util.SyncHttpClientExecutorUtils#syncDownload
+ */
+@Slf4j
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class DownloadSyncIndex {
+    private static final char FIELD_SEPARATOR = '\t';
+
+    private final Path indexFile;
+    private final long maxTotalSize;
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Constructs a new index without size limit
+     *
+     * @param indexFile the file to keep the index in
+     */
+    public DownloadSyncIndex(@Nonnull Path indexFile) throws IOException {
+        this(indexFile, 0L);
+    }
+
+    /**
+     * Constructs a new index
+     *
+     * @param indexFile the file to keep the index in
+     * @param maxTotalSize the maximum total size of the indexed files in bytes, or {@code 0} for no limit
+     */
+    public DownloadSyncIndex(@Nonnull Path indexFile, long maxTotalSize) throws IOException {
+        this.indexFile = indexFile.toAbsolutePath().normalize();
+        this.maxTotalSize = Math.max(maxTotalSize, 0L);
+        load();
+    }
+
+    /**
+     * Returns the entry of the target file, if the file still matches it
+     *
+     * @param target the target file
+     *
+     * @return the entry of the target file, or {@code null} if the file is not indexed or has changed locally
+     */
+    @Nullable
+    public synchronized Entry lookup(@Nonnull Path target) {
+        Entry entry = entries.get(toKey(target));
+        if (entry == null) {
+            return null;
+        }
+        try {
+            if (Files.isRegularFile(target) && Files.size(target) == entry.getSize()) {
+                return entry;
+            }
+        } catch (IOException ignored) {
+        }
+        entries.remove(toKey(target));
+        return null;
+    }
+
+    /**
+     * Records the target file as synced just now, without changing its validators
+     *
+     * @param target the target file
+     */
+    public synchronized void touch(@Nonnull Path target) throws IOException {
+        Entry entry = entries.remove(toKey(target));
+        if (entry != null) {
+            entries.put(toKey(target), new Entry(entry.getEtag(), entry.getLastModified(), entry.getSize(), System.currentTimeMillis()));
+            save();
+        }
+    }
+
+    /**
+     * Records the validators of the target file, then evicts the least recently synced files if the limit is exceeded
+     *
+     * @param target the target file
+     * @param etag the {@code ETag} header of the response
+     * @param lastModified the {@code Last-Modified} header of the response
+     * @param size the size of the body
+     */
+    public synchronized void update(@Nonnull Path target, @Nullable String etag, @Nullable String lastModified, long size) throws IOException {
+        String key = toKey(target);
+        entries.remove(key);
+        entries.put(key, new Entry(etag, lastModified, size, System.currentTimeMillis()));
+        evict(key);
+        save();
+    }
+
+    /**
+     * Removes the target file from the index, the file itself is kept
+     *
+     * @param target the target file
+     */
+    public synchronized void remove(@Nonnull Path target) throws IOException {
+        if (entries.remove(toKey(target)) != null) {
+            save();
+        }
+    }
+
+    public synchronized long getTotalSize() {
+        return entries.values().stream().mapToLong(Entry::getSize).sum();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evict(@Nonnull String retainedKey) {
+        if (maxTotalSize <= 0L) {
+            return;
+        }
+        long totalSize = getTotalSize();
+        if (totalSize <= maxTotalSize) {
+            return;
+        }
+        List<Map.Entry<String, Entry>> candidates = new ArrayList<>(entries.entrySet());
+        candidates.sort(Comparator.comparingLong(candidate -> candidate.getValue().getLastSynced()));
+        for (Map.Entry<String, Entry> candidate : candidates) {
+            if (totalSize <= maxTotalSize) {
+                break;
+            }
+            if (StringUtils.equals(candidate.getKey(), retainedKey)) {
+                continue;
+            }
+            try {
+                Files.deleteIfExists(Path.of(candidate.getKey()));
+            } catch (IOException ex) {
+                if (log.isWarnEnabled()) {
+                    log.warn("Failed to evict downloaded file '{}'", candidate.getKey(), ex);
+                }
+                continue;
+            }
+            entries.remove(candidate.getKey());
+            totalSize -= candidate.getValue().getSize();
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.isRegularFile(indexFile)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream stream = Files.newInputStream(indexFile)) {
+            properties.load(stream);
+        }
+        List<Map.Entry<String, Entry>> loaded = new ArrayList<>();
+        for (String key : properties.stringPropertyNames()) {
+            Entry entry = Entry.parse(properties.getProperty(key));
+            if (entry != null) {
+                loaded.add(Map.entry(key, entry));
+            }
+        }
+        loaded.sort(Comparator.comparingLong(candidate -> candidate.getValue().getLastSynced()));
+        loaded.forEach(candidate -> entries.put(candidate.getKey(), candidate.getValue()));
+    }
+
+    private void save() throws IOException {
+        Properties properties = new Properties();
+        entries.forEach((key, entry) -> properties.setProperty(key, entry.format()));
+        Path directory = indexFile.getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        Path temp = Files.createTempFile(directory, indexFile.getFileName().toString(), ".tmp");    // $NON-NLS-1$
+        try {
+            try (OutputStream stream = Files.newOutputStream(temp)) {
+                properties.store(stream, null);
+            }
+            moveAtomically(temp, indexFile);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Moves the source file onto the target file atomically, if the file system supports it
+     *
+     * @param source the source file
+     * @param target the target file
+     */
+    public static void moveAtomically(@Nonnull Path source, @Nonnull Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException ex) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @Nonnull
+    private static String toKey(@Nonnull Path target) {
+        return target.toAbsolutePath().normalize().toString();
+    }
+
+
+    /**
+     * Validators of a downloaded file
+     */
+    @Getter
+    @AllArgsConstructor
+    @ToString
+    public static class Entry implements Serializable {
+        private final String etag;
+        private final String lastModified;
+        private final long size;
+        private final long lastSynced;
+
+        @Nonnull
+        private String format() {
+            return StringUtils.defaultString(etag) + FIELD_SEPARATOR + StringUtils.defaultString(lastModified) + FIELD_SEPARATOR + size + FIELD_SEPARATOR + lastSynced;
+        }
+
+        @Nullable
+        private static Entry parse(@Nullable String value) {
+            String[] fields = StringUtils.splitPreserveAllTokens(value, FIELD_SEPARATOR);
+            if (fields == null || fields.length != 4) {
+                return null;
+            }
+            try {
+                return new Entry(StringUtils.trimToNull(fields[0]), StringUtils.trimToNull(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+            } catch (NumberFormatException ignored) {
+                return null;
+            }
+        }
+    }
+}
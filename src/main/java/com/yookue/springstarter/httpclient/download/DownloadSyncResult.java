@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.download;
+
+
+/**
+ * Outcome of a conditional download
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.util.SyncHttpClientExecutorUtils#syncDownload
+ */
+public enum DownloadSyncResult {
+    /**
+     * The target file has been replaced by a new body
+     */
+    DOWNLOADED,
+
+    /**
+     * The server responded {@code 304}, the target file is current
+     */
+    NOT_MODIFIED,
+
+    /**
+     * The server responded neither {@code 200} nor {@code 304}, the target file is untouched
+     */
+    FAILED
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.endpoint;
+
+
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.routing.RoutingSupport;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.OperationResponseBody;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import com.yookue.springstarter.httpclient.pool.ConnectionPoolMonitor;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+
+/**
+ * {@link org.springframework.boot.actuate.endpoint.annotation.Endpoint} that exposes the connection pools of the http clients
+ * <p>
+ * Read operations report the total and per-route pool statistics of each client.
+ * The write operation closes idle or expired connections, or changes the pool limits at runtime.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.ConnectionPoolMonitor
+ */
+@Endpoint(id = HttpClientEndpoint.ENDPOINT_ID)
+@SuppressWarnings("unused")
+public class HttpClientEndpoint {
+    public static final String ENDPOINT_ID = "httpclient";    // $NON-NLS-1$
+    private final Map<String, ConnPoolControl<HttpRoute>> pools;
+
+    /**
+     * Constructs a new endpoint
+     *
+     * @param pools the connection pools, keyed by the client name
+     */
+    public HttpClientEndpoint(@Nonnull Map<String, ConnPoolControl<HttpRoute>> pools) {
+        this.pools = pools;
+    }
+
+    @ReadOperation
+    public HttpClientsDescriptor clients() {
+        Map<String, ClientPoolDescriptor> clients = new LinkedHashMap<>(pools.size());
+        pools.forEach((name, pool) -> clients.put(name, describePool(pool)));
+        return new HttpClientsDescriptor(clients);
+    }
+
+    @ReadOperation
+    @Nullable
+    public ClientPoolDescriptor client(@Selector String name) {
+        ConnPoolControl<HttpRoute> pool = pools.get(name);
+        return pool == null ? null : describePool(pool);
+    }
+
+    /**
+     * Applies a control action to the connection pool of the given client
+     * <p>
+     * The optional parameters also carry the spring {@code Nullable}, which is the only annotation that the actuator of Spring Boot 3.4 reads as optional
+     *
+     * @param name the client name
+     * @param action the action to apply
+     * @param idleTime the idle time for {@link PoolAction#CLOSE_IDLE}, defaults to zero
+     * @param max the new limit for the {@code SET_*} actions
+     * @param route the route for {@link PoolAction#SET_MAX_PER_ROUTE}, either the route itself or the target uri, such as {@code https://example.com}
+     *
+     * @return the pool after the action, or {@code null} if the client does not exist
+     */
+    @WriteOperation
+    @Nullable
+    public ClientPoolDescriptor control(@Selector String name, PoolAction action, @Nullable @org.springframework.lang.Nullable Duration idleTime, @Nullable @org.springframework.lang.Nullable Integer max, @Nullable @org.springframework.lang.Nullable String route) {
+        ConnPoolControl<HttpRoute> pool = pools.get(name);
+        if (pool == null) {
+            return null;
+        }
+        switch (action) {
+            case CLOSE_IDLE -> pool.closeIdle(TimeValue.ofMilliseconds(idleTime == null ? 0L : idleTime.toMillis()));
+            case CLOSE_EXPIRED -> pool.closeExpired();
+            case SET_MAX_TOTAL -> pool.setMaxTotal(requireMax(max));
+            case SET_DEFAULT_MAX_PER_ROUTE -> pool.setDefaultMaxPerRoute(requireMax(max));
+            case SET_MAX_PER_ROUTE -> pool.setMaxPerRoute(resolveRoute(pool, route), requireMax(max));
+        }
+        return describePool(pool);
+    }
+
+    @Nonnull
+    private ClientPoolDescriptor describePool(@Nonnull ConnPoolControl<HttpRoute> pool) {
+        ConnectionPoolMonitor monitor = (pool instanceof ConnectionPoolMonitor instance) ? instance : null;
+        Map<String, PoolStatsDescriptor> routes = new LinkedHashMap<>();
+        for (HttpRoute route : pool.getRoutes()) {
+            routes.put(route.toString(), describeStats(pool.getStats(route), monitor == null ? null : monitor.getOldestPendingLeaseAge(route), monitor == null ? null : monitor.getRejectedLeases(route)));
+        }
+        PoolStatsDescriptor total = describeStats(pool.getTotalStats(), monitor == null ? null : monitor.getOldestPendingLeaseAge(), monitor == null ? null : monitor.getRejectedLeases());
+        return new ClientPoolDescriptor(pool.getMaxTotal(), pool.getDefaultMaxPerRoute(), monitor == null ? null : monitor.getInflightRequests(), total, routes);
+    }
+
+    @Nonnull
+    private PoolStatsDescriptor describeStats(@Nonnull PoolStats stats, @Nullable Duration oldestPendingLeaseAge, @Nullable Long rejectedLeases) {
+        return new PoolStatsDescriptor(stats.getLeased(), stats.getPending(), stats.getAvailable(), stats.getMax(), oldestPendingLeaseAge == null ? null : oldestPendingLeaseAge.toMillis(), rejectedLeases);
+    }
+
+    private int requireMax(@Nullable Integer max) {
+        if (max == null || max <= 0) {
+            throw new InvalidEndpointRequestException("Parameter 'max' must be positive", "Invalid max");    // $NON-NLS-1$
+        }
+        return max;
+    }
+
+    @Nonnull
+    private HttpRoute resolveRoute(@Nonnull ConnPoolControl<HttpRoute> pool, @Nullable String route) {
+        if (StringUtils.isBlank(route)) {
+            throw new InvalidEndpointRequestException("Parameter 'route' is required", "Missing route");    // $NON-NLS-1$
+        }
+        for (HttpRoute candidate : pool.getRoutes()) {
+            if (StringUtils.equals(route, candidate.toString()) || StringUtils.equalsIgnoreCase(route, candidate.getTargetHost().toURI())) {
+                return candidate;
+            }
+        }
+        try {
+            HttpHost target = RoutingSupport.normalize(HttpHost.create(route), DefaultSchemePortResolver.INSTANCE);
+            return new HttpRoute(target, null, URIScheme.HTTPS.same(target.getSchemeName()));
+        } catch (URISyntaxException ex) {
+            throw new InvalidEndpointRequestException("Parameter 'route' is not a valid uri", "Invalid route");    // $NON-NLS-1$
+        }
+    }
+
+
+    /**
+     * Actions that can be applied to a connection pool
+     *
+     * @author David Hsing
+     */
+    public enum PoolAction {
+        CLOSE_IDLE,
+        CLOSE_EXPIRED,
+        SET_MAX_TOTAL,
+        SET_DEFAULT_MAX_PER_ROUTE,
+        SET_MAX_PER_ROUTE
+    }
+
+
+    /**
+     * Description of the connection pools of all the http clients
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class HttpClientsDescriptor implements OperationResponseBody {
+        private final Map<String, ClientPoolDescriptor> clients;
+    }
+
+
+    /**
+     * Description of the connection pool of a http client
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class ClientPoolDescriptor implements OperationResponseBody {
+        private final int maxTotal;
+        private final int defaultMaxPerRoute;
+        private final Integer inflightRequests;
+        private final PoolStatsDescriptor total;
+        private final Map<String, PoolStatsDescriptor> routes;
+    }
+
+
+    /**
+     * Description of the statistics of a connection pool, or a route of it
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @AllArgsConstructor
+    public static class PoolStatsDescriptor {
+        private final int leased;
+        private final int pending;
+        private final int available;
+        private final int max;
+        private final Long oldestPendingLeaseMillis;
+        private final Long rejectedLeases;
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.exception;
+
+
+import java.io.InterruptedIOException;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.HttpRoute;
+import lombok.Getter;
+
+
+/**
+ * {@link java.io.InterruptedIOException} for representing a connection lease that is rejected by the admission control
+ * <p>
+ * It fails the lease as soon as it is requested, so the caller fails fast instead of queueing until the request timeout.
+ * Being an {@code InterruptedIOException}, the default retry strategies do not retry the request.
+ * The classic clients report it as the cause of a {@link org.apache.hc.client5.http.impl.classic.RequestFailedException}.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.LeaseAdmissionControl
+ */
+@Getter
+@SuppressWarnings("unused")
+public class ConnectionLeaseRejectedException extends InterruptedIOException {
+    private final transient HttpRoute route;
+
+    /**
+     * Create a new exception with the rejected route and the specified detail message
+     *
+     * @param route the route of the rejected lease
+     * @param message the exception detail message
+     */
+    public ConnectionLeaseRejectedException(@Nonnull HttpRoute route, String message) {
+        super(message);
+        this.route = route;
+    }
+}
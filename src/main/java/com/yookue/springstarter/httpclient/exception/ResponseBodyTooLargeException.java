@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.exception;
+
+
+import java.io.InterruptedIOException;
+import lombok.Getter;
+
+
+/**
+ * {@link java.io.InterruptedIOException} for representing a response body that exceeds the maximum body size
+ * <p>
+ * It is thrown while the body is being read, so the exchange is aborted as soon as the limit is crossed.
+ * Being an {@code InterruptedIOException}, the default retry strategies do not retry the request.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.buffer.SpillPolicy
+ */
+@Getter
+@SuppressWarnings("unused")
+public class ResponseBodyTooLargeException extends InterruptedIOException {
+    private final long maxBodySize;
+
+    /**
+     * Create a new exception with the maximum body size
+     *
+     * @param maxBodySize the maximum body size in bytes
+     */
+    public ResponseBodyTooLargeException(long maxBodySize) {
+        super(String.format("Response body exceeds the maximum size of %d bytes", maxBodySize));    // $NON-NLS-1$
+        this.maxBodySize = maxBodySize;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.handler;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import com.yookue.springstarter.httpclient.exception.UnexpectedHttpResponseException;
+
+
+/**
+ * Utilities for the jackson response handlers
+ *
+ * @author David Hsing
+ */
+abstract class JacksonHandlerUtils {
+    /**
+     * Return the entity of a successful response, or throw an exception if the response is not successful
+     *
+     * @param response the response to check
+     * @return the entity of a successful response, or {@code null} if there is no content
+     * @throws UnexpectedHttpResponseException if the response status is not 2xx
+     * @throws IOException if the entity of an unsuccessful response could not be consumed
+     */
+    @Nullable
+    static HttpEntity requireSuccessEntity(@Nonnull ClassicHttpResponse response) throws UnexpectedHttpResponseException, IOException {
+        HttpEntity entity = response.getEntity();
+        if (response.getCode() < HttpStatus.SC_SUCCESS || response.getCode() >= HttpStatus.SC_REDIRECTION) {
+            EntityUtils.consume(entity);
+            throw new UnexpectedHttpResponseException(String.format("Unexpected response status: %d %s", response.getCode(), StringUtils.defaultString(response.getReasonPhrase())));    // $NON-NLS-1$
+        }
+        if (entity == null || entity.getContentLength() == 0L) {
+            EntityUtils.consume(entity);
+            return null;
+        }
+        return entity;
+    }
+
+    /**
+     * Return whether the charset of the entity could be detected by jackson itself
+     * <p>
+     * Jackson detects UTF-8, UTF-16 and UTF-32 from the leading bytes, so only other charsets need a decoding reader
+     */
+    static boolean isUnicodeDetectable(@Nonnull HttpEntity entity) {
+        Charset charset = getCharset(entity);
+        return charset == null || StringUtils.startsWithIgnoreCase(charset.name(), "UTF-");    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    static Reader createReader(@Nonnull HttpEntity entity, @Nonnull InputStream stream) {
+        Charset charset = getCharset(entity);
+        return new InputStreamReader(stream, charset == null ? StandardCharsets.UTF_8 : charset);
+    }
+
+    @Nullable
+    private static Charset getCharset(@Nonnull HttpEntity entity) {
+        if (StringUtils.isBlank(entity.getContentType())) {
+            return null;
+        }
+        ContentType contentType = ContentType.parseLenient(entity.getContentType());
+        return contentType == null ? null : contentType.getCharset();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.handler;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+
+/**
+ * {@link org.apache.hc.core5.http.io.HttpClientResponseHandler} that deserializes the response body straight from the entity stream
+ * <p>
+ * The body is never materialized as a {@code String}, Jackson reads the bytes of the entity directly
+ *
+ * @param <T> the type of the deserialized object
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.handler.JacksonStreamingResponseHandler
+ * @see com.yookue.springstarter.httpclient.consumer.JacksonAsyncEntityConsumer
+ */
+@SuppressWarnings("unused")
+public class JacksonResponseHandler<T> implements HttpClientResponseHandler<T> {
+    private final ObjectMapper mapper;
+    private final JavaType valueType;
+
+    public JacksonResponseHandler(@Nonnull ObjectMapper mapper, @Nonnull Class<T> valueType) {
+        this(mapper, mapper.constructType(valueType));
+    }
+
+    public JacksonResponseHandler(@Nonnull ObjectMapper mapper, @Nonnull TypeReference<T> valueType) {
+        this(mapper, mapper.constructType(valueType));
+    }
+
+    public JacksonResponseHandler(@Nonnull ObjectMapper mapper, @Nonnull JavaType valueType) {
+        this.mapper = mapper;
+        this.valueType = valueType;
+    }
+
+    @Nullable
+    @Override
+    public T handleResponse(@Nonnull ClassicHttpResponse response) throws HttpException, IOException {
+        HttpEntity entity = JacksonHandlerUtils.requireSuccessEntity(response);
+        if (entity == null) {
+            return null;
+        }
+        try (InputStream stream = entity.getContent()) {
+            if (stream == null) {
+                return null;
+            }
+            return JacksonHandlerUtils.isUnicodeDetectable(entity) ? mapper.readValue(stream, valueType) : mapper.readValue(JacksonHandlerUtils.createReader(entity, stream), valueType);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.handler;
+
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+
+/**
+ * {@link org.apache.hc.core5.http.io.HttpClientResponseHandler} that emits the elements of a json array one at a time
+ * <p>
+ * Only one element is held in memory at any moment, which makes it suitable for huge array payloads.
+ * If the top level value is not an array, it is emitted as a single element.
+ * The result of the handler is the count of the emitted elements.
+ *
+ * @param <T> the type of the array elements
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.handler.JacksonResponseHandler
+ * @see com.yookue.springstarter.httpclient.consumer.JacksonStreamingAsyncEntityConsumer
+ */
+@SuppressWarnings("unused")
+public class JacksonStreamingResponseHandler<T> implements HttpClientResponseHandler<Long> {
+    private final ObjectMapper mapper;
+    private final ObjectReader reader;
+    private final Consumer<? super T> elementConsumer;
+
+    public JacksonStreamingResponseHandler(@Nonnull ObjectMapper mapper, @Nonnull Class<T> elementType, @Nonnull Consumer<? super T> elementConsumer) {
+        this(mapper, mapper.constructType(elementType), elementConsumer);
+    }
+
+    public JacksonStreamingResponseHandler(@Nonnull ObjectMapper mapper, @Nonnull TypeReference<T> elementType, @Nonnull Consumer<? super T> elementConsumer) {
+        this(mapper, mapper.constructType(elementType), elementConsumer);
+    }
+
+    public JacksonStreamingResponseHandler(@Nonnull ObjectMapper mapper, @Nonnull JavaType elementType, @Nonnull Consumer<? super T> elementConsumer) {
+        this.mapper = mapper;
+        this.reader = mapper.readerFor(elementType);
+        this.elementConsumer = elementConsumer;
+    }
+
+    @Nonnull
+    @Override
+    public Long handleResponse(@Nonnull ClassicHttpResponse response) throws HttpException, IOException {
+        HttpEntity entity = JacksonHandlerUtils.requireSuccessEntity(response);
+        if (entity == null) {
+            return 0L;
+        }
+        try (InputStream stream = entity.getContent()) {
+            if (stream == null) {
+                return 0L;
+            }
+            try (JsonParser parser = createParser(entity, stream)) {
+                if (parser.nextToken() == null) {
+                    return 0L;
+                }
+                if (!parser.isExpectedStartArrayToken()) {
+                    elementConsumer.accept(reader.readValue(parser));
+                    return 1L;
+                }
+                long count = 0L;
+                for (JsonToken token = parser.nextToken(); token != JsonToken.END_ARRAY; token = parser.nextToken()) {
+                    if (token == null) {
+                        throw new EOFException("Unexpected end of json array");    // $NON-NLS-1$
+                    }
+                    elementConsumer.accept(reader.readValue(parser));
+                    count++;
+                }
+                return count;
+            }
+        }
+    }
+
+    @Nonnull
+    private JsonParser createParser(@Nonnull HttpEntity entity, @Nonnull InputStream stream) throws IOException {
+        if (JacksonHandlerUtils.isUnicodeDetectable(entity)) {
+            return mapper.getFactory().createParser(stream);
+        }
+        return mapper.getFactory().createParser(JacksonHandlerUtils.createReader(entity, stream));
+    }
+}
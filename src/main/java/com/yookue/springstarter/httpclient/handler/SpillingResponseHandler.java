@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.handler;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import com.yookue.springstarter.httpclient.buffer.SpillPolicy;
+import com.yookue.springstarter.httpclient.buffer.SpilledHttpEntity;
+
+
+/**
+ * {@link org.apache.hc.core5.http.io.HttpClientResponseHandler} that buffers the response body by a {@link com.yookue.springstarter.httpclient.buffer.SpillPolicy} before the delegate handles it
+ * <p>
+ * The body is read off the connection at once, and kept on the heap or in a temp file, so the delegate reads a repeatable entity.
+ * A body that exceeds the maximum body size aborts the exchange with a {@link com.yookue.springstarter.httpclient.exception.ResponseBodyTooLargeException}.
+ * The temp file is deleted once the delegate returns, so the result of the delegate must not hold the entity.
+ *
+ * @param <T> the type of the result
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.consumer.SpillingAsyncResponseConsumer
+ */
+@SuppressWarnings("unused")
+public class SpillingResponseHandler<T> implements HttpClientResponseHandler<T> {
+    private final HttpClientResponseHandler<? extends T> delegate;
+    private final SpillPolicy policy;
+
+    public SpillingResponseHandler(@Nonnull HttpClientResponseHandler<? extends T> delegate, @Nonnull SpillPolicy policy) {
+        this.delegate = delegate;
+        this.policy = policy;
+    }
+
+    @Nullable
+    @Override
+    public T handleResponse(@Nonnull ClassicHttpResponse response) throws HttpException, IOException {
+        HttpEntity entity = response.getEntity();
+        if (entity == null) {
+            return delegate.handleResponse(response);
+        }
+        try (SpilledHttpEntity spilledEntity = SpilledHttpEntity.of(entity, policy)) {
+            response.setEntity(spilledEntity);
+            return delegate.handleResponse(response);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.jfr;
+
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Base flight recorder event of a phase of an http exchange
+ *
+ * @author David Hsing
+ */
+@Category(value = {"Yookue", "HTTP Client"})    // $NON-NLS-1$ // $NON-NLS-2$
+@StackTrace(value = false)
+abstract class AbstractExchangeEvent extends jdk.jfr.Event {
+    @Label(value = "Exchange Id")    // $NON-NLS-1$
+    String exchangeId;
+
+    @Label(value = "Route")    // $NON-NLS-1$
+    String route;
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.jfr;
+
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Flight recorder event of the time that the response body is transferred
+ * <p>
+ * The duration ends when the body is fully read or closed, so it includes the time that the caller spends between reads
+ *
+ * @author David Hsing
+ */
+@Name(value = "com.yookue.httpclient.BodyTransfer")    // $NON-NLS-1$
+@Label(value = "HTTP Body Transfer")    // $NON-NLS-1$
+@Description(value = "Time spent receiving the response body")    // $NON-NLS-1$
+final class BodyTransferEvent extends AbstractExchangeEvent {
+    @Label(value = "Method")    // $NON-NLS-1$
+    String method;
+
+    @Label(value = "Status")    // $NON-NLS-1$
+    int status;
+
+    @Label(value = "Response Bytes")    // $NON-NLS-1$
+    @DataAmount(value = DataAmount.BYTES)
+    long responseBytes;
+
+    @Label(value = "Completed")    // $NON-NLS-1$
+    boolean completed;
+}
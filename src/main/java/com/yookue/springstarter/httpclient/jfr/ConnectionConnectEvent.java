@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.jfr;
+
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Flight recorder event of the time that an exchange opens a new connection
+ * <p>
+ * The duration covers the dns lookup and the tls handshake of the connection, which have their own events
+ *
+ * @author David Hsing
+ */
+@Name(value = "com.yookue.httpclient.ConnectionConnect")    // $NON-NLS-1$
+@Label(value = "HTTP Connection Connect")    // $NON-NLS-1$
+@Description(value = "Time spent opening a new connection")    // $NON-NLS-1$
+final class ConnectionConnectEvent extends AbstractExchangeEvent {
+    @Label(value = "Succeeded")    // $NON-NLS-1$
+    boolean succeeded;
+}
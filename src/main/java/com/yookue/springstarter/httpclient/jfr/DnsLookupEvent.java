@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.jfr;
+
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+
+/**
+ * Flight recorder event of the time that a host name is resolved
+ *
+ * @author David Hsing
+ */
+@Name(value = "com.yookue.httpclient.DnsLookup")    // $NON-NLS-1$
+@Label(value = "HTTP DNS Lookup")    // $NON-NLS-1$
+@Description(value = "Time spent resolving the address of a host")    // $NON-NLS-1$
+@Category(value = {"Yookue", "HTTP Client"})    // $NON-NLS-1$ // $NON-NLS-2$
+@StackTrace(value = false)
+final class DnsLookupEvent extends jdk.jfr.Event {
+    @Label(value = "Host")    // $NON-NLS-1$
+    String host;
+
+    @Label(value = "Address Count")    // $NON-NLS-1$
+    int addressCount;
+}
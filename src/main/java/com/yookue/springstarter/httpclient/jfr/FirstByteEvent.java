@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.jfr;
+
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+
+/**
+ * Flight recorder event of the time from sending a request until the response head arrives
+ *
+ * @author David Hsing
+ */
+@Name(value = "com.yookue.httpclient.FirstByte")    // $NON-NLS-1$
+@Label(value = "HTTP Time To First Byte")    // $NON-NLS-1$
+@Description(value = "Time spent sending the request and waiting for the response head")    // $NON-NLS-1$
+final class FirstByteEvent extends AbstractExchangeEvent {
+    @Label(value = "Method")    // $NON-NLS-1$
+    String method;
+
+    @Label(value = "Path")    // $NON-NLS-1$
+    String path;
+
+    @Label(value = "Status")    // $NON-NLS-1$
+    int status;
+
+    @Label(value = "Request Bytes")    // $NON-NLS-1$
+    @DataAmount(value = DataAmount.BYTES)
+    long requestBytes;
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.jfr;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import jdk.jfr.EventType;
+
+
+/**
+ * {@link org.apache.hc.client5.http.async.AsyncExecChainHandler} that emits the first byte and body transfer events of flight recorder
+ * <p>
+ * The handler should be placed right before the main transport, so that every attempt of an exchange is recorded separately.
+ * Nothing is allocated unless the events are enabled in a running recording.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class FlightRecorderAsyncExecHandler implements AsyncExecChainHandler {
+    public static final String HANDLER_NAME = "flight-recorder";    // $NON-NLS-1$
+    private static final EventType FIRST_BYTE_TYPE = EventType.getEventType(FirstByteEvent.class);
+    private static final EventType BODY_TRANSFER_TYPE = EventType.getEventType(BodyTransferEvent.class);
+
+    @Override
+    public void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope, AsyncExecChain chain, AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        if (!FIRST_BYTE_TYPE.isEnabled() && !BODY_TRANSFER_TYPE.isEnabled()) {
+            chain.proceed(request, entityProducer, scope, asyncExecCallback);
+            return;
+        }
+        FirstByteEvent firstByte = new FirstByteEvent();
+        BodyTransferEvent bodyTransfer = new BodyTransferEvent();
+        firstByte.begin();
+        chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+            private boolean firstByteCommitted;
+            private boolean bodyCommitted = true;
+
+            @Override
+            public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails) throws HttpException, IOException {
+                commitFirstByte(response.getCode());
+                AsyncDataConsumer consumer = asyncExecCallback.handleResponse(response, entityDetails);
+                if (consumer == null || entityDetails == null || !bodyTransfer.isEnabled()) {
+                    return consumer;
+                }
+                bodyTransfer.exchangeId = scope.exchangeId;
+                bodyTransfer.route = scope.route.toString();
+                bodyTransfer.method = request.getMethod();
+                bodyTransfer.status = response.getCode();
+                bodyTransfer.begin();
+                bodyCommitted = false;
+                return new AsyncDataConsumer() {
+                    @Override
+                    public void updateCapacity(CapacityChannel capacityChannel) throws IOException {
+                        consumer.updateCapacity(capacityChannel);
+                    }
+
+                    @Override
+                    public void consume(ByteBuffer src) throws IOException {
+                        bodyTransfer.responseBytes += src.remaining();
+                        consumer.consume(src);
+                    }
+
+                    @Override
+                    public void streamEnd(List<? extends Header> trailers) throws HttpException, IOException {
+                        commitBody(true);
+                        consumer.streamEnd(trailers);
+                    }
+
+                    @Override
+                    public void releaseResources() {
+                        consumer.releaseResources();
+                    }
+                };
+            }
+
+            @Override
+            public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+                asyncExecCallback.handleInformationResponse(response);
+            }
+
+            @Override
+            public void completed() {
+                commitBody(true);
+                asyncExecCallback.completed();
+            }
+
+            @Override
+            public void failed(Exception cause) {
+                commitFirstByte(0);
+                commitBody(false);
+                asyncExecCallback.failed(cause);
+            }
+
+            private void commitFirstByte(int status) {
+                if (firstByteCommitted) {
+                    return;
+                }
+                firstByteCommitted = true;
+                firstByte.end();
+                if (firstByte.shouldCommit()) {
+                    firstByte.exchangeId = scope.exchangeId;
+                    firstByte.route = scope.route.toString();
+                    firstByte.method = request.getMethod();
+                    firstByte.path = StringUtils.substringBefore(request.getPath(), '?');
+                    firstByte.status = status;
+                    firstByte.requestBytes = (entityProducer == null) ? 0L : entityProducer.getContentLength();
+                    firstByte.commit();
+                }
+            }
+
+            private void commitBody(boolean completed) {
+                if (bodyCommitted) {
+                    return;
+                }
+                bodyCommitted = true;
+                bodyTransfer.end();
+                if (bodyTransfer.shouldCommit()) {
+                    bodyTransfer.completed = completed;
+                    bodyTransfer.commit();
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.jfr;
+
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.DnsResolver;
+import jdk.jfr.EventType;
+
+
+/**
+ * {@link org.apache.hc.client5.http.DnsResolver} that emits the dns lookup events of flight recorder
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class FlightRecorderDnsResolver implements DnsResolver {
+    private static final EventType LOOKUP_TYPE = EventType.getEventType(DnsLookupEvent.class);
+    private final DnsResolver delegate;
+
+    public FlightRecorderDnsResolver(@Nonnull DnsResolver delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        if (!LOOKUP_TYPE.isEnabled()) {
+            return delegate.resolve(host);
+        }
+        DnsLookupEvent event = new DnsLookupEvent();
+        event.begin();
+        InetAddress[] addresses = null;
+        try {
+            addresses = delegate.resolve(host);
+            return addresses;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.host = host;
+                event.addressCount = (addresses == null) ? 0 : addresses.length;
+                event.commit();
+            }
+        }
+    }
+
+    @Override
+    public String resolveCanonicalHostname(String host) throws UnknownHostException {
+        return delegate.resolveCanonicalHostname(host);
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.jfr;
+
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.io.entity.HttpEntityWrapper;
+import jdk.jfr.EventType;
+
+
+/**
+ * {@link org.apache.hc.client5.http.classic.ExecChainHandler} that emits the first byte and body transfer events of flight recorder
+ * <p>
+ * The handler should be placed right before the main transport, so that every attempt of an exchange is recorded separately.
+ * Nothing is allocated unless the events are enabled in a running recording.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class FlightRecorderExecHandler implements ExecChainHandler {
+    public static final String HANDLER_NAME = "flight-recorder";    // $NON-NLS-1$
+    private static final EventType FIRST_BYTE_TYPE = EventType.getEventType(FirstByteEvent.class);
+    private static final EventType BODY_TRANSFER_TYPE = EventType.getEventType(BodyTransferEvent.class);
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain) throws IOException, HttpException {
+        if (!FIRST_BYTE_TYPE.isEnabled() && !BODY_TRANSFER_TYPE.isEnabled()) {
+            return chain.proceed(request, scope);
+        }
+        FirstByteEvent firstByte = new FirstByteEvent();
+        BodyTransferEvent bodyTransfer = new BodyTransferEvent();
+        firstByte.begin();
+        ClassicHttpResponse response = null;
+        try {
+            response = chain.proceed(request, scope);
+        } finally {
+            firstByte.end();
+            if (firstByte.shouldCommit()) {
+                firstByte.exchangeId = scope.exchangeId;
+                firstByte.route = scope.route.toString();
+                firstByte.method = request.getMethod();
+                firstByte.path = StringUtils.substringBefore(request.getPath(), '?');
+                firstByte.status = (response == null) ? 0 : response.getCode();
+                firstByte.requestBytes = (request.getEntity() == null) ? 0L : request.getEntity().getContentLength();
+                firstByte.commit();
+            }
+        }
+        HttpEntity entity = response.getEntity();
+        if (entity != null && bodyTransfer.isEnabled()) {
+            bodyTransfer.exchangeId = scope.exchangeId;
+            bodyTransfer.route = scope.route.toString();
+            bodyTransfer.method = request.getMethod();
+            bodyTransfer.status = response.getCode();
+            bodyTransfer.begin();
+            response.setEntity(new RecordingEntity(entity, bodyTransfer));
+        }
+        return response;
+    }
+
+
+    private static final class RecordingEntity extends HttpEntityWrapper {
+        private final BodyTransferEvent event;
+        private InputStream content;
+        private boolean committed;
+
+        private RecordingEntity(@Nonnull HttpEntity entity, @Nonnull BodyTransferEvent event) {
+            super(entity);
+            this.event = event;
+        }
+
+        @Override
+        public InputStream getContent() throws IOException {
+            if (content == null) {
+                InputStream stream = super.getContent();
+                content = (stream == null) ? null : new RecordingInputStream(stream);
+            }
+            return content;
+        }
+
+        @Override
+        public void writeTo(OutputStream stream) throws IOException {
+            boolean completed = false;
+            try {
+                super.writeTo(new FilterOutputStream(stream) {
+                    @Override
+                    public void write(int b) throws IOException {
+                        out.write(b);
+                        event.responseBytes++;
+                    }
+
+                    @Override
+                    public void write(@Nonnull byte[] b, int off, int len) throws IOException {
+                        out.write(b, off, len);
+                        event.responseBytes += len;
+                    }
+                });
+                completed = true;
+            } finally {
+                commit(completed);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                commit(false);
+            }
+        }
+
+        private void commit(boolean completed) {
+            if (committed) {
+                return;
+            }
+            committed = true;
+            event.end();
+            if (event.shouldCommit()) {
+                event.completed = completed;
+                event.commit();
+            }
+        }
+
+
+        private final class RecordingInputStream extends FilterInputStream {
+            private RecordingInputStream(@Nullable InputStream stream) {
+                super(stream);
+            }
+
+            @Override
+            public int read() throws IOException {
+                int result = super.read();
+                if (result < 0) {
+                    commit(true);
+                } else {
+                    event.responseBytes++;
+                }
+                return result;
+            }
+
+            @Override
+            public int read(@Nonnull byte[] b, int off, int len) throws IOException {
+                int result = super.read(b, off, len);
+                if (result < 0) {
+                    commit(true);
+                } else {
+                    event.responseBytes += result;
+                }
+                return result;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    commit(getContentLength() >= 0L && event.responseBytes >= getContentLength());
+                }
+            }
+        }
+    }
+}
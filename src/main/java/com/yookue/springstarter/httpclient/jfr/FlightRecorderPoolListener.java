@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.jfr;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import jdk.jfr.EventType;
+import org.apache.hc.client5.http.HttpRoute;
+import com.yookue.springstarter.httpclient.pool.ConnectionPoolListener;
+
+
+/**
+ * {@link com.yookue.springstarter.httpclient.pool.ConnectionPoolListener} that emits the lease and connect events of flight recorder
+ * <p>
+ * Nothing is allocated unless the events are enabled in a running recording.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class FlightRecorderPoolListener implements ConnectionPoolListener {
+    private static final EventType LEASE_TYPE = EventType.getEventType(ConnectionLeaseEvent.class);
+    private static final EventType CONNECT_TYPE = EventType.getEventType(ConnectionConnectEvent.class);
+
+    private final Map<String, ConnectionLeaseEvent> leaseEvents = new ConcurrentHashMap<>();
+    private final Map<String, ConnectionConnectEvent> connectEvents = new ConcurrentHashMap<>();
+
+    @Override
+    public void leaseRequested(@Nullable String exchangeId, @Nonnull HttpRoute route) {
+        if (exchangeId != null && LEASE_TYPE.isEnabled()) {
+            ConnectionLeaseEvent event = new ConnectionLeaseEvent();
+            event.begin();
+            leaseEvents.put(exchangeId, event);
+        }
+    }
+
+    @Override
+    public void leaseCompleted(@Nullable String exchangeId, @Nonnull HttpRoute route) {
+        commitLease(exchangeId, route, true);
+    }
+
+    @Override
+    public void leaseFailed(@Nullable String exchangeId, @Nonnull HttpRoute route, @Nullable Exception cause) {
+        commitLease(exchangeId, route, false);
+    }
+
+    @Override
+    public void connectStarted(@Nullable String exchangeId, @Nullable HttpRoute route) {
+        if (exchangeId != null && CONNECT_TYPE.isEnabled()) {
+            ConnectionConnectEvent event = new ConnectionConnectEvent();
+            event.begin();
+            connectEvents.put(exchangeId, event);
+        }
+    }
+
+    @Override
+    public void connectCompleted(@Nullable String exchangeId, @Nullable HttpRoute route) {
+        commitConnect(exchangeId, route, true);
+    }
+
+    @Override
+    public void connectFailed(@Nullable String exchangeId, @Nullable HttpRoute route, @Nullable Exception cause) {
+        commitConnect(exchangeId, route, false);
+    }
+
+    private void commitLease(@Nullable String exchangeId, @Nonnull HttpRoute route, boolean succeeded) {
+        ConnectionLeaseEvent event = (exchangeId == null || leaseEvents.isEmpty()) ? null : leaseEvents.remove(exchangeId);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.exchangeId = exchangeId;
+            event.route = route.toString();
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+
+    private void commitConnect(@Nullable String exchangeId, @Nullable HttpRoute route, boolean succeeded) {
+        ConnectionConnectEvent event = (exchangeId == null || connectEvents.isEmpty()) ? null : connectEvents.remove(exchangeId);
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.exchangeId = exchangeId;
+            event.route = (route == null) ? null : route.toString();
+            event.succeeded = succeeded;
+            event.commit();
+        }
+    }
+}
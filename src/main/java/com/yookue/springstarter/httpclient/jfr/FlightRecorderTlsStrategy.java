@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.jfr;
+
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketAddress;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.net.NamedEndpoint;
+import org.apache.hc.core5.reactor.ssl.TlsDetails;
+import org.apache.hc.core5.reactor.ssl.TransportSecurityLayer;
+import org.apache.hc.core5.util.Timeout;
+import jdk.jfr.EventType;
+
+
+/**
+ * {@link org.apache.hc.core5.http.nio.ssl.TlsStrategy} and {@link org.apache.hc.client5.http.ssl.TlsSocketStrategy} that emits the tls handshake events of flight recorder
+ *
+ * @author David Hsing
+ * @see org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy
+ */
+@SuppressWarnings({"unused", "deprecation"})
+public class FlightRecorderTlsStrategy implements TlsStrategy, TlsSocketStrategy {
+    private static final EventType HANDSHAKE_TYPE = EventType.getEventType(TlsHandshakeEvent.class);
+    private final TlsStrategy asyncDelegate;
+    private final TlsSocketStrategy syncDelegate;
+
+    public <T extends TlsStrategy & TlsSocketStrategy> FlightRecorderTlsStrategy(@Nonnull T delegate) {
+        this.asyncDelegate = delegate;
+        this.syncDelegate = delegate;
+    }
+
+    @Override
+    public SSLSocket upgrade(Socket socket, String target, int port, Object attachment, HttpContext context) throws IOException {
+        if (!HANDSHAKE_TYPE.isEnabled()) {
+            return syncDelegate.upgrade(socket, target, port, attachment, context);
+        }
+        TlsHandshakeEvent event = new TlsHandshakeEvent();
+        event.begin();
+        SSLSocket result = null;
+        try {
+            result = syncDelegate.upgrade(socket, target, port, attachment, context);
+            return result;
+        } finally {
+            commit(event, target, port, (result == null) ? null : result.getSession());
+        }
+    }
+
+    @Override
+    @Deprecated
+    public boolean upgrade(TransportSecurityLayer sessionLayer, HttpHost host, SocketAddress localAddress, SocketAddress remoteAddress, Object attachment, Timeout handshakeTimeout) {
+        return asyncDelegate.upgrade(sessionLayer, host, localAddress, remoteAddress, attachment, handshakeTimeout);
+    }
+
+    @Override
+    public void upgrade(TransportSecurityLayer sessionLayer, NamedEndpoint endpoint, Object attachment, Timeout handshakeTimeout, FutureCallback<TransportSecurityLayer> callback) {
+        if (!HANDSHAKE_TYPE.isEnabled()) {
+            asyncDelegate.upgrade(sessionLayer, endpoint, attachment, handshakeTimeout, callback);
+            return;
+        }
+        TlsHandshakeEvent event = new TlsHandshakeEvent();
+        event.begin();
+        asyncDelegate.upgrade(sessionLayer, endpoint, attachment, handshakeTimeout, new FutureCallback<>() {
+            @Override
+            public void completed(TransportSecurityLayer result) {
+                TlsDetails details = (result == null) ? null : result.getTlsDetails();
+                commit(event, endpoint.getHostName(), endpoint.getPort(), (details == null) ? null : details.getSSLSession());
+                if (callback != null) {
+                    callback.completed(result);
+                }
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                commit(event, endpoint.getHostName(), endpoint.getPort(), null);
+                if (callback != null) {
+                    callback.failed(ex);
+                }
+            }
+
+            @Override
+            public void cancelled() {
+                commit(event, endpoint.getHostName(), endpoint.getPort(), null);
+                if (callback != null) {
+                    callback.cancelled();
+                }
+            }
+        });
+    }
+
+    private void commit(@Nonnull TlsHandshakeEvent event, @Nullable String host, int port, @Nullable SSLSession session) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.host = host;
+            event.port = port;
+            event.succeeded = (session != null);
+            if (session != null) {
+                event.protocol = session.getProtocol();
+                event.cipherSuite = session.getCipherSuite();
+            }
+            event.commit();
+        }
+    }
+}
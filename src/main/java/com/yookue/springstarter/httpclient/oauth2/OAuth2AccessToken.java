@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.oauth2;
+
+
+import java.io.Serializable;
+import java.time.Instant;
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.StringUtils;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+
+/**
+ * Bearer token that is issued by an authorization server
+ *
+ * @author David Hsing
+ */
+@Getter
+@AllArgsConstructor
+@ToString
+@SuppressWarnings("unused")
+public class OAuth2AccessToken implements Serializable {
+    @ToString.Exclude
+    private final String tokenValue;
+
+    private final String tokenType;
+    private final Instant expiresAt;
+
+    /**
+     * The instant from which the token should be refreshed in the background
+     */
+    private final Instant refreshAt;
+
+    public boolean isExpired(@Nonnull Instant instant) {
+        return !instant.isBefore(expiresAt);
+    }
+
+    public boolean isRefreshDue(@Nonnull Instant instant) {
+        return !instant.isBefore(refreshAt);
+    }
+
+    /**
+     * Returns the value of the {@code Authorization} header that presents this token
+     */
+    @Nonnull
+    public String toAuthorization() {
+        return (StringUtils.isBlank(tokenType) || StringUtils.equalsIgnoreCase(tokenType, "Bearer")) ? "Bearer " + tokenValue : tokenType + ' ' + tokenValue;    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.oauth2;
+
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+
+
+/**
+ * {@link org.apache.hc.client5.http.async.AsyncExecChainHandler} that authorizes requests with oauth2 client credentials tokens
+ * <p>
+ * The exchange proceeds once the token is available, without blocking the calling thread.
+ * If the resource server rejects a token with {@code 401}, the body is discarded, the token is refreshed
+ * and the request is sent once more, provided that its entity is absent or repeatable.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.oauth2.OAuth2TokenManager
+ */
+@SuppressWarnings("unused")
+public class OAuth2AsyncExecHandler implements AsyncExecChainHandler {
+    public static final String HANDLER_NAME = "oauth2";    // $NON-NLS-1$
+
+    private final OAuth2TokenManager tokenManager;
+
+    public OAuth2AsyncExecHandler(@Nonnull OAuth2TokenManager tokenManager) {
+        this.tokenManager = tokenManager;
+    }
+
+    @Override
+    public void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope, AsyncExecChain chain, AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        String registrationId = tokenManager.resolveRegistration(scope.route.getTargetHost(), scope.clientContext);
+        if (registrationId == null) {
+            chain.proceed(request, entityProducer, scope, asyncExecCallback);
+            return;
+        }
+        boolean retryable = entityProducer == null || entityProducer.isRepeatable();
+        proceedWithToken(tokenManager.getToken(registrationId), registrationId, retryable, request, entityProducer, scope, chain, asyncExecCallback);
+    }
+
+    private void proceedWithToken(@Nonnull CompletableFuture<OAuth2AccessToken> future, @Nonnull String registrationId, boolean retryable, @Nonnull HttpRequest request, @Nullable AsyncEntityProducer entityProducer, @Nonnull AsyncExecChain.Scope scope, @Nonnull AsyncExecChain chain, @Nonnull AsyncExecCallback asyncExecCallback) {
+        future.whenComplete((token, ex) -> {
+            if (ex != null) {
+                fail(ex, asyncExecCallback);
+                return;
+            }
+            request.setHeader(HttpHeaders.AUTHORIZATION, token.toAuthorization());
+            try {
+                chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+                    private volatile boolean rejected;
+
+                    @Override
+                    public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails) throws HttpException, IOException {
+                        if (retryable && response.getCode() == HttpStatus.SC_UNAUTHORIZED) {
+                            rejected = true;
+                            return null;
+                        }
+                        return asyncExecCallback.handleResponse(response, entityDetails);
+                    }
+
+                    @Override
+                    public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+                        asyncExecCallback.handleInformationResponse(response);
+                    }
+
+                    @Override
+                    public void completed() {
+                        if (!rejected) {
+                            asyncExecCallback.completed();
+                            return;
+                        }
+                        if (entityProducer != null) {
+                            entityProducer.releaseResources();
+                        }
+                        proceedWithToken(tokenManager.refreshToken(registrationId, token), registrationId, false, request, entityProducer, scope, chain, asyncExecCallback);
+                    }
+
+                    @Override
+                    public void failed(Exception cause) {
+                        asyncExecCallback.failed(cause);
+                    }
+                });
+            } catch (IOException | HttpException | RuntimeException cause) {
+                asyncExecCallback.failed(cause);
+            }
+        });
+    }
+
+    private void fail(@Nonnull Throwable ex, @Nonnull AsyncExecCallback asyncExecCallback) {
+        try {
+            asyncExecCallback.failed(OAuth2TokenManager.unwrap(ex));
+        } catch (HttpException | RuntimeException cause) {
+            asyncExecCallback.failed(cause);
+        }
+    }
+}
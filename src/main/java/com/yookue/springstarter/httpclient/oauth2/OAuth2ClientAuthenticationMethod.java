@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.oauth2;
+
+
+/**
+ * How the client authenticates to the token endpoint
+ *
+ * @author David Hsing
+ */
+public enum OAuth2ClientAuthenticationMethod {
+    /**
+     * Sends the client id and secret by the {@code Authorization: Basic} header
+     */
+    CLIENT_SECRET_BASIC,
+
+    /**
+     * Sends the client id and secret as form parameters
+     */
+    CLIENT_SECRET_POST
+}
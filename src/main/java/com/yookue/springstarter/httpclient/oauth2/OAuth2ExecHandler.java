@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.oauth2;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+
+
+/**
+ * {@link org.apache.hc.client5.http.classic.ExecChainHandler} that authorizes requests with oauth2 client credentials tokens
+ * <p>
+ * If the resource server rejects a token with {@code 401}, the token is refreshed and the request is sent once more,
+ * provided that its entity is absent or repeatable.
+ * The handler should be placed before the connect element, so that the retried request acquires its own connection.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.oauth2.OAuth2TokenManager
+ */
+@SuppressWarnings("unused")
+public class OAuth2ExecHandler implements ExecChainHandler {
+    public static final String HANDLER_NAME = "oauth2";    // $NON-NLS-1$
+
+    private final OAuth2TokenManager tokenManager;
+
+    public OAuth2ExecHandler(@Nonnull OAuth2TokenManager tokenManager) {
+        this.tokenManager = tokenManager;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain) throws IOException, HttpException {
+        String registrationId = tokenManager.resolveRegistration(scope.route.getTargetHost(), scope.clientContext);
+        if (registrationId == null) {
+            return chain.proceed(request, scope);
+        }
+        OAuth2AccessToken token = OAuth2TokenManager.await(tokenManager.getToken(registrationId));
+        request.setHeader(HttpHeaders.AUTHORIZATION, token.toAuthorization());
+        ClassicHttpResponse response = chain.proceed(request, scope);
+        if (response.getCode() != HttpStatus.SC_UNAUTHORIZED || (request.getEntity() != null && !request.getEntity().isRepeatable())) {
+            return response;
+        }
+        EntityUtils.consume(response.getEntity());
+        response.close();
+        OAuth2AccessToken refreshed = OAuth2TokenManager.await(tokenManager.refreshToken(registrationId, token));
+        request.setHeader(HttpHeaders.AUTHORIZATION, refreshed.toAuthorization());
+        return chain.proceed(request, scope);
+    }
+}
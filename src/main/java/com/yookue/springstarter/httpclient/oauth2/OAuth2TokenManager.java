@@ -0,0 +1,325 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.oauth2;
+
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.entity.UrlEncodedFormEntity;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.json.JsonParserFactory;
+import org.springframework.util.CollectionUtils;
+import com.yookue.springstarter.httpclient.exception.UnexpectedHttpResponseException;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import com.yookue.springstarter.httpclient.route.HostPatternMatcher;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Cache of the oauth2 client credentials tokens of a client, keyed by registration id
+ * <p>
+ * Concurrent requests for a missing or expired token share a single fetch.
+ * Once a token is due for refresh, it is still handed out while a single background fetch replaces it.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.oauth2.OAuth2ExecHandler
+ * @see com.yookue.springstarter.httpclient.oauth2.OAuth2AsyncExecHandler
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class OAuth2TokenManager {
+    /**
+     * Attribute name of {@link org.apache.hc.core5.http.protocol.HttpContext} to select a registration by id for a request
+     */
+    public static final String REGISTRATION_ATTRIBUTE = "com.yookue.httpclient.oauth2.registration";    // $NON-NLS-1$
+
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new DaemonThreadFactory());
+
+    private final Map<String, AbstractHttpClientProperties.OAuth2Registration> registrations;
+    private final Map<String, HostPatternMatcher> hostMatchers = new LinkedHashMap<>();
+    private final Map<String, TokenHolder> holders = new ConcurrentHashMap<>();
+    private final CloseableHttpClient tokenClient;
+
+    public OAuth2TokenManager(@Nullable Map<String, AbstractHttpClientProperties.OAuth2Registration> registrations) {
+        this(registrations, null);
+    }
+
+    /**
+     * Constructs a new token manager
+     *
+     * @param registrations the oauth2 registrations, keyed by registration id
+     * @param tokenClient the client to call the token endpoints, {@code null} to use a client of the system properties
+     */
+    public OAuth2TokenManager(@Nullable Map<String, AbstractHttpClientProperties.OAuth2Registration> registrations, @Nullable CloseableHttpClient tokenClient) {
+        this.registrations = CollectionUtils.isEmpty(registrations) ? Collections.emptyMap() : new LinkedHashMap<>(registrations);
+        this.tokenClient = (tokenClient != null) ? tokenClient : HttpClients.custom().useSystemProperties().setConnectionReuseStrategy((request, response, context) -> false).disableCookieManagement().disableAuthCaching().build();
+        this.registrations.forEach((registrationId, registration) -> hostMatchers.put(registrationId, HostPatternMatcher.compile(registration.getHosts())));
+    }
+
+    public boolean isEmpty() {
+        return registrations.isEmpty();
+    }
+
+    /**
+     * Returns the id of the registration that applies to the request
+     *
+     * @param target the target host of the request
+     * @param context the context of the request
+     *
+     * @return the id of the registration that applies to the request, or {@code null} if there is none
+     */
+    @Nullable
+    public String resolveRegistration(@Nullable HttpHost target, @Nullable HttpContext context) {
+        Object selected = (context == null) ? null : context.getAttribute(REGISTRATION_ATTRIBUTE);
+        if (selected instanceof String registrationId) {
+            return registrations.containsKey(registrationId) ? registrationId : null;
+        }
+        if (target == null) {
+            return null;
+        }
+        for (Map.Entry<String, HostPatternMatcher> entry : hostMatchers.entrySet()) {
+            if (entry.getValue().matches(target.getHostName())) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the cached token of the registration, or fetches one if it is missing or expired
+     *
+     * @param registrationId the registration id
+     *
+     * @return the future of the token
+     */
+    @Nonnull
+    public CompletableFuture<OAuth2AccessToken> getToken(@Nonnull String registrationId) {
+        TokenHolder holder = holders.computeIfAbsent(registrationId, TokenHolder::new);
+        OAuth2AccessToken token = holder.token;
+        Instant now = Instant.now();
+        if (token != null && !token.isExpired(now)) {
+            if (token.isRefreshDue(now)) {
+                refresh(holder, null);
+            }
+            return CompletableFuture.completedFuture(token);
+        }
+        return refresh(holder, null);
+    }
+
+    /**
+     * Fetches a new token for the registration, unless the rejected token has been replaced already
+     *
+     * @param registrationId the registration id
+     * @param rejected the token that the resource server rejected
+     *
+     * @return the future of the token
+     */
+    @Nonnull
+    public CompletableFuture<OAuth2AccessToken> refreshToken(@Nonnull String registrationId, @Nullable OAuth2AccessToken rejected) {
+        return refresh(holders.computeIfAbsent(registrationId, TokenHolder::new), rejected);
+    }
+
+    @Nonnull
+    private CompletableFuture<OAuth2AccessToken> refresh(@Nonnull TokenHolder holder, @Nullable OAuth2AccessToken rejected) {
+        synchronized (holder) {
+            if (holder.inflight != null) {
+                return holder.inflight;
+            }
+            OAuth2AccessToken current = holder.token;
+            if (rejected != null && current != null && current != rejected && !current.isExpired(Instant.now())) {
+                return CompletableFuture.completedFuture(current);
+            }
+            CompletableFuture<OAuth2AccessToken> future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return fetchToken(holder.registrationId);
+                } catch (IOException | HttpException ex) {
+                    throw new CompletionException(ex);
+                }
+            }, EXECUTOR);
+            holder.inflight = future;
+            future.whenComplete((token, ex) -> {
+                synchronized (holder) {
+                    if (token != null) {
+                        holder.token = token;
+                    } else if (log.isWarnEnabled()) {
+                        log.warn("Failed to fetch oauth2 token of registration '{}'", holder.registrationId, ex);
+                    }
+                    holder.inflight = null;
+                }
+            });
+            return future;
+        }
+    }
+
+    @Nonnull
+    private OAuth2AccessToken fetchToken(@Nonnull String registrationId) throws IOException, HttpException {
+        AbstractHttpClientProperties.OAuth2Registration registration = registrations.get(registrationId);
+        if (registration == null || StringUtils.isBlank(registration.getTokenUri())) {
+            throw new IllegalStateException(String.format("OAuth2 registration '%s' has no token uri", registrationId));    // $NON-NLS-1$
+        }
+        List<NameValuePair> parameters = new ArrayList<>();
+        parameters.add(new BasicNameValuePair("grant_type", "client_credentials"));    // $NON-NLS-1$ // $NON-NLS-2$
+        if (StringUtils.isNotBlank(registration.getScope())) {
+            parameters.add(new BasicNameValuePair("scope", registration.getScope()));    // $NON-NLS-1$
+        }
+        if (StringUtils.isNotBlank(registration.getAudience())) {
+            parameters.add(new BasicNameValuePair("audience", registration.getAudience()));    // $NON-NLS-1$
+        }
+        HttpPost request = new HttpPost(registration.getTokenUri());
+        request.setHeader(HttpHeaders.ACCEPT, ContentType.APPLICATION_JSON.getMimeType());
+        if (registration.getAuthenticationMethod() == OAuth2ClientAuthenticationMethod.CLIENT_SECRET_POST) {
+            parameters.add(new BasicNameValuePair("client_id", registration.getClientId()));    // $NON-NLS-1$
+            parameters.add(new BasicNameValuePair("client_secret", registration.getClientSecret()));    // $NON-NLS-1$
+        } else {
+            String credentials = encodeCredential(registration.getClientId()) + ':' + encodeCredential(registration.getClientSecret());
+            request.setHeader(HttpHeaders.AUTHORIZATION, "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));    // $NON-NLS-1$
+        }
+        request.setEntity(new UrlEncodedFormEntity(parameters, StandardCharsets.UTF_8));
+        Timeout timeout = Timeout.ofMilliseconds((registration.getTokenTimeout() == null) ? 10000L : registration.getTokenTimeout().toMillis());
+        request.setConfig(RequestConfig.custom().setConnectionRequestTimeout(timeout).setResponseTimeout(timeout).build());
+        Instant issuedAt = Instant.now();
+        Map<String, Object> response = tokenClient.execute(request, result -> {
+            String body = (result.getEntity() == null) ? null : EntityUtils.toString(result.getEntity(), StandardCharsets.UTF_8);
+            if (result.getCode() != HttpStatus.SC_OK || StringUtils.isBlank(body)) {
+                throw new UnexpectedHttpResponseException(String.format("Token endpoint of oauth2 registration '%s' responded %d", registrationId, result.getCode()));    // $NON-NLS-1$
+            }
+            return JsonParserFactory.getJsonParser().parseMap(body);
+        });
+        Object tokenValue = response.get("access_token");    // $NON-NLS-1$
+        if (!(tokenValue instanceof String value) || StringUtils.isBlank(value)) {
+            throw new UnexpectedHttpResponseException(String.format("Token endpoint of oauth2 registration '%s' responded no access token", registrationId));    // $NON-NLS-1$
+        }
+        Duration lifetime = registration.getDefaultExpiresIn();
+        if (response.get("expires_in") instanceof Number expiresIn) {    // $NON-NLS-1$
+            lifetime = Duration.ofSeconds(expiresIn.longValue());
+        } else if (response.get("expires_in") instanceof String expiresIn && StringUtils.isNumeric(expiresIn)) {    // $NON-NLS-1$
+            lifetime = Duration.ofSeconds(Long.parseLong(expiresIn));
+        }
+        if (lifetime == null || lifetime.isNegative() || lifetime.isZero()) {
+            lifetime = Duration.ofMinutes(5L);
+        }
+        Duration refreshBefore = (registration.getRefreshBefore() == null) ? Duration.ZERO : registration.getRefreshBefore();
+        if (refreshBefore.compareTo(lifetime.dividedBy(2L)) > 0) {
+            refreshBefore = lifetime.dividedBy(2L);
+        }
+        Instant expiresAt = issuedAt.plus(lifetime);
+        return new OAuth2AccessToken(value, StringUtils.defaultIfBlank((String) response.get("token_type"), "Bearer"), expiresAt, expiresAt.minus(refreshBefore));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    /**
+     * Waits for the future of a token, unwrapping the failure into the exceptions of an exec chain
+     *
+     * @param future the future of the token
+     *
+     * @return the token
+     */
+    @Nonnull
+    public static OAuth2AccessToken await(@Nonnull CompletableFuture<OAuth2AccessToken> future) throws IOException, HttpException {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for oauth2 token");    // $NON-NLS-1$
+        } catch (ExecutionException ex) {
+            throw unwrap(ex);
+        }
+    }
+
+    /**
+     * Returns the exception of a failed token future
+     *
+     * @param ex the exception that the future completed with
+     *
+     * @return the cause of the failure
+     */
+    @Nonnull
+    public static IOException unwrap(@Nonnull Throwable ex) throws HttpException {
+        Throwable cause = ex;
+        while ((cause instanceof ExecutionException || cause instanceof CompletionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        if (cause instanceof HttpException httpException) {
+            throw httpException;
+        }
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        return (cause instanceof IOException ioException) ? ioException : new IOException(cause);
+    }
+
+    @Nonnull
+    private static String encodeCredential(@Nullable String value) {
+        return URLEncoder.encode(StringUtils.defaultString(value), StandardCharsets.UTF_8);
+    }
+
+
+    private static final class TokenHolder {
+        private final String registrationId;
+        private volatile OAuth2AccessToken token;
+        private CompletableFuture<OAuth2AccessToken> inflight;
+
+        private TokenHolder(@Nonnull String registrationId) {
+            this.registrationId = registrationId;
+        }
+    }
+
+
+    private static final class DaemonThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@Nonnull Runnable runnable) {
+            Thread thread = new Thread(runnable, "oauth2-token-" + counter.incrementAndGet());    // $NON-NLS-1$
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
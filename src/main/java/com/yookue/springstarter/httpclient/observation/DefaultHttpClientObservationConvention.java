@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.observation;
+
+
+import jakarta.annotation.Nonnull;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import io.micrometer.common.KeyValue;
+import io.micrometer.common.KeyValues;
+
+
+/**
+ * Default {@link com.yookue.springstarter.httpclient.observation.HttpClientObservationConvention}
+ * <p>
+ * The {@code connection} key tells whether the exchange opened a new connection, reused a pooled one, or never got one.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class DefaultHttpClientObservationConvention implements HttpClientObservationConvention {
+    public static final DefaultHttpClientObservationConvention INSTANCE = new DefaultHttpClientObservationConvention();
+    public static final String OBSERVATION_NAME = "httpclient.requests";    // $NON-NLS-1$
+
+    @Nonnull
+    @Override
+    public String getName() {
+        return OBSERVATION_NAME;
+    }
+
+    @Nonnull
+    @Override
+    public String getContextualName(@Nonnull HttpClientObservationContext context) {
+        return "http " + StringUtils.lowerCase(context.getCarrier().getMethod());    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    @Override
+    public KeyValues getLowCardinalityKeyValues(@Nonnull HttpClientObservationContext context) {
+        HttpResponse response = context.getResponse();
+        return KeyValues.of(
+            KeyValue.of("method", context.getCarrier().getMethod()),    // $NON-NLS-1$
+            KeyValue.of("status", (response == null) ? "CLIENT_ERROR" : String.valueOf(response.getCode())),    // $NON-NLS-1$ // $NON-NLS-2$
+            KeyValue.of("outcome", outcome(response)),    // $NON-NLS-1$
+            KeyValue.of("exception", (context.getError() == null) ? "none" : context.getError().getClass().getSimpleName()),    // $NON-NLS-1$ // $NON-NLS-2$
+            KeyValue.of("client.name", context.getRoute().getTargetHost().getHostName()),    // $NON-NLS-1$
+            KeyValue.of("connection", !context.isLeased() ? "none" : (context.isNewConnection() ? "new" : "reused"))    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        );
+    }
+
+    @Nonnull
+    @Override
+    public KeyValues getHighCardinalityKeyValues(@Nonnull HttpClientObservationContext context) {
+        HttpRequest request = context.getCarrier();
+        return KeyValues.of(KeyValue.of("http.url", context.getRoute().getTargetHost().toURI() + StringUtils.substringBefore(request.getPath(), '?')));    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    private String outcome(HttpResponse response) {
+        if (response == null) {
+            return "UNKNOWN";    // $NON-NLS-1$
+        }
+        int code = response.getCode();
+        if (code < 200) {
+            return "INFORMATIONAL";    // $NON-NLS-1$
+        } else if (code < 300) {
+            return "SUCCESS";    // $NON-NLS-1$
+        } else if (code < 400) {
+            return "REDIRECTION";    // $NON-NLS-1$
+        } else if (code < 500) {
+            return "CLIENT_ERROR";    // $NON-NLS-1$
+        }
+        return "SERVER_ERROR";    // $NON-NLS-1$
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.observation;
+
+
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import io.micrometer.observation.transport.RequestReplySenderContext;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Observation context of an http exchange
+ * <p>
+ * The trace context is propagated through the headers of the request.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.observation.DefaultHttpClientObservationConvention
+ */
+@Getter
+@SuppressWarnings("unused")
+public class HttpClientObservationContext extends RequestReplySenderContext<HttpRequest, HttpResponse> {
+    private final HttpRoute route;
+
+    /**
+     * Indicates whether the exchange opened a new connection, or reused a pooled one
+     */
+    @Setter
+    private volatile boolean newConnection;
+
+    /**
+     * Indicates whether the exchange leased a connection through a monitored connection manager
+     */
+    @Setter
+    private volatile boolean leased;
+
+    public HttpClientObservationContext(@Nonnull HttpRequest request, @Nonnull HttpRoute route) {
+        super((carrier, key, value) -> {
+            if (carrier != null) {
+                carrier.setHeader(key, value);
+            }
+        });
+        super.setCarrier(request);
+        super.setRemoteServiceName(route.getTargetHost().getHostName());
+        this.route = route;
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.observation;
+
+
+import jakarta.annotation.Nonnull;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationConvention;
+
+
+/**
+ * {@link io.micrometer.observation.ObservationConvention} of the http exchanges of the clients
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.observation.DefaultHttpClientObservationConvention
+ */
+public interface HttpClientObservationConvention extends ObservationConvention<HttpClientObservationContext> {
+    @Override
+    default boolean supportsContext(@Nonnull Observation.Context context) {
+        return context instanceof HttpClientObservationContext;
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.observation;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+
+/**
+ * {@link org.apache.hc.client5.http.async.AsyncExecChainHandler} that observes each exchange as a client span
+ * <p>
+ * The handler should be placed first, so that the retries and redirects of an exchange belong to a single observation.
+ * The observation stops once the exchange completes or fails.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.observation.ObservationPoolListener
+ */
+@SuppressWarnings("unused")
+public class ObservationAsyncExecHandler implements AsyncExecChainHandler {
+    public static final String HANDLER_NAME = "observation";    // $NON-NLS-1$
+
+    private final ObservationRegistry registry;
+    private final HttpClientObservationConvention convention;
+    private final ObservationPoolListener poolListener;
+
+    public ObservationAsyncExecHandler(@Nonnull ObservationRegistry registry, @Nullable HttpClientObservationConvention convention, @Nullable ObservationPoolListener poolListener) {
+        this.registry = registry;
+        this.convention = convention;
+        this.poolListener = poolListener;
+    }
+
+    @Override
+    public void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope, AsyncExecChain chain, AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        if (registry.isNoop()) {
+            chain.proceed(request, entityProducer, scope, asyncExecCallback);
+            return;
+        }
+        HttpClientObservationContext context = new HttpClientObservationContext(request, scope.route);
+        Observation observation = Observation.createNotStarted(convention, DefaultHttpClientObservationConvention.INSTANCE, () -> context, registry).start();
+        if (poolListener != null) {
+            poolListener.register(scope.exchangeId, observation);
+        }
+        try (Observation.Scope ignored = observation.openScope()) {
+            chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+                @Override
+                public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails) throws HttpException, IOException {
+                    context.setResponse(response);
+                    return asyncExecCallback.handleResponse(response, entityDetails);
+                }
+
+                @Override
+                public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+                    asyncExecCallback.handleInformationResponse(response);
+                }
+
+                @Override
+                public void completed() {
+                    stop();
+                    asyncExecCallback.completed();
+                }
+
+                @Override
+                public void failed(Exception cause) {
+                    observation.error(cause);
+                    stop();
+                    asyncExecCallback.failed(cause);
+                }
+
+                private void stop() {
+                    if (poolListener != null) {
+                        poolListener.unregister(scope.exchangeId);
+                    }
+                    observation.stop();
+                }
+            });
+        } catch (IOException | HttpException | RuntimeException ex) {
+            observation.error(ex);
+            if (poolListener != null) {
+                poolListener.unregister(scope.exchangeId);
+            }
+            observation.stop();
+            throw ex;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.observation;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+
+
+/**
+ * {@link org.apache.hc.client5.http.classic.ExecChainHandler} that observes each exchange as a client span
+ * <p>
+ * The handler should be placed first, so that the retries and redirects of an exchange belong to a single observation.
+ * The observation stops once the response head arrives.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.observation.ObservationPoolListener
+ */
+@SuppressWarnings("unused")
+public class ObservationExecHandler implements ExecChainHandler {
+    public static final String HANDLER_NAME = "observation";    // $NON-NLS-1$
+
+    private final ObservationRegistry registry;
+    private final HttpClientObservationConvention convention;
+    private final ObservationPoolListener poolListener;
+
+    public ObservationExecHandler(@Nonnull ObservationRegistry registry, @Nullable HttpClientObservationConvention convention, @Nullable ObservationPoolListener poolListener) {
+        this.registry = registry;
+        this.convention = convention;
+        this.poolListener = poolListener;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain) throws IOException, HttpException {
+        if (registry.isNoop()) {
+            return chain.proceed(request, scope);
+        }
+        HttpClientObservationContext context = new HttpClientObservationContext(request, scope.route);
+        Observation observation = Observation.createNotStarted(convention, DefaultHttpClientObservationConvention.INSTANCE, () -> context, registry).start();
+        if (poolListener != null) {
+            poolListener.register(scope.exchangeId, observation);
+        }
+        try (Observation.Scope ignored = observation.openScope()) {
+            ClassicHttpResponse response = chain.proceed(request, scope);
+            context.setResponse(response);
+            return response;
+        } catch (IOException | HttpException | RuntimeException ex) {
+            observation.error(ex);
+            throw ex;
+        } finally {
+            if (poolListener != null) {
+                poolListener.unregister(scope.exchangeId);
+            }
+            observation.stop();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.observation;
+
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+import io.micrometer.observation.Observation;
+import com.yookue.springstarter.httpclient.pool.ConnectionPoolListener;
+
+
+/**
+ * {@link com.yookue.springstarter.httpclient.pool.ConnectionPoolListener} that attaches the lease and connect activity to the observation of the exchange
+ * <p>
+ * The exec handlers register the observation of each exchange by its exchange id, which is unique within the JVM,
+ * so that a single listener may serve any count of clients and connection managers.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class ObservationPoolListener implements ConnectionPoolListener {
+    public static final Observation.Event LEASE_REQUESTED = Observation.Event.of("connection.lease.requested");    // $NON-NLS-1$
+    public static final Observation.Event LEASE_ACQUIRED = Observation.Event.of("connection.lease.acquired");    // $NON-NLS-1$
+    public static final Observation.Event LEASE_FAILED = Observation.Event.of("connection.lease.failed");    // $NON-NLS-1$
+    public static final Observation.Event CONNECT_STARTED = Observation.Event.of("connection.connect.started");    // $NON-NLS-1$
+    public static final Observation.Event CONNECT_COMPLETED = Observation.Event.of("connection.connect.completed");    // $NON-NLS-1$
+    public static final Observation.Event CONNECT_FAILED = Observation.Event.of("connection.connect.failed");    // $NON-NLS-1$
+
+    private final Map<String, Observation> observations = new ConcurrentHashMap<>();
+
+    public void register(@Nonnull String exchangeId, @Nonnull Observation observation) {
+        if (!observation.isNoop()) {
+            observations.put(exchangeId, observation);
+        }
+    }
+
+    public void unregister(@Nonnull String exchangeId) {
+        observations.remove(exchangeId);
+    }
+
+    @Override
+    public void leaseRequested(@Nullable String exchangeId, @Nonnull HttpRoute route) {
+        Observation observation = lookup(exchangeId);
+        if (observation != null) {
+            observation.event(LEASE_REQUESTED);
+        }
+    }
+
+    @Override
+    public void leaseCompleted(@Nullable String exchangeId, @Nonnull HttpRoute route) {
+        Observation observation = lookup(exchangeId);
+        if (observation != null) {
+            if (observation.getContext() instanceof HttpClientObservationContext context) {
+                context.setLeased(true);
+            }
+            observation.event(LEASE_ACQUIRED);
+        }
+    }
+
+    @Override
+    public void leaseFailed(@Nullable String exchangeId, @Nonnull HttpRoute route, @Nullable Exception cause) {
+        Observation observation = lookup(exchangeId);
+        if (observation != null) {
+            observation.event(LEASE_FAILED);
+        }
+    }
+
+    @Override
+    public void connectStarted(@Nullable String exchangeId, @Nullable HttpRoute route) {
+        Observation observation = lookup(exchangeId);
+        if (observation != null) {
+            if (observation.getContext() instanceof HttpClientObservationContext context) {
+                context.setNewConnection(true);
+            }
+            observation.event(CONNECT_STARTED);
+        }
+    }
+
+    @Override
+    public void connectCompleted(@Nullable String exchangeId, @Nullable HttpRoute route) {
+        Observation observation = lookup(exchangeId);
+        if (observation != null) {
+            observation.event(CONNECT_COMPLETED);
+        }
+    }
+
+    @Override
+    public void connectFailed(@Nullable String exchangeId, @Nullable HttpRoute route, @Nullable Exception cause) {
+        Observation observation = lookup(exchangeId);
+        if (observation != null) {
+            observation.event(CONNECT_FAILED);
+        }
+    }
+
+    @Nullable
+    private Observation lookup(@Nullable String exchangeId) {
+        return (exchangeId == null || observations.isEmpty()) ? null : observations.get(exchangeId);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.util.TimeValue;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Evictor of the expired and idle connections of any count of connection pools, driven by a single periodic task of a {@link com.yookue.springstarter.httpclient.timer.HashedWheelTimer}
+ * <p>
+ * It replaces the evictor thread that each client builder starts by itself.
+ * The pools are held weakly, so a pool that is no longer referenced drops out by itself.
+ * The timer only hands each eviction off to an executor, since closing the connections may block.
+ *
+ * @author David Hsing
+ * @see org.apache.hc.client5.http.impl.IdleConnectionEvictor
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class ConnectionEvictor implements Closeable {
+    public static final Duration DEFAULT_INTERVAL = Duration.ofSeconds(5L);
+
+    @Getter
+    private final Duration interval;
+
+    private final HashedWheelTimer timer;
+    private final Executor executor;
+    private final Map<ConnPoolControl<?>, TimeValue> pools = new WeakHashMap<>();
+    private Cancellable task;
+    private boolean closed;
+
+    /**
+     * Constructs a new evictor
+     *
+     * @param timer the timer that drives the evictor
+     * @param interval the interval between two evictions, {@code null} or non-positive for {@link #DEFAULT_INTERVAL}
+     */
+    public ConnectionEvictor(@Nonnull HashedWheelTimer timer, @Nullable Duration interval) {
+        this(timer, interval, null);
+    }
+
+    /**
+     * Constructs a new evictor
+     *
+     * @param timer the timer that drives the evictor
+     * @param interval the interval between two evictions, {@code null} or non-positive for {@link #DEFAULT_INTERVAL}
+     * @param executor the executor that runs the evictions, {@code null} for the common pool
+     */
+    public ConnectionEvictor(@Nonnull HashedWheelTimer timer, @Nullable Duration interval, @Nullable Executor executor) {
+        this.timer = timer;
+        this.executor = (executor == null) ? ForkJoinPool.commonPool() : executor;
+        this.interval = (interval == null || interval.isZero() || interval.isNegative()) ? DEFAULT_INTERVAL : interval;
+    }
+
+    /**
+     * Registers a pool, registering the same pool again replaces its max idle time
+     * <p>
+     * The periodic task is scheduled on the first registration, so an evictor without pools costs nothing.
+     *
+     * @param pool the pool to evict the connections of
+     * @param maxIdleTime the idle time beyond which the connections are closed, or {@code null} to close the expired connections only
+     */
+    public void register(@Nonnull ConnPoolControl<?> pool, @Nullable TimeValue maxIdleTime) {
+        synchronized (pools) {
+            if (closed) {
+                throw new IllegalStateException("Connection evictor is closed");    // $NON-NLS-1$
+            }
+            pools.put(pool, maxIdleTime);
+            if (task == null) {
+                long millis = Math.max(interval.toMillis(), 1L);
+                task = timer.scheduleWithFixedDelay(this::evict, millis, millis, TimeUnit.MILLISECONDS, executor);
+            }
+        }
+    }
+
+    public void unregister(@Nonnull ConnPoolControl<?> pool) {
+        synchronized (pools) {
+            pools.remove(pool);
+        }
+    }
+
+    /**
+     * Closes the expired and idle connections of the registered pools at once
+     */
+    public void evict() {
+        List<Map.Entry<ConnPoolControl<?>, TimeValue>> entries;
+        synchronized (pools) {
+            entries = new ArrayList<>(pools.entrySet());
+        }
+        for (Map.Entry<ConnPoolControl<?>, TimeValue> entry : entries) {
+            try {
+                entry.getKey().closeExpired();
+                if (entry.getValue() != null) {
+                    entry.getKey().closeIdle(entry.getValue());
+                }
+            } catch (RuntimeException ex) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Failed to evict the connections of pool {}", entry.getKey(), ex);    // $NON-NLS-1$
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (pools) {
+            closed = true;
+            pools.clear();
+            if (task != null) {
+                task.cancel();
+                task = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+
+
+/**
+ * Listener of the connection activity of a monitored connection manager
+ * <p>
+ * The {@code exchangeId} is the id of the exchange that leases or connects the connection, it may be {@code null} when the caller does not provide it.
+ * The callbacks are invoked on the thread that leases or connects, so they must be cheap and must not block.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.MonitoredHttpClientConnectionManager
+ * @see com.yookue.springstarter.httpclient.pool.MonitoredAsyncClientConnectionManager
+ */
+@SuppressWarnings("unused")
+public interface ConnectionPoolListener {
+    default void leaseRequested(@Nullable String exchangeId, @Nonnull HttpRoute route) {
+    }
+
+    default void leaseCompleted(@Nullable String exchangeId, @Nonnull HttpRoute route) {
+    }
+
+    default void leaseFailed(@Nullable String exchangeId, @Nonnull HttpRoute route, @Nullable Exception cause) {
+    }
+
+    default void connectStarted(@Nullable String exchangeId, @Nullable HttpRoute route) {
+    }
+
+    default void connectCompleted(@Nullable String exchangeId, @Nullable HttpRoute route) {
+    }
+
+    default void connectFailed(@Nullable String exchangeId, @Nullable HttpRoute route, @Nullable Exception cause) {
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.RouteInfo;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+
+/**
+ * Composite of the {@link com.yookue.springstarter.httpclient.pool.ConnectionPoolListener}s that are registered to a monitored connection manager
+ *
+ * @author David Hsing
+ */
+final class ConnectionPoolListeners implements ConnectionPoolListener {
+    private final CopyOnWriteArrayList<ConnectionPoolListener> listeners = new CopyOnWriteArrayList<>();
+
+    void add(@Nonnull ConnectionPoolListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+
+    void remove(@Nonnull ConnectionPoolListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public void leaseRequested(@Nullable String exchangeId, @Nonnull HttpRoute route) {
+        for (ConnectionPoolListener listener : listeners) {
+            listener.leaseRequested(exchangeId, route);
+        }
+    }
+
+    @Override
+    public void leaseCompleted(@Nullable String exchangeId, @Nonnull HttpRoute route) {
+        for (ConnectionPoolListener listener : listeners) {
+            listener.leaseCompleted(exchangeId, route);
+        }
+    }
+
+    @Override
+    public void leaseFailed(@Nullable String exchangeId, @Nonnull HttpRoute route, @Nullable Exception cause) {
+        for (ConnectionPoolListener listener : listeners) {
+            listener.leaseFailed(exchangeId, route, cause);
+        }
+    }
+
+    @Override
+    public void connectStarted(@Nullable String exchangeId, @Nullable HttpRoute route) {
+        for (ConnectionPoolListener listener : listeners) {
+            listener.connectStarted(exchangeId, route);
+        }
+    }
+
+    @Override
+    public void connectCompleted(@Nullable String exchangeId, @Nullable HttpRoute route) {
+        for (ConnectionPoolListener listener : listeners) {
+            listener.connectCompleted(exchangeId, route);
+        }
+    }
+
+    @Override
+    public void connectFailed(@Nullable String exchangeId, @Nullable HttpRoute route, @Nullable Exception cause) {
+        for (ConnectionPoolListener listener : listeners) {
+            listener.connectFailed(exchangeId, route, cause);
+        }
+    }
+
+    boolean isEmpty() {
+        return listeners.isEmpty();
+    }
+
+    @Nullable
+    static String exchangeId(@Nullable HttpContext context) {
+        return (context instanceof HttpClientContext clientContext) ? clientContext.getExchangeId() : null;
+    }
+
+    @Nullable
+    static HttpRoute route(@Nullable HttpContext context) {
+        RouteInfo route = (context instanceof HttpClientContext clientContext) ? clientContext.getHttpRoute() : null;
+        return (route instanceof HttpRoute httpRoute) ? httpRoute : null;
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import java.time.Duration;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.pool.ConnPoolControl;
+
+
+/**
+ * Extension of {@link org.apache.hc.core5.pool.ConnPoolControl} that exposes the lease activity of a connection manager
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.MonitoredHttpClientConnectionManager
+ * @see com.yookue.springstarter.httpclient.pool.MonitoredAsyncClientConnectionManager
+ */
+@SuppressWarnings("unused")
+public interface ConnectionPoolMonitor extends ConnPoolControl<HttpRoute> {
+    /**
+     * Returns the count of requests that are waiting for or holding a connection
+     *
+     * @return the count of requests that are waiting for or holding a connection
+     */
+    int getInflightRequests();
+
+    /**
+     * Returns how long the oldest pending lease request has been waiting
+     *
+     * @return how long the oldest pending lease request has been waiting, or {@link java.time.Duration#ZERO} if nothing is pending
+     */
+    Duration getOldestPendingLeaseAge();
+
+    /**
+     * Returns how long the oldest pending lease request of the given route has been waiting
+     *
+     * @param route the route to inspect
+     *
+     * @return how long the oldest pending lease request of the given route has been waiting, or {@link java.time.Duration#ZERO} if nothing is pending
+     */
+    Duration getOldestPendingLeaseAge(HttpRoute route);
+
+    /**
+     * Returns the count of lease requests that the admission control has rejected
+     *
+     * @return the count of lease requests that the admission control has rejected, or {@code 0} if there is no admission control
+     */
+    long getRejectedLeases();
+
+    /**
+     * Returns the count of lease requests of the given route that the admission control has rejected
+     *
+     * @param route the route to inspect
+     *
+     * @return the count of lease requests of the given route that the admission control has rejected, or {@code 0} if there is no admission control
+     */
+    long getRejectedLeases(HttpRoute route);
+
+    /**
+     * Registers a listener of the lease and connect activity, registering the same listener again has no effect
+     *
+     * @param listener the listener to register
+     */
+    void addListener(ConnectionPoolListener listener);
+
+    /**
+     * Unregisters a listener of the lease and connect activity
+     *
+     * @param listener the listener to unregister
+     */
+    void removeListener(ConnectionPoolListener listener);
+}
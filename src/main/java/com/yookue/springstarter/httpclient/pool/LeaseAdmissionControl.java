@@ -0,0 +1,202 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+import com.yookue.springstarter.httpclient.exception.ConnectionLeaseRejectedException;
+import lombok.Getter;
+
+
+/**
+ * Admission control in front of a connection pool, which rejects the leases of a route that is backed up
+ * <p>
+ * A route is occupied by its pending and leased connections. Once the occupation exceeds the capacity of the route,
+ * the excess leases queue in the pool, and a lease is rejected if the queue would exceed its bound,
+ * or if the estimated wait, which is the queue length times the smoothed hold time of the connections divided by the capacity, would exceed the limit.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.exception.ConnectionLeaseRejectedException
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class LeaseAdmissionControl {
+    private static final double HOLD_SMOOTHING = 0.2D;
+
+    private final ToIntFunction<HttpRoute> capacity;
+
+    @Getter
+    private final Integer maxQueuedPerRoute;
+
+    @Getter
+    private final Duration maxEstimatedWait;
+
+    private final long maxEstimatedWaitNanos;
+    private final Map<HttpRoute, RouteState> states = new ConcurrentHashMap<>();
+    private final Map<Object, Admission> holders = new ConcurrentHashMap<>();
+    private final LongAdder rejectedLeases = new LongAdder();
+
+    /**
+     * Constructs a new admission control
+     *
+     * @param capacity the function that returns the capacity of a route, usually its max connections in the pool
+     * @param maxQueuedPerRoute the maximum count of leases that may queue for a route, or {@code null} for no bound
+     * @param maxEstimatedWait the maximum estimated wait of a lease, or {@code null} for no limit
+     */
+    public LeaseAdmissionControl(@Nonnull ToIntFunction<HttpRoute> capacity, @Nullable Integer maxQueuedPerRoute, @Nullable Duration maxEstimatedWait) {
+        this.capacity = capacity;
+        this.maxQueuedPerRoute = (maxQueuedPerRoute == null) ? null : Math.max(maxQueuedPerRoute, 0);
+        this.maxEstimatedWait = maxEstimatedWait;
+        this.maxEstimatedWaitNanos = (maxEstimatedWait == null) ? Long.MAX_VALUE : maxEstimatedWait.toNanos();
+    }
+
+    /**
+     * Admits a lease of the route, or rejects it if the route is backed up
+     *
+     * @param route the route to lease
+     *
+     * @return the admission, which must be settled by {@link #leased} or {@link #abandon}
+     *
+     * @throws com.yookue.springstarter.httpclient.exception.ConnectionLeaseRejectedException if the route is backed up
+     */
+    @Nonnull
+    Admission admit(@Nonnull HttpRoute route) throws ConnectionLeaseRejectedException {
+        RouteState state = states.computeIfAbsent(route, key -> new RouteState());
+        int occupied = state.occupied.incrementAndGet();
+        int total = Math.max(capacity.applyAsInt(route), 1);
+        int queued = occupied - total;
+        if (queued > 0) {
+            String reason = null;
+            if (maxQueuedPerRoute != null && queued > maxQueuedPerRoute) {
+                reason = String.format("Lease of route %s rejected, %d leases are already queued, which reaches the bound of %d", route, queued - 1, maxQueuedPerRoute);    // $NON-NLS-1$
+            } else if (maxEstimatedWait != null) {
+                long estimated = estimateWait(state, queued, total);
+                if (estimated > maxEstimatedWaitNanos) {
+                    reason = String.format("Lease of route %s rejected, the estimated wait of %d ms exceeds the limit of %d ms", route, Duration.ofNanos(estimated).toMillis(), maxEstimatedWait.toMillis());    // $NON-NLS-1$
+                }
+            }
+            if (reason != null) {
+                state.occupied.decrementAndGet();
+                state.rejectedLeases.increment();
+                rejectedLeases.increment();
+                throw new ConnectionLeaseRejectedException(route, reason);
+            }
+        }
+        return new Admission(state);
+    }
+
+    /**
+     * Binds an admission to the leased endpoint, so that releasing the endpoint settles the admission
+     */
+    void leased(@Nullable Admission admission, @Nonnull Object endpoint) {
+        if (admission != null && !admission.settled.get()) {
+            admission.leasedNanos = System.nanoTime();
+            holders.put(endpoint, admission);
+        }
+    }
+
+    /**
+     * Settles an admission whose lease has failed or has been cancelled, it has no effect if the admission is already settled
+     */
+    void abandon(@Nullable Admission admission) {
+        if (admission != null && admission.settled.compareAndSet(false, true)) {
+            admission.state.occupied.decrementAndGet();
+        }
+    }
+
+    /**
+     * Settles the admission that is bound to the endpoint, and accounts its hold time
+     */
+    void released(@Nonnull Object endpoint) {
+        Admission admission = holders.remove(endpoint);
+        if (admission == null || !admission.settled.compareAndSet(false, true)) {
+            return;
+        }
+        RouteState state = admission.state;
+        state.occupied.decrementAndGet();
+        long held = System.nanoTime() - admission.leasedNanos, average = state.averageHoldNanos;
+        state.averageHoldNanos = (average == 0L) ? Math.max(held, 1L) : Math.max(average + (long) ((held - average) * HOLD_SMOOTHING), 1L);
+    }
+
+    /**
+     * Returns the count of the rejected leases of all the routes
+     */
+    public long getRejectedLeases() {
+        return rejectedLeases.sum();
+    }
+
+    /**
+     * Returns the count of the rejected leases of the route
+     */
+    public long getRejectedLeases(@Nonnull HttpRoute route) {
+        RouteState state = states.get(route);
+        return (state == null) ? 0L : state.rejectedLeases.sum();
+    }
+
+    /**
+     * Returns the count of the pending and leased connections of the route that have been admitted
+     */
+    public int getOccupied(@Nonnull HttpRoute route) {
+        RouteState state = states.get(route);
+        return (state == null) ? 0 : state.occupied.get();
+    }
+
+    /**
+     * Returns the estimated wait of a lease of the route that is requested now
+     */
+    @Nonnull
+    public Duration getEstimatedWait(@Nonnull HttpRoute route) {
+        RouteState state = states.get(route);
+        if (state == null) {
+            return Duration.ZERO;
+        }
+        int total = Math.max(capacity.applyAsInt(route), 1);
+        int queued = state.occupied.get() + 1 - total;
+        return (queued > 0) ? Duration.ofNanos(estimateWait(state, queued, total)) : Duration.ZERO;
+    }
+
+    private long estimateWait(@Nonnull RouteState state, int queued, int total) {
+        long average = state.averageHoldNanos;
+        return (average == 0L) ? 0L : average / total * queued;
+    }
+
+
+    private static final class RouteState {
+        private final AtomicInteger occupied = new AtomicInteger();
+        private final LongAdder rejectedLeases = new LongAdder();
+        private volatile long averageHoldNanos;
+    }
+
+
+    static final class Admission {
+        private final RouteState state;
+        private final AtomicBoolean settled = new AtomicBoolean();
+        private volatile long leasedNanos;
+
+        private Admission(@Nonnull RouteState state) {
+            this.state = state;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+
+
+/**
+ * {@link org.apache.hc.client5.http.async.AsyncExecChainHandler} that registers the priority of each exchange to a {@link com.yookue.springstarter.httpclient.pool.PriorityLeaseGate}
+ * <p>
+ * The handler should be placed before the connect element, which leases the connection.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.RequestPriority
+ */
+@SuppressWarnings("unused")
+public class LeasePriorityAsyncExecHandler implements AsyncExecChainHandler {
+    public static final String HANDLER_NAME = "lease-priority";    // $NON-NLS-1$
+
+    private final PriorityLeaseGate gate;
+
+    public LeasePriorityAsyncExecHandler(@Nonnull PriorityLeaseGate gate) {
+        this.gate = gate;
+    }
+
+    @Override
+    public void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope, AsyncExecChain chain, AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        RequestPriority priority = RequestPriority.of(request, scope.clientContext);
+        if (priority == null) {
+            chain.proceed(request, entityProducer, scope, asyncExecCallback);
+            return;
+        }
+        gate.register(scope.exchangeId, priority);
+        try {
+            chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+                @Override
+                public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails) throws HttpException, IOException {
+                    return asyncExecCallback.handleResponse(response, entityDetails);
+                }
+
+                @Override
+                public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+                    asyncExecCallback.handleInformationResponse(response);
+                }
+
+                @Override
+                public void completed() {
+                    gate.unregister(scope.exchangeId);
+                    asyncExecCallback.completed();
+                }
+
+                @Override
+                public void failed(Exception cause) {
+                    gate.unregister(scope.exchangeId);
+                    asyncExecCallback.failed(cause);
+                }
+            });
+        } catch (IOException | HttpException | RuntimeException ex) {
+            gate.unregister(scope.exchangeId);
+            throw ex;
+        }
+    }
+}
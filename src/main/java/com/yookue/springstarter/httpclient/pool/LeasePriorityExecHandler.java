@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+
+
+/**
+ * {@link org.apache.hc.client5.http.classic.ExecChainHandler} that registers the priority of each exchange to a {@link com.yookue.springstarter.httpclient.pool.PriorityLeaseGate}
+ * <p>
+ * The handler should be placed before the connect element, which leases the connection.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.RequestPriority
+ */
+@SuppressWarnings("unused")
+public class LeasePriorityExecHandler implements ExecChainHandler {
+    public static final String HANDLER_NAME = "lease-priority";    // $NON-NLS-1$
+
+    private final PriorityLeaseGate gate;
+
+    public LeasePriorityExecHandler(@Nonnull PriorityLeaseGate gate) {
+        this.gate = gate;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain) throws IOException, HttpException {
+        RequestPriority priority = RequestPriority.of(request, scope.clientContext);
+        if (priority == null) {
+            return chain.proceed(request, scope);
+        }
+        gate.register(scope.exchangeId, priority);
+        try {
+            return chain.proceed(request, scope);
+        } finally {
+            gate.unregister(scope.exchangeId);
+        }
+    }
+}
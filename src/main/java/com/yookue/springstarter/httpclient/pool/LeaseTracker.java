@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+
+
+/**
+ * Bookkeeping of the lease requests that pass through a monitored connection manager
+ * <p>
+ * A request is in flight from the moment it asks for a connection until the connection is released.
+ * A request is pending until the pool hands over a connection, or the lease fails.
+ *
+ * @author David Hsing
+ */
+final class LeaseTracker {
+    private final AtomicInteger inflightRequests = new AtomicInteger();
+    private final Set<PendingLease> pendingLeases = ConcurrentHashMap.newKeySet();
+
+    @Nonnull
+    PendingLease leaseStarted(@Nonnull HttpRoute route) {
+        inflightRequests.incrementAndGet();
+        PendingLease lease = new PendingLease(route, System.nanoTime());
+        pendingLeases.add(lease);
+        return lease;
+    }
+
+    void leaseCompleted(@Nonnull PendingLease lease) {
+        pendingLeases.remove(lease);
+    }
+
+    void leaseFailed(@Nonnull PendingLease lease) {
+        if (pendingLeases.remove(lease)) {
+            inflightRequests.decrementAndGet();
+        }
+    }
+
+    void connectionReleased() {
+        inflightRequests.decrementAndGet();
+    }
+
+    int getInflightRequests() {
+        return inflightRequests.get();
+    }
+
+    @Nonnull
+    Duration getOldestPendingAge(@Nullable HttpRoute route) {
+        long now = System.nanoTime(), oldest = now;
+        for (PendingLease lease : pendingLeases) {
+            if ((route == null || Objects.equals(route, lease.route)) && lease.startNanos - oldest < 0L) {
+                oldest = lease.startNanos;
+            }
+        }
+        return Duration.ofNanos(now - oldest);
+    }
+
+
+    static final class PendingLease {
+        private final HttpRoute route;
+        private final long startNanos;
+
+        private PendingLease(@Nonnull HttpRoute route, long startNanos) {
+            this.route = route;
+            this.startNanos = startNanos;
+        }
+    }
+}
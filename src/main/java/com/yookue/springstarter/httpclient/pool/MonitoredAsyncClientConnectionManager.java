@@ -0,0 +1,368 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionManager;
+import org.apache.hc.client5.http.nio.AsyncConnectionEndpoint;
+import org.apache.hc.core5.concurrent.BasicFuture;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.reactor.ConnectionInitiator;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import com.yookue.springstarter.httpclient.exception.ConnectionLeaseRejectedException;
+import lombok.Getter;
+
+
+/**
+ * {@link org.apache.hc.client5.http.nio.AsyncClientConnectionManager} that tracks the lease activity of a {@link org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager}
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.ConnectionPoolMonitor
+ */
+@SuppressWarnings("unused")
+public class MonitoredAsyncClientConnectionManager implements AsyncClientConnectionManager, ConnectionPoolMonitor {
+    @Getter
+    private final PoolingAsyncClientConnectionManager delegate;
+    private final LeaseTracker tracker = new LeaseTracker();
+    private final ConnectionPoolListeners listeners = new ConnectionPoolListeners();
+
+    @Getter
+    private final PriorityLeaseGate priorityGate;
+
+    @Getter
+    private final LeaseAdmissionControl admissionControl;
+
+    @Getter
+    private final SchemePortResolver schemePortResolver;
+
+    public MonitoredAsyncClientConnectionManager(@Nonnull PoolingAsyncClientConnectionManager delegate) {
+        this(delegate, null);
+    }
+
+    public MonitoredAsyncClientConnectionManager(@Nonnull PoolingAsyncClientConnectionManager delegate, @Nullable PriorityLeaseGate priorityGate) {
+        this(delegate, priorityGate, null);
+    }
+
+    public MonitoredAsyncClientConnectionManager(@Nonnull PoolingAsyncClientConnectionManager delegate, @Nullable PriorityLeaseGate priorityGate, @Nullable LeaseAdmissionControl admissionControl) {
+        this(delegate, priorityGate, admissionControl, null);
+    }
+
+    public MonitoredAsyncClientConnectionManager(@Nonnull PoolingAsyncClientConnectionManager delegate, @Nullable PriorityLeaseGate priorityGate, @Nullable LeaseAdmissionControl admissionControl, @Nullable SchemePortResolver schemePortResolver) {
+        this.delegate = delegate;
+        this.priorityGate = priorityGate;
+        this.admissionControl = admissionControl;
+        this.schemePortResolver = schemePortResolver;
+    }
+
+    @Override
+    public void addListener(@Nonnull ConnectionPoolListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(@Nonnull ConnectionPoolListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Future<AsyncConnectionEndpoint> lease(String id, HttpRoute route, Object state, Timeout requestTimeout, FutureCallback<AsyncConnectionEndpoint> callback) {
+        LeaseTracker.PendingLease lease = tracker.leaseStarted(route);
+        listeners.leaseRequested(id, route);
+        AtomicReference<LeaseAdmissionControl.Admission> admission = (admissionControl == null) ? null : new AtomicReference<>();
+        try {
+            FutureCallback<AsyncConnectionEndpoint> monitoredCallback = new FutureCallback<>() {
+                @Override
+                public void completed(AsyncConnectionEndpoint endpoint) {
+                    if (admission != null) {
+                        admissionControl.leased(admission.get(), endpoint);
+                    }
+                    tracker.leaseCompleted(lease);
+                    listeners.leaseCompleted(id, route);
+                    if (callback != null) {
+                        callback.completed(endpoint);
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    if (admission != null) {
+                        admissionControl.abandon(admission.get());
+                    }
+                    tracker.leaseFailed(lease);
+                    listeners.leaseFailed(id, route, ex);
+                    if (callback != null) {
+                        callback.failed(ex);
+                    }
+                }
+
+                @Override
+                public void cancelled() {
+                    if (admission != null) {
+                        admissionControl.abandon(admission.get());
+                    }
+                    tracker.leaseFailed(lease);
+                    listeners.leaseFailed(id, route, null);
+                    if (callback != null) {
+                        callback.cancelled();
+                    }
+                }
+            };
+            if (admission != null) {
+                try {
+                    admission.set(admissionControl.admit(route));
+                } catch (ConnectionLeaseRejectedException ex) {
+                    BasicFuture<AsyncConnectionEndpoint> future = new BasicFuture<>(monitoredCallback);
+                    future.failed(ex);
+                    return future;
+                }
+            }
+            return (priorityGate == null) ? delegate.lease(id, route, state, requestTimeout, monitoredCallback) : priorityLease(id, route, state, requestTimeout, monitoredCallback);
+        } catch (RuntimeException ex) {
+            if (admission != null) {
+                admissionControl.abandon(admission.get());
+            }
+            tracker.leaseFailed(lease);
+            listeners.leaseFailed(id, route, ex);
+            throw ex;
+        }
+    }
+
+    @Nonnull
+    private Future<AsyncConnectionEndpoint> priorityLease(@Nonnull String id, @Nonnull HttpRoute route, @Nullable Object state, @Nullable Timeout requestTimeout, @Nonnull FutureCallback<AsyncConnectionEndpoint> callback) {
+        AtomicReference<Future<AsyncConnectionEndpoint>> request = new AtomicReference<>();
+        AtomicReference<Runnable> waiting = new AtomicReference<>();
+        BasicFuture<AsyncConnectionEndpoint> future = new BasicFuture<>(callback) {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                if (!super.cancel(mayInterruptIfRunning)) {
+                    return false;
+                }
+                Runnable handle = waiting.get();
+                if (handle != null) {
+                    handle.run();
+                }
+                Future<AsyncConnectionEndpoint> current = request.get();
+                if (current != null) {
+                    current.cancel(mayInterruptIfRunning);
+                }
+                return true;
+            }
+        };
+        long started = System.currentTimeMillis();
+        waiting.set(priorityGate.acquire(route, priorityGate.priorityOf(id), requestTimeout, () -> {
+            if (future.isDone()) {
+                priorityGate.release(route);
+                return;
+            }
+            Timeout remaining = TimeValue.isPositive(requestTimeout) ? Timeout.ofMilliseconds(Math.max(requestTimeout.toMilliseconds() - (System.currentTimeMillis() - started), 1L)) : requestTimeout;
+            request.set(delegate.lease(id, route, state, remaining, new FutureCallback<>() {
+                @Override
+                public void completed(AsyncConnectionEndpoint endpoint) {
+                    priorityGate.bind(endpoint, route);
+                    if (!future.completed(endpoint)) {
+                        delegate.release(endpoint, null, TimeValue.ZERO_MILLISECONDS);
+                        priorityGate.unbind(endpoint);
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    priorityGate.release(route);
+                    future.failed(ex);
+                }
+
+                @Override
+                public void cancelled() {
+                    priorityGate.release(route);
+                    future.cancel();
+                }
+            }));
+        }, future::failed));
+        return future;
+    }
+
+    @Override
+    public void release(AsyncConnectionEndpoint endpoint, Object newState, TimeValue validDuration) {
+        try {
+            delegate.release(endpoint, newState, validDuration);
+        } finally {
+            if (priorityGate != null) {
+                priorityGate.unbind(endpoint);
+            }
+            if (admissionControl != null) {
+                admissionControl.released(endpoint);
+            }
+            tracker.connectionReleased();
+        }
+    }
+
+    @Override
+    public Future<AsyncConnectionEndpoint> connect(AsyncConnectionEndpoint endpoint, ConnectionInitiator connectionInitiator, Timeout connectTimeout, Object attachment, HttpContext context, FutureCallback<AsyncConnectionEndpoint> callback) {
+        if (listeners.isEmpty()) {
+            return delegate.connect(endpoint, connectionInitiator, connectTimeout, attachment, context, callback);
+        }
+        String exchangeId = ConnectionPoolListeners.exchangeId(context);
+        HttpRoute route = ConnectionPoolListeners.route(context);
+        listeners.connectStarted(exchangeId, route);
+        try {
+            return delegate.connect(endpoint, connectionInitiator, connectTimeout, attachment, context, new FutureCallback<>() {
+                @Override
+                public void completed(AsyncConnectionEndpoint result) {
+                    listeners.connectCompleted(exchangeId, route);
+                    if (callback != null) {
+                        callback.completed(result);
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    listeners.connectFailed(exchangeId, route, ex);
+                    if (callback != null) {
+                        callback.failed(ex);
+                    }
+                }
+
+                @Override
+                public void cancelled() {
+                    listeners.connectFailed(exchangeId, route, null);
+                    if (callback != null) {
+                        callback.cancelled();
+                    }
+                }
+            });
+        } catch (RuntimeException ex) {
+            listeners.connectFailed(exchangeId, route, ex);
+            throw ex;
+        }
+    }
+
+    @Override
+    public void upgrade(AsyncConnectionEndpoint endpoint, Object attachment, HttpContext context) {
+        delegate.upgrade(endpoint, attachment, context);
+    }
+
+    @Override
+    public void upgrade(AsyncConnectionEndpoint endpoint, Object attachment, HttpContext context, FutureCallback<AsyncConnectionEndpoint> callback) {
+        delegate.upgrade(endpoint, attachment, context, callback);
+    }
+
+    @Override
+    public int getInflightRequests() {
+        return tracker.getInflightRequests();
+    }
+
+    @Nonnull
+    @Override
+    public Duration getOldestPendingLeaseAge() {
+        return tracker.getOldestPendingAge(null);
+    }
+
+    @Nonnull
+    @Override
+    public Duration getOldestPendingLeaseAge(@Nullable HttpRoute route) {
+        return route == null ? Duration.ZERO : tracker.getOldestPendingAge(route);
+    }
+
+    @Override
+    public long getRejectedLeases() {
+        return (admissionControl == null) ? 0L : admissionControl.getRejectedLeases();
+    }
+
+    @Override
+    public long getRejectedLeases(@Nullable HttpRoute route) {
+        return (admissionControl == null || route == null) ? 0L : admissionControl.getRejectedLeases(route);
+    }
+
+    @Override
+    public void setMaxTotal(int max) {
+        delegate.setMaxTotal(max);
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return delegate.getMaxTotal();
+    }
+
+    @Override
+    public void setDefaultMaxPerRoute(int max) {
+        delegate.setDefaultMaxPerRoute(max);
+    }
+
+    @Override
+    public int getDefaultMaxPerRoute() {
+        return delegate.getDefaultMaxPerRoute();
+    }
+
+    @Override
+    public void setMaxPerRoute(HttpRoute route, int max) {
+        delegate.setMaxPerRoute(route, max);
+    }
+
+    @Override
+    public int getMaxPerRoute(HttpRoute route) {
+        return delegate.getMaxPerRoute(route);
+    }
+
+    @Override
+    public void closeIdle(TimeValue idleTime) {
+        delegate.closeIdle(idleTime);
+    }
+
+    @Override
+    public void closeExpired() {
+        delegate.closeExpired();
+    }
+
+    @Override
+    public Set<HttpRoute> getRoutes() {
+        return delegate.getRoutes();
+    }
+
+    @Override
+    public PoolStats getTotalStats() {
+        return delegate.getTotalStats();
+    }
+
+    @Override
+    public PoolStats getStats(HttpRoute route) {
+        return delegate.getStats(route);
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+        delegate.close(closeMode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
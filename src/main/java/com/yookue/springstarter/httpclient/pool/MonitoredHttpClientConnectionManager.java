@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import com.yookue.springstarter.httpclient.exception.ConnectionLeaseRejectedException;
+import lombok.Getter;
+
+
+/**
+ * {@link org.apache.hc.client5.http.io.HttpClientConnectionManager} that tracks the lease activity of a {@link org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager}
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.ConnectionPoolMonitor
+ */
+@SuppressWarnings("unused")
+public class MonitoredHttpClientConnectionManager implements HttpClientConnectionManager, ConnectionPoolMonitor {
+    @Getter
+    private final PoolingHttpClientConnectionManager delegate;
+    private final LeaseTracker tracker = new LeaseTracker();
+    private final ConnectionPoolListeners listeners = new ConnectionPoolListeners();
+
+    @Getter
+    private final PriorityLeaseGate priorityGate;
+
+    @Getter
+    private final LeaseAdmissionControl admissionControl;
+
+    @Getter
+    private final SchemePortResolver schemePortResolver;
+
+    public MonitoredHttpClientConnectionManager(@Nonnull PoolingHttpClientConnectionManager delegate) {
+        this(delegate, null);
+    }
+
+    public MonitoredHttpClientConnectionManager(@Nonnull PoolingHttpClientConnectionManager delegate, @Nullable PriorityLeaseGate priorityGate) {
+        this(delegate, priorityGate, null);
+    }
+
+    public MonitoredHttpClientConnectionManager(@Nonnull PoolingHttpClientConnectionManager delegate, @Nullable PriorityLeaseGate priorityGate, @Nullable LeaseAdmissionControl admissionControl) {
+        this(delegate, priorityGate, admissionControl, null);
+    }
+
+    public MonitoredHttpClientConnectionManager(@Nonnull PoolingHttpClientConnectionManager delegate, @Nullable PriorityLeaseGate priorityGate, @Nullable LeaseAdmissionControl admissionControl, @Nullable SchemePortResolver schemePortResolver) {
+        this.delegate = delegate;
+        this.priorityGate = priorityGate;
+        this.admissionControl = admissionControl;
+        this.schemePortResolver = schemePortResolver;
+    }
+
+    @Override
+    public void addListener(@Nonnull ConnectionPoolListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(@Nonnull ConnectionPoolListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout requestTimeout, Object state) {
+        LeaseTracker.PendingLease lease = tracker.leaseStarted(route);
+        listeners.leaseRequested(id, route);
+        LeaseAdmissionControl.Admission admission;
+        try {
+            admission = (admissionControl == null) ? null : admissionControl.admit(route);
+        } catch (ConnectionLeaseRejectedException ex) {
+            tracker.leaseFailed(lease);
+            listeners.leaseFailed(id, route, ex);
+            return rejectedLease(ex);
+        }
+        LeaseRequest request;
+        try {
+            request = (priorityGate == null) ? delegate.lease(id, route, requestTimeout, state) : priorityLease(id, route, requestTimeout, state);
+        } catch (RuntimeException ex) {
+            if (admission != null) {
+                admissionControl.abandon(admission);
+            }
+            tracker.leaseFailed(lease);
+            listeners.leaseFailed(id, route, ex);
+            throw ex;
+        }
+        if (admission != null) {
+            return admittedLease(id, route, lease, request, admission);
+        }
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout) throws InterruptedException, ExecutionException, TimeoutException {
+                try {
+                    ConnectionEndpoint endpoint = request.get(timeout);
+                    tracker.leaseCompleted(lease);
+                    listeners.leaseCompleted(id, route);
+                    return endpoint;
+                } catch (InterruptedException | ExecutionException | TimeoutException | RuntimeException ex) {
+                    tracker.leaseFailed(lease);
+                    listeners.leaseFailed(id, route, ex);
+                    throw ex;
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                boolean cancelled = request.cancel();
+                if (cancelled) {
+                    tracker.leaseFailed(lease);
+                    listeners.leaseFailed(id, route, null);
+                }
+                return cancelled;
+            }
+        };
+    }
+
+    @Nonnull
+    private static LeaseRequest rejectedLease(@Nonnull ConnectionLeaseRejectedException cause) {
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout) throws ExecutionException {
+                throw new ExecutionException(cause);
+            }
+
+            @Override
+            public boolean cancel() {
+                return false;
+            }
+        };
+    }
+
+    @Nonnull
+    private LeaseRequest admittedLease(@Nonnull String id, @Nonnull HttpRoute route, @Nonnull LeaseTracker.PendingLease lease, @Nonnull LeaseRequest request, @Nonnull LeaseAdmissionControl.Admission admission) {
+        return new LeaseRequest() {
+            @Override
+            public ConnectionEndpoint get(Timeout timeout) throws InterruptedException, ExecutionException, TimeoutException {
+                try {
+                    ConnectionEndpoint endpoint = request.get(timeout);
+                    admissionControl.leased(admission, endpoint);
+                    tracker.leaseCompleted(lease);
+                    listeners.leaseCompleted(id, route);
+                    return endpoint;
+                } catch (InterruptedException | ExecutionException | TimeoutException | RuntimeException ex) {
+                    admissionControl.abandon(admission);
+                    tracker.leaseFailed(lease);
+                    listeners.leaseFailed(id, route, ex);
+                    throw ex;
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                boolean cancelled = request.cancel();
+                if (cancelled) {
+                    admissionControl.abandon(admission);
+                    tracker.leaseFailed(lease);
+                    listeners.leaseFailed(id, route, null);
+                }
+                return cancelled;
+            }
+        };
+    }
+
+    @Nonnull
+    private LeaseRequest priorityLease(@Nonnull String id, @Nonnull HttpRoute route, @Nullable Timeout requestTimeout, @Nullable Object state) {
+        RequestPriority priority = priorityGate.priorityOf(id);
+        return new LeaseRequest() {
+            private volatile LeaseRequest request;
+            private volatile boolean cancelled;
+
+            @Override
+            public ConnectionEndpoint get(Timeout timeout) throws InterruptedException, ExecutionException, TimeoutException {
+                if (cancelled) {
+                    throw new CancellationException("Lease cancelled");    // $NON-NLS-1$
+                }
+                long started = System.currentTimeMillis();
+                priorityGate.acquire(route, priority, timeout);
+                try {
+                    request = delegate.lease(id, route, requestTimeout, state);
+                    Timeout remaining = TimeValue.isPositive(timeout) ? Timeout.ofMilliseconds(Math.max(timeout.toMilliseconds() - (System.currentTimeMillis() - started), 1L)) : timeout;
+                    ConnectionEndpoint endpoint = request.get(remaining);
+                    priorityGate.bind(endpoint, route);
+                    return endpoint;
+                } catch (InterruptedException | ExecutionException | TimeoutException | RuntimeException ex) {
+                    priorityGate.release(route);
+                    throw ex;
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                cancelled = true;
+                LeaseRequest current = request;
+                return current == null || current.cancel();
+            }
+        };
+    }
+
+    @Override
+    public void release(ConnectionEndpoint endpoint, Object newState, TimeValue validDuration) {
+        try {
+            delegate.release(endpoint, newState, validDuration);
+        } finally {
+            if (priorityGate != null) {
+                priorityGate.unbind(endpoint);
+            }
+            if (admissionControl != null) {
+                admissionControl.released(endpoint);
+            }
+            tracker.connectionReleased();
+        }
+    }
+
+    @Override
+    public void connect(ConnectionEndpoint endpoint, TimeValue connectTimeout, HttpContext context) throws IOException {
+        if (listeners.isEmpty()) {
+            delegate.connect(endpoint, connectTimeout, context);
+            return;
+        }
+        String exchangeId = ConnectionPoolListeners.exchangeId(context);
+        HttpRoute route = ConnectionPoolListeners.route(context);
+        listeners.connectStarted(exchangeId, route);
+        try {
+            delegate.connect(endpoint, connectTimeout, context);
+        } catch (IOException | RuntimeException ex) {
+            listeners.connectFailed(exchangeId, route, ex);
+            throw ex;
+        }
+        listeners.connectCompleted(exchangeId, route);
+    }
+
+    @Override
+    public void upgrade(ConnectionEndpoint endpoint, HttpContext context) throws IOException {
+        delegate.upgrade(endpoint, context);
+    }
+
+    @Override
+    public int getInflightRequests() {
+        return tracker.getInflightRequests();
+    }
+
+    @Nonnull
+    @Override
+    public Duration getOldestPendingLeaseAge() {
+        return tracker.getOldestPendingAge(null);
+    }
+
+    @Nonnull
+    @Override
+    public Duration getOldestPendingLeaseAge(@Nullable HttpRoute route) {
+        return route == null ? Duration.ZERO : tracker.getOldestPendingAge(route);
+    }
+
+    @Override
+    public long getRejectedLeases() {
+        return (admissionControl == null) ? 0L : admissionControl.getRejectedLeases();
+    }
+
+    @Override
+    public long getRejectedLeases(@Nullable HttpRoute route) {
+        return (admissionControl == null || route == null) ? 0L : admissionControl.getRejectedLeases(route);
+    }
+
+    @Override
+    public void setMaxTotal(int max) {
+        delegate.setMaxTotal(max);
+    }
+
+    @Override
+    public int getMaxTotal() {
+        return delegate.getMaxTotal();
+    }
+
+    @Override
+    public void setDefaultMaxPerRoute(int max) {
+        delegate.setDefaultMaxPerRoute(max);
+    }
+
+    @Override
+    public int getDefaultMaxPerRoute() {
+        return delegate.getDefaultMaxPerRoute();
+    }
+
+    @Override
+    public void setMaxPerRoute(HttpRoute route, int max) {
+        delegate.setMaxPerRoute(route, max);
+    }
+
+    @Override
+    public int getMaxPerRoute(HttpRoute route) {
+        return delegate.getMaxPerRoute(route);
+    }
+
+    @Override
+    public void closeIdle(TimeValue idleTime) {
+        delegate.closeIdle(idleTime);
+    }
+
+    @Override
+    public void closeExpired() {
+        delegate.closeExpired();
+    }
+
+    @Override
+    public Set<HttpRoute> getRoutes() {
+        return delegate.getRoutes();
+    }
+
+    @Override
+    public PoolStats getTotalStats() {
+        return delegate.getTotalStats();
+    }
+
+    @Override
+    public PoolStats getStats(HttpRoute route) {
+        return delegate.getStats(route);
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+        delegate.close(closeMode);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,348 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
+import lombok.Getter;
+
+
+/**
+ * Gate in front of a connection pool, which serves the leases of each route through priority lanes
+ * <p>
+ * Each route admits as many leases as its capacity in the pool. A waiting lease is admitted before any lease of lower priority,
+ * and a share of the capacity can be reserved for {@link com.yookue.springstarter.httpclient.pool.RequestPriority#HIGH}.
+ * The priority of an exchange is registered by its id, before the exchange leases a connection.
+ * The timeouts of the async leases are handed off from the timer to an executor, since failing a lease runs the callbacks of the exchange.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.LeasePriorityExecHandler
+ * @see com.yookue.springstarter.httpclient.pool.LeasePriorityAsyncExecHandler
+ */
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class PriorityLeaseGate {
+    private final ToIntFunction<HttpRoute> capacity;
+    private final HashedWheelTimer timer;
+    private final Executor executor;
+
+    @Getter
+    private final RequestPriority defaultPriority;
+
+    @Getter
+    private final double reservedShare;
+
+    private final Map<HttpRoute, Lane> lanes = new HashMap<>();
+    private final Map<String, RequestPriority> priorities = new ConcurrentHashMap<>();
+    private final Map<Object, HttpRoute> holders = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs a new gate
+     *
+     * @param capacity the function that returns the capacity of a route, usually its max connections in the pool
+     * @param defaultPriority the priority of the exchanges that have no priority registered
+     * @param reservedShare the share of the capacity of each route that is reserved for high priority, between {@code 0} and {@code 1}
+     */
+    public PriorityLeaseGate(@Nonnull ToIntFunction<HttpRoute> capacity, @Nullable RequestPriority defaultPriority, double reservedShare) {
+        this(capacity, defaultPriority, reservedShare, null, null);
+    }
+
+    /**
+     * Constructs a new gate
+     *
+     * @param capacity the function that returns the capacity of a route, usually its max connections in the pool
+     * @param defaultPriority the priority of the exchanges that have no priority registered
+     * @param reservedShare the share of the capacity of each route that is reserved for high priority, between {@code 0} and {@code 1}
+     * @param timer the timer that expires the async leases, {@code null} for {@link com.yookue.springstarter.httpclient.timer.HashedWheelTimer#getShared()}
+     * @param executor the executor that fails the expired async leases, {@code null} for the common pool
+     */
+    public PriorityLeaseGate(@Nonnull ToIntFunction<HttpRoute> capacity, @Nullable RequestPriority defaultPriority, double reservedShare, @Nullable HashedWheelTimer timer, @Nullable Executor executor) {
+        this.capacity = capacity;
+        this.timer = (timer == null) ? HashedWheelTimer.getShared() : timer;
+        this.executor = (executor == null) ? ForkJoinPool.commonPool() : executor;
+        this.defaultPriority = (defaultPriority == null) ? RequestPriority.NORMAL : defaultPriority;
+        this.reservedShare = Math.min(Math.max(reservedShare, 0.0D), 1.0D);
+    }
+
+    public void register(@Nonnull String exchangeId, @Nonnull RequestPriority priority) {
+        if (priority != defaultPriority) {
+            priorities.put(exchangeId, priority);
+        }
+    }
+
+    public void unregister(@Nonnull String exchangeId) {
+        priorities.remove(exchangeId);
+    }
+
+    @Nonnull
+    public RequestPriority priorityOf(@Nullable String exchangeId) {
+        RequestPriority priority = (exchangeId == null) ? null : priorities.get(exchangeId);
+        return (priority == null) ? defaultPriority : priority;
+    }
+
+    /**
+     * Waits until the route admits a lease of the priority
+     *
+     * @param route the route to lease
+     * @param priority the priority of the lease
+     * @param timeout the maximum time to wait
+     */
+    void acquire(@Nonnull HttpRoute route, @Nonnull RequestPriority priority, @Nullable Timeout timeout) throws InterruptedException, TimeoutException {
+        CountDownLatch latch = new CountDownLatch(1);
+        Waiter waiter = new Waiter(route, priority, latch::countDown);
+        if (!enqueue(waiter)) {
+            return;
+        }
+        boolean granted;
+        try {
+            if (!TimeValue.isPositive(timeout)) {
+                latch.await();
+                granted = true;
+            } else {
+                granted = latch.await(timeout.toMilliseconds(), TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException ex) {
+            if (!cancel(waiter)) {
+                release(route);
+            }
+            throw ex;
+        }
+        if (!granted && cancel(waiter)) {
+            throw new TimeoutException(String.format("Timeout waiting for a %s priority lease of route %s", priority, route));    // $NON-NLS-1$
+        }
+    }
+
+    /**
+     * Admits a lease of the priority once the route allows it, without blocking
+     *
+     * @param route the route to lease
+     * @param priority the priority of the lease
+     * @param timeout the maximum time to wait
+     * @param onGranted the action to run once the lease is admitted
+     * @param onTimeout the action to run if the lease is not admitted in time
+     *
+     * @return the handle to cancel the waiting lease
+     */
+    @Nonnull
+    Runnable acquire(@Nonnull HttpRoute route, @Nonnull RequestPriority priority, @Nullable Timeout timeout, @Nonnull Runnable onGranted, @Nonnull Consumer<TimeoutException> onTimeout) {
+        Waiter waiter = new Waiter(route, priority, onGranted);
+        if (!enqueue(waiter)) {
+            onGranted.run();
+            return () -> {
+            };
+        }
+        if (TimeValue.isPositive(timeout)) {
+            Cancellable expiry = timer.schedule(() -> {
+                if (cancel(waiter)) {
+                    onTimeout.accept(new TimeoutException(String.format("Timeout waiting for a %s priority lease of route %s", priority, route)));    // $NON-NLS-1$
+                }
+            }, timeout.toMilliseconds(), TimeUnit.MILLISECONDS, executor);
+            waiter.expiry = expiry;
+        }
+        return () -> cancel(waiter);
+    }
+
+    /**
+     * Binds an admitted lease to the leased endpoint, so that releasing the endpoint releases the lease
+     */
+    void bind(@Nonnull Object endpoint, @Nonnull HttpRoute route) {
+        holders.put(endpoint, route);
+    }
+
+    /**
+     * Releases the lease that is bound to the endpoint
+     */
+    void unbind(@Nonnull Object endpoint) {
+        HttpRoute route = holders.remove(endpoint);
+        if (route != null) {
+            release(route);
+        }
+    }
+
+    /**
+     * Releases an admitted lease of the route, then admits the waiting leases that the route allows
+     */
+    void release(@Nonnull HttpRoute route) {
+        List<Waiter> granted;
+        synchronized (lanes) {
+            Lane lane = lanes.get(route);
+            if (lane == null) {
+                return;
+            }
+            lane.held = Math.max(lane.held - 1, 0);
+            granted = dispatch(route, lane);
+        }
+        granted.forEach(waiter -> waiter.onGranted.run());
+    }
+
+    /**
+     * Returns the count of the leases that wait in the lanes of the route
+     */
+    public int getPending(@Nonnull HttpRoute route) {
+        synchronized (lanes) {
+            Lane lane = lanes.get(route);
+            return (lane == null) ? 0 : lane.queues.values().stream().mapToInt(ArrayDeque::size).sum();
+        }
+    }
+
+    /**
+     * Returns the count of the admitted leases of the route
+     */
+    public int getHeld(@Nonnull HttpRoute route) {
+        synchronized (lanes) {
+            Lane lane = lanes.get(route);
+            return (lane == null) ? 0 : lane.held;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the waiter should wait, or admits it at once and returns {@code false}
+     */
+    private boolean enqueue(@Nonnull Waiter waiter) {
+        synchronized (lanes) {
+            Lane lane = lanes.computeIfAbsent(waiter.route, key -> new Lane());
+            if (isAdmissible(waiter.route, lane, waiter.priority) && !hasWaiters(lane, waiter.priority)) {
+                lane.held++;
+                waiter.state = Waiter.GRANTED;
+                return false;
+            }
+            lane.queues.computeIfAbsent(waiter.priority, key -> new ArrayDeque<>()).addLast(waiter);
+            return true;
+        }
+    }
+
+    /**
+     * Returns {@code true} if the waiter was still waiting and has been removed
+     */
+    private boolean cancel(@Nonnull Waiter waiter) {
+        synchronized (lanes) {
+            if (waiter.state != Waiter.WAITING) {
+                return false;
+            }
+            waiter.state = Waiter.CANCELLED;
+            Lane lane = lanes.get(waiter.route);
+            if (lane != null) {
+                ArrayDeque<Waiter> queue = lane.queues.get(waiter.priority);
+                if (queue != null) {
+                    queue.remove(waiter);
+                }
+                if (lane.isIdle()) {
+                    lanes.remove(waiter.route);
+                }
+            }
+        }
+        if (waiter.expiry != null) {
+            waiter.expiry.cancel();
+        }
+        return true;
+    }
+
+    @Nonnull
+    private List<Waiter> dispatch(@Nonnull HttpRoute route, @Nonnull Lane lane) {
+        List<Waiter> granted = new ArrayList<>();
+        for (RequestPriority priority : RequestPriority.values()) {
+            ArrayDeque<Waiter> queue = lane.queues.get(priority);
+            while (queue != null && !queue.isEmpty()) {
+                if (!isAdmissible(route, lane, priority)) {
+                    // Lower priorities have no larger share, so none of them is admissible either
+                    return granted;
+                }
+                Waiter waiter = queue.pollFirst();
+                waiter.state = Waiter.GRANTED;
+                if (waiter.expiry != null) {
+                    waiter.expiry.cancel();
+                }
+                lane.held++;
+                granted.add(waiter);
+            }
+        }
+        if (lane.isIdle()) {
+            lanes.remove(route);
+        }
+        return granted;
+    }
+
+    private boolean isAdmissible(@Nonnull HttpRoute route, @Nonnull Lane lane, @Nonnull RequestPriority priority) {
+        int total = Math.max(capacity.applyAsInt(route), 1);
+        if (priority == RequestPriority.HIGH) {
+            return lane.held < total;
+        }
+        int reserved = Math.min((int) Math.ceil(total * reservedShare), total - 1);
+        return lane.held < total - reserved;
+    }
+
+    private boolean hasWaiters(@Nonnull Lane lane, @Nonnull RequestPriority priority) {
+        for (RequestPriority candidate : RequestPriority.values()) {
+            if (candidate.ordinal() > priority.ordinal()) {
+                break;
+            }
+            ArrayDeque<Waiter> queue = lane.queues.get(candidate);
+            if (queue != null && !queue.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static final class Lane {
+        private final Map<RequestPriority, ArrayDeque<Waiter>> queues = new EnumMap<>(RequestPriority.class);
+        private int held;
+
+        private boolean isIdle() {
+            return held == 0 && queues.values().stream().allMatch(ArrayDeque::isEmpty);
+        }
+    }
+
+
+    private static final class Waiter {
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+
+        private final HttpRoute route;
+        private final RequestPriority priority;
+        private final Runnable onGranted;
+        private int state = WAITING;
+        private volatile Cancellable expiry;
+
+        private Waiter(@Nonnull HttpRoute route, @Nonnull RequestPriority priority, @Nonnull Runnable onGranted) {
+            this.route = route;
+            this.priority = priority;
+            this.onGranted = onGranted;
+        }
+    }
+}
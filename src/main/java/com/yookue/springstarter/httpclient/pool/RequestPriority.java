@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.pool;
+
+
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+
+
+/**
+ * Priority of a request when leasing connections from the pool
+ * <p>
+ * A request picks its priority by the header {@link #HEADER_NAME}, which is removed before the request is sent, or by the context attribute {@link #CONTEXT_ATTRIBUTE}.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.PriorityLeaseGate
+ */
+public enum RequestPriority {
+    /**
+     * Latency critical requests, which may also use the reserved share of the route capacity
+     */
+    HIGH,
+
+    /**
+     * Ordinary requests
+     */
+    NORMAL,
+
+    /**
+     * Bulk requests, which are served only when no request of higher priority is waiting
+     */
+    LOW;
+
+    /**
+     * Attribute name of {@link org.apache.hc.core5.http.protocol.HttpContext} to set the priority of a request
+     */
+    public static final String CONTEXT_ATTRIBUTE = "com.yookue.httpclient.priority";    // $NON-NLS-1$
+
+    /**
+     * Header name of {@link org.apache.hc.core5.http.HttpRequest} to set the priority of a request, which takes precedence over {@link #CONTEXT_ATTRIBUTE}
+     */
+    public static final String HEADER_NAME = "X-Request-Priority";    // $NON-NLS-1$
+
+    /**
+     * Returns the priority set in the context
+     *
+     * @param context the context of the request
+     *
+     * @return the priority set in the context, or {@code null} if there is none
+     */
+    @Nullable
+    public static RequestPriority of(@Nullable HttpContext context) {
+        Object value = (context == null) ? null : context.getAttribute(CONTEXT_ATTRIBUTE);
+        if (value instanceof RequestPriority priority) {
+            return priority;
+        }
+        return (value instanceof String name) ? ofName(name) : null;
+    }
+
+    /**
+     * Returns the priority set by the header of the request, or else by the context, and removes the header from the request
+     *
+     * @param request the request
+     * @param context the context of the request
+     *
+     * @return the priority set by the header of the request, or else by the context, or {@code null} if there is none
+     */
+    @Nullable
+    public static RequestPriority of(@Nullable HttpRequest request, @Nullable HttpContext context) {
+        Header header = (request == null) ? null : request.getFirstHeader(HEADER_NAME);
+        if (header != null) {
+            request.removeHeaders(HEADER_NAME);
+            RequestPriority priority = ofName(header.getValue());
+            if (priority != null) {
+                return priority;
+            }
+        }
+        return of(context);
+    }
+
+    @Nullable
+    private static RequestPriority ofName(@Nullable String name) {
+        for (RequestPriority priority : values()) {
+            if (priority.name().equalsIgnoreCase(StringUtils.trim(name))) {
+                return priority;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.producer;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.message.BasicNameValuePair;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.DataStreamChannel;
+import org.springframework.util.CollectionUtils;
+
+
+/**
+ * {@link org.apache.hc.core5.http.nio.AsyncEntityProducer} that streams a file as a {@code multipart/form-data} body
+ * <p>
+ * The part headers and text fields are encoded up front, the file is read in chunks as the channel accepts them,
+ * so the body is never held in memory. The producer is repeatable, each round reopens the file.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.util.AsyncHttpClientExecutorUtils
+ */
+@SuppressWarnings("unused")
+public class MultipartFileAsyncEntityProducer implements AsyncEntityProducer {
+    private static final int CHUNK_SIZE = 8192;
+
+    private final Path file;
+    private final String contentType;
+    private final byte[] head;
+    private final byte[] tail;
+    private final long contentLength;
+    private volatile FileChannel fileChannel;
+    private volatile ByteBuffer headBuffer;
+    private volatile ByteBuffer chunkBuffer;
+    private volatile ByteBuffer tailBuffer;
+
+    /**
+     * Constructs a new producer
+     *
+     * @param formField the form field of the file
+     * @param file the file to upload
+     * @param fileType the content type of the file part, or {@code null} for {@code application/octet-stream}
+     * @param parameters the text fields to send along with the file
+     * @param charset the charset of the text fields
+     */
+    public MultipartFileAsyncEntityProducer(@Nonnull String formField, @Nonnull Path file, @Nullable ContentType fileType, @Nullable List<NameValuePair> parameters, @Nullable Charset charset) throws IOException {
+        Charset fieldCharset = (charset == null) ? StandardCharsets.UTF_8 : charset;
+        String boundary = UUID.randomUUID().toString().replace("-", "");    // $NON-NLS-1$ // $NON-NLS-2$
+        StringBuilder headBuilder = new StringBuilder();
+        headBuilder.append("--").append(boundary).append("\r\n");    // $NON-NLS-1$ // $NON-NLS-2$
+        headBuilder.append("Content-Disposition: form-data; name=\"").append(escape(formField)).append("\"; filename=\"").append(escape(Objects.toString(file.getFileName(), ""))).append("\"\r\n");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        headBuilder.append("Content-Type: ").append((fileType == null) ? ContentType.APPLICATION_OCTET_STREAM : fileType).append("\r\n\r\n");    // $NON-NLS-1$ // $NON-NLS-2$
+        StringBuilder tailBuilder = new StringBuilder("\r\n");    // $NON-NLS-1$
+        if (!CollectionUtils.isEmpty(parameters)) {
+            for (NameValuePair pair : parameters) {
+                if (pair == null) {
+                    continue;
+                }
+                tailBuilder.append("--").append(boundary).append("\r\n");    // $NON-NLS-1$ // $NON-NLS-2$
+                tailBuilder.append("Content-Disposition: form-data; name=\"").append(escape(pair.getName())).append("\"\r\n");    // $NON-NLS-1$ // $NON-NLS-2$
+                tailBuilder.append("Content-Type: ").append(ContentType.TEXT_PLAIN.withCharset(fieldCharset)).append("\r\n\r\n");    // $NON-NLS-1$ // $NON-NLS-2$
+                tailBuilder.append(StringUtils.defaultString(pair.getValue())).append("\r\n");    // $NON-NLS-1$
+            }
+        }
+        tailBuilder.append("--").append(boundary).append("--\r\n");    // $NON-NLS-1$ // $NON-NLS-2$
+        this.file = file;
+        this.contentType = ContentType.create(ContentType.MULTIPART_FORM_DATA.getMimeType(), new BasicNameValuePair("boundary", boundary)).toString();    // $NON-NLS-1$
+        this.head = headBuilder.toString().getBytes(fieldCharset);
+        this.tail = tailBuilder.toString().getBytes(fieldCharset);
+        this.contentLength = head.length + Files.size(file) + tail.length;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getContentEncoding() {
+        return null;
+    }
+
+    @Override
+    public boolean isChunked() {
+        return false;
+    }
+
+    @Override
+    public Set<String> getTrailerNames() {
+        return null;
+    }
+
+    @Override
+    public int available() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void produce(@Nonnull DataStreamChannel channel) throws IOException {
+        if (headBuffer == null) {
+            headBuffer = ByteBuffer.wrap(head);
+            tailBuffer = ByteBuffer.wrap(tail);
+            chunkBuffer = ByteBuffer.allocate(CHUNK_SIZE).flip();
+            fileChannel = FileChannel.open(file, StandardOpenOption.READ);
+        }
+        if (headBuffer.hasRemaining()) {
+            channel.write(headBuffer);
+            if (headBuffer.hasRemaining()) {
+                return;
+            }
+        }
+        while (fileChannel.isOpen()) {
+            if (chunkBuffer.hasRemaining()) {
+                channel.write(chunkBuffer);
+                if (chunkBuffer.hasRemaining()) {
+                    return;
+                }
+            }
+            chunkBuffer.clear();
+            int read = fileChannel.read(chunkBuffer);
+            chunkBuffer.flip();
+            if (read < 0) {
+                fileChannel.close();
+            }
+        }
+        channel.write(tailBuffer);
+        if (!tailBuffer.hasRemaining()) {
+            channel.endStream();
+        }
+    }
+
+    @Override
+    public void failed(@Nonnull Exception cause) {
+        releaseResources();
+    }
+
+    @Override
+    public void releaseResources() {
+        FileChannel current = fileChannel;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+            }
+        }
+        fileChannel = null;
+        headBuffer = null;
+        chunkBuffer = null;
+        tailBuffer = null;
+    }
+
+    @Nonnull
+    private static String escape(@Nullable String value) {
+        return StringUtils.replaceEach(StringUtils.defaultString(value), new String[]{"\"", "\r", "\n"}, new String[]{"%22", "%0D", "%0A"});    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+    }
+}
@@ -37,8 +37,13 @@ import org.apache.hc.client5.http.routing.HttpRoutePlanner;
 import org.apache.hc.core5.http.ConnectionReuseStrategy;
 import org.apache.hc.core5.http.HttpRequestInterceptor;
 import org.apache.hc.core5.http.HttpResponseInterceptor;
+import org.apache.hc.core5.pool.PoolConcurrencyPolicy;
+import org.apache.hc.core5.pool.PoolReusePolicy;
 import org.apache.hc.core5.util.VersionInfo;
 import org.springframework.boot.convert.DurationUnit;
+import com.yookue.springstarter.httpclient.oauth2.OAuth2ClientAuthenticationMethod;
+import com.yookue.springstarter.httpclient.pool.RequestPriority;
+import com.yookue.springstarter.httpclient.route.ProxySelectionStrategy;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.ToString;
@@ -95,7 +100,37 @@ public abstract class AbstractHttpClientProperties implements Serializable {
     private Map<String, Class<? extends AuthSchemeFactory>> authSchemeFactories;
     private Map<String, Class<? extends CookieSpecFactory>> cookieSpecFactories;
     private Map<String, String> defaultHeaders;
+
+    /**
+     * Names of existing beans to use as components, keyed by the property name of the component slot
+     * <p>
+     * For example, {@code route-planner: myRoutePlanner} reuses the bean instead of instantiating the {@code route-planner} class
+     * <p>
+     * The list slots take comma separated names, such as {@code request-interceptors: fooInterceptor,barInterceptor}, the map slots take the entry name after the slot, such as {@code exec-interceptors.audit: auditHandler}
+     */
+    private Map<String, String> componentBeans;
+
+    /**
+     * Indicates whether to emit flight recorder events for the phases of each exchange or not
+     * <p>
+     * Default is {@code true}, the events cost next to nothing unless a recording enables them
+     */
+    private Boolean flightRecorderEnabled = true;
+
+    /**
+     * Overrides for some destinations, keyed by pattern of {@code [scheme://]host[/path-prefix]}, such as {@code "[https://*.example.com/upload]"}
+     * <p>
+     * The most specific matching pattern applies, a more specific host wins over a longer path prefix
+     */
+    private Map<String, Route> routes;
+
     private final DefaultRequestConfig defaultRequestConfig = new DefaultRequestConfig();
+    private final ConnectionPool connectionPool = new ConnectionPool();
+    private final OAuth2 oauth2 = new OAuth2();
+    private final ProxyPool proxyPool = new ProxyPool();
+    private final HappyEyeballs happyEyeballs = new HappyEyeballs();
+    private final Socket socket = new Socket();
+    private final Connection connection = new Connection();
 
     public AbstractHttpClientProperties() {
         VersionInfo versionInfo = VersionInfo.loadVersionInfo("org.apache.hc.core5", null);    // $NON-NLS-1$
@@ -134,4 +169,355 @@ public abstract class AbstractHttpClientProperties implements Serializable {
         private Boolean contentCompressionEnabled = Boolean.TRUE;
         private Boolean hardCancellationEnabled = Boolean.TRUE;
     }
+
+
+    /**
+     * Properties for the connection pool that the starter builds when no {@code connectionManager} class is specified
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class ConnectionPool implements Serializable {
+        private Integer maxTotal;
+        private Integer maxPerRoute;
+        private PoolConcurrencyPolicy concurrencyPolicy;
+        private PoolReusePolicy reusePolicy;
+
+        /**
+         * Whether to serve the leases of each route through priority lanes
+         */
+        private Boolean priorityEnabled;
+
+        /**
+         * The priority of the requests that set no priority by header or context
+         */
+        private RequestPriority defaultPriority = RequestPriority.NORMAL;
+
+        /**
+         * The share of the capacity of each route that only high priority requests may use, between 0 and 1
+         */
+        private Double highPriorityReservedShare;
+
+        /**
+         * The maximum count of leases that may queue for a connection of a route, beyond which the leases are rejected at once
+         * <p>
+         * Specifying {@code 0} rejects the leases as soon as the route has no free connection
+         */
+        private Integer maxQueuedPerRoute;
+
+        /**
+         * The maximum estimated wait of a lease, beyond which the leases are rejected at once
+         * <p>
+         * The wait is estimated by the queue length of the route and the smoothed hold time of its connections
+         */
+        private Duration maxEstimatedWait;
+    }
+
+
+    /**
+     * Properties for acquiring bearer tokens with the oauth2 client credentials grant
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class OAuth2 implements Serializable {
+        /**
+         * Registrations of the authorization servers, keyed by registration id
+         */
+        private Map<String, OAuth2Registration> registrations;
+    }
+
+
+    /**
+     * Properties for an oauth2 client registration
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class OAuth2Registration implements Serializable {
+        private String tokenUri;
+        private String clientId;
+
+        @ToString.Exclude
+        private String clientSecret;
+
+        private String scope;
+        private String audience;
+        private OAuth2ClientAuthenticationMethod authenticationMethod = OAuth2ClientAuthenticationMethod.CLIENT_SECRET_BASIC;
+
+        /**
+         * Host names that the tokens are sent to, such as {@code api.example.com} or {@code *.example.com}
+         * <p>
+         * A registration without hosts is only applied to the requests that select it by context attribute
+         */
+        private List<String> hosts;
+
+        /**
+         * How long before the expiry to refresh the token in the background
+         */
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration refreshBefore = Duration.ofMinutes(1L);
+
+        /**
+         * Lifetime of the tokens whose response lacks {@code expires_in}
+         */
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration defaultExpiresIn = Duration.ofMinutes(5L);
+
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration tokenTimeout = Duration.ofSeconds(10L);
+    }
+
+
+    /**
+     * Properties for routing through a pool of proxies, which takes precedence over {@code proxyHost} and {@code proxyPort}
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class ProxyPool implements Serializable {
+        /**
+         * The proxies to route through by default, such as {@code proxy1.example.com:3128} or {@code http://proxy2.example.com:8080}
+         */
+        private List<String> proxies;
+
+        /**
+         * Destination hosts that bypass the proxies, such as {@code localhost} or {@code *.internal.example.com}
+         */
+        private List<String> bypassHosts;
+
+        /**
+         * Rules that route some destination hosts through other proxies, the first matching rule applies
+         */
+        private List<ProxyRule> rules;
+
+        private ProxySelectionStrategy selectionStrategy = ProxySelectionStrategy.LOWEST_LATENCY;
+
+        /**
+         * The count of consecutive failures that takes a proxy out of rotation
+         */
+        private Integer failureThreshold = 3;
+
+        /**
+         * How often to probe a proxy that is out of rotation, by connecting to it
+         */
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration probeInterval = Duration.ofSeconds(30L);
+
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration probeTimeout = Duration.ofSeconds(3L);
+    }
+
+
+    /**
+     * Properties for routing some destination hosts through specific proxies
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class ProxyRule implements Serializable {
+        /**
+         * Destination hosts of the rule, such as {@code api.example.com} or {@code *.example.com}
+         */
+        private List<String> hosts;
+
+        /**
+         * The proxies for the destination hosts, or empty to connect to them directly
+         */
+        private List<String> proxies;
+    }
+
+
+    /**
+     * Properties for racing the connects to the resolved addresses of a host, as described by RFC 8305
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class HappyEyeballs implements Serializable {
+        /**
+         * Whether to race the connects when a host resolves to more than one address
+         */
+        private Boolean enabled;
+
+        /**
+         * How long to wait for an attempt before starting the attempt to the next address
+         */
+        @DurationUnit(value = ChronoUnit.MILLIS)
+        private Duration attemptDelay = Duration.ofMillis(250L);
+
+        /**
+         * How long an address that failed to connect is tried after the other addresses
+         */
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration failureMemory = Duration.ofSeconds(10L);
+    }
+
+
+    /**
+     * Options of the sockets, a {@code null} option keeps the default of the http client
+     *
+     * @author David Hsing
+     * @see org.apache.hc.core5.http.io.SocketConfig
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class SocketOptions implements Serializable {
+        private Boolean tcpNoDelay;
+        private Boolean soKeepAlive;
+        private Boolean soReuseAddress;
+        private Integer sendBufferSize;
+        private Integer receiveBufferSize;
+
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration soLinger;
+
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration soTimeout;
+    }
+
+
+    /**
+     * Properties for the sockets of the connection pool that the starter builds
+     * <p>
+     * The async client applies the options to its I/O reactor, unless an {@code ioReactorConfig} class is specified, and it does not support the routes
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString(callSuper = true)
+    public static class Socket extends SocketOptions {
+        /**
+         * Options for some destination hosts, the first matching route applies
+         */
+        private List<SocketRoute> routes;
+    }
+
+
+    /**
+     * Properties for the sockets to some destination hosts
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString(callSuper = true)
+    public static class SocketRoute extends SocketOptions {
+        /**
+         * Destination hosts of the route, such as {@code api.example.com} or {@code *.example.com}
+         */
+        private List<String> hosts;
+    }
+
+
+    /**
+     * Options of the connections, a {@code null} option keeps the default of the http client
+     *
+     * @author David Hsing
+     * @see org.apache.hc.client5.http.config.ConnectionConfig
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class ConnectionOptions implements Serializable {
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration connectTimeout;
+
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration socketTimeout;
+
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration validateAfterInactivity;
+
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration timeToLive;
+    }
+
+
+    /**
+     * Properties for the connections of the connection pool that the starter builds
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString(callSuper = true)
+    public static class Connection extends ConnectionOptions {
+        /**
+         * Options for some destination hosts, the first matching route applies
+         */
+        private List<ConnectionRoute> routes;
+    }
+
+
+    /**
+     * Properties for the connections to some destination hosts
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString(callSuper = true)
+    public static class ConnectionRoute extends ConnectionOptions {
+        /**
+         * Destination hosts of the route, such as {@code api.example.com} or {@code *.example.com}
+         */
+        private List<String> hosts;
+    }
+
+
+    /**
+     * Properties for the requests to some destinations, a {@code null} option keeps the default of the client
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class Route implements Serializable {
+        private Boolean expectContinueEnabled;
+        private Boolean redirectsEnabled;
+        private Integer maxRedirects;
+
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration requestTimeout;
+
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration responseTimeout;
+
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration connectionKeepAlive;
+
+        private Boolean contentCompressionEnabled;
+
+        /**
+         * The count of retries of the failed requests, which replaces the retry strategy of the client
+         */
+        private Integer maxRetries;
+
+        /**
+         * The interval between the retries, when the response does not specify {@code Retry-After}
+         */
+        @DurationUnit(value = ChronoUnit.SECONDS)
+        private Duration retryInterval;
+
+        /**
+         * The max connections per route of the connection pool, which only applies to a pattern without path prefix
+         */
+        private Integer maxPerRoute;
+    }
 }
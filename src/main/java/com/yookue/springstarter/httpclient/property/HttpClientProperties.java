@@ -18,7 +18,10 @@ package com.yookue.springstarter.httpclient.property;
 
 
 import java.io.Serializable;
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.convert.DurationUnit;
 import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
 import lombok.Getter;
 import lombok.Setter;
@@ -42,6 +45,35 @@ public class HttpClientProperties implements Serializable {
      */
     private Boolean enabled = true;
 
+    /**
+     * Indicates whether to apply the changed properties to the running clients on {@code EnvironmentChangeEvent} or not
+     * <p>
+     * Default is {@code true}
+     */
+    private Boolean refreshEnabled = true;
+
+    /**
+     * Indicates whether to observe the exchanges of the clients with the {@code ObservationRegistry} bean or not
+     * <p>
+     * Default is {@code true}
+     */
+    private Boolean observationEnabled = true;
+
+    /**
+     * Indicates whether to back {@code RestClient}, {@code RestTemplate} and {@code WebClient} with the clients or not
+     * <p>
+     * Default is {@code true}
+     */
+    private Boolean webIntegrationEnabled = true;
+
+    /**
+     * Interval of evicting the expired and idle connections of the clients, by a single task of the shared timer
+     * <p>
+     * Default is {@code 5} seconds
+     */
+    @DurationUnit(value = ChronoUnit.SECONDS)
+    private Duration evictionInterval = Duration.ofSeconds(5L);
+
     /**
      * Sync http client attributes
      */
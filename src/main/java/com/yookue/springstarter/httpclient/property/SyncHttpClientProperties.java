@@ -17,6 +17,8 @@
 package com.yookue.springstarter.httpclient.property;
 
 
+import java.io.Serializable;
+import java.util.List;
 import java.util.Map;
 import org.apache.hc.client5.http.classic.BackoffManager;
 import org.apache.hc.client5.http.classic.ConnectionBackoffStrategy;
@@ -40,10 +42,40 @@ import lombok.ToString;
 @ToString
 public class SyncHttpClientProperties extends AbstractHttpClientProperties {
     private Boolean defaultUserAgentEnabled;
+
+    /**
+     * Indicates whether to execute the sync http client over the io reactor and pool of the async http client or not
+     * <p>
+     * Default is {@code false}, when enabled, the other properties of the sync http client are ignored
+     */
+    private Boolean asyncBacked;
+
     private Class<? extends HttpClientConnectionManager> connectionManager;
     private Class<? extends HttpRequestExecutor> requestExecutor;
     private Class<? extends BackoffManager> backoffManager;
     private Class<? extends ConnectionBackoffStrategy> connectionBackoffStrategy;
     private Map<String, Class<? extends ExecChainHandler>> execInterceptors;
     private Map<String, Class<? extends InputStreamFactory>> contentDecoderFactories;
+    private final UnixDomainSocket unixDomainSocket = new UnixDomainSocket();
+
+
+    /**
+     * Properties for connecting to some destination hosts through a unix domain socket
+     *
+     * @author David Hsing
+     */
+    @Getter
+    @Setter
+    @ToString
+    public static class UnixDomainSocket implements Serializable {
+        /**
+         * The file path of the unix domain socket, such as {@code /var/run/docker.sock}
+         */
+        private String path;
+
+        /**
+         * Destination hosts that connect through the socket, such as {@code localhost} or {@code *.internal}, or empty for all the hosts
+         */
+        private List<String> hosts;
+    }
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.refresh;
+
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.async.HttpAsyncClient;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.ConfigurationPropertyName;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.core.env.Environment;
+import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import com.yookue.springstarter.httpclient.property.HttpClientProperties;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * {@link org.springframework.context.ApplicationListener} that applies the changed http client properties to the running clients
+ * <p>
+ * Pool limits are applied to the existing connection managers, default request configs are replaced in place,
+ * other client properties rebuild the client on the same connection manager.
+ * Properties that define the connection manager itself take effect after restart.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.refresh.RefreshableHttpClient
+ * @see com.yookue.springstarter.httpclient.refresh.RefreshableHttpAsyncClient
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class HttpClientRefreshListener implements ApplicationListener<EnvironmentChangeEvent> {
+    private static final ConfigurationPropertyName PROPERTIES_NAME = ConfigurationPropertyName.of(HttpClientAutoConfiguration.PROPERTIES_PREFIX);
+    private static final ConfigurationPropertyName SYNC_CLIENT_NAME = PROPERTIES_NAME.append("sync-client");    // $NON-NLS-1$
+    private static final ConfigurationPropertyName ASYNC_CLIENT_NAME = PROPERTIES_NAME.append("async-client");    // $NON-NLS-1$
+    private static final ConfigurationPropertyName REQUEST_CONFIG_NAME = ConfigurationPropertyName.of("default-request-config");    // $NON-NLS-1$
+    private static final ConfigurationPropertyName CONNECTION_POOL_NAME = ConfigurationPropertyName.of("connection-pool");    // $NON-NLS-1$
+    private static final List<ConfigurationPropertyName> POOL_LIMIT_NAMES = List.of(CONNECTION_POOL_NAME.append("max-total"), CONNECTION_POOL_NAME.append("max-per-route"));    // $NON-NLS-1$ // $NON-NLS-2$
+    private static final List<ConfigurationPropertyName> RESTART_NAMES = List.of(CONNECTION_POOL_NAME, ConfigurationPropertyName.of("enabled"), ConfigurationPropertyName.of("connection-manager"), ConfigurationPropertyName.of("connection-manager-shared"), ConfigurationPropertyName.of("use-system-properties"), ConfigurationPropertyName.of("scheme-port-resolver"), ConfigurationPropertyName.of("happy-eyeballs"), ConfigurationPropertyName.of("socket"), ConfigurationPropertyName.of("connection"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$ // $NON-NLS-8$
+
+    private final Environment environment;
+    private final ObjectProvider<HttpClient> syncHttpClient;
+    private final ObjectProvider<HttpAsyncClient> asyncHttpClient;
+
+    public HttpClientRefreshListener(@Nonnull Environment environment, @Nonnull ObjectProvider<HttpClient> syncHttpClient, @Nonnull ObjectProvider<HttpAsyncClient> asyncHttpClient) {
+        this.environment = environment;
+        this.syncHttpClient = syncHttpClient;
+        this.asyncHttpClient = asyncHttpClient;
+    }
+
+    @Override
+    public void onApplicationEvent(@Nonnull EnvironmentChangeEvent event) {
+        EnumSet<Change> syncChanges = EnumSet.noneOf(Change.class), asyncChanges = EnumSet.noneOf(Change.class);
+        for (String key : event.getKeys()) {
+            ConfigurationPropertyName name = ConfigurationPropertyName.adapt(key, '.');
+            if (PROPERTIES_NAME.isAncestorOf(name)) {
+                classifyChange(SYNC_CLIENT_NAME, name, syncChanges);
+                classifyChange(ASYNC_CLIENT_NAME, name, asyncChanges);
+                if (PROPERTIES_NAME.isParentOf(name)) {
+                    syncChanges.add(Change.RESTART);
+                    asyncChanges.add(Change.RESTART);
+                }
+            }
+        }
+        if (syncChanges.isEmpty() && asyncChanges.isEmpty()) {
+            return;
+        }
+        HttpClientProperties properties = Binder.get(environment).bindOrCreate(HttpClientAutoConfiguration.PROPERTIES_PREFIX, HttpClientProperties.class);
+        if (!syncChanges.isEmpty() && syncHttpClient.getIfAvailable() instanceof RefreshableHttpClient client) {
+            if (syncChanges.contains(Change.POOL_LIMITS) && client.getConnectionManager() instanceof ConnPoolControl<?> pool) {
+                applyPoolLimits(pool, properties.getSyncClient().getConnectionPool());
+            }
+            if (syncChanges.contains(Change.REBUILD)) {
+                client.rebuild(properties.getSyncClient());
+            } else if (syncChanges.contains(Change.REQUEST_CONFIG)) {
+                client.refreshRequestConfig(properties.getSyncClient().getDefaultRequestConfig());
+            }
+            logRestart(SYNC_CLIENT_NAME, syncChanges);
+        }
+        if (!asyncChanges.isEmpty() && asyncHttpClient.getIfAvailable() instanceof RefreshableHttpAsyncClient client) {
+            if (asyncChanges.contains(Change.POOL_LIMITS) && client.getConnectionManager() instanceof ConnPoolControl<?> pool) {
+                applyPoolLimits(pool, properties.getAsyncClient().getConnectionPool());
+            }
+            if (asyncChanges.contains(Change.REBUILD)) {
+                client.rebuild(properties.getAsyncClient());
+            } else if (asyncChanges.contains(Change.REQUEST_CONFIG)) {
+                client.refreshRequestConfig(properties.getAsyncClient().getDefaultRequestConfig());
+            }
+            logRestart(ASYNC_CLIENT_NAME, asyncChanges);
+        }
+    }
+
+    private void classifyChange(@Nonnull ConfigurationPropertyName clientName, @Nonnull ConfigurationPropertyName name, @Nonnull Set<Change> changes) {
+        if (!clientName.isAncestorOf(name)) {
+            return;
+        }
+        ConfigurationPropertyName relative = name.subName(clientName.getNumberOfElements());
+        if (matches(POOL_LIMIT_NAMES, relative)) {
+            changes.add(Change.POOL_LIMITS);
+        } else if (matches(RESTART_NAMES, relative)) {
+            changes.add(Change.RESTART);
+        } else if (matches(REQUEST_CONFIG_NAME, relative)) {
+            changes.add(Change.REQUEST_CONFIG);
+        } else {
+            changes.add(Change.REBUILD);
+        }
+    }
+
+    private boolean matches(@Nonnull List<ConfigurationPropertyName> candidates, @Nonnull ConfigurationPropertyName name) {
+        return candidates.stream().anyMatch(candidate -> matches(candidate, name));
+    }
+
+    private boolean matches(@Nonnull ConfigurationPropertyName candidate, @Nonnull ConfigurationPropertyName name) {
+        return candidate.equals(name) || candidate.isAncestorOf(name);
+    }
+
+    private void applyPoolLimits(@Nonnull ConnPoolControl<?> pool, @Nullable AbstractHttpClientProperties.ConnectionPool properties) {
+        Integer maxTotal = (properties == null) ? null : properties.getMaxTotal(), maxPerRoute = (properties == null) ? null : properties.getMaxPerRoute();
+        pool.setMaxTotal((maxTotal != null && maxTotal > 0) ? maxTotal : PoolingHttpClientConnectionManager.DEFAULT_MAX_TOTAL_CONNECTIONS);
+        pool.setDefaultMaxPerRoute((maxPerRoute != null && maxPerRoute > 0) ? maxPerRoute : PoolingHttpClientConnectionManager.DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+    }
+
+    private void logRestart(@Nonnull ConfigurationPropertyName clientName, @Nonnull Set<Change> changes) {
+        if (changes.contains(Change.RESTART) && log.isWarnEnabled()) {
+            log.warn("Some changed properties of '{}' define the connection manager, they take effect after restart", clientName);
+        }
+    }
+
+
+    private enum Change {
+        POOL_LIMITS,
+        REQUEST_CONFIG,
+        REBUILD,
+        RESTART
+    }
+}
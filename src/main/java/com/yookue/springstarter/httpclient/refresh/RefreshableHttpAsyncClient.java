@@ -0,0 +1,346 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.refresh;
+
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionManager;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.function.Supplier;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncPushConsumer;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.HandlerFactory;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.reactor.IOReactorStatus;
+import org.apache.hc.core5.util.TimeValue;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import com.yookue.springstarter.httpclient.property.AsyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
+import com.yookue.springstarter.httpclient.util.AbstractHttpClientBuilderUtils;
+import com.yookue.springstarter.httpclient.util.AsyncHttpClientBuilderUtils;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * {@link org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient} that can be reconfigured at runtime
+ * <p>
+ * The default request config is replaced in place, other changes rebuild the underlying client on the same connection manager.
+ * Since the connections of an async client are bound to its I/O reactor, the previous client is retired instead of closed at once:
+ * its idle connections are closed, the connections of its running exchanges are not reused, and it is closed once these exchanges complete,
+ * or after the drain timeout. The close is handed off to an executor, since the last exchange completes on an I/O thread of the retired client.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.refresh.HttpClientRefreshListener
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class RefreshableHttpAsyncClient extends CloseableHttpAsyncClient {
+    public static final String REQUEST_CONFIG_HANDLER = "refreshable-request-config";    // $NON-NLS-1$
+    public static final String RETIREMENT_HANDLER = "refreshable-retirement";    // $NON-NLS-1$
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(1L);
+
+    @Getter
+    private final AsyncClientConnectionManager connectionManager;
+
+    private final BeanFactory beanFactory;
+    private final HashedWheelTimer timer;
+    private final Executor executor;
+    private final boolean connectionManagerShared;
+    private final List<Consumer<CloseableHttpAsyncClient>> registrations = new CopyOnWriteArrayList<>();
+    private final Set<Generation> retiredGenerations = ConcurrentHashMap.newKeySet();
+    private volatile Generation generation;
+    private volatile RefreshableRequestConfig requestConfig;
+
+    public RefreshableHttpAsyncClient(@Nonnull AsyncHttpClientProperties properties, @Nonnull AsyncClientConnectionManager connectionManager, @Nullable BeanFactory beanFactory) throws BeansException {
+        this.connectionManager = connectionManager;
+        this.beanFactory = beanFactory;
+        this.timer = AbstractHttpClientBuilderUtils.resolveTimer(beanFactory);
+        this.executor = ForkJoinPool.commonPool();
+        this.connectionManagerShared = BooleanUtils.isTrue(properties.getConnectionManagerShared());
+        rebuild(properties);
+    }
+
+    /**
+     * Replaces the default request config of the current client
+     *
+     * @param properties the properties of the default request config
+     */
+    public void refreshRequestConfig(@Nonnull AbstractHttpClientProperties.DefaultRequestConfig properties) {
+        RequestConfig config = AbstractHttpClientBuilderUtils.buildRequestConfig(properties);
+        requestConfig.setCurrent(config != null ? config : RequestConfig.DEFAULT);
+    }
+
+    /**
+     * Builds a new client on the same connection manager, starts it if the previous one was started, then retires the previous one
+     *
+     * @param properties the properties of the client
+     */
+    public synchronized void rebuild(@Nonnull AsyncHttpClientProperties properties) throws BeansException {
+        RequestConfig config = AbstractHttpClientBuilderUtils.buildRequestConfig(properties.getDefaultRequestConfig());
+        RefreshableRequestConfig refreshable = new RefreshableRequestConfig(config != null ? config : RequestConfig.DEFAULT);
+        Generation next = new Generation();
+        CloseableHttpAsyncClient client = AsyncHttpClientBuilderUtils.clientBuilder(properties, connectionManager, beanFactory)
+            .setConnectionManagerShared(true)
+            .setDefaultRequestConfig(refreshable.getInitial())
+            .addExecInterceptorFirst(REQUEST_CONFIG_HANDLER, new RefreshableRequestConfigAsyncExecHandler(refreshable))
+            .addExecInterceptorFirst(RETIREMENT_HANDLER, next::execute)
+            .build();
+        next.client = client;
+        registrations.forEach(registration -> registration.accept(client));
+        Generation previous = generation;
+        if (previous != null && previous.client.getStatus() == IOReactorStatus.ACTIVE) {
+            client.start();
+        }
+        if (previous != null) {
+            previous.retiring = true;
+            if (connectionManager instanceof ConnPoolControl<?> poolControl) {
+                poolControl.closeIdle(TimeValue.ZERO_MILLISECONDS);
+            }
+        }
+        generation = next;
+        requestConfig = refreshable;
+        if (previous != null) {
+            retire(previous);
+        }
+    }
+
+    @Override
+    public void start() {
+        generation.client.start();
+    }
+
+    @Override
+    public IOReactorStatus getStatus() {
+        return generation.client.getStatus();
+    }
+
+    @Override
+    public void awaitShutdown(TimeValue waitTime) throws InterruptedException {
+        generation.client.awaitShutdown(waitTime);
+    }
+
+    @Override
+    public void initiateShutdown() {
+        generation.client.initiateShutdown();
+    }
+
+    @Override
+    protected <T> Future<T> doExecute(HttpHost target, AsyncRequestProducer requestProducer, AsyncResponseConsumer<T> responseConsumer, HandlerFactory<AsyncPushConsumer> pushHandlerFactory, HttpContext context, FutureCallback<T> callback) {
+        Generation current = acquire();
+        try {
+            return current.client.execute(target, requestProducer, responseConsumer, pushHandlerFactory, context, current.releasing(callback));
+        } catch (RuntimeException ex) {
+            current.release();
+            throw ex;
+        }
+    }
+
+    @Override
+    @Deprecated
+    @SuppressWarnings("deprecation")
+    public void register(String hostname, String uriPattern, Supplier<AsyncPushConsumer> supplier) {
+        Consumer<CloseableHttpAsyncClient> registration = client -> client.register(hostname, uriPattern, supplier);
+        registrations.add(registration);
+        registration.accept(generation.client);
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+        generation.client.close(closeMode);
+        for (Generation retired : retiredGenerations) {
+            if (retired.markClosed()) {
+                retired.client.close(closeMode);
+            }
+        }
+        if (!connectionManagerShared) {
+            connectionManager.close(closeMode);
+        }
+    }
+
+    @Override
+    public void close() {
+        close(CloseMode.GRACEFUL);
+    }
+
+    /**
+     * Returns the count of the exchanges that are still running on the retired clients
+     */
+    public int getDrainingExchanges() {
+        return retiredGenerations.stream().mapToInt(retired -> retired.exchanges.get()).sum();
+    }
+
+    @Nonnull
+    private Generation acquire() {
+        for (;;) {
+            Generation current = generation;
+            current.exchanges.incrementAndGet();
+            if (!current.retired) {
+                return current;
+            }
+            current.release();
+            Thread.onSpinWait();
+        }
+    }
+
+    private void retire(@Nonnull Generation retired) {
+        retired.drainTimeout = timer.schedule(() -> closeRetired(retired, true), DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS, executor);
+        retired.retired = true;
+        retiredGenerations.add(retired);
+        if (retired.exchanges.get() == 0) {
+            executor.execute(() -> closeRetired(retired, false));
+        }
+    }
+
+    private void closeRetired(@Nonnull Generation retired, boolean timedOut) {
+        if (!retired.markClosed()) {
+            return;
+        }
+        if (timedOut && log.isWarnEnabled()) {
+            log.warn("Closing the previous async http client with {} exchanges running after {}", retired.exchanges.get(), DRAIN_TIMEOUT);    // $NON-NLS-1$
+        }
+        try {
+            retired.client.close(CloseMode.GRACEFUL);
+        } finally {
+            retiredGenerations.remove(retired);
+        }
+    }
+
+
+    private class Generation {
+        private final AtomicInteger exchanges = new AtomicInteger();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private volatile Cancellable drainTimeout;
+        private volatile CloseableHttpAsyncClient client;
+        private volatile boolean retiring;
+        private volatile boolean retired;
+
+        private void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope, AsyncExecChain chain, AsyncExecCallback callback) throws HttpException, IOException {
+            chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+                @Override
+                public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails) throws HttpException, IOException {
+                    return callback.handleResponse(response, entityDetails);
+                }
+
+                @Override
+                public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+                    callback.handleInformationResponse(response);
+                }
+
+                @Override
+                public void completed() {
+                    if (retiring) {
+                        scope.execRuntime.markConnectionNonReusable();
+                    }
+                    callback.completed();
+                }
+
+                @Override
+                public void failed(Exception cause) {
+                    callback.failed(cause);
+                }
+            });
+        }
+
+        @Nonnull
+        private <T> FutureCallback<T> releasing(@Nullable FutureCallback<T> callback) {
+            return new FutureCallback<>() {
+                @Override
+                public void completed(T result) {
+                    try {
+                        if (callback != null) {
+                            callback.completed(result);
+                        }
+                    } finally {
+                        release();
+                    }
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    try {
+                        if (callback != null) {
+                            callback.failed(ex);
+                        }
+                    } finally {
+                        release();
+                    }
+                }
+
+                @Override
+                public void cancelled() {
+                    try {
+                        if (callback != null) {
+                            callback.cancelled();
+                        }
+                    } finally {
+                        release();
+                    }
+                }
+            };
+        }
+
+        private void release() {
+            if (exchanges.decrementAndGet() == 0 && retired && !closed.get()) {
+                executor.execute(() -> closeRetired(this, false));
+            }
+        }
+
+        private boolean markClosed() {
+            if (!closed.compareAndSet(false, true)) {
+                return false;
+            }
+            Cancellable timeout = drainTimeout;
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.refresh;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.BooleanUtils;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.util.AbstractHttpClientBuilderUtils;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+import lombok.Getter;
+
+
+/**
+ * {@link org.apache.hc.client5.http.impl.classic.CloseableHttpClient} that can be reconfigured without dropping its pooled connections
+ * <p>
+ * The default request config is replaced in place, other changes rebuild the underlying client on the same connection manager.
+ * Requests in flight complete on the client that started them.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.refresh.HttpClientRefreshListener
+ */
+@SuppressWarnings("unused")
+public class RefreshableHttpClient extends CloseableHttpClient {
+    public static final String REQUEST_CONFIG_HANDLER = "refreshable-request-config";    // $NON-NLS-1$
+
+    @Getter
+    private final HttpClientConnectionManager connectionManager;
+
+    private final BeanFactory beanFactory;
+    private final boolean connectionManagerShared;
+    private volatile CloseableHttpClient delegate;
+    private volatile RefreshableRequestConfig requestConfig;
+
+    public RefreshableHttpClient(@Nonnull SyncHttpClientProperties properties, @Nonnull HttpClientConnectionManager connectionManager, @Nullable BeanFactory beanFactory) throws BeansException {
+        this.connectionManager = connectionManager;
+        this.beanFactory = beanFactory;
+        this.connectionManagerShared = BooleanUtils.isTrue(properties.getConnectionManagerShared());
+        rebuild(properties);
+    }
+
+    /**
+     * Replaces the default request config of the current client
+     *
+     * @param properties the properties of the default request config
+     */
+    public void refreshRequestConfig(@Nonnull AbstractHttpClientProperties.DefaultRequestConfig properties) {
+        RequestConfig config = AbstractHttpClientBuilderUtils.buildRequestConfig(properties);
+        requestConfig.setCurrent(config != null ? config : RequestConfig.DEFAULT);
+    }
+
+    /**
+     * Builds a new client on the same connection manager, then closes the previous one
+     *
+     * @param properties the properties of the client
+     */
+    public synchronized void rebuild(@Nonnull SyncHttpClientProperties properties) throws BeansException {
+        RequestConfig config = AbstractHttpClientBuilderUtils.buildRequestConfig(properties.getDefaultRequestConfig());
+        RefreshableRequestConfig refreshable = new RefreshableRequestConfig(config != null ? config : RequestConfig.DEFAULT);
+        CloseableHttpClient client = SyncHttpClientBuilderUtils.clientBuilder(properties, connectionManager, beanFactory)
+            .setConnectionManagerShared(true)
+            .setDefaultRequestConfig(refreshable.getInitial())
+            .addExecInterceptorFirst(REQUEST_CONFIG_HANDLER, new RefreshableRequestConfigExecHandler(refreshable))
+            .build();
+        CloseableHttpClient previous = delegate;
+        delegate = client;
+        requestConfig = refreshable;
+        if (previous != null) {
+            previous.close(CloseMode.GRACEFUL);
+        }
+    }
+
+    @Override
+    protected CloseableHttpResponse doExecute(HttpHost target, ClassicHttpRequest request, HttpContext context) throws IOException {
+        return (CloseableHttpResponse) delegate.executeOpen(target, request, context);
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+        delegate.close(closeMode);
+        if (!connectionManagerShared) {
+            connectionManager.close(closeMode);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+        if (!connectionManagerShared) {
+            connectionManager.close();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.refresh;
+
+
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.config.RequestConfig;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Holder of the default {@link org.apache.hc.client5.http.config.RequestConfig} of a client, which can be replaced at runtime
+ * <p>
+ * The client is built with the initial config, any request that still carries the initial config is switched to the current one.
+ * Requests that specify their own config are left untouched.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.refresh.RefreshableRequestConfigExecHandler
+ * @see com.yookue.springstarter.httpclient.refresh.RefreshableRequestConfigAsyncExecHandler
+ */
+@Getter
+@SuppressWarnings("unused")
+public class RefreshableRequestConfig {
+    private final RequestConfig initial;
+
+    @Setter
+    private volatile RequestConfig current;
+
+    public RefreshableRequestConfig(@Nonnull RequestConfig initial) {
+        this.initial = initial;
+        this.current = initial;
+    }
+}
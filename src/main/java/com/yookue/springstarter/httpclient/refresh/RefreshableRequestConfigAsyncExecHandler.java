@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.refresh;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+
+
+/**
+ * {@link org.apache.hc.client5.http.async.AsyncExecChainHandler} that applies the current config of a {@link com.yookue.springstarter.httpclient.refresh.RefreshableRequestConfig}
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.refresh.RefreshableRequestConfig
+ */
+@SuppressWarnings("unused")
+public class RefreshableRequestConfigAsyncExecHandler implements AsyncExecChainHandler {
+    private final RefreshableRequestConfig requestConfig;
+
+    public RefreshableRequestConfigAsyncExecHandler(@Nonnull RefreshableRequestConfig requestConfig) {
+        this.requestConfig = requestConfig;
+    }
+
+    @Override
+    public void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope, AsyncExecChain chain, AsyncExecCallback callback) throws HttpException, IOException {
+        HttpClientContext context = scope.clientContext;
+        RequestConfig config = context.getRequestConfig();
+        if (config != null && config == requestConfig.getInitial()) {
+            context.setRequestConfig(requestConfig.getCurrent());
+        }
+        chain.proceed(request, entityProducer, scope, callback);
+    }
+}
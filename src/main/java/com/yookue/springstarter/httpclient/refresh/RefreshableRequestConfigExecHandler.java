@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.refresh;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+
+
+/**
+ * {@link org.apache.hc.client5.http.classic.ExecChainHandler} that applies the current config of a {@link com.yookue.springstarter.httpclient.refresh.RefreshableRequestConfig}
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.refresh.RefreshableRequestConfig
+ */
+@SuppressWarnings("unused")
+public class RefreshableRequestConfigExecHandler implements ExecChainHandler {
+    private final RefreshableRequestConfig requestConfig;
+
+    public RefreshableRequestConfigExecHandler(@Nonnull RefreshableRequestConfig requestConfig) {
+        this.requestConfig = requestConfig;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain) throws IOException, HttpException {
+        HttpClientContext context = scope.clientContext;
+        RequestConfig config = context.getRequestConfig();
+        if (config != null && config == requestConfig.getInitial()) {
+            context.setRequestConfig(requestConfig.getCurrent());
+        }
+        return chain.proceed(request, scope);
+    }
+}
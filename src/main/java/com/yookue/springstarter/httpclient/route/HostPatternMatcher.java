@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.util.CollectionUtils;
+
+
+/**
+ * Precompiled matcher of host names against a list of patterns
+ * <p>
+ * A pattern is either an exact host, such as {@code api.example.com}, a wildcard domain, such as {@code *.example.com} that matches any subdomain,
+ * or {@code *} that matches any host. Matching costs one hash lookup per label of the host, whatever the count of the patterns.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public final class HostPatternMatcher {
+    private static final HostPatternMatcher EMPTY = new HostPatternMatcher(false, Set.of(), Set.of());
+
+    private final boolean matchAll;
+    private final Set<String> hosts;
+    private final Set<String> suffixes;
+
+    private HostPatternMatcher(boolean matchAll, @Nonnull Set<String> hosts, @Nonnull Set<String> suffixes) {
+        this.matchAll = matchAll;
+        this.hosts = hosts;
+        this.suffixes = suffixes;
+    }
+
+    /**
+     * Returns a matcher of the patterns
+     *
+     * @param patterns the host patterns
+     *
+     * @return a matcher of the patterns
+     */
+    @Nonnull
+    public static HostPatternMatcher compile(@Nullable Collection<String> patterns) {
+        if (CollectionUtils.isEmpty(patterns)) {
+            return EMPTY;
+        }
+        boolean matchAll = false;
+        Set<String> hosts = new HashSet<>();
+        Set<String> suffixes = new HashSet<>();
+        for (String pattern : patterns) {
+            String normalized = normalize(pattern);
+            if (StringUtils.isEmpty(normalized)) {
+                continue;
+            }
+            if (StringUtils.equals(normalized, "*")) {    // $NON-NLS-1$
+                matchAll = true;
+            } else if (StringUtils.startsWith(normalized, "*.")) {    // $NON-NLS-1$
+                suffixes.add(normalized.substring(1));
+            } else if (StringUtils.startsWith(normalized, ".")) {    // $NON-NLS-1$
+                suffixes.add(normalized);
+            } else {
+                hosts.add(normalized);
+            }
+        }
+        return new HostPatternMatcher(matchAll, Set.copyOf(hosts), Set.copyOf(suffixes));
+    }
+
+    public boolean isEmpty() {
+        return !matchAll && hosts.isEmpty() && suffixes.isEmpty();
+    }
+
+    public boolean matches(@Nullable String host) {
+        if (matchAll) {
+            return true;
+        }
+        String normalized = normalize(host);
+        if (StringUtils.isEmpty(normalized)) {
+            return false;
+        }
+        if (hosts.contains(normalized)) {
+            return true;
+        }
+        if (suffixes.isEmpty()) {
+            return false;
+        }
+        for (int index = normalized.indexOf('.'); index >= 0; index = normalized.indexOf('.', index + 1)) {
+            if (suffixes.contains(normalized.substring(index))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Nullable
+    private static String normalize(@Nullable String host) {
+        String trimmed = StringUtils.trimToNull(host);
+        if (trimmed == null) {
+            return null;
+        }
+        if (trimmed.endsWith(".")) {    // $NON-NLS-1$
+            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        }
+        return trimmed.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.core5.http.HttpHost;
+import lombok.Getter;
+
+
+/**
+ * Statistics of a proxy in a {@link com.yookue.springstarter.httpclient.route.ProxyPoolRoutePlanner}
+ *
+ * @author David Hsing
+ */
+@Getter
+final class ProxyEndpoint {
+    /**
+     * Weight of the latest sample in the moving average of the latency
+     */
+    private static final double LATENCY_WEIGHT = 0.3D;
+
+    private final HttpHost proxy;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile double latencyNanos;
+    private volatile boolean ejected;
+    private volatile long ejectedAt;
+
+    ProxyEndpoint(@Nonnull HttpHost proxy) {
+        this.proxy = proxy;
+    }
+
+    synchronized void recordLatency(long nanos) {
+        latencyNanos = (latencyNanos <= 0.0D) ? nanos : latencyNanos + LATENCY_WEIGHT * (nanos - latencyNanos);
+    }
+
+    /**
+     * Returns {@code true} if the endpoint has just been taken out of rotation
+     */
+    synchronized boolean eject(int failureThreshold) {
+        if (ejected || consecutiveFailures.get() < Math.max(failureThreshold, 1)) {
+            return false;
+        }
+        ejected = true;
+        ejectedAt = System.nanoTime();
+        return true;
+    }
+
+    synchronized void readmit() {
+        consecutiveFailures.set(0);
+        latencyNanos = 0.0D;
+        ejected = false;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.nio.AsyncDataConsumer;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+
+
+/**
+ * {@link org.apache.hc.client5.http.async.AsyncExecChainHandler} that feeds the outcome of each exchange to a {@link com.yookue.springstarter.httpclient.route.ProxyPoolRoutePlanner}
+ * <p>
+ * The handler should be placed before the connect element, so that each attempt is recorded against its own proxy.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class ProxyPoolAsyncExecHandler implements AsyncExecChainHandler {
+    public static final String HANDLER_NAME = "proxy-pool";    // $NON-NLS-1$
+
+    private final ProxyPoolRoutePlanner routePlanner;
+
+    public ProxyPoolAsyncExecHandler(@Nonnull ProxyPoolRoutePlanner routePlanner) {
+        this.routePlanner = routePlanner;
+    }
+
+    @Override
+    public void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope, AsyncExecChain chain, AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        HttpHost proxy = scope.route.getProxyHost();
+        if (proxy == null) {
+            chain.proceed(request, entityProducer, scope, asyncExecCallback);
+            return;
+        }
+        routePlanner.exchangeStarted(proxy);
+        long started = System.nanoTime();
+        AtomicBoolean recorded = new AtomicBoolean();
+        try {
+            chain.proceed(request, entityProducer, scope, new AsyncExecCallback() {
+                @Override
+                public AsyncDataConsumer handleResponse(HttpResponse response, EntityDetails entityDetails) throws HttpException, IOException {
+                    if (recorded.compareAndSet(false, true)) {
+                        routePlanner.exchangeCompleted(proxy, System.nanoTime() - started);
+                    }
+                    return asyncExecCallback.handleResponse(response, entityDetails);
+                }
+
+                @Override
+                public void handleInformationResponse(HttpResponse response) throws HttpException, IOException {
+                    asyncExecCallback.handleInformationResponse(response);
+                }
+
+                @Override
+                public void completed() {
+                    if (recorded.compareAndSet(false, true)) {
+                        routePlanner.exchangeCompleted(proxy, System.nanoTime() - started);
+                    }
+                    asyncExecCallback.completed();
+                }
+
+                @Override
+                public void failed(Exception cause) {
+                    if (recorded.compareAndSet(false, true)) {
+                        routePlanner.exchangeFailed(proxy, cause);
+                    }
+                    asyncExecCallback.failed(cause);
+                }
+            });
+        } catch (IOException | HttpException | RuntimeException ex) {
+            if (recorded.compareAndSet(false, true)) {
+                routePlanner.exchangeFailed(proxy, ex);
+            }
+            throw ex;
+        }
+    }
+}
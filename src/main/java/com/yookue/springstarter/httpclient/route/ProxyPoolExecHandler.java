@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+
+
+/**
+ * {@link org.apache.hc.client5.http.classic.ExecChainHandler} that feeds the outcome of each exchange to a {@link com.yookue.springstarter.httpclient.route.ProxyPoolRoutePlanner}
+ * <p>
+ * The handler should be placed before the connect element, so that each attempt is recorded against its own proxy.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class ProxyPoolExecHandler implements ExecChainHandler {
+    public static final String HANDLER_NAME = "proxy-pool";    // $NON-NLS-1$
+
+    private final ProxyPoolRoutePlanner routePlanner;
+
+    public ProxyPoolExecHandler(@Nonnull ProxyPoolRoutePlanner routePlanner) {
+        this.routePlanner = routePlanner;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain) throws IOException, HttpException {
+        HttpHost proxy = scope.route.getProxyHost();
+        if (proxy == null) {
+            return chain.proceed(request, scope);
+        }
+        routePlanner.exchangeStarted(proxy);
+        long started = System.nanoTime();
+        ClassicHttpResponse response;
+        try {
+            response = chain.proceed(request, scope);
+        } catch (IOException | HttpException | RuntimeException ex) {
+            routePlanner.exchangeFailed(proxy, ex);
+            throw ex;
+        }
+        routePlanner.exchangeCompleted(proxy, System.nanoTime() - started);
+        return response;
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.routing.DefaultRoutePlanner;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.springframework.util.CollectionUtils;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * {@link org.apache.hc.client5.http.routing.HttpRoutePlanner} that routes through a pool of proxies
+ * <p>
+ * The destination host is matched against the rules first, then against the bypass hosts, and otherwise the default proxies apply.
+ * Among the proxies that apply, the planner picks by the {@link com.yookue.springstarter.httpclient.route.ProxySelectionStrategy}.
+ * A proxy that fails the given count of consecutive exchanges is taken out of rotation, and probed by connecting to it until it is back.
+ * The statistics are fed by {@link com.yookue.springstarter.httpclient.route.ProxyPoolExecHandler} or {@link com.yookue.springstarter.httpclient.route.ProxyPoolAsyncExecHandler}.
+ *
+ * @author David Hsing
+ */
+@Slf4j
+@SuppressWarnings("unused")
+public class ProxyPoolRoutePlanner extends DefaultRoutePlanner {
+    private static final ScheduledExecutorService PROBER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "httpclient-proxy-prober");    // $NON-NLS-1$
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<HttpHost, ProxyEndpoint> endpoints = new LinkedHashMap<>();
+    private final List<ProxyEndpoint> defaults;
+    private final List<Rule> rules = new ArrayList<>();
+    private final HostPatternMatcher bypassHosts;
+
+    @Getter
+    private final ProxySelectionStrategy selectionStrategy;
+
+    private final int failureThreshold;
+    private final Duration probeInterval;
+    private final Duration probeTimeout;
+
+    public ProxyPoolRoutePlanner(@Nonnull AbstractHttpClientProperties.ProxyPool properties) {
+        this(properties, null);
+    }
+
+    public ProxyPoolRoutePlanner(@Nonnull AbstractHttpClientProperties.ProxyPool properties, @Nullable SchemePortResolver schemePortResolver) {
+        super((schemePortResolver == null) ? DefaultSchemePortResolver.INSTANCE : schemePortResolver);
+        this.defaults = toEndpoints(properties.getProxies());
+        if (!CollectionUtils.isEmpty(properties.getRules())) {
+            for (AbstractHttpClientProperties.ProxyRule rule : properties.getRules()) {
+                if (rule != null && !CollectionUtils.isEmpty(rule.getHosts())) {
+                    rules.add(new Rule(HostPatternMatcher.compile(rule.getHosts()), toEndpoints(rule.getProxies())));
+                }
+            }
+        }
+        this.bypassHosts = HostPatternMatcher.compile(properties.getBypassHosts());
+        this.selectionStrategy = (properties.getSelectionStrategy() == null) ? ProxySelectionStrategy.LOWEST_LATENCY : properties.getSelectionStrategy();
+        this.failureThreshold = (properties.getFailureThreshold() == null) ? 3 : properties.getFailureThreshold();
+        this.probeInterval = (properties.getProbeInterval() == null) ? Duration.ofSeconds(30L) : properties.getProbeInterval();
+        this.probeTimeout = (properties.getProbeTimeout() == null) ? Duration.ofSeconds(3L) : properties.getProbeTimeout();
+    }
+
+    @Override
+    protected HttpHost determineProxy(HttpHost target, HttpContext context) throws HttpException {
+        String host = (target == null) ? null : target.getHostName();
+        for (Rule rule : rules) {
+            if (rule.hosts.matches(host)) {
+                return select(rule.proxies);
+            }
+        }
+        return bypassHosts.matches(host) ? null : select(defaults);
+    }
+
+    /**
+     * Returns the proxies of the pool
+     */
+    @Nonnull
+    public List<HttpHost> getProxies() {
+        return endpoints.values().stream().map(ProxyEndpoint::getProxy).toList();
+    }
+
+    /**
+     * Returns whether the proxy is in rotation
+     */
+    public boolean isInRotation(@Nonnull HttpHost proxy) {
+        ProxyEndpoint endpoint = endpoints.get(proxy);
+        return endpoint != null && !endpoint.isEjected();
+    }
+
+    /**
+     * Returns the count of the outstanding exchanges through the proxy
+     */
+    public int getOutstanding(@Nonnull HttpHost proxy) {
+        ProxyEndpoint endpoint = endpoints.get(proxy);
+        return (endpoint == null) ? 0 : endpoint.getOutstanding().get();
+    }
+
+    public void exchangeStarted(@Nullable HttpHost proxy) {
+        ProxyEndpoint endpoint = (proxy == null) ? null : endpoints.get(proxy);
+        if (endpoint != null) {
+            endpoint.getOutstanding().incrementAndGet();
+        }
+    }
+
+    public void exchangeCompleted(@Nullable HttpHost proxy, long latencyNanos) {
+        ProxyEndpoint endpoint = (proxy == null) ? null : endpoints.get(proxy);
+        if (endpoint != null) {
+            endpoint.getOutstanding().decrementAndGet();
+            endpoint.getConsecutiveFailures().set(0);
+            endpoint.recordLatency(latencyNanos);
+        }
+    }
+
+    /**
+     * Records an exchange through the proxy that ended without response
+     *
+     * @param proxy the proxy of the exchange
+     * @param cause the failure of the exchange, only {@link java.io.IOException}s count against the proxy
+     */
+    public void exchangeFailed(@Nullable HttpHost proxy, @Nullable Exception cause) {
+        ProxyEndpoint endpoint = (proxy == null) ? null : endpoints.get(proxy);
+        if (endpoint == null) {
+            return;
+        }
+        endpoint.getOutstanding().decrementAndGet();
+        if (!(cause instanceof IOException)) {
+            return;
+        }
+        endpoint.getConsecutiveFailures().incrementAndGet();
+        if (endpoint.eject(failureThreshold)) {
+            if (log.isWarnEnabled()) {
+                log.warn("Proxy {} is out of rotation after {} consecutive failures", endpoint.getProxy(), endpoint.getConsecutiveFailures().get());
+            }
+            scheduleProbe(endpoint);
+        }
+    }
+
+    @Nullable
+    private HttpHost select(@Nonnull List<ProxyEndpoint> candidates) {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        if (candidates.size() == 1) {
+            return candidates.get(0).getProxy();
+        }
+        Comparator<ProxyEndpoint> byLatency = Comparator.comparingDouble(ProxyEndpoint::getLatencyNanos);
+        Comparator<ProxyEndpoint> byOutstanding = Comparator.comparingInt(endpoint -> endpoint.getOutstanding().get());
+        Comparator<ProxyEndpoint> comparator = (selectionStrategy == ProxySelectionStrategy.LEAST_OUTSTANDING) ? byOutstanding.thenComparing(byLatency) : byLatency.thenComparing(byOutstanding);
+        ProxyEndpoint selected = null;
+        for (ProxyEndpoint candidate : candidates) {
+            if (!candidate.isEjected() && (selected == null || comparator.compare(candidate, selected) < 0)) {
+                selected = candidate;
+            }
+        }
+        if (selected == null) {
+            // Every proxy is out of rotation, the one ejected longest ago is the most likely to be back
+            selected = candidates.stream().min(Comparator.comparingLong(ProxyEndpoint::getEjectedAt)).orElse(candidates.get(0));
+        }
+        return selected.getProxy();
+    }
+
+    private void scheduleProbe(@Nonnull ProxyEndpoint endpoint) {
+        PROBER.schedule(() -> {
+            if (!endpoint.isEjected()) {
+                return;
+            }
+            if (probe(endpoint.getProxy())) {
+                endpoint.readmit();
+                if (log.isInfoEnabled()) {
+                    log.info("Proxy {} is back in rotation", endpoint.getProxy());
+                }
+            } else {
+                scheduleProbe(endpoint);
+            }
+        }, Math.max(probeInterval.toMillis(), 1L), TimeUnit.MILLISECONDS);
+    }
+
+    private boolean probe(@Nonnull HttpHost proxy) {
+        int port = (proxy.getPort() > 0) ? proxy.getPort() : (StringUtils.equalsIgnoreCase(proxy.getSchemeName(), "https") ? 443 : 80);    // $NON-NLS-1$
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(proxy.getHostName(), port), (int) Math.min(Math.max(probeTimeout.toMillis(), 1L), Integer.MAX_VALUE));
+            return true;
+        } catch (IOException ignored) {
+            return false;
+        }
+    }
+
+    @Nonnull
+    private List<ProxyEndpoint> toEndpoints(@Nullable List<String> proxies) {
+        if (CollectionUtils.isEmpty(proxies)) {
+            return Collections.emptyList();
+        }
+        List<ProxyEndpoint> result = new ArrayList<>(proxies.size());
+        for (String proxy : proxies) {
+            if (StringUtils.isBlank(proxy)) {
+                continue;
+            }
+            HttpHost host;
+            try {
+                host = HttpHost.create(StringUtils.trim(proxy));
+            } catch (URISyntaxException ex) {
+                throw new IllegalArgumentException(String.format("Invalid proxy '%s'", proxy), ex);    // $NON-NLS-1$
+            }
+            result.add(endpoints.computeIfAbsent(host, ProxyEndpoint::new));
+        }
+        return List.copyOf(result);
+    }
+
+
+    private static final class Rule {
+        private final HostPatternMatcher hosts;
+        private final List<ProxyEndpoint> proxies;
+
+        private Rule(@Nonnull HostPatternMatcher hosts, @Nonnull List<ProxyEndpoint> proxies) {
+            this.hosts = hosts;
+            this.proxies = proxies;
+        }
+    }
+}
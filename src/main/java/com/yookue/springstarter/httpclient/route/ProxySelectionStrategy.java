@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+/**
+ * How a {@link com.yookue.springstarter.httpclient.route.ProxyPoolRoutePlanner} picks a proxy among the ones in rotation
+ *
+ * @author David Hsing
+ */
+public enum ProxySelectionStrategy {
+    /**
+     * Picks the proxy with the lowest recent latency to the response head, then the one with the fewest outstanding requests
+     */
+    LOWEST_LATENCY,
+
+    /**
+     * Picks the proxy with the fewest outstanding requests, then the one with the lowest recent latency
+     */
+    LEAST_OUTSTANDING
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+import java.util.function.UnaryOperator;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.config.RequestConfig;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+
+/**
+ * Compiled override of a {@link com.yookue.springstarter.httpclient.route.RouteOverrides} pattern
+ *
+ * @author David Hsing
+ */
+@Getter
+@SuppressWarnings("unused")
+public final class RouteOverride {
+    private final String pattern;
+    private final String scheme;
+    private final String pathPrefix;
+
+    @Getter(value = AccessLevel.NONE)
+    private final int specificity;
+
+    @Getter(value = AccessLevel.NONE)
+    private final int order;
+
+    @Getter(value = AccessLevel.NONE)
+    private final UnaryOperator<RequestConfig.Builder> requestConfigOverride;
+
+    private final HttpRequestRetryStrategy retryStrategy;
+    private final int maxPerRoute;
+
+    @Getter(value = AccessLevel.NONE)
+    private volatile MergedConfig mergedConfig;
+
+    RouteOverride(@Nonnull String pattern, @Nullable String scheme, @Nullable String pathPrefix, int specificity, int order, @Nullable UnaryOperator<RequestConfig.Builder> requestConfigOverride, @Nullable HttpRequestRetryStrategy retryStrategy, int maxPerRoute) {
+        this.pattern = pattern;
+        this.scheme = scheme;
+        this.pathPrefix = pathPrefix;
+        this.specificity = specificity;
+        this.order = order;
+        this.requestConfigOverride = requestConfigOverride;
+        this.retryStrategy = retryStrategy;
+        this.maxPerRoute = maxPerRoute;
+    }
+
+    public boolean isRequestConfigOverridden() {
+        return requestConfigOverride != null;
+    }
+
+    /**
+     * Returns the request config that overrides the given base config, which is cached for the latest base config
+     *
+     * @param base the request config to override
+     *
+     * @return the overridden request config
+     */
+    @Nonnull
+    public RequestConfig mergeRequestConfig(@Nonnull RequestConfig base) {
+        if (requestConfigOverride == null) {
+            return base;
+        }
+        MergedConfig current = mergedConfig;
+        if (current != null && current.base == base) {
+            return current.merged;
+        }
+        RequestConfig merged = requestConfigOverride.apply(RequestConfig.copy(base)).build();
+        mergedConfig = new MergedConfig(base, merged);
+        return merged;
+    }
+
+    boolean matchesScheme(@Nullable String name) {
+        return scheme == null || scheme.equalsIgnoreCase(name);
+    }
+
+    /**
+     * Returns whether the request path is under the path prefix, on a segment boundary
+     */
+    boolean matchesPath(@Nullable String path) {
+        if (pathPrefix == null) {
+            return true;
+        }
+        if (path == null || !path.startsWith(pathPrefix)) {
+            return false;
+        }
+        if (path.length() == pathPrefix.length()) {
+            return true;
+        }
+        char next = path.charAt(pathPrefix.length());
+        return next == '/' || next == '?' || next == ';' || next == '#';
+    }
+
+    int compareTo(@Nonnull RouteOverride other) {
+        if (specificity != other.specificity) {
+            return Integer.compare(other.specificity, specificity);
+        }
+        int pathLength = (pathPrefix == null) ? 0 : pathPrefix.length();
+        int otherPathLength = (other.pathPrefix == null) ? 0 : other.pathPrefix.length();
+        if (pathLength != otherPathLength) {
+            return Integer.compare(otherPathLength, pathLength);
+        }
+        if ((scheme == null) != (other.scheme == null)) {
+            return (scheme != null) ? -1 : 1;
+        }
+        return Integer.compare(order, other.order);
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+
+
+    /**
+     * A base request config and its overridden config
+     */
+    private static final class MergedConfig {
+        private final RequestConfig base;
+        private final RequestConfig merged;
+
+        private MergedConfig(@Nonnull RequestConfig base, @Nonnull RequestConfig merged) {
+            this.base = base;
+            this.merged = merged;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.async.AsyncExecCallback;
+import org.apache.hc.client5.http.async.AsyncExecChain;
+import org.apache.hc.client5.http.async.AsyncExecChainHandler;
+import org.apache.hc.client5.http.config.Configurable;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.pool.ConnPoolControl;
+
+
+/**
+ * {@link org.apache.hc.client5.http.async.AsyncExecChainHandler} that applies the {@link com.yookue.springstarter.httpclient.route.RouteOverrides} to each request
+ * <p>
+ * A request that carries its own request config keeps it.
+ * The handler should be placed first in the chain, so that the redirect and retry elements see the overridden request config.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.route.RouteOverrideRetryStrategy
+ */
+@SuppressWarnings("unused")
+public class RouteOverrideAsyncExecHandler implements AsyncExecChainHandler {
+    public static final String HANDLER_NAME = "route-override";    // $NON-NLS-1$
+
+    private final RouteOverrides overrides;
+    private final ConnPoolControl<HttpRoute> pool;
+
+    public RouteOverrideAsyncExecHandler(@Nonnull RouteOverrides overrides) {
+        this(overrides, null);
+    }
+
+    /**
+     * Constructs a new handler
+     *
+     * @param overrides the overrides to apply
+     * @param pool the connection pool to apply the max connections per route to, or {@code null} to skip them
+     */
+    public RouteOverrideAsyncExecHandler(@Nonnull RouteOverrides overrides, @Nullable ConnPoolControl<HttpRoute> pool) {
+        this.overrides = overrides;
+        this.pool = pool;
+    }
+
+    @Override
+    public void execute(HttpRequest request, AsyncEntityProducer entityProducer, AsyncExecChain.Scope scope, AsyncExecChain chain, AsyncExecCallback asyncExecCallback) throws HttpException, IOException {
+        HttpClientContext context = scope.clientContext;
+        if (!(scope.originalRequest instanceof Configurable configurable) || configurable.getConfig() == null) {
+            context.setRequestConfig(overrides.selectRequestConfig(context.getRequestConfig(), overrides.resolve(scope.route, request.getPath())));
+        }
+        if (overrides.isRetryOverridden()) {
+            context.setRoute(scope.route);
+        }
+        if (pool != null) {
+            overrides.applyPoolLimit(scope.route, pool);
+        }
+        chain.proceed(request, entityProducer, scope, asyncExecCallback);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.ExecChain;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.config.Configurable;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.pool.ConnPoolControl;
+
+
+/**
+ * {@link org.apache.hc.client5.http.classic.ExecChainHandler} that applies the {@link com.yookue.springstarter.httpclient.route.RouteOverrides} to each request
+ * <p>
+ * A request that carries its own request config keeps it.
+ * The handler should be placed first in the chain, so that the redirect, compression and retry elements see the overridden request config.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.route.RouteOverrideRetryStrategy
+ */
+@SuppressWarnings("unused")
+public class RouteOverrideExecHandler implements ExecChainHandler {
+    public static final String HANDLER_NAME = "route-override";    // $NON-NLS-1$
+
+    private final RouteOverrides overrides;
+    private final ConnPoolControl<HttpRoute> pool;
+
+    public RouteOverrideExecHandler(@Nonnull RouteOverrides overrides) {
+        this(overrides, null);
+    }
+
+    /**
+     * Constructs a new handler
+     *
+     * @param overrides the overrides to apply
+     * @param pool the connection pool to apply the max connections per route to, or {@code null} to skip them
+     */
+    public RouteOverrideExecHandler(@Nonnull RouteOverrides overrides, @Nullable ConnPoolControl<HttpRoute> pool) {
+        this.overrides = overrides;
+        this.pool = pool;
+    }
+
+    @Override
+    public ClassicHttpResponse execute(ClassicHttpRequest request, ExecChain.Scope scope, ExecChain chain) throws IOException, HttpException {
+        HttpClientContext context = scope.clientContext;
+        if (!(scope.originalRequest instanceof Configurable configurable) || configurable.getConfig() == null) {
+            context.setRequestConfig(overrides.selectRequestConfig(context.getRequestConfig(), overrides.resolve(scope.route, request.getPath())));
+        }
+        if (overrides.isRetryOverridden()) {
+            context.setRoute(scope.route);
+        }
+        if (pool != null) {
+            overrides.applyPoolLimit(scope.route, pool);
+        }
+        return chain.proceed(request, scope);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.util.TimeValue;
+
+
+/**
+ * {@link org.apache.hc.client5.http.HttpRequestRetryStrategy} that retries the requests by the retries of their {@link com.yookue.springstarter.httpclient.route.RouteOverride}
+ * <p>
+ * The requests without overridden retries are retried by the delegate strategy.
+ * The route is read from the context, which the {@link com.yookue.springstarter.httpclient.route.RouteOverrideExecHandler} populates.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class RouteOverrideRetryStrategy implements HttpRequestRetryStrategy {
+    private final RouteOverrides overrides;
+    private final HttpRequestRetryStrategy delegate;
+
+    public RouteOverrideRetryStrategy(@Nonnull RouteOverrides overrides, @Nonnull HttpRequestRetryStrategy delegate) {
+        this.overrides = overrides;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean retryRequest(HttpRequest request, IOException exception, int execCount, HttpContext context) {
+        return selectStrategy(request, context).retryRequest(request, exception, execCount, context);
+    }
+
+    @Override
+    public boolean retryRequest(HttpResponse response, int execCount, HttpContext context) {
+        return selectStrategy(null, context).retryRequest(response, execCount, context);
+    }
+
+    @Override
+    public TimeValue getRetryInterval(HttpRequest request, IOException exception, int execCount, HttpContext context) {
+        return selectStrategy(request, context).getRetryInterval(request, exception, execCount, context);
+    }
+
+    @Override
+    public TimeValue getRetryInterval(HttpResponse response, int execCount, HttpContext context) {
+        return selectStrategy(null, context).getRetryInterval(response, execCount, context);
+    }
+
+    @Nonnull
+    private HttpRequestRetryStrategy selectStrategy(@Nullable HttpRequest request, @Nullable HttpContext context) {
+        if (!(context instanceof HttpClientContext clientContext) || !(clientContext.getHttpRoute() instanceof HttpRoute route)) {
+            return delegate;
+        }
+        HttpRequest current = (request != null) ? request : clientContext.getRequest();
+        RouteOverride override = overrides.resolve(route, (current != null) ? current.getPath() : null);
+        return (override != null && override.getRetryStrategy() != null) ? override.getRetryStrategy() : delegate;
+    }
+}
@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.route;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.util.CollectionUtils;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+
+
+/**
+ * Precompiled table of the overrides for some destinations, keyed by pattern of {@code [scheme://]host[/path-prefix]}
+ * <p>
+ * The host is either exact, such as {@code api.example.com}, a wildcard domain, such as {@code *.example.com}, or {@code *} for any host.
+ * The host patterns are compiled into a trie of reversed labels, and the candidates of each target host are resolved once and cached,
+ * sorted from the most specific host and the longest path prefix. Resolving the override of a request then only compares path prefixes,
+ * without any allocation.
+ * <p>
+ * The base of each merged request config is held weakly by identity, since {@link org.apache.hc.client5.http.config.RequestConfig} does not override {@code equals},
+ * so the merged configs of per-request configs drop out with their exchanges.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.route.RouteOverrideExecHandler
+ * @see com.yookue.springstarter.httpclient.route.RouteOverrideAsyncExecHandler
+ */
+@SuppressWarnings("unused")
+public final class RouteOverrides {
+    private static final int MAX_CACHED_HOSTS = 4096;
+
+    private final Node root = new Node();
+    private final Map<RequestConfig, RequestConfig> mergedBases = new WeakHashMap<>();
+    private final Map<HttpHost, Candidates> candidates = new ConcurrentHashMap<>();
+    private final boolean retryOverridden;
+
+    public RouteOverrides(@Nullable Map<String, AbstractHttpClientProperties.Route> routes) {
+        boolean retries = false;
+        if (!CollectionUtils.isEmpty(routes)) {
+            int order = 0;
+            for (Map.Entry<String, AbstractHttpClientProperties.Route> entry : routes.entrySet()) {
+                RouteOverride override = (entry.getValue() == null) ? null : compile(entry.getKey(), entry.getValue(), order++);
+                if (override != null && override.getRetryStrategy() != null) {
+                    retries = true;
+                }
+            }
+        }
+        this.retryOverridden = retries;
+    }
+
+    public boolean isEmpty() {
+        return root.isEmpty();
+    }
+
+    /**
+     * Returns whether any override specifies the retries
+     */
+    public boolean isRetryOverridden() {
+        return retryOverridden;
+    }
+
+    /**
+     * Returns the most specific override for the route and the request path
+     *
+     * @param route the route of the request
+     * @param path the path of the request
+     *
+     * @return the most specific override, or {@code null} if none matches
+     */
+    @Nullable
+    public RouteOverride resolve(@Nullable HttpRoute route, @Nullable String path) {
+        if (route == null) {
+            return null;
+        }
+        for (RouteOverride override : getCandidates(route.getTargetHost()).overrides) {
+            if (override.matchesPath(path)) {
+                return override;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the request config to execute a request with
+     * <p>
+     * The override is applied on the request config in the context, or on its base config if the context holds the config of another override
+     *
+     * @param current the request config in the context
+     * @param override the override of the request
+     *
+     * @return the request config to execute the request with
+     */
+    @Nullable
+    public RequestConfig selectRequestConfig(@Nullable RequestConfig current, @Nullable RouteOverride override) {
+        RequestConfig base = (current == null) ? null : baseOf(current);
+        if (override == null || !override.isRequestConfigOverridden()) {
+            return base;
+        }
+        if (base == null) {
+            base = RequestConfig.DEFAULT;
+        }
+        RequestConfig merged = override.mergeRequestConfig(base);
+        if (merged != current) {
+            synchronized (mergedBases) {
+                mergedBases.putIfAbsent(merged, base);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Applies the max connections of the route to the connection pool, once per route
+     *
+     * @param route the route of the request
+     * @param pool the connection pool
+     */
+    public void applyPoolLimit(@Nullable HttpRoute route, @Nonnull ConnPoolControl<HttpRoute> pool) {
+        if (route == null) {
+            return;
+        }
+        Candidates hostCandidates = getCandidates(route.getTargetHost());
+        if (hostCandidates.maxPerRoute > 0 && hostCandidates.limitedRoutes.add(route)) {
+            pool.setMaxPerRoute(route, hostCandidates.maxPerRoute);
+        }
+    }
+
+    @Nonnull
+    private RequestConfig baseOf(@Nonnull RequestConfig config) {
+        synchronized (mergedBases) {
+            RequestConfig base = mergedBases.get(config);
+            return (base == null) ? config : base;
+        }
+    }
+
+    @Nullable
+    private RouteOverride compile(@Nullable String key, @Nonnull AbstractHttpClientProperties.Route properties, int order) {
+        String pattern = StringUtils.trimToNull(key);
+        if (pattern == null) {
+            return null;
+        }
+        String remainder = pattern;
+        String scheme = null;
+        String pathPrefix = null;
+        int schemeIndex = remainder.indexOf("://");    // $NON-NLS-1$
+        if (schemeIndex > 0) {
+            scheme = remainder.substring(0, schemeIndex).toLowerCase(Locale.ROOT);
+            remainder = remainder.substring(schemeIndex + 3);
+        }
+        int pathIndex = remainder.indexOf('/');
+        if (pathIndex >= 0) {
+            pathPrefix = StringUtils.removeEnd(remainder.substring(pathIndex), "/");    // $NON-NLS-1$
+            remainder = remainder.substring(0, pathIndex);
+        }
+        String host = StringUtils.removeEnd(remainder, ".").toLowerCase(Locale.ROOT);    // $NON-NLS-1$
+        if (StringUtils.isEmpty(host)) {
+            return null;
+        }
+        boolean wildcard = StringUtils.equals(host, "*") || StringUtils.startsWith(host, "*.");    // $NON-NLS-1$ // $NON-NLS-2$
+        String[] labels = StringUtils.split(wildcard ? host.substring(1) : host, '.');
+        RouteOverride override = new RouteOverride(pattern, scheme, StringUtils.trimToNull(pathPrefix), labels.length * 2 + (wildcard ? 0 : 1), order, buildRequestConfigOverride(properties), buildRetryStrategy(properties), (properties.getMaxPerRoute() == null) ? 0 : properties.getMaxPerRoute());
+        Node node = root;
+        for (int i = labels.length - 1; i >= 0; i--) {
+            node = node.children.computeIfAbsent(labels[i], label -> new Node());
+        }
+        (wildcard ? node.wildcard : node.exact).add(override);
+        return override;
+    }
+
+    @Nullable
+    private static UnaryOperator<RequestConfig.Builder> buildRequestConfigOverride(@Nonnull AbstractHttpClientProperties.Route properties) {
+        if (properties.getExpectContinueEnabled() == null && properties.getRedirectsEnabled() == null && properties.getMaxRedirects() == null && properties.getRequestTimeout() == null
+            && properties.getResponseTimeout() == null && properties.getConnectionKeepAlive() == null && properties.getContentCompressionEnabled() == null) {
+            return null;
+        }
+        Boolean expectContinueEnabled = properties.getExpectContinueEnabled();
+        Boolean redirectsEnabled = properties.getRedirectsEnabled();
+        Integer maxRedirects = properties.getMaxRedirects();
+        Timeout requestTimeout = (properties.getRequestTimeout() == null) ? null : Timeout.ofMilliseconds(properties.getRequestTimeout().toMillis());
+        Timeout responseTimeout = (properties.getResponseTimeout() == null) ? null : Timeout.ofMilliseconds(properties.getResponseTimeout().toMillis());
+        TimeValue connectionKeepAlive = (properties.getConnectionKeepAlive() == null) ? null : TimeValue.ofMilliseconds(properties.getConnectionKeepAlive().toMillis());
+        Boolean contentCompressionEnabled = properties.getContentCompressionEnabled();
+        return builder -> {
+            if (expectContinueEnabled != null) {
+                builder.setExpectContinueEnabled(expectContinueEnabled);
+            }
+            if (redirectsEnabled != null) {
+                builder.setRedirectsEnabled(redirectsEnabled);
+            }
+            if (maxRedirects != null) {
+                builder.setMaxRedirects(maxRedirects);
+            }
+            if (requestTimeout != null) {
+                builder.setConnectionRequestTimeout(requestTimeout);
+            }
+            if (responseTimeout != null) {
+                builder.setResponseTimeout(responseTimeout);
+            }
+            if (connectionKeepAlive != null) {
+                builder.setConnectionKeepAlive(connectionKeepAlive);
+            }
+            if (contentCompressionEnabled != null) {
+                builder.setContentCompressionEnabled(contentCompressionEnabled);
+            }
+            return builder;
+        };
+    }
+
+    @Nullable
+    private static HttpRequestRetryStrategy buildRetryStrategy(@Nonnull AbstractHttpClientProperties.Route properties) {
+        if (properties.getMaxRetries() == null && properties.getRetryInterval() == null) {
+            return null;
+        }
+        int maxRetries = (properties.getMaxRetries() == null) ? 1 : Math.max(properties.getMaxRetries(), 0);
+        Duration retryInterval = (properties.getRetryInterval() == null) ? Duration.ofSeconds(1L) : properties.getRetryInterval();
+        return new DefaultHttpRequestRetryStrategy(maxRetries, TimeValue.ofMilliseconds(retryInterval.toMillis()));
+    }
+
+    @Nonnull
+    private Candidates getCandidates(@Nonnull HttpHost host) {
+        Candidates result = candidates.get(host);
+        if (result != null) {
+            return result;
+        }
+        if (candidates.size() >= MAX_CACHED_HOSTS) {
+            candidates.clear();
+        }
+        result = collectCandidates(host);
+        Candidates previous = candidates.putIfAbsent(host, result);
+        return (previous != null) ? previous : result;
+    }
+
+    @Nonnull
+    private Candidates collectCandidates(@Nonnull HttpHost target) {
+        List<RouteOverride> found = new ArrayList<>(root.wildcard);
+        String host = StringUtils.removeEnd(target.getHostName(), ".").toLowerCase(Locale.ROOT);    // $NON-NLS-1$
+        Node node = root;
+        int end = host.length();
+        while (end > 0) {
+            int dot = host.lastIndexOf('.', end - 1);
+            node = node.children.get(host.substring(dot + 1, end));
+            if (node == null) {
+                break;
+            }
+            if (dot < 0) {
+                found.addAll(node.exact);
+                break;
+            }
+            found.addAll(node.wildcard);
+            end = dot;
+        }
+        found.removeIf(override -> !override.matchesScheme(target.getSchemeName()));
+        found.sort(RouteOverride::compareTo);
+        int maxPerRoute = 0;
+        for (RouteOverride override : found) {
+            if (override.getPathPrefix() == null && override.getMaxPerRoute() > 0) {
+                maxPerRoute = override.getMaxPerRoute();
+                break;
+            }
+        }
+        return new Candidates(found.toArray(new RouteOverride[0]), maxPerRoute);
+    }
+
+
+    /**
+     * Node of the trie of reversed host labels
+     */
+    private static final class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private final List<RouteOverride> exact = new ArrayList<>();
+        private final List<RouteOverride> wildcard = new ArrayList<>();
+
+        private boolean isEmpty() {
+            return children.isEmpty() && exact.isEmpty() && wildcard.isEmpty();
+        }
+    }
+
+
+    /**
+     * The overrides that match a target host, and the routes that the pool limit has been applied to
+     */
+    private static final class Candidates {
+        private final RouteOverride[] overrides;
+        private final int maxPerRoute;
+        private final Set<HttpRoute> limitedRoutes = ConcurrentHashMap.newKeySet();
+
+        private Candidates(@Nonnull RouteOverride[] overrides, int maxPerRoute) {
+            this.overrides = overrides;
+            this.maxPerRoute = maxPerRoute;
+        }
+    }
+}
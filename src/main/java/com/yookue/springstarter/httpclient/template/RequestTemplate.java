@@ -0,0 +1,323 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.template;
+
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Future;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.async.HttpAsyncClient;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.HttpClientResponseHandler;
+import org.apache.hc.core5.http.message.BufferedHeader;
+import org.apache.hc.core5.http.nio.AsyncEntityProducer;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.support.BasicRequestProducer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.net.PercentCodec;
+import org.apache.hc.core5.net.URIAuthority;
+import org.apache.hc.core5.util.CharArrayBuffer;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+
+/**
+ * Precompiled shape of the requests to one endpoint, such as {@code GET https://api.example.com/users/{id}?fields={fields}}
+ * <p>
+ * The uri template is split into literals and placeholders once, the headers are formatted into the lines that the connections write as they are,
+ * and the target host is resolved with its port, so the client neither parses an uri nor normalizes a host for each request.
+ * Rendering a request then only percent-encodes the values of the placeholders, which are bound by position in the order of their first appearance, or by name.
+ * <p>
+ * The placeholders are allowed in the path and the query only, and the literals are expected to be encoded already.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.template.RequestTemplates
+ */
+@Getter
+@SuppressWarnings("unused")
+public final class RequestTemplate {
+    private static final boolean[] UNRESERVED = new boolean[128];
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();    // $NON-NLS-1$
+
+    private final String method;
+    private final String uriTemplate;
+    private final HttpHost target;
+    private final RequestConfig config;
+    private final List<String> variableNames;
+
+    @Getter(value = AccessLevel.NONE)
+    private final String scheme;
+
+    @Getter(value = AccessLevel.NONE)
+    private final URIAuthority authority;
+
+    @Getter(value = AccessLevel.NONE)
+    private final Header[] headers;
+
+    @Getter(value = AccessLevel.NONE)
+    private final String[] literals;
+
+    @Getter(value = AccessLevel.NONE)
+    private final int[] variables;
+
+    @Getter(value = AccessLevel.NONE)
+    private final Charset charset;
+
+    @Getter(value = AccessLevel.NONE)
+    private volatile int expectedLength;
+
+    static {
+        for (char ch = 'a'; ch <= 'z'; ch++) {
+            UNRESERVED[ch] = true;
+            UNRESERVED[Character.toUpperCase(ch)] = true;
+        }
+        for (char ch = '0'; ch <= '9'; ch++) {
+            UNRESERVED[ch] = true;
+        }
+        UNRESERVED['-'] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['_'] = true;
+        UNRESERVED['~'] = true;
+    }
+
+    RequestTemplate(@Nonnull String method, @Nonnull String uriTemplate, @Nonnull Map<String, String> headers, @Nullable RequestConfig config, @Nonnull Charset charset) {
+        if (StringUtils.isBlank(method)) {
+            throw new IllegalArgumentException("Method of a request template must not be blank");    // $NON-NLS-1$
+        }
+        this.method = method.toUpperCase(Locale.ROOT);
+        this.uriTemplate = uriTemplate;
+        this.config = config;
+        this.charset = charset;
+        int schemeEnd = uriTemplate.indexOf("://");    // $NON-NLS-1$
+        if (schemeEnd <= 0) {
+            throw new IllegalArgumentException(String.format("Request template '%s' is not an absolute uri", uriTemplate));    // $NON-NLS-1$
+        }
+        int authorityEnd = StringUtils.indexOfAny(uriTemplate.substring(schemeEnd + 3), '/', '?', '#');
+        authorityEnd = (authorityEnd < 0) ? uriTemplate.length() : schemeEnd + 3 + authorityEnd;
+        String authorityText = uriTemplate.substring(schemeEnd + 3, authorityEnd);
+        if (authorityText.isEmpty() || StringUtils.containsAny(authorityText, '{', '}')) {
+            throw new IllegalArgumentException(String.format("Request template '%s' must have a fixed host", uriTemplate));    // $NON-NLS-1$
+        }
+        this.scheme = uriTemplate.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+        try {
+            this.authority = URIAuthority.create(authorityText);
+            HttpHost host = new HttpHost(scheme, authority);
+            this.target = new HttpHost(scheme, host.getHostName(), DefaultSchemePortResolver.INSTANCE.resolve(host));
+        } catch (Exception ex) {
+            throw new IllegalArgumentException(String.format("Request template '%s' has an invalid host", uriTemplate), ex);    // $NON-NLS-1$
+        }
+        List<String> names = new ArrayList<>();
+        List<String> parts = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int fragment = uriTemplate.indexOf('#', authorityEnd);
+        String rest = uriTemplate.substring(authorityEnd, (fragment < 0) ? uriTemplate.length() : fragment);
+        if (rest.isEmpty() || rest.charAt(0) == '?') {
+            rest = '/' + rest;
+        }
+        int queryStart = rest.indexOf('?');
+        StringBuilder literal = new StringBuilder(rest.length());
+        for (int i = 0; i < rest.length(); i++) {
+            char ch = rest.charAt(i);
+            if (ch != '{') {
+                literal.append(ch);
+                continue;
+            }
+            int close = rest.indexOf('}', i);
+            String name = (close < 0) ? null : rest.substring(i + 1, close).trim();
+            if (StringUtils.isEmpty(name)) {
+                throw new IllegalArgumentException(String.format("Request template '%s' has an invalid placeholder at %d", uriTemplate, i));    // $NON-NLS-1$
+            }
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+            parts.add(literal.toString());
+            literal.setLength(0);
+            slots.add(names.indexOf(name));
+            i = close;
+        }
+        parts.add(literal.toString());
+        this.variableNames = Collections.unmodifiableList(names);
+        this.literals = parts.toArray(new String[0]);
+        this.variables = slots.stream().mapToInt(Integer::intValue).toArray();
+        this.expectedLength = rest.length() + variables.length * 16;
+        this.headers = headers.entrySet().stream().map(entry -> formatHeader(entry.getKey(), entry.getValue())).toArray(Header[]::new);
+    }
+
+    /**
+     * Renders a request with the values of the placeholders by position
+     *
+     * @param values the values of the placeholders, in the order of their first appearance in the template
+     *
+     * @return the rendered request
+     */
+    @Nonnull
+    public TemplateHttpRequest render(@Nullable Object... values) {
+        int count = (values == null) ? 0 : values.length;
+        if (count != variableNames.size()) {
+            throw new IllegalArgumentException(String.format("Request template '%s' requires %d values, but %d given", uriTemplate, variableNames.size(), count));    // $NON-NLS-1$
+        }
+        StringBuilder builder = new StringBuilder(expectedLength);
+        for (int i = 0; i < variables.length; i++) {
+            builder.append(literals[i]);
+            encode(builder, values[variables[i]]);
+        }
+        builder.append(literals[variables.length]);
+        return createRequest(builder);
+    }
+
+    /**
+     * Renders a request with the values of the placeholders by name
+     *
+     * @param values the values of the placeholders, keyed by name
+     *
+     * @return the rendered request
+     */
+    @Nonnull
+    public TemplateHttpRequest render(@Nonnull Map<String, ?> values) {
+        StringBuilder builder = new StringBuilder(expectedLength);
+        for (int i = 0; i < variables.length; i++) {
+            String name = variableNames.get(variables[i]);
+            if (!values.containsKey(name)) {
+                throw new IllegalArgumentException(String.format("Request template '%s' requires a value of '%s'", uriTemplate, name));    // $NON-NLS-1$
+            }
+            builder.append(literals[i]);
+            encode(builder, values.get(name));
+        }
+        builder.append(literals[variables.length]);
+        return createRequest(builder);
+    }
+
+    /**
+     * Renders a request producer for the async clients with the values of the placeholders by position
+     *
+     * @param entityProducer the producer of the request body, or {@code null} for no body
+     * @param values the values of the placeholders, in the order of their first appearance in the template
+     *
+     * @return the rendered request producer
+     */
+    @Nonnull
+    public AsyncRequestProducer renderProducer(@Nullable AsyncEntityProducer entityProducer, @Nullable Object... values) {
+        return new BasicRequestProducer(render(values), entityProducer);
+    }
+
+    /**
+     * Executes a rendered request on the sync client, against the cached target host
+     */
+    public <T> T execute(@Nonnull HttpClient client, @Nullable HttpContext context, @Nonnull HttpClientResponseHandler<? extends T> handler, @Nullable Object... values) throws IOException {
+        return client.execute(target, render(values), context, handler);
+    }
+
+    /**
+     * Executes a rendered request on the async client, against the cached target host if the client is a {@link org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient}
+     */
+    @Nonnull
+    public <T> Future<T> execute(@Nonnull HttpAsyncClient client, @Nullable AsyncEntityProducer entityProducer, @Nonnull AsyncResponseConsumer<T> responseConsumer, @Nullable HttpContext context, @Nullable FutureCallback<T> callback, @Nullable Object... values) {
+        AsyncRequestProducer requestProducer = renderProducer(entityProducer, values);
+        if (client instanceof CloseableHttpAsyncClient closeableClient) {
+            return closeableClient.execute(target, requestProducer, responseConsumer, null, context, callback);
+        }
+        return client.execute(requestProducer, responseConsumer, null, context, callback);
+    }
+
+    @Override
+    public String toString() {
+        return method + " " + uriTemplate;    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    private TemplateHttpRequest createRequest(@Nonnull StringBuilder builder) {
+        if (builder.length() > expectedLength) {
+            expectedLength = builder.length();
+        }
+        TemplateHttpRequest request = new TemplateHttpRequest(method, scheme, authority, builder.toString(), config);
+        for (Header header : headers) {
+            request.addHeader(header);
+        }
+        return request;
+    }
+
+    private void encode(@Nonnull StringBuilder builder, @Nullable Object value) {
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (charset != StandardCharsets.UTF_8) {
+            PercentCodec.encode(builder, text, charset);
+            return;
+        }
+        for (int i = 0, length = text.length(); i < length; i++) {
+            char ch = text.charAt(i);
+            if (ch < 0x80) {
+                if (UNRESERVED[ch]) {
+                    builder.append(ch);
+                } else {
+                    appendEncoded(builder, ch);
+                }
+            } else if (ch < 0x800) {
+                appendEncoded(builder, 0xC0 | (ch >> 6));
+                appendEncoded(builder, 0x80 | (ch & 0x3F));
+            } else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(ch, text.charAt(++i));
+                appendEncoded(builder, 0xF0 | (codePoint >> 18));
+                appendEncoded(builder, 0x80 | ((codePoint >> 12) & 0x3F));
+                appendEncoded(builder, 0x80 | ((codePoint >> 6) & 0x3F));
+                appendEncoded(builder, 0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(ch)) {
+                appendEncoded(builder, '?');
+            } else {
+                appendEncoded(builder, 0xE0 | (ch >> 12));
+                appendEncoded(builder, 0x80 | ((ch >> 6) & 0x3F));
+                appendEncoded(builder, 0x80 | (ch & 0x3F));
+            }
+        }
+    }
+
+    private static void appendEncoded(@Nonnull StringBuilder builder, int octet) {
+        builder.append('%').append(HEX_DIGITS[(octet >> 4) & 0xF]).append(HEX_DIGITS[octet & 0xF]);
+    }
+
+    @Nonnull
+    private static Header formatHeader(@Nonnull String name, @Nullable String value) {
+        String text = StringUtils.defaultString(value);
+        if (StringUtils.containsAny(name, '\r', '\n', ':') || StringUtils.containsAny(text, '\r', '\n')) {
+            throw new IllegalArgumentException(String.format("Invalid header '%s'", name));    // $NON-NLS-1$
+        }
+        CharArrayBuffer buffer = new CharArrayBuffer(name.length() + text.length() + 2);
+        buffer.append(name);
+        buffer.append(": ");    // $NON-NLS-1$
+        buffer.append(text);
+        BufferedHeader header = BufferedHeader.create(buffer);
+        header.getValue();
+        return header;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.template;
+
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.springframework.util.CollectionUtils;
+import lombok.Getter;
+
+
+/**
+ * Factory of {@link com.yookue.springstarter.httpclient.template.RequestTemplate}, holding the defaults that the templates share
+ * <p>
+ * The headers of a template replace the default headers of the same name, and the config of a template replaces the default config.
+ * Without any default headers, the templates send {@code Accept: *}{@code /*} as the executor utilities do.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.template.RequestTemplate
+ */
+@Getter
+@SuppressWarnings("unused")
+public final class RequestTemplates {
+    private final Map<String, String> defaultHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private final RequestConfig defaultConfig;
+    private final Charset charset;
+
+    public RequestTemplates() {
+        this(null, null, null);
+    }
+
+    public RequestTemplates(@Nullable Map<String, String> defaultHeaders, @Nullable RequestConfig defaultConfig, @Nullable Charset charset) {
+        if (defaultHeaders == null) {
+            this.defaultHeaders.put(HttpHeaders.ACCEPT, ContentType.WILDCARD.getMimeType());
+        } else {
+            this.defaultHeaders.putAll(defaultHeaders);
+        }
+        this.defaultConfig = defaultConfig;
+        this.charset = (charset != null) ? charset : StandardCharsets.UTF_8;
+    }
+
+    @Nonnull
+    public RequestTemplate compile(@Nonnull String method, @Nonnull String uriTemplate) {
+        return compile(method, uriTemplate, null, null);
+    }
+
+    @Nonnull
+    public RequestTemplate compile(@Nonnull String method, @Nonnull String uriTemplate, @Nullable Map<String, String> headers) {
+        return compile(method, uriTemplate, headers, null);
+    }
+
+    /**
+     * Compiles the template of a request
+     *
+     * @param method the method of the requests
+     * @param uriTemplate the absolute uri of the requests, with {@code {name}} placeholders in the path and the query
+     * @param headers the headers of the requests, which replace the default headers of the same name
+     * @param config the config of the requests, or {@code null} for the default config
+     *
+     * @return the compiled template
+     */
+    @Nonnull
+    public RequestTemplate compile(@Nonnull String method, @Nonnull String uriTemplate, @Nullable Map<String, String> headers, @Nullable RequestConfig config) {
+        Map<String, String> merged = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        merged.putAll(defaultHeaders);
+        if (!CollectionUtils.isEmpty(headers)) {
+            merged.putAll(headers);
+        }
+        return new RequestTemplate(method, uriTemplate, merged, (config != null) ? config : defaultConfig, charset);
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.template;
+
+
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.hc.client5.http.config.Configurable;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.core5.http.message.BasicClassicHttpRequest;
+import org.apache.hc.core5.net.URIAuthority;
+import lombok.Getter;
+import lombok.Setter;
+
+
+/**
+ * Request rendered by a {@link com.yookue.springstarter.httpclient.template.RequestTemplate}
+ * <p>
+ * The request carries the config of its template, which the sync and async clients both pick up, and it may be changed before the execution.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.template.RequestTemplate
+ */
+@Getter
+@Setter
+@SuppressWarnings("unused")
+public class TemplateHttpRequest extends BasicClassicHttpRequest implements Configurable {
+    private RequestConfig config;
+
+    public TemplateHttpRequest(@Nonnull String method, @Nonnull String scheme, @Nonnull URIAuthority authority, @Nonnull String path, @Nullable RequestConfig config) {
+        super(method, scheme, authority, path);
+        this.config = config;
+    }
+}
@@ -0,0 +1,440 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.timer;
+
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.core5.concurrent.Cancellable;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Timer that runs the scheduled tasks on a single thread, placing them into the slots of a hashed wheel
+ * <p>
+ * Scheduling and cancelling a task are constant time, and the deadlines are honored with the precision of a tick.
+ * The worker thread starts on the first schedule, skips over the empty slots, and parks until the next due slot,
+ * so an idle timer costs no wakeups.
+ * The tasks run on the worker thread, so they must be short and must not block.
+ * A task that runs any code of the callers should be scheduled with an {@link Executor}, so the worker only hands it off.
+ * <p>
+ * Within the starter, the timer is a bean that is closed with the application context, and {@link #getShared()} is only the fallback outside of Spring.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.pool.ConnectionEvictor
+ */
+@Slf4j
+@SuppressWarnings({"unused", "UnusedReturnValue"})
+public class HashedWheelTimer implements Closeable {
+    public static final String DEFAULT_THREAD_NAME = "httpclient-timer";    // $NON-NLS-1$
+    public static final Duration DEFAULT_TICK_DURATION = Duration.ofMillis(5L);
+    public static final int DEFAULT_TICKS_PER_WHEEL = 1024;
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_STARTED = 1;
+    private static final int STATE_CLOSED = 2;
+    private static final long AWAKE = -1L;
+
+    private final String threadName;
+
+    @Getter
+    private final Duration tickDuration;
+
+    private final long tickNanos;
+    private final Slot[] wheel;
+    private final int mask;
+    private final Queue<Task> additions = new ConcurrentLinkedQueue<>();
+    private final Queue<Task> cancellations = new ConcurrentLinkedQueue<>();
+    private volatile int state = STATE_INIT;
+    private volatile long startNanos;
+    private volatile long wakeupDeadline = AWAKE;
+    private Thread worker;
+
+    public HashedWheelTimer() {
+        this(DEFAULT_THREAD_NAME, DEFAULT_TICK_DURATION, DEFAULT_TICKS_PER_WHEEL);
+    }
+
+    /**
+     * Constructs a new timer
+     *
+     * @param threadName the name of the worker thread
+     * @param tickDuration the duration of a tick, which is the precision of the deadlines
+     * @param ticksPerWheel the count of the slots of the wheel, which is rounded up to a power of two
+     */
+    public HashedWheelTimer(@Nonnull String threadName, @Nonnull Duration tickDuration, int ticksPerWheel) {
+        if (tickDuration.isZero() || tickDuration.isNegative()) {
+            throw new IllegalArgumentException("Tick duration must be positive");    // $NON-NLS-1$
+        }
+        this.threadName = threadName;
+        this.tickDuration = tickDuration;
+        this.tickNanos = tickDuration.toNanos();
+        int bounded = Math.max(Math.min(ticksPerWheel, 1 << 16), 1);
+        int size = Integer.highestOneBit(bounded);
+        if (size < bounded) {
+            size <<= 1;
+        }
+        this.wheel = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Slot();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Returns the timer that is shared by all the clients in the JVM, which is the fallback if no timer is given
+     * <p>
+     * Its worker is a daemon thread, which is never closed.
+     *
+     * @return the timer that is shared by all the clients in the JVM
+     */
+    @Nonnull
+    public static HashedWheelTimer getShared() {
+        return SharedHolder.INSTANCE;
+    }
+
+    /**
+     * Schedules a task to run once after the delay
+     *
+     * @param task the task to run
+     * @param delay the delay before running the task
+     * @param unit the unit of the delay
+     *
+     * @return the handle to cancel the task
+     */
+    @Nonnull
+    public Cancellable schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit) {
+        return enqueue(task, unit.toNanos(Math.max(delay, 0L)), 0L);
+    }
+
+    /**
+     * Schedules a task to run once after the delay, on the executor rather than on the worker thread
+     *
+     * @param task the task to run
+     * @param delay the delay before running the task
+     * @param unit the unit of the delay
+     * @param executor the executor to hand the task off to
+     *
+     * @return the handle to cancel the task
+     */
+    @Nonnull
+    public Cancellable schedule(@Nonnull Runnable task, long delay, @Nonnull TimeUnit unit, @Nonnull Executor executor) {
+        return schedule(new Handoff(task, executor), delay, unit);
+    }
+
+    /**
+     * Schedules a task to run repeatedly, with the delay between the end of a run and the start of the next
+     *
+     * @param task the task to run
+     * @param initialDelay the delay before the first run
+     * @param delay the delay between the end of a run and the start of the next
+     * @param unit the unit of the delays
+     *
+     * @return the handle to cancel the task
+     */
+    @Nonnull
+    public Cancellable scheduleWithFixedDelay(@Nonnull Runnable task, long initialDelay, long delay, @Nonnull TimeUnit unit) {
+        if (delay <= 0L) {
+            throw new IllegalArgumentException("Delay must be positive");    // $NON-NLS-1$
+        }
+        return enqueue(task, unit.toNanos(Math.max(initialDelay, 0L)), unit.toNanos(delay));
+    }
+
+    /**
+     * Schedules a task to run repeatedly on the executor rather than on the worker thread, with the delay between two hand-offs
+     *
+     * @param task the task to run
+     * @param initialDelay the delay before the first run
+     * @param delay the delay between two hand-offs of the task
+     * @param unit the unit of the delays
+     * @param executor the executor to hand the task off to
+     *
+     * @return the handle to cancel the task
+     */
+    @Nonnull
+    public Cancellable scheduleWithFixedDelay(@Nonnull Runnable task, long initialDelay, long delay, @Nonnull TimeUnit unit, @Nonnull Executor executor) {
+        return scheduleWithFixedDelay(new Handoff(task, executor), initialDelay, delay, unit);
+    }
+
+    /**
+     * Returns the count of the slots of the wheel
+     */
+    public int getTicksPerWheel() {
+        return wheel.length;
+    }
+
+    /**
+     * Stops the worker thread, the pending tasks never run
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            if (state == STATE_CLOSED) {
+                return;
+            }
+            state = STATE_CLOSED;
+            thread = worker;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Nonnull
+    private Task enqueue(@Nonnull Runnable action, long delayNanos, long periodNanos) {
+        if (state != STATE_STARTED) {
+            start();
+        }
+        Task task = new Task(action, System.nanoTime() - startNanos + delayNanos, periodNanos);
+        additions.add(task);
+        long wakeup = wakeupDeadline;
+        if (wakeup != AWAKE && task.deadline < wakeup) {
+            LockSupport.unpark(worker);
+        }
+        return task;
+    }
+
+    private synchronized void start() {
+        if (state == STATE_CLOSED) {
+            throw new IllegalStateException("Timer is closed");    // $NON-NLS-1$
+        }
+        if (state == STATE_INIT) {
+            startNanos = System.nanoTime();
+            worker = new Thread(this::work, threadName);
+            worker.setDaemon(true);
+            state = STATE_STARTED;
+            worker.start();
+        }
+    }
+
+    private void work() {
+        long tick = 0L;
+        while (state == STATE_STARTED) {
+            removeCancelled();
+            long now = System.nanoTime() - startNanos, current = now / tickNanos;
+            long next = nextOccupiedTick(tick);
+            tick = (next < 0L) ? Math.max(tick, current) : Math.min(Math.max(tick, current), next);
+            transferAdded(tick);
+            next = nextOccupiedTick(tick);
+            if (next >= 0L && next < current) {
+                expire(next);
+                tick = next + 1L;
+                continue;
+            }
+            wakeupDeadline = (next < 0L) ? Long.MAX_VALUE : (next + 1L) * tickNanos;
+            if (!additions.isEmpty() || state != STATE_STARTED) {
+                wakeupDeadline = AWAKE;
+                continue;
+            }
+            if (next < 0L) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, (next + 1L) * tickNanos - now);
+            }
+            wakeupDeadline = AWAKE;
+        }
+        for (Slot slot : wheel) {
+            slot.clear();
+        }
+        additions.clear();
+        cancellations.clear();
+    }
+
+    private long nextOccupiedTick(long tick) {
+        for (int i = 0; i < wheel.length; i++) {
+            if (wheel[(int) ((tick + i) & mask)].head != null) {
+                return tick + i;
+            }
+        }
+        return -1L;
+    }
+
+    private void transferAdded(long tick) {
+        for (Task task = additions.poll(); task != null; task = additions.poll()) {
+            if (task.state == Task.WAITING) {
+                place(task, tick);
+            }
+        }
+    }
+
+    private void place(@Nonnull Task task, long tick) {
+        long calculated = task.deadline / tickNanos;
+        task.remainingRounds = Math.max(calculated - tick, 0L) / wheel.length;
+        wheel[(int) (Math.max(calculated, tick) & mask)].add(task);
+    }
+
+    private void removeCancelled() {
+        for (Task task = cancellations.poll(); task != null; task = cancellations.poll()) {
+            if (task.slot != null) {
+                task.slot.remove(task);
+            }
+        }
+    }
+
+    private void expire(long tick) {
+        Slot slot = wheel[(int) (tick & mask)];
+        Task task = slot.detach();
+        while (task != null) {
+            Task next = task.next;
+            task.prev = task.next = null;
+            if (task.state == Task.WAITING) {
+                if (task.remainingRounds > 0L) {
+                    task.remainingRounds--;
+                    slot.add(task);
+                } else {
+                    run(task, tick + 1L);
+                }
+            }
+            task = next;
+        }
+    }
+
+    private void run(@Nonnull Task task, long tick) {
+        if (task.periodNanos <= 0L && !Task.STATE.compareAndSet(task, Task.WAITING, Task.EXPIRED)) {
+            return;
+        }
+        try {
+            task.action.run();
+        } catch (Throwable ex) {
+            if (log.isWarnEnabled()) {
+                log.warn("Timer task {} failed", task.action, ex);    // $NON-NLS-1$
+            }
+        }
+        if (task.periodNanos > 0L && task.state == Task.WAITING) {
+            task.deadline = System.nanoTime() - startNanos + task.periodNanos;
+            place(task, tick);
+        }
+    }
+
+
+    private static final class SharedHolder {
+        private static final HashedWheelTimer INSTANCE = new HashedWheelTimer();
+    }
+
+
+    /**
+     * Task that hands an action off to an executor
+     */
+    private static final class Handoff implements Runnable {
+        private final Runnable action;
+        private final Executor executor;
+
+        private Handoff(@Nonnull Runnable action, @Nonnull Executor executor) {
+            this.action = action;
+            this.executor = executor;
+        }
+
+        @Override
+        public void run() {
+            executor.execute(action);
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(action);
+        }
+    }
+
+
+    private static final class Slot {
+        private Task head;
+        private Task tail;
+
+        private void add(@Nonnull Task task) {
+            task.slot = this;
+            if (head == null) {
+                head = tail = task;
+            } else {
+                tail.next = task;
+                task.prev = tail;
+                tail = task;
+            }
+        }
+
+        private void remove(@Nonnull Task task) {
+            if (task.slot != this) {
+                return;
+            }
+            if (task.prev == null) {
+                head = task.next;
+            } else {
+                task.prev.next = task.next;
+            }
+            if (task.next == null) {
+                tail = task.prev;
+            } else {
+                task.next.prev = task.prev;
+            }
+            task.prev = task.next = null;
+            task.slot = null;
+        }
+
+        private Task detach() {
+            Task first = head;
+            for (Task task = first; task != null; task = task.next) {
+                task.slot = null;
+            }
+            head = tail = null;
+            return first;
+        }
+
+        private void clear() {
+            head = tail = null;
+        }
+    }
+
+
+    private final class Task implements Cancellable {
+        private static final int WAITING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private static final AtomicIntegerFieldUpdater<Task> STATE = AtomicIntegerFieldUpdater.newUpdater(Task.class, "state");    // $NON-NLS-1$
+
+        private final Runnable action;
+        private final long periodNanos;
+        private long deadline;
+        private long remainingRounds;
+        private Slot slot;
+        private Task prev;
+        private Task next;
+        private volatile int state = WAITING;
+
+        private Task(@Nonnull Runnable action, long deadline, long periodNanos) {
+            this.action = action;
+            this.deadline = deadline;
+            this.periodNanos = periodNanos;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!STATE.compareAndSet(this, WAITING, CANCELLED)) {
+                return false;
+            }
+            cancellations.add(this);
+            return true;
+        }
+    }
+}
@@ -17,13 +17,43 @@
 package com.yookue.springstarter.httpclient.util;
 
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+import jakarta.annotation.Nonnull;
 import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.auth.CredentialsProvider;
+import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.cookie.CookieStore;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.routing.HttpRoutePlanner;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.apache.hc.core5.reactor.IOReactorConfig;
 import org.apache.hc.core5.util.TimeValue;
 import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.CollectionUtils;
+import com.yookue.springstarter.httpclient.connect.RouteConfigResolver;
+import com.yookue.springstarter.httpclient.cookie.IndexedCookieStore;
+import com.yookue.springstarter.httpclient.pool.ConnectionEvictor;
+import com.yookue.springstarter.httpclient.pool.LeaseAdmissionControl;
+import com.yookue.springstarter.httpclient.pool.PriorityLeaseGate;
 import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import com.yookue.springstarter.httpclient.route.ProxyPoolRoutePlanner;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
 
 
 /**
@@ -34,6 +64,8 @@ import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties
  */
 @SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
 public abstract class AbstractHttpClientBuilderUtils {
+    private static final boolean FLIGHT_RECORDER_PRESENT = ClassUtils.isPresent("jdk.jfr.Event", AbstractHttpClientBuilderUtils.class.getClassLoader());    // $NON-NLS-1$
+
     @Nullable
     public static RequestConfig buildRequestConfig(@Nullable AbstractHttpClientProperties.DefaultRequestConfig properties) {
         if (properties == null || BooleanUtils.isFalse(properties.getEnabled())) {
@@ -65,4 +97,449 @@ public abstract class AbstractHttpClientBuilderUtils {
         builder.setHardCancellationEnabled(BooleanUtils.isTrue(properties.getHardCancellationEnabled()));
         return builder.build();
     }
+
+    /**
+     * Returns the resolver of the socket configs for the connection pool that the starter builds
+     *
+     * @param properties the socket properties of the client
+     *
+     * @return the resolver of the socket configs, or {@code null} if no socket option is specified
+     */
+    @Nullable
+    public static RouteConfigResolver<SocketConfig> buildSocketConfigResolver(@Nullable AbstractHttpClientProperties.Socket properties) {
+        if (properties == null) {
+            return null;
+        }
+        SocketConfig.Builder builder = SocketConfig.custom();
+        boolean specified = applySocketOptions(builder, properties);
+        RouteConfigResolver<SocketConfig> resolver = new RouteConfigResolver<>(builder.build());
+        if (!CollectionUtils.isEmpty(properties.getRoutes())) {
+            for (AbstractHttpClientProperties.SocketRoute route : properties.getRoutes()) {
+                SocketConfig.Builder routeBuilder = SocketConfig.copy(resolver.getDefaultConfig());
+                if (route != null && applySocketOptions(routeBuilder, route)) {
+                    resolver.addRoute(route.getHosts(), routeBuilder.build());
+                    specified = true;
+                }
+            }
+        }
+        return specified ? resolver : null;
+    }
+
+    /**
+     * Returns the resolver of the connection configs for the connection pool that the starter builds
+     *
+     * @param properties the connection properties of the client
+     *
+     * @return the resolver of the connection configs, or {@code null} if no connection option is specified
+     */
+    @Nullable
+    public static RouteConfigResolver<ConnectionConfig> buildConnectionConfigResolver(@Nullable AbstractHttpClientProperties.Connection properties) {
+        if (properties == null) {
+            return null;
+        }
+        ConnectionConfig.Builder builder = ConnectionConfig.custom();
+        boolean specified = applyConnectionOptions(builder, properties);
+        RouteConfigResolver<ConnectionConfig> resolver = new RouteConfigResolver<>(builder.build());
+        if (!CollectionUtils.isEmpty(properties.getRoutes())) {
+            for (AbstractHttpClientProperties.ConnectionRoute route : properties.getRoutes()) {
+                ConnectionConfig.Builder routeBuilder = ConnectionConfig.copy(resolver.getDefaultConfig());
+                if (route != null && applyConnectionOptions(routeBuilder, route)) {
+                    resolver.addRoute(route.getHosts(), routeBuilder.build());
+                    specified = true;
+                }
+            }
+        }
+        return specified ? resolver : null;
+    }
+
+    /**
+     * Returns the I/O reactor config of the async client with the given socket options
+     *
+     * @param properties the socket properties of the client
+     *
+     * @return the I/O reactor config, or {@code null} if no socket option is specified
+     */
+    @Nullable
+    public static IOReactorConfig buildIOReactorConfig(@Nullable AbstractHttpClientProperties.SocketOptions properties) {
+        if (properties == null) {
+            return null;
+        }
+        IOReactorConfig.Builder builder = IOReactorConfig.custom();
+        boolean specified = false;
+        if (properties.getTcpNoDelay() != null) {
+            builder.setTcpNoDelay(properties.getTcpNoDelay());
+            specified = true;
+        }
+        if (properties.getSoKeepAlive() != null) {
+            builder.setSoKeepAlive(properties.getSoKeepAlive());
+            specified = true;
+        }
+        if (properties.getSoReuseAddress() != null) {
+            builder.setSoReuseAddress(properties.getSoReuseAddress());
+            specified = true;
+        }
+        if (properties.getSendBufferSize() != null) {
+            builder.setSndBufSize(properties.getSendBufferSize());
+            specified = true;
+        }
+        if (properties.getReceiveBufferSize() != null) {
+            builder.setRcvBufSize(properties.getReceiveBufferSize());
+            specified = true;
+        }
+        if (properties.getSoLinger() != null) {
+            builder.setSoLinger(TimeValue.ofSeconds(properties.getSoLinger().toSeconds()));
+            specified = true;
+        }
+        if (properties.getSoTimeout() != null) {
+            builder.setSoTimeout(Timeout.ofMilliseconds(properties.getSoTimeout().toMillis()));
+            specified = true;
+        }
+        return specified ? builder.build() : null;
+    }
+
+    /**
+     * Returns the component of the given slot, either the bean referenced by {@code componentBeans}, or a new instance of the given type
+     *
+     * @param properties the properties of the client
+     * @param beanFactory the bean factory to look up the referenced bean
+     * @param slot the slot name, which is the property name of the component
+     * @param type the type to instantiate if no bean is referenced
+     * @param requiredType the type that the component must match
+     *
+     * @return the component of the given slot, or {@code null} if neither a bean nor a type is specified
+     */
+    @Nullable
+    public static <T> T resolveComponent(@Nonnull AbstractHttpClientProperties properties, @Nullable BeanFactory beanFactory, @Nonnull String slot, @Nullable Class<? extends T> type, @Nonnull Class<T> requiredType) throws BeansException {
+        String beanName = componentBeanName(properties, slot);
+        if (StringUtils.isNotBlank(beanName)) {
+            return getComponentBean(beanFactory, slot, beanName, requiredType);
+        }
+        return (type == null) ? null : BeanUtils.instantiateClass(type);
+    }
+
+    /**
+     * Returns the cookie store of the client, the bean referenced by {@code componentBeans} first, then a new instance of the configured type
+     * <p>
+     * An {@link com.yookue.springstarter.httpclient.cookie.IndexedCookieStore} is swept by the timer of {@link #resolveTimer(BeanFactory)}.
+     *
+     * @param properties the properties of the client
+     * @param beanFactory the bean factory to look up the referenced bean and the timer
+     *
+     * @return the cookie store of the client, or {@code null} if neither a bean nor a type is specified
+     */
+    @Nullable
+    public static CookieStore resolveCookieStore(@Nonnull AbstractHttpClientProperties properties, @Nullable BeanFactory beanFactory) throws BeansException {
+        if (properties.getCookieStore() == IndexedCookieStore.class && StringUtils.isBlank(componentBeanName(properties, "cookieStore"))) {    // $NON-NLS-1$
+            return new IndexedCookieStore(IndexedCookieStore.DEFAULT_SWEEP_INTERVAL, resolveTimer(beanFactory), null);
+        }
+        return resolveComponent(properties, beanFactory, "cookieStore", properties.getCookieStore(), CookieStore.class);    // $NON-NLS-1$
+    }
+
+    /**
+     * Returns the timer of the components that the starter builds
+     *
+     * @param beanFactory the bean factory to look up the timer
+     *
+     * @return the unique timer bean, or {@link com.yookue.springstarter.httpclient.timer.HashedWheelTimer#getShared()} outside of Spring
+     */
+    @Nonnull
+    public static HashedWheelTimer resolveTimer(@Nullable BeanFactory beanFactory) {
+        return (beanFactory == null) ? HashedWheelTimer.getShared() : beanFactory.getBeanProvider(HashedWheelTimer.class).getIfUnique(HashedWheelTimer::getShared);
+    }
+
+    /**
+     * Returns the components of the given list slot, the beans referenced by {@code componentBeans} first, then new instances of the given types
+     *
+     * @param properties the properties of the client
+     * @param beanFactory the bean factory to look up the referenced beans
+     * @param slot the slot name, which is the property name of the components
+     * @param types the types to instantiate
+     * @param requiredType the type that the components must match
+     *
+     * @return the components of the given slot, the beans are referenced by comma separated names, such as {@code request-interceptors: fooInterceptor,barInterceptor}
+     */
+    @Nonnull
+    public static <T> List<T> resolveComponents(@Nonnull AbstractHttpClientProperties properties, @Nullable BeanFactory beanFactory, @Nonnull String slot, @Nullable List<Class<? extends T>> types, @Nonnull Class<T> requiredType) throws BeansException {
+        List<T> components = new ArrayList<>();
+        String beanNames = componentBeanName(properties, slot);
+        if (StringUtils.isNotBlank(beanNames)) {
+            for (String beanName : StringUtils.split(beanNames, ',')) {
+                if (StringUtils.isNotBlank(beanName)) {
+                    components.add(getComponentBean(beanFactory, slot, StringUtils.trim(beanName), requiredType));
+                }
+            }
+        }
+        if (!CollectionUtils.isEmpty(types)) {
+            for (Class<? extends T> type : types) {
+                if (type != null) {
+                    components.add(BeanUtils.instantiateClass(type));
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Returns the components of the given map slot, the beans referenced by {@code componentBeans} take precedence over new instances of the given types
+     *
+     * @param properties the properties of the client
+     * @param beanFactory the bean factory to look up the referenced beans
+     * @param slot the slot name, which is the property name of the components
+     * @param types the types to instantiate, keyed by name
+     * @param requiredType the type that the components must match
+     *
+     * @return the components of the given slot keyed by name, the beans are referenced by {@code <slot>.<name>}, such as {@code auth-scheme-factories.basic: myBasicSchemeFactory}
+     */
+    @Nonnull
+    public static <T> Map<String, T> resolveNamedComponents(@Nonnull AbstractHttpClientProperties properties, @Nullable BeanFactory beanFactory, @Nonnull String slot, @Nullable Map<String, Class<? extends T>> types, @Nonnull Class<T> requiredType) throws BeansException {
+        Map<String, T> components = new LinkedHashMap<>();
+        if (!CollectionUtils.isEmpty(types)) {
+            for (Map.Entry<String, Class<? extends T>> entry : types.entrySet()) {
+                if (StringUtils.isNotBlank(entry.getKey()) && entry.getValue() != null) {
+                    components.put(entry.getKey(), BeanUtils.instantiateClass(entry.getValue()));
+                }
+            }
+        }
+        if (!CollectionUtils.isEmpty(properties.getComponentBeans())) {
+            for (Map.Entry<String, String> entry : properties.getComponentBeans().entrySet()) {
+                String name = StringUtils.substringAfter(entry.getKey(), '.');
+                if (StringUtils.isNotBlank(name) && StringUtils.isNotBlank(entry.getValue()) && isSlotName(StringUtils.substringBefore(entry.getKey(), '.'), slot)) {
+                    components.put(name, getComponentBean(beanFactory, slot, entry.getValue(), requiredType));
+                }
+            }
+        }
+        return components;
+    }
+
+    @Nullable
+    public static String componentBeanName(@Nonnull AbstractHttpClientProperties properties, @Nonnull String slot) {
+        if (CollectionUtils.isEmpty(properties.getComponentBeans())) {
+            return null;
+        }
+        for (Map.Entry<String, String> entry : properties.getComponentBeans().entrySet()) {
+            if (isSlotName(entry.getKey(), slot)) {
+                return entry.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static boolean isSlotName(@Nullable String key, @Nonnull String slot) {
+        return StringUtils.equalsIgnoreCase(StringUtils.remove(key, '-'), slot);
+    }
+
+    @Nonnull
+    private static <T> T getComponentBean(@Nullable BeanFactory beanFactory, @Nonnull String slot, @Nonnull String beanName, @Nonnull Class<T> requiredType) throws BeansException {
+        if (beanFactory == null) {
+            throw new IllegalStateException(String.format("Component '%s' references bean '%s', but there is no bean factory", slot, beanName));    // $NON-NLS-1$
+        }
+        return beanFactory.getBean(beanName, requiredType);
+    }
+
+    /**
+     * Returns the connection manager as the control of its pool
+     *
+     * @param connectionManager the connection manager of the client
+     *
+     * @return the control of the pool, or {@code null} if the connection manager does not expose its pool
+     */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public static ConnPoolControl<HttpRoute> getPoolControl(@Nullable Object connectionManager) {
+        return (connectionManager instanceof ConnPoolControl<?> poolControl) ? (ConnPoolControl<HttpRoute>) poolControl : null;
+    }
+
+    /**
+     * Registers the connection pool of the client with the {@link com.yookue.springstarter.httpclient.pool.ConnectionEvictor} bean, instead of starting an evictor thread for the client
+     *
+     * @param properties the properties of the client
+     * @param connectionManager the connection manager of the client
+     * @param beanFactory the bean factory to look up the evictor
+     *
+     * @return whether the eviction is handled by the evictor, otherwise the client should evict the connections by itself
+     */
+    public static boolean registerEviction(@Nonnull AbstractHttpClientProperties properties, @Nullable Object connectionManager, @Nullable BeanFactory beanFactory) {
+        ConnPoolControl<HttpRoute> pool = getPoolControl(connectionManager);
+        ConnectionEvictor evictor = (pool == null || beanFactory == null) ? null : beanFactory.getBeanProvider(ConnectionEvictor.class).getIfAvailable();
+        if (evictor == null) {
+            return false;
+        }
+        boolean expired = BooleanUtils.isTrue(properties.getEvictExpiredConnections());
+        TimeValue maxIdleTime = (BooleanUtils.isTrue(properties.getEvictIdleConnections()) && properties.getMaxIdleTime() != null) ? TimeValue.ofMilliseconds(properties.getMaxIdleTime().toMillis()) : null;
+        if (expired || maxIdleTime != null) {
+            evictor.register(pool, maxIdleTime);
+        } else {
+            evictor.unregister(pool);
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the flight recorder events should be emitted for the given client
+     *
+     * @param properties the properties of the client
+     *
+     * @return whether the flight recorder events should be emitted for the given client
+     */
+    public static boolean isFlightRecorderEnabled(@Nonnull AbstractHttpClientProperties properties) {
+        return FLIGHT_RECORDER_PRESENT && BooleanUtils.isNotFalse(properties.getFlightRecorderEnabled());
+    }
+
+    /**
+     * Returns whether the connection pool that the starter builds for the given client should race the connects to the resolved addresses
+     *
+     * @param properties the properties of the client
+     *
+     * @return whether the connection pool should race the connects to the resolved addresses
+     */
+    public static boolean isHappyEyeballsEnabled(@Nonnull AbstractHttpClientProperties properties) {
+        return properties.getHappyEyeballs() != null && BooleanUtils.isTrue(properties.getHappyEyeballs().getEnabled());
+    }
+
+    /**
+     * Returns the priority gate of the connection pool that the starter builds for the given client
+     *
+     * @param properties the properties of the client
+     * @param capacity the function that returns the capacity of a route
+     *
+     * @return the priority gate of the connection pool, or {@code null} if the priority lanes are disabled
+     */
+    @Nullable
+    public static PriorityLeaseGate buildPriorityGate(@Nonnull AbstractHttpClientProperties properties, @Nonnull ToIntFunction<HttpRoute> capacity) {
+        return buildPriorityGate(properties, capacity, null);
+    }
+
+    /**
+     * Returns the priority gate of the connection pool that the starter builds for the given client
+     *
+     * @param properties the properties of the client
+     * @param capacity the function that returns the capacity of a route
+     * @param beanFactory the bean factory to look up the timer
+     *
+     * @return the priority gate of the connection pool, or {@code null} if the priority lanes are disabled
+     */
+    @Nullable
+    public static PriorityLeaseGate buildPriorityGate(@Nonnull AbstractHttpClientProperties properties, @Nonnull ToIntFunction<HttpRoute> capacity, @Nullable BeanFactory beanFactory) {
+        AbstractHttpClientProperties.ConnectionPool pool = properties.getConnectionPool();
+        if (pool == null || BooleanUtils.isNotTrue(pool.getPriorityEnabled())) {
+            return null;
+        }
+        return new PriorityLeaseGate(capacity, pool.getDefaultPriority(), (pool.getHighPriorityReservedShare() == null) ? 0.0D : pool.getHighPriorityReservedShare(), resolveTimer(beanFactory), null);
+    }
+
+    /**
+     * Returns the admission control of the connection pool that the starter builds for the given client
+     *
+     * @param properties the properties of the client
+     * @param capacity the function that returns the capacity of a route
+     *
+     * @return the admission control of the connection pool, or {@code null} if neither a queue bound nor a wait limit is specified
+     */
+    @Nullable
+    public static LeaseAdmissionControl buildAdmissionControl(@Nonnull AbstractHttpClientProperties properties, @Nonnull ToIntFunction<HttpRoute> capacity) {
+        AbstractHttpClientProperties.ConnectionPool pool = properties.getConnectionPool();
+        if (pool == null || (pool.getMaxQueuedPerRoute() == null && pool.getMaxEstimatedWait() == null)) {
+            return null;
+        }
+        return new LeaseAdmissionControl(capacity, pool.getMaxQueuedPerRoute(), pool.getMaxEstimatedWait());
+    }
+
+    /**
+     * Returns a dedicated client for the token endpoints of the oauth2 registrations, which shares the proxy, tls, socket and connection settings of the given client
+     * <p>
+     * The dedicated client neither reuses connections nor starts threads, so it needs no closing when the given client is rebuilt
+     *
+     * @param properties the properties of the client
+     * @param beanFactory the bean factory to look up the referenced beans
+     *
+     * @return a dedicated client for the token endpoints
+     */
+    @Nonnull
+    public static CloseableHttpClient buildTokenClient(@Nonnull AbstractHttpClientProperties properties, @Nullable BeanFactory beanFactory) throws BeansException {
+        PoolingHttpClientConnectionManagerBuilder managerBuilder = PoolingHttpClientConnectionManagerBuilder.create();
+        HttpClientBuilder builder = HttpClientBuilder.create();
+        if (BooleanUtils.isTrue(properties.getUseSystemProperties())) {
+            managerBuilder.useSystemProperties();
+            builder.useSystemProperties();
+        }
+        RouteConfigResolver<SocketConfig> socketConfigResolver = buildSocketConfigResolver(properties.getSocket());
+        if (socketConfigResolver != null) {
+            managerBuilder.setSocketConfigResolver(socketConfigResolver);
+        }
+        RouteConfigResolver<ConnectionConfig> connectionConfigResolver = buildConnectionConfigResolver(properties.getConnection());
+        if (connectionConfigResolver != null) {
+            managerBuilder.setConnectionConfigResolver(connectionConfigResolver);
+        }
+        if (StringUtils.isNotBlank(properties.getProxyHost()) && properties.getProxyPort() != null && properties.getProxyPort() > 0) {
+            builder.setProxy(new HttpHost(properties.getProxyHost(), properties.getProxyPort()));
+        }
+        HttpRoutePlanner routePlanner = resolveComponent(properties, beanFactory, "routePlanner", properties.getRoutePlanner(), HttpRoutePlanner.class);    // $NON-NLS-1$
+        if (routePlanner != null) {
+            builder.setRoutePlanner(routePlanner);
+        } else if (properties.getProxyPool() != null && (!CollectionUtils.isEmpty(properties.getProxyPool().getProxies()) || !CollectionUtils.isEmpty(properties.getProxyPool().getRules()))) {
+            builder.setRoutePlanner(new ProxyPoolRoutePlanner(properties.getProxyPool()));
+        }
+        CredentialsProvider credentialsProvider = resolveComponent(properties, beanFactory, "credentialsProvider", properties.getCredentialsProvider(), CredentialsProvider.class);    // $NON-NLS-1$
+        if (credentialsProvider != null) {
+            builder.setDefaultCredentialsProvider(credentialsProvider);
+        }
+        if (StringUtils.isNotBlank(properties.getUserAgent())) {
+            builder.setUserAgent(properties.getUserAgent());
+        }
+        return builder.setConnectionManager(managerBuilder.build()).setConnectionReuseStrategy((request, response, context) -> false).disableCookieManagement().disableAuthCaching().build();
+    }
+
+    private static boolean applySocketOptions(@Nonnull SocketConfig.Builder builder, @Nonnull AbstractHttpClientProperties.SocketOptions properties) {
+        boolean specified = false;
+        if (properties.getTcpNoDelay() != null) {
+            builder.setTcpNoDelay(properties.getTcpNoDelay());
+            specified = true;
+        }
+        if (properties.getSoKeepAlive() != null) {
+            builder.setSoKeepAlive(properties.getSoKeepAlive());
+            specified = true;
+        }
+        if (properties.getSoReuseAddress() != null) {
+            builder.setSoReuseAddress(properties.getSoReuseAddress());
+            specified = true;
+        }
+        if (properties.getSendBufferSize() != null) {
+            builder.setSndBufSize(properties.getSendBufferSize());
+            specified = true;
+        }
+        if (properties.getReceiveBufferSize() != null) {
+            builder.setRcvBufSize(properties.getReceiveBufferSize());
+            specified = true;
+        }
+        if (properties.getSoLinger() != null) {
+            builder.setSoLinger(TimeValue.ofSeconds(properties.getSoLinger().toSeconds()));
+            specified = true;
+        }
+        if (properties.getSoTimeout() != null) {
+            builder.setSoTimeout(Timeout.ofMilliseconds(properties.getSoTimeout().toMillis()));
+            specified = true;
+        }
+        return specified;
+    }
+
+    private static boolean applyConnectionOptions(@Nonnull ConnectionConfig.Builder builder, @Nonnull AbstractHttpClientProperties.ConnectionOptions properties) {
+        boolean specified = false;
+        if (properties.getConnectTimeout() != null) {
+            builder.setConnectTimeout(Timeout.ofMilliseconds(properties.getConnectTimeout().toMillis()));
+            specified = true;
+        }
+        if (properties.getSocketTimeout() != null) {
+            builder.setSocketTimeout(Timeout.ofMilliseconds(properties.getSocketTimeout().toMillis()));
+            specified = true;
+        }
+        if (properties.getValidateAfterInactivity() != null) {
+            builder.setValidateAfterInactivity(TimeValue.ofMilliseconds(properties.getValidateAfterInactivity().toMillis()));
+            specified = true;
+        }
+        if (properties.getTimeToLive() != null) {
+            builder.setTimeToLive(TimeValue.ofMilliseconds(properties.getTimeToLive().toMillis()));
+            specified = true;
+        }
+        return specified;
+    }
 }
@@ -18,28 +18,72 @@ package com.yookue.springstarter.httpclient.util;
 
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ThreadFactory;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.AuthenticationStrategy;
+import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.UserTokenHandler;
 import org.apache.hc.client5.http.async.AsyncExecChainHandler;
 import org.apache.hc.client5.http.auth.AuthSchemeFactory;
+import org.apache.hc.client5.http.auth.CredentialsProvider;
+import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.cookie.CookieSpecFactory;
+import org.apache.hc.client5.http.cookie.CookieStore;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
 import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManager;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionManager;
+import org.apache.hc.client5.http.nio.AsyncClientConnectionOperator;
+import org.apache.hc.client5.http.protocol.RedirectStrategy;
+import org.apache.hc.client5.http.routing.HttpRoutePlanner;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.core5.http.ConnectionReuseStrategy;
 import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.HttpRequestInterceptor;
 import org.apache.hc.core5.http.HttpResponseInterceptor;
+import org.apache.hc.core5.http.config.CharCodingConfig;
+import org.apache.hc.core5.http.config.Http1Config;
 import org.apache.hc.core5.http.config.LookupRegistryUtils;
 import org.apache.hc.core5.http.message.BasicHeader;
+import org.apache.hc.core5.http.nio.ssl.TlsStrategy;
+import org.apache.hc.core5.http2.config.H2Config;
+import org.apache.hc.core5.reactor.IOReactorConfig;
 import org.apache.hc.core5.util.TimeValue;
-import org.springframework.beans.BeanInstantiationException;
-import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.util.CollectionUtils;
+import com.yookue.springstarter.httpclient.connect.HappyEyeballsAsyncConnectionOperator;
+import com.yookue.springstarter.httpclient.connect.RouteConfigResolver;
+import com.yookue.springstarter.httpclient.customizer.AsyncHttpClientBuilderCustomizer;
+import com.yookue.springstarter.httpclient.jfr.FlightRecorderAsyncExecHandler;
+import com.yookue.springstarter.httpclient.jfr.FlightRecorderDnsResolver;
+import com.yookue.springstarter.httpclient.jfr.FlightRecorderPoolListener;
+import com.yookue.springstarter.httpclient.jfr.FlightRecorderTlsStrategy;
+import com.yookue.springstarter.httpclient.oauth2.OAuth2AsyncExecHandler;
+import com.yookue.springstarter.httpclient.oauth2.OAuth2TokenManager;
+import com.yookue.springstarter.httpclient.pool.LeasePriorityAsyncExecHandler;
+import com.yookue.springstarter.httpclient.pool.MonitoredAsyncClientConnectionManager;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
 import com.yookue.springstarter.httpclient.property.AsyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.route.ProxyPoolAsyncExecHandler;
+import com.yookue.springstarter.httpclient.route.ProxyPoolRoutePlanner;
+import com.yookue.springstarter.httpclient.route.RouteOverrideAsyncExecHandler;
+import com.yookue.springstarter.httpclient.route.RouteOverrideRetryStrategy;
+import com.yookue.springstarter.httpclient.route.RouteOverrides;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
 
 
 /**
@@ -51,7 +95,80 @@ import com.yookue.springstarter.httpclient.property.AsyncHttpClientProperties;
 @SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue", "DuplicatedCode"})
 public abstract class AsyncHttpClientBuilderUtils {
     @Nonnull
-    public static HttpAsyncClientBuilder clientBuilder(@Nonnull AsyncHttpClientProperties properties) throws BeanInstantiationException {
+    public static PoolingAsyncClientConnectionManagerBuilder connectionManagerBuilder(@Nonnull AsyncHttpClientProperties properties) throws BeansException {
+        return connectionManagerBuilder(properties, null);
+    }
+
+    @Nonnull
+    public static PoolingAsyncClientConnectionManagerBuilder connectionManagerBuilder(@Nonnull AsyncHttpClientProperties properties, @Nullable BeanFactory beanFactory) throws BeansException {
+        return connectionManagerBuilder(properties, beanFactory, AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "schemePortResolver", properties.getSchemePortResolver(), SchemePortResolver.class));    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    public static PoolingAsyncClientConnectionManagerBuilder connectionManagerBuilder(@Nonnull AsyncHttpClientProperties properties, @Nullable BeanFactory beanFactory, @Nullable SchemePortResolver schemePortResolver) throws BeansException {
+        PoolingAsyncClientConnectionManagerBuilder builder = AbstractHttpClientBuilderUtils.isHappyEyeballsEnabled(properties) ? happyEyeballsBuilder(properties.getHappyEyeballs(), AbstractHttpClientBuilderUtils.resolveTimer(beanFactory)) : PoolingAsyncClientConnectionManagerBuilder.create();
+        if (BooleanUtils.isTrue(properties.getUseSystemProperties())) {
+            builder.useSystemProperties();
+        }
+        if (schemePortResolver != null) {
+            builder.setSchemePortResolver(schemePortResolver);
+        }
+        AbstractHttpClientProperties.ConnectionPool pool = properties.getConnectionPool();
+        if (pool.getMaxTotal() != null && pool.getMaxTotal() > 0) {
+            builder.setMaxConnTotal(pool.getMaxTotal());
+        }
+        if (pool.getMaxPerRoute() != null && pool.getMaxPerRoute() > 0) {
+            builder.setMaxConnPerRoute(pool.getMaxPerRoute());
+        }
+        if (pool.getConcurrencyPolicy() != null) {
+            builder.setPoolConcurrencyPolicy(pool.getConcurrencyPolicy());
+        }
+        if (pool.getReusePolicy() != null) {
+            builder.setConnPoolPolicy(pool.getReusePolicy());
+        }
+        RouteConfigResolver<ConnectionConfig> connectionConfigResolver = AbstractHttpClientBuilderUtils.buildConnectionConfigResolver(properties.getConnection());
+        if (connectionConfigResolver != null) {
+            builder.setConnectionConfigResolver(connectionConfigResolver);
+        }
+        if (AbstractHttpClientBuilderUtils.isFlightRecorderEnabled(properties)) {
+            builder.setDnsResolver(new FlightRecorderDnsResolver(SystemDefaultDnsResolver.INSTANCE));
+            builder.setTlsStrategy(new FlightRecorderTlsStrategy(BooleanUtils.isTrue(properties.getUseSystemProperties()) ? DefaultClientTlsStrategy.createSystemDefault() : DefaultClientTlsStrategy.createDefault()));
+        }
+        return builder;
+    }
+
+    @Nonnull
+    public static AsyncClientConnectionManager connectionManager(@Nonnull AsyncHttpClientProperties properties) throws BeansException {
+        return connectionManager(properties, null);
+    }
+
+    @Nonnull
+    public static AsyncClientConnectionManager connectionManager(@Nonnull AsyncHttpClientProperties properties, @Nullable BeanFactory beanFactory) throws BeansException {
+        AsyncClientConnectionManager connectionManager = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "connectionManager", properties.getConnectionManager(), AsyncClientConnectionManager.class);    // $NON-NLS-1$
+        if (connectionManager != null) {
+            return connectionManager;
+        }
+        SchemePortResolver schemePortResolver = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "schemePortResolver", properties.getSchemePortResolver(), SchemePortResolver.class);    // $NON-NLS-1$
+        PoolingAsyncClientConnectionManager delegate = connectionManagerBuilder(properties, beanFactory, schemePortResolver).build();
+        MonitoredAsyncClientConnectionManager monitoredManager = new MonitoredAsyncClientConnectionManager(delegate, AbstractHttpClientBuilderUtils.buildPriorityGate(properties, delegate::getMaxPerRoute, beanFactory), AbstractHttpClientBuilderUtils.buildAdmissionControl(properties, delegate::getMaxPerRoute), schemePortResolver);
+        if (AbstractHttpClientBuilderUtils.isFlightRecorderEnabled(properties)) {
+            monitoredManager.addListener(new FlightRecorderPoolListener());
+        }
+        return monitoredManager;
+    }
+
+    @Nonnull
+    public static HttpAsyncClientBuilder clientBuilder(@Nonnull AsyncHttpClientProperties properties) throws BeansException {
+        return clientBuilder(properties, connectionManager(properties));
+    }
+
+    @Nonnull
+    public static HttpAsyncClientBuilder clientBuilder(@Nonnull AsyncHttpClientProperties properties, @Nullable AsyncClientConnectionManager connectionManager) throws BeansException {
+        return clientBuilder(properties, connectionManager, null);
+    }
+
+    @Nonnull
+    public static HttpAsyncClientBuilder clientBuilder(@Nonnull AsyncHttpClientProperties properties, @Nullable AsyncClientConnectionManager connectionManager, @Nullable BeanFactory beanFactory) throws BeansException {
         HttpAsyncClientBuilder builder = HttpAsyncClientBuilder.create();
         if (StringUtils.isNotBlank(properties.getProxyHost()) && properties.getProxyPort() != null && properties.getProxyPort() > 0) {
             builder.setProxy(new HttpHost(properties.getProxyHost(), properties.getProxyPort()));
@@ -69,11 +186,13 @@ public abstract class AsyncHttpClientBuilderUtils {
         if (BooleanUtils.isFalse(properties.getCookieManagementEnabled())) {
             builder.disableCookieManagement();
         }
-        if (BooleanUtils.isTrue(properties.getEvictExpiredConnections())) {
-            builder.evictExpiredConnections();
-        }
-        if (BooleanUtils.isTrue(properties.getEvictIdleConnections()) && properties.getMaxIdleTime() != null) {
-            builder.evictIdleConnections(TimeValue.ofMilliseconds(properties.getMaxIdleTime().toMillis()));
+        if (!AbstractHttpClientBuilderUtils.registerEviction(properties, connectionManager, beanFactory)) {
+            if (BooleanUtils.isTrue(properties.getEvictExpiredConnections())) {
+                builder.evictExpiredConnections();
+            }
+            if (BooleanUtils.isTrue(properties.getEvictIdleConnections()) && properties.getMaxIdleTime() != null) {
+                builder.evictIdleConnections(TimeValue.ofMilliseconds(properties.getMaxIdleTime().toMillis()));
+            }
         }
         if (BooleanUtils.isFalse(properties.getRedirectHandlingEnabled())) {
             builder.disableRedirectHandling();
@@ -81,67 +200,67 @@ public abstract class AsyncHttpClientBuilderUtils {
         if (BooleanUtils.isTrue(properties.getUseSystemProperties())) {
             builder.useSystemProperties();
         }
-        if (properties.getRoutePlanner() != null) {
-            builder.setRoutePlanner(BeanUtils.instantiateClass(properties.getRoutePlanner()));
+        HttpRoutePlanner routePlanner = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "routePlanner", properties.getRoutePlanner(), HttpRoutePlanner.class);    // $NON-NLS-1$
+        if (routePlanner != null) {
+            builder.setRoutePlanner(routePlanner);
+        } else if (properties.getProxyPool() != null && (!CollectionUtils.isEmpty(properties.getProxyPool().getProxies()) || !CollectionUtils.isEmpty(properties.getProxyPool().getRules()))) {
+            ProxyPoolRoutePlanner proxyPoolRoutePlanner = new ProxyPoolRoutePlanner(properties.getProxyPool());
+            builder.setRoutePlanner(proxyPoolRoutePlanner);
+            builder.addExecInterceptorBefore(ChainElement.CONNECT.name(), ProxyPoolAsyncExecHandler.HANDLER_NAME, new ProxyPoolAsyncExecHandler(proxyPoolRoutePlanner));
         }
-        if (properties.getCookieStore() != null) {
-            builder.setDefaultCookieStore(BeanUtils.instantiateClass(properties.getCookieStore()));
+        CookieStore cookieStore = AbstractHttpClientBuilderUtils.resolveCookieStore(properties, beanFactory);
+        if (cookieStore != null) {
+            builder.setDefaultCookieStore(cookieStore);
         }
-        if (properties.getKeepAliveStrategy() != null) {
-            builder.setKeepAliveStrategy(BeanUtils.instantiateClass(properties.getKeepAliveStrategy()));
+        ConnectionKeepAliveStrategy keepAliveStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "keepAliveStrategy", properties.getKeepAliveStrategy(), ConnectionKeepAliveStrategy.class);    // $NON-NLS-1$
+        if (keepAliveStrategy != null) {
+            builder.setKeepAliveStrategy(keepAliveStrategy);
         }
-        if (properties.getReuseStrategy() != null) {
-            builder.setConnectionReuseStrategy(BeanUtils.instantiateClass(properties.getReuseStrategy()));
+        ConnectionReuseStrategy reuseStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "reuseStrategy", properties.getReuseStrategy(), ConnectionReuseStrategy.class);    // $NON-NLS-1$
+        if (reuseStrategy != null) {
+            builder.setConnectionReuseStrategy(reuseStrategy);
         }
-        if (properties.getProxyAuthStrategy() != null) {
-            builder.setProxyAuthenticationStrategy(BeanUtils.instantiateClass(properties.getProxyAuthStrategy()));
+        AuthenticationStrategy proxyAuthStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "proxyAuthStrategy", properties.getProxyAuthStrategy(), AuthenticationStrategy.class);    // $NON-NLS-1$
+        if (proxyAuthStrategy != null) {
+            builder.setProxyAuthenticationStrategy(proxyAuthStrategy);
         }
-        if (properties.getTargetAuthStrategy() != null) {
-            builder.setTargetAuthenticationStrategy(BeanUtils.instantiateClass(properties.getTargetAuthStrategy()));
+        AuthenticationStrategy targetAuthStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "targetAuthStrategy", properties.getTargetAuthStrategy(), AuthenticationStrategy.class);    // $NON-NLS-1$
+        if (targetAuthStrategy != null) {
+            builder.setTargetAuthenticationStrategy(targetAuthStrategy);
         }
-        if (properties.getRedirectStrategy() != null) {
-            builder.setRedirectStrategy(BeanUtils.instantiateClass(properties.getRedirectStrategy()));
+        RedirectStrategy redirectStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "redirectStrategy", properties.getRedirectStrategy(), RedirectStrategy.class);    // $NON-NLS-1$
+        if (redirectStrategy != null) {
+            builder.setRedirectStrategy(redirectStrategy);
         }
-        if (properties.getCredentialsProvider() != null) {
-            builder.setDefaultCredentialsProvider(BeanUtils.instantiateClass(properties.getCredentialsProvider()));
+        CredentialsProvider credentialsProvider = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "credentialsProvider", properties.getCredentialsProvider(), CredentialsProvider.class);    // $NON-NLS-1$
+        if (credentialsProvider != null) {
+            builder.setDefaultCredentialsProvider(credentialsProvider);
         }
-        if (properties.getSchemePortResolver() != null) {
-            builder.setSchemePortResolver(BeanUtils.instantiateClass(properties.getSchemePortResolver()));
+        SchemePortResolver schemePortResolver = (connectionManager instanceof MonitoredAsyncClientConnectionManager monitoredManager && monitoredManager.getSchemePortResolver() != null) ? monitoredManager.getSchemePortResolver() : AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "schemePortResolver", properties.getSchemePortResolver(), SchemePortResolver.class);    // $NON-NLS-1$
+        if (schemePortResolver != null) {
+            builder.setSchemePortResolver(schemePortResolver);
         }
-        if (properties.getUserTokenHandler() != null) {
-            builder.setUserTokenHandler(BeanUtils.instantiateClass(properties.getUserTokenHandler()));
+        UserTokenHandler userTokenHandler = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "userTokenHandler", properties.getUserTokenHandler(), UserTokenHandler.class);    // $NON-NLS-1$
+        if (userTokenHandler != null) {
+            builder.setUserTokenHandler(userTokenHandler);
         }
-        if (!CollectionUtils.isEmpty(properties.getRequestInterceptors())) {
-            for (Class<? extends HttpRequestInterceptor> interceptor : properties.getRequestInterceptors()) {
-                builder.addRequestInterceptorLast(BeanUtils.instantiateClass(interceptor));
-            }
+        HttpRequestRetryStrategy retryStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "retryStrategy", properties.getRetryStrategy(), HttpRequestRetryStrategy.class);    // $NON-NLS-1$
+        if (retryStrategy != null) {
+            builder.setRetryStrategy(retryStrategy);
         }
-        if (!CollectionUtils.isEmpty(properties.getResponseInterceptors())) {
-            for (Class<? extends HttpResponseInterceptor> interceptor : properties.getResponseInterceptors()) {
-                builder.addResponseInterceptorLast(BeanUtils.instantiateClass(interceptor));
-            }
+        for (HttpRequestInterceptor interceptor : AbstractHttpClientBuilderUtils.resolveComponents(properties, beanFactory, "requestInterceptors", properties.getRequestInterceptors(), HttpRequestInterceptor.class)) {    // $NON-NLS-1$
+            builder.addRequestInterceptorLast(interceptor);
         }
-        if (!CollectionUtils.isEmpty(properties.getAuthSchemeFactories())) {
-            Map<String, AuthSchemeFactory> nameFactories = new LinkedHashMap<>();
-            for (Map.Entry<String, Class<? extends AuthSchemeFactory>> entry : properties.getAuthSchemeFactories().entrySet()) {
-                if (StringUtils.isNotBlank(entry.getKey()) && entry.getValue() != null) {
-                    nameFactories.put(entry.getKey(), BeanUtils.instantiateClass(entry.getValue()));
-                }
-            }
-            if (!CollectionUtils.isEmpty(nameFactories)) {
-                builder.setDefaultAuthSchemeRegistry(LookupRegistryUtils.registryWithin(nameFactories));
-            }
+        for (HttpResponseInterceptor interceptor : AbstractHttpClientBuilderUtils.resolveComponents(properties, beanFactory, "responseInterceptors", properties.getResponseInterceptors(), HttpResponseInterceptor.class)) {    // $NON-NLS-1$
+            builder.addResponseInterceptorLast(interceptor);
         }
-        if (!CollectionUtils.isEmpty(properties.getCookieSpecFactories())) {
-            Map<String, CookieSpecFactory> nameFactories = new LinkedHashMap<>();
-            for (Map.Entry<String, Class<? extends CookieSpecFactory>> entry : properties.getCookieSpecFactories().entrySet()) {
-                if (StringUtils.isNotBlank(entry.getKey()) && entry.getValue() != null) {
-                    nameFactories.put(entry.getKey(), BeanUtils.instantiateClass(entry.getValue()));
-                }
-            }
-            if (!CollectionUtils.isEmpty(nameFactories)) {
-                builder.setDefaultCookieSpecRegistry(LookupRegistryUtils.registryWithin(nameFactories));
-            }
+        Map<String, AuthSchemeFactory> authSchemeFactories = AbstractHttpClientBuilderUtils.resolveNamedComponents(properties, beanFactory, "authSchemeFactories", properties.getAuthSchemeFactories(), AuthSchemeFactory.class);    // $NON-NLS-1$
+        if (!CollectionUtils.isEmpty(authSchemeFactories)) {
+            builder.setDefaultAuthSchemeRegistry(LookupRegistryUtils.registryWithin(authSchemeFactories));
+        }
+        Map<String, CookieSpecFactory> cookieSpecFactories = AbstractHttpClientBuilderUtils.resolveNamedComponents(properties, beanFactory, "cookieSpecFactories", properties.getCookieSpecFactories(), CookieSpecFactory.class);    // $NON-NLS-1$
+        if (!CollectionUtils.isEmpty(cookieSpecFactories)) {
+            builder.setDefaultCookieSpecRegistry(LookupRegistryUtils.registryWithin(cookieSpecFactories));
         }
         // Default headers
         if (!CollectionUtils.isEmpty(properties.getDefaultHeaders())) {
@@ -158,35 +277,69 @@ public abstract class AsyncHttpClientBuilderUtils {
         if (requestConfig != null) {
             builder.setDefaultRequestConfig(requestConfig);
         }
+        // Route overrides
+        RouteOverrides routeOverrides = new RouteOverrides(properties.getRoutes());
+        if (!routeOverrides.isEmpty()) {
+            builder.addExecInterceptorFirst(RouteOverrideAsyncExecHandler.HANDLER_NAME, new RouteOverrideAsyncExecHandler(routeOverrides, AbstractHttpClientBuilderUtils.getPoolControl(connectionManager)));
+            if (routeOverrides.isRetryOverridden()) {
+                builder.setRetryStrategy(new RouteOverrideRetryStrategy(routeOverrides, (retryStrategy != null) ? retryStrategy : DefaultHttpRequestRetryStrategy.INSTANCE));
+            }
+        }
         // Async customized properties
         if (StringUtils.isNotBlank(properties.getUserAgent())) {
             builder.setUserAgent(properties.getUserAgent());
         }
-        if (properties.getConnectionManager() != null) {
-            builder.setConnectionManager(BeanUtils.instantiateClass(properties.getConnectionManager()));
+        if (connectionManager != null) {
+            builder.setConnectionManager(connectionManager);
         }
-        if (properties.getCharCodingConfig() != null) {
-            builder.setCharCodingConfig(BeanUtils.instantiateClass(properties.getCharCodingConfig()));
+        CharCodingConfig charCodingConfig = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "charCodingConfig", properties.getCharCodingConfig(), CharCodingConfig.class);    // $NON-NLS-1$
+        if (charCodingConfig != null) {
+            builder.setCharCodingConfig(charCodingConfig);
         }
-        if (properties.getH1Config() != null) {
-            builder.setHttp1Config(BeanUtils.instantiateClass(properties.getH1Config()));
+        Http1Config h1Config = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "h1Config", properties.getH1Config(), Http1Config.class);    // $NON-NLS-1$
+        if (h1Config != null) {
+            builder.setHttp1Config(h1Config);
         }
-        if (properties.getH2Config() != null) {
-            builder.setH2Config(BeanUtils.instantiateClass(properties.getH2Config()));
+        H2Config h2Config = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "h2Config", properties.getH2Config(), H2Config.class);    // $NON-NLS-1$
+        if (h2Config != null) {
+            builder.setH2Config(h2Config);
         }
-        if (properties.getIoReactorConfig() != null) {
-            builder.setIOReactorConfig(BeanUtils.instantiateClass(properties.getIoReactorConfig()));
+        IOReactorConfig ioReactorConfig = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "ioReactorConfig", properties.getIoReactorConfig(), IOReactorConfig.class);    // $NON-NLS-1$
+        if (ioReactorConfig == null) {
+            ioReactorConfig = AbstractHttpClientBuilderUtils.buildIOReactorConfig(properties.getSocket());
         }
-        if (properties.getThreadFactory() != null) {
-            builder.setThreadFactory(BeanUtils.instantiateClass(properties.getThreadFactory()));
+        if (ioReactorConfig != null) {
+            builder.setIOReactorConfig(ioReactorConfig);
         }
-        if (!CollectionUtils.isEmpty(properties.getExecInterceptors())) {
-            for (Map.Entry<String, Class<? extends AsyncExecChainHandler>> entry : properties.getExecInterceptors().entrySet()) {
-                if (StringUtils.isNotBlank(entry.getKey()) && entry.getValue() != null) {
-                    builder.addExecInterceptorLast(entry.getKey(), BeanUtils.instantiateClass(entry.getValue()));
-                }
-            }
+        ThreadFactory threadFactory = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "threadFactory", properties.getThreadFactory(), ThreadFactory.class);    // $NON-NLS-1$
+        if (threadFactory != null) {
+            builder.setThreadFactory(threadFactory);
+        }
+        for (Map.Entry<String, AsyncExecChainHandler> entry : AbstractHttpClientBuilderUtils.resolveNamedComponents(properties, beanFactory, "execInterceptors", properties.getExecInterceptors(), AsyncExecChainHandler.class).entrySet()) {    // $NON-NLS-1$
+            builder.addExecInterceptorLast(entry.getKey(), entry.getValue());
+        }
+        if (connectionManager instanceof MonitoredAsyncClientConnectionManager monitoredManager && monitoredManager.getPriorityGate() != null) {
+            builder.addExecInterceptorBefore(ChainElement.CONNECT.name(), LeasePriorityAsyncExecHandler.HANDLER_NAME, new LeasePriorityAsyncExecHandler(monitoredManager.getPriorityGate()));
+        }
+        if (properties.getOauth2() != null && !CollectionUtils.isEmpty(properties.getOauth2().getRegistrations())) {
+            builder.addExecInterceptorBefore(ChainElement.CONNECT.name(), OAuth2AsyncExecHandler.HANDLER_NAME, new OAuth2AsyncExecHandler(new OAuth2TokenManager(properties.getOauth2().getRegistrations(), AbstractHttpClientBuilderUtils.buildTokenClient(properties, beanFactory))));
+        }
+        if (AbstractHttpClientBuilderUtils.isFlightRecorderEnabled(properties)) {
+            builder.addExecInterceptorLast(FlightRecorderAsyncExecHandler.HANDLER_NAME, new FlightRecorderAsyncExecHandler());
+        }
+        if (beanFactory != null) {
+            beanFactory.getBeanProvider(AsyncHttpClientBuilderCustomizer.class).orderedStream().forEach(customizer -> customizer.customize(builder, connectionManager));
         }
         return builder;
     }
+
+    @Nonnull
+    private static PoolingAsyncClientConnectionManagerBuilder happyEyeballsBuilder(@Nonnull AbstractHttpClientProperties.HappyEyeballs happyEyeballs, @Nonnull HashedWheelTimer timer) {
+        return new PoolingAsyncClientConnectionManagerBuilder() {
+            @Override
+            protected AsyncClientConnectionOperator createConnectionOperator(TlsStrategy tlsStrategy, SchemePortResolver schemePortResolver, DnsResolver dnsResolver) {
+                return new HappyEyeballsAsyncConnectionOperator(super.createConnectionOperator(tlsStrategy, schemePortResolver, dnsResolver), dnsResolver, happyEyeballs.getAttemptDelay(), happyEyeballs.getFailureMemory(), timer, null);
+            }
+        };
+    }
 }
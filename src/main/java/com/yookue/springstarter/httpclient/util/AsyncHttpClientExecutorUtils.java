@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.util;
+
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.ObjectUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.async.HttpAsyncClient;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.nio.AsyncRequestProducer;
+import org.apache.hc.core5.http.nio.AsyncResponseConsumer;
+import org.apache.hc.core5.http.nio.entity.DiscardingEntityConsumer;
+import org.apache.hc.core5.http.nio.support.AsyncRequestBuilder;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.Closer;
+import org.springframework.util.CollectionUtils;
+import com.yookue.springstarter.httpclient.consumer.ChannelAsyncResponseConsumer;
+import com.yookue.springstarter.httpclient.producer.MultipartFileAsyncEntityProducer;
+import lombok.extern.slf4j.Slf4j;
+
+
+/**
+ * Utilities for fetching and handling http response with {@link org.apache.hc.client5.http.async.HttpAsyncClient}
+ * <p>
+ * Each method returns a {@link java.util.concurrent.CompletableFuture} of the exchange, and cancelling the future cancels the exchange.
+ * The bodies are streamed through {@link org.apache.hc.core5.http.nio.AsyncEntityProducer}s and {@link org.apache.hc.core5.http.nio.AsyncResponseConsumer}s,
+ * they are never buffered as a whole.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.util.SyncHttpClientExecutorUtils
+ * @see org.apache.hc.core5.http.nio.support.AsyncRequestBuilder
+ */
+@Slf4j
+@SuppressWarnings({"unused", "UnusedReturnValue", "JavadocDeclaration"})
+public abstract class AsyncHttpClientExecutorUtils {
+    public static <T> CompletableFuture<T> executeHandler(@Nonnull HttpAsyncClient client, @Nonnull AsyncRequestProducer requestProducer, @Nonnull AsyncResponseConsumer<T> responseConsumer, @Nullable HttpContext context) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<T> future = client.execute(requestProducer, responseConsumer, null, context, new FutureCallback<>() {
+            @Override
+            public void completed(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                result.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                result.cancel(false);
+            }
+        });
+        result.whenComplete((value, ex) -> {
+            if (ex instanceof CancellationException) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    public static <T> CompletableFuture<T> executeHandler(@Nonnull HttpAsyncClient client, @Nonnull AsyncRequestBuilder builder, @Nullable RequestConfig config, @Nonnull AsyncResponseConsumer<T> responseConsumer) {
+        if (log.isDebugEnabled()) {
+            log.debug("Preparing to visit: {}", builder.getUri());
+        }
+        if (builder.getFirstHeader(HttpHeaders.ACCEPT) == null) {
+            builder.addHeader(HttpHeaders.ACCEPT, ContentType.WILDCARD.getMimeType());
+        }
+        HttpClientContext context = HttpClientContext.create();
+        if (config != null) {
+            context.setRequestConfig(config);
+        }
+        return executeHandler(client, builder.build(), responseConsumer, context);
+    }
+
+    public static CompletableFuture<Boolean> downloadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull String pathname) throws IOException {
+        return downloadSimply(client, uri, pathname, RequestConfigUtils.withDefaultTimeouts());
+    }
+
+    public static CompletableFuture<Boolean> downloadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull String pathname, @Nullable RequestConfig config) throws IOException {
+        return StringUtils.isNoneBlank(uri, pathname) ? downloadSimply(client, uri, new File(pathname), config) : CompletableFuture.completedFuture(false);
+    }
+
+    public static CompletableFuture<Boolean> downloadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull File output) throws IOException {
+        return downloadSimply(client, uri, output, RequestConfigUtils.withDefaultTimeouts());
+    }
+
+    public static CompletableFuture<Boolean> downloadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull File output, @Nullable RequestConfig config) throws IOException {
+        return downloadSimply(client, uri, output, config, null, null);
+    }
+
+    public static CompletableFuture<Boolean> downloadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull File output, @Nullable RequestConfig config, @Nullable List<NameValuePair> parameters, @Nullable Charset charset) throws IOException {
+        if (StringUtils.isBlank(uri)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        FileChannel channel = FileChannel.open(output.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        return downloadSimply(client, uri, channel, config, parameters, charset);
+    }
+
+    public static CompletableFuture<Boolean> downloadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull WritableByteChannel output) {
+        return downloadSimply(client, uri, output, RequestConfigUtils.withDefaultTimeouts());
+    }
+
+    public static CompletableFuture<Boolean> downloadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull WritableByteChannel output, @Nullable RequestConfig config) {
+        return downloadSimply(client, uri, output, config, null, null);
+    }
+
+    /**
+     * Downloads the body of the uri into the channel, which is closed once the exchange completes or fails
+     * <p>
+     * The channel is also closed if the exchange could not be started, such as a malformed uri or a client that is not running,
+     * in which case the response consumer never sees the exchange
+     *
+     * @param client the http client
+     * @param uri the uri to download
+     * @param output the channel to write the body to
+     * @param config the request config
+     * @param parameters the request parameters
+     * @param charset the charset of the request parameters
+     *
+     * @return the future of whether the response is {@code 200}
+     */
+    public static CompletableFuture<Boolean> downloadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull WritableByteChannel output, @Nullable RequestConfig config, @Nullable List<NameValuePair> parameters, @Nullable Charset charset) {
+        if (StringUtils.isBlank(uri)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        try {
+            config = ObjectUtils.defaultIfNull(config, RequestConfigUtils.withDefaultTimeouts());
+            charset = ObjectUtils.defaultIfNull(charset, StandardCharsets.UTF_8);
+            AsyncRequestBuilder builder = AsyncRequestBuilder.get(uri).setCharset(charset);
+            if (!CollectionUtils.isEmpty(parameters)) {
+                parameters.stream().filter(Objects::nonNull).forEach(builder::addParameter);
+            }
+            CompletableFuture<Boolean> result = executeHandler(client, builder, config, new ChannelAsyncResponseConsumer(output, true));
+            result.whenComplete((value, ex) -> {
+                if (ex != null) {
+                    Closer.closeQuietly(output);
+                }
+            });
+            return result;
+        } catch (RuntimeException ex) {
+            Closer.closeQuietly(output);
+            throw ex;
+        }
+    }
+
+    public static CompletableFuture<Boolean> uploadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull String formField, @Nonnull File input) throws IllegalAccessException, IOException {
+        return uploadSimply(client, uri, formField, input, RequestConfigUtils.withDefaultTimeouts());
+    }
+
+    public static CompletableFuture<Boolean> uploadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull String formField, @Nonnull File input, @Nullable RequestConfig config) throws IllegalAccessException, IOException {
+        return uploadSimply(client, uri, formField, input, config, null, null);
+    }
+
+    public static CompletableFuture<Boolean> uploadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull String formField, @Nonnull String pathname) throws IllegalAccessException, IOException {
+        return uploadSimply(client, uri, formField, pathname, RequestConfigUtils.withDefaultTimeouts());
+    }
+
+    public static CompletableFuture<Boolean> uploadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull String formField, @Nonnull String pathname, @Nullable RequestConfig config) throws IllegalAccessException, IOException {
+        return uploadSimply(client, uri, formField, pathname, config, null, null);
+    }
+
+    public static CompletableFuture<Boolean> uploadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull String formField, @Nonnull String pathname, @Nullable RequestConfig config, @Nullable List<NameValuePair> parameters, @Nullable Charset charset) throws IllegalAccessException, IOException {
+        return StringUtils.isNoneBlank(uri, formField, pathname) ? uploadSimply(client, uri, formField, new File(pathname), config, parameters, charset) : CompletableFuture.completedFuture(false);
+    }
+
+    /**
+     * Uploads the file as a {@code multipart/form-data} body, which is streamed from the file
+     *
+     * @param client the http client
+     * @param uri the uri to upload to
+     * @param formField the form field of the file
+     * @param input the file to upload
+     * @param config the request config
+     * @param parameters the text fields to send along with the file
+     * @param charset the charset of the text fields
+     *
+     * @return the future of whether the response is {@code 200}
+     */
+    public static CompletableFuture<Boolean> uploadSimply(@Nonnull HttpAsyncClient client, @Nonnull String uri, @Nonnull String formField, @Nonnull File input, @Nullable RequestConfig config, @Nullable List<NameValuePair> parameters, @Nullable Charset charset) throws IllegalAccessException, IOException {
+        if (StringUtils.isAnyBlank(uri, formField)) {
+            return CompletableFuture.completedFuture(false);
+        }
+        if (!input.exists() || !input.isFile()) {
+            throw new FileNotFoundException();
+        }
+        if (!input.canRead()) {
+            throw new IllegalAccessException();
+        }
+        config = ObjectUtils.defaultIfNull(config, RequestConfigUtils.withDefaultTimeouts());
+        charset = ObjectUtils.defaultIfNull(charset, StandardCharsets.UTF_8);
+        AsyncRequestBuilder builder = AsyncRequestBuilder.post(uri).setCharset(charset).setEntity(new MultipartFileAsyncEntityProducer(formField, input.toPath(), null, parameters, charset));
+        CompletableFuture<Message<HttpResponse, Void>> exchange = executeHandler(client, builder, config, new BasicResponseConsumer<>(new DiscardingEntityConsumer<>()));
+        CompletableFuture<Boolean> result = exchange.thenApply(message -> message.getHead().getCode() == HttpStatus.SC_OK);
+        result.whenComplete((value, ex) -> {
+            if (ex instanceof CancellationException) {
+                exchange.cancel(true);
+            }
+        });
+        return result;
+    }
+}
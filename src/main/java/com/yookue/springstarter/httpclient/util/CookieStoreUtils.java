@@ -17,6 +17,7 @@
 package com.yookue.springstarter.httpclient.util;
 
 
+import java.util.List;
 import java.util.Objects;
 import java.util.StringJoiner;
 import jakarta.annotation.Nonnull;
@@ -26,6 +27,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.hc.client5.http.cookie.Cookie;
 import org.apache.hc.client5.http.cookie.CookieStore;
 import org.springframework.util.CollectionUtils;
+import com.yookue.springstarter.httpclient.cookie.IndexedCookieStore;
 
 
 /**
@@ -37,36 +39,52 @@ import org.springframework.util.CollectionUtils;
 @SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue"})
 public abstract class CookieStoreUtils {
     @Nullable
-    public Cookie getCookie(@Nonnull CookieStore store, @Nonnull String name) {
-        if (CollectionUtils.isEmpty(store.getCookies()) || StringUtils.isBlank(name)) {
+    public static Cookie getCookie(@Nonnull CookieStore store, @Nonnull String name) {
+        if (StringUtils.isBlank(name)) {
             return null;
         }
-        return store.getCookies().stream().filter(cookie -> StringUtils.equals(name, cookie.getName())).findFirst().orElse(null);
+        if (store instanceof IndexedCookieStore indexedStore) {
+            return indexedStore.getCookie(name);
+        }
+        List<Cookie> cookies = store.getCookies();
+        if (CollectionUtils.isEmpty(cookies)) {
+            return null;
+        }
+        for (Cookie cookie : cookies) {
+            if (StringUtils.equals(name, cookie.getName())) {
+                return cookie;
+            }
+        }
+        return null;
     }
 
     @Nullable
-    public String getCookieValue(@Nonnull CookieStore store, @Nonnull String name) {
+    public static String getCookieValue(@Nonnull CookieStore store, @Nonnull String name) {
         Cookie cookie = getCookie(store, name);
         return cookie == null ? null : cookie.getValue();
     }
 
     @Nullable
-    public String getCookiesAsString(@Nonnull CookieStore store) {
+    public static String getCookiesAsString(@Nonnull CookieStore store) {
         return getCookiesAsString(store, "=", ";");    // $NON-NLS-1$ // $NON-NLS-2$
     }
 
     @Nullable
-    public String getCookiesAsString(@Nonnull CookieStore store, char keyValueDelimiter, char groupDelimiter) {
+    public static String getCookiesAsString(@Nonnull CookieStore store, char keyValueDelimiter, char groupDelimiter) {
         return getCookiesAsString(store, CharUtils.toString(keyValueDelimiter), CharUtils.toString(groupDelimiter));
     }
 
     @Nullable
-    public String getCookiesAsString(@Nonnull CookieStore store, @Nullable String keyValueDelimiter, @Nullable String groupDelimiter) {
-        if (CollectionUtils.isEmpty(store.getCookies())) {
+    public static String getCookiesAsString(@Nonnull CookieStore store, @Nullable String keyValueDelimiter, @Nullable String groupDelimiter) {
+        List<Cookie> cookies = store.getCookies();
+        if (CollectionUtils.isEmpty(cookies)) {
             return null;
         }
         StringJoiner joiner = new StringJoiner(Objects.toString(groupDelimiter, StringUtils.EMPTY));
-        store.getCookies().forEach(cookie -> joiner.add(StringUtils.join(cookie.getName(), Objects.toString(keyValueDelimiter, StringUtils.EMPTY), StringUtils.defaultString(cookie.getValue()))));
+        String delimiter = Objects.toString(keyValueDelimiter, StringUtils.EMPTY);
+        for (Cookie cookie : cookies) {
+            joiner.add(StringUtils.join(cookie.getName(), delimiter, StringUtils.defaultString(cookie.getValue())));
+        }
         return joiner.toString();
     }
 }
@@ -36,23 +36,30 @@ public abstract class RequestConfigUtils {
 
     /**
      * Return a {@code RequestConfig} with default timeout settings
+     * <p>
+     * The connect timeout is left to the {@code ConnectionConfig} of the connection manager
      *
      * @return a {@code RequestConfig} with default timeout settings
      */
     public static RequestConfig withDefaultTimeouts() {
-        return withSpecifiedTimeouts(REQUEST_TIMEOUT, CONNECT_TIMEOUT, RESPONSE_TIMEOUT);
+        return withSpecifiedTimeouts(REQUEST_TIMEOUT, null, RESPONSE_TIMEOUT);
     }
 
     /**
      * Return a {@code RequestConfig} with specified timeout settings
      *
      * @param requestTimeout connect request timeout
-     * @param connectTimeout connect timeout
+     * @param connectTimeout connect timeout, which overrides the {@code ConnectionConfig} of the connection manager if not null
      * @param responseTimeout response timeout
      * @return a {@code RequestConfig} with specified timeout settings
      */
+    @SuppressWarnings("deprecation")
     public static RequestConfig withSpecifiedTimeouts(@Nullable Timeout requestTimeout, @Nullable Timeout connectTimeout, @Nullable Timeout responseTimeout) {
-        return RequestConfig.custom().setConnectionRequestTimeout(requestTimeout).setResponseTimeout(responseTimeout).build();
+        RequestConfig.Builder builder = RequestConfig.custom().setConnectionRequestTimeout(requestTimeout).setResponseTimeout(responseTimeout);
+        if (connectTimeout != null) {
+            builder.setConnectTimeout(connectTimeout);
+        }
+        return builder.build();
     }
 
     /**
@@ -17,30 +17,80 @@
 package com.yookue.springstarter.httpclient.util;
 
 
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.AuthenticationStrategy;
+import org.apache.hc.client5.http.ConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.HttpRequestRetryStrategy;
+import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.UserTokenHandler;
 import org.apache.hc.client5.http.auth.AuthSchemeFactory;
+import org.apache.hc.client5.http.auth.CredentialsProvider;
+import org.apache.hc.client5.http.classic.BackoffManager;
+import org.apache.hc.client5.http.classic.ConnectionBackoffStrategy;
 import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.config.ConnectionConfig;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.cookie.CookieSpecFactory;
+import org.apache.hc.client5.http.cookie.CookieStore;
 import org.apache.hc.client5.http.entity.InputStreamFactory;
+import org.apache.hc.client5.http.impl.ChainElement;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
 import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.HttpClientConnectionOperator;
+import org.apache.hc.client5.http.protocol.RedirectStrategy;
+import org.apache.hc.client5.http.routing.HttpRoutePlanner;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.http.ConnectionReuseStrategy;
 import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpHost;
 import org.apache.hc.core5.http.HttpRequestInterceptor;
 import org.apache.hc.core5.http.HttpResponseInterceptor;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.config.Lookup;
 import org.apache.hc.core5.http.config.LookupRegistryUtils;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.impl.io.HttpRequestExecutor;
+import org.apache.hc.core5.http.io.SocketConfig;
 import org.apache.hc.core5.http.message.BasicHeader;
 import org.apache.hc.core5.util.TimeValue;
-import org.springframework.beans.BeanInstantiationException;
-import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
 import org.springframework.util.CollectionUtils;
+import com.yookue.springstarter.httpclient.connect.HappyEyeballsConnectionOperator;
+import com.yookue.springstarter.httpclient.connect.RouteConfigResolver;
+import com.yookue.springstarter.httpclient.connect.UnixDomainSocketConnectionOperator;
+import com.yookue.springstarter.httpclient.customizer.SyncHttpClientBuilderCustomizer;
+import com.yookue.springstarter.httpclient.jfr.FlightRecorderDnsResolver;
+import com.yookue.springstarter.httpclient.jfr.FlightRecorderExecHandler;
+import com.yookue.springstarter.httpclient.jfr.FlightRecorderPoolListener;
+import com.yookue.springstarter.httpclient.jfr.FlightRecorderTlsStrategy;
+import com.yookue.springstarter.httpclient.oauth2.OAuth2ExecHandler;
+import com.yookue.springstarter.httpclient.oauth2.OAuth2TokenManager;
+import com.yookue.springstarter.httpclient.pool.LeasePriorityExecHandler;
+import com.yookue.springstarter.httpclient.pool.MonitoredHttpClientConnectionManager;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
 import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.route.HostPatternMatcher;
+import com.yookue.springstarter.httpclient.route.ProxyPoolExecHandler;
+import com.yookue.springstarter.httpclient.route.ProxyPoolRoutePlanner;
+import com.yookue.springstarter.httpclient.route.RouteOverrideExecHandler;
+import com.yookue.springstarter.httpclient.route.RouteOverrideRetryStrategy;
+import com.yookue.springstarter.httpclient.route.RouteOverrides;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
 
 
 /**
@@ -52,7 +102,84 @@ import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
 @SuppressWarnings({"unused", "BooleanMethodIsAlwaysInverted", "UnusedReturnValue", "DuplicatedCode"})
 public abstract class SyncHttpClientBuilderUtils {
     @Nonnull
-    public static HttpClientBuilder clientBuilder(@Nonnull SyncHttpClientProperties properties) throws BeanInstantiationException {
+    public static PoolingHttpClientConnectionManagerBuilder connectionManagerBuilder(@Nonnull SyncHttpClientProperties properties) throws BeansException {
+        return connectionManagerBuilder(properties, null);
+    }
+
+    @Nonnull
+    public static PoolingHttpClientConnectionManagerBuilder connectionManagerBuilder(@Nonnull SyncHttpClientProperties properties, @Nullable BeanFactory beanFactory) throws BeansException {
+        return connectionManagerBuilder(properties, beanFactory, AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "schemePortResolver", properties.getSchemePortResolver(), SchemePortResolver.class));    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    public static PoolingHttpClientConnectionManagerBuilder connectionManagerBuilder(@Nonnull SyncHttpClientProperties properties, @Nullable BeanFactory beanFactory, @Nullable SchemePortResolver schemePortResolver) throws BeansException {
+        PoolingHttpClientConnectionManagerBuilder builder = (AbstractHttpClientBuilderUtils.isHappyEyeballsEnabled(properties) || isUnixDomainSocketEnabled(properties)) ? connectionOperatorBuilder(properties, AbstractHttpClientBuilderUtils.resolveTimer(beanFactory)) : PoolingHttpClientConnectionManagerBuilder.create();
+        if (BooleanUtils.isTrue(properties.getUseSystemProperties())) {
+            builder.useSystemProperties();
+        }
+        if (schemePortResolver != null) {
+            builder.setSchemePortResolver(schemePortResolver);
+        }
+        AbstractHttpClientProperties.ConnectionPool pool = properties.getConnectionPool();
+        if (pool.getMaxTotal() != null && pool.getMaxTotal() > 0) {
+            builder.setMaxConnTotal(pool.getMaxTotal());
+        }
+        if (pool.getMaxPerRoute() != null && pool.getMaxPerRoute() > 0) {
+            builder.setMaxConnPerRoute(pool.getMaxPerRoute());
+        }
+        if (pool.getConcurrencyPolicy() != null) {
+            builder.setPoolConcurrencyPolicy(pool.getConcurrencyPolicy());
+        }
+        if (pool.getReusePolicy() != null) {
+            builder.setConnPoolPolicy(pool.getReusePolicy());
+        }
+        RouteConfigResolver<SocketConfig> socketConfigResolver = AbstractHttpClientBuilderUtils.buildSocketConfigResolver(properties.getSocket());
+        if (socketConfigResolver != null) {
+            builder.setSocketConfigResolver(socketConfigResolver);
+        }
+        RouteConfigResolver<ConnectionConfig> connectionConfigResolver = AbstractHttpClientBuilderUtils.buildConnectionConfigResolver(properties.getConnection());
+        if (connectionConfigResolver != null) {
+            builder.setConnectionConfigResolver(connectionConfigResolver);
+        }
+        if (AbstractHttpClientBuilderUtils.isFlightRecorderEnabled(properties)) {
+            builder.setDnsResolver(new FlightRecorderDnsResolver(SystemDefaultDnsResolver.INSTANCE));
+            builder.setTlsSocketStrategy(new FlightRecorderTlsStrategy(BooleanUtils.isTrue(properties.getUseSystemProperties()) ? DefaultClientTlsStrategy.createSystemDefault() : DefaultClientTlsStrategy.createDefault()));
+        }
+        return builder;
+    }
+
+    @Nonnull
+    public static HttpClientConnectionManager connectionManager(@Nonnull SyncHttpClientProperties properties) throws BeansException {
+        return connectionManager(properties, null);
+    }
+
+    @Nonnull
+    public static HttpClientConnectionManager connectionManager(@Nonnull SyncHttpClientProperties properties, @Nullable BeanFactory beanFactory) throws BeansException {
+        HttpClientConnectionManager connectionManager = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "connectionManager", properties.getConnectionManager(), HttpClientConnectionManager.class);    // $NON-NLS-1$
+        if (connectionManager != null) {
+            return connectionManager;
+        }
+        SchemePortResolver schemePortResolver = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "schemePortResolver", properties.getSchemePortResolver(), SchemePortResolver.class);    // $NON-NLS-1$
+        PoolingHttpClientConnectionManager delegate = connectionManagerBuilder(properties, beanFactory, schemePortResolver).build();
+        MonitoredHttpClientConnectionManager monitoredManager = new MonitoredHttpClientConnectionManager(delegate, AbstractHttpClientBuilderUtils.buildPriorityGate(properties, delegate::getMaxPerRoute, beanFactory), AbstractHttpClientBuilderUtils.buildAdmissionControl(properties, delegate::getMaxPerRoute), schemePortResolver);
+        if (AbstractHttpClientBuilderUtils.isFlightRecorderEnabled(properties)) {
+            monitoredManager.addListener(new FlightRecorderPoolListener());
+        }
+        return monitoredManager;
+    }
+
+    @Nonnull
+    public static HttpClientBuilder clientBuilder(@Nonnull SyncHttpClientProperties properties) throws BeansException {
+        return clientBuilder(properties, connectionManager(properties));
+    }
+
+    @Nonnull
+    public static HttpClientBuilder clientBuilder(@Nonnull SyncHttpClientProperties properties, @Nullable HttpClientConnectionManager connectionManager) throws BeansException {
+        return clientBuilder(properties, connectionManager, null);
+    }
+
+    @Nonnull
+    public static HttpClientBuilder clientBuilder(@Nonnull SyncHttpClientProperties properties, @Nullable HttpClientConnectionManager connectionManager, @Nullable BeanFactory beanFactory) throws BeansException {
         HttpClientBuilder builder = HttpClientBuilder.create();
         if (StringUtils.isNotBlank(properties.getProxyHost()) && properties.getProxyPort() != null && properties.getProxyPort() > 0) {
             builder.setProxy(new HttpHost(properties.getProxyHost(), properties.getProxyPort()));
@@ -70,11 +197,13 @@ public abstract class SyncHttpClientBuilderUtils {
         if (BooleanUtils.isFalse(properties.getCookieManagementEnabled())) {
             builder.disableCookieManagement();
         }
-        if (BooleanUtils.isTrue(properties.getEvictExpiredConnections())) {
-            builder.evictExpiredConnections();
-        }
-        if (BooleanUtils.isTrue(properties.getEvictIdleConnections()) && properties.getMaxIdleTime() != null) {
-            builder.evictIdleConnections(TimeValue.ofMilliseconds(properties.getMaxIdleTime().toMillis()));
+        if (!AbstractHttpClientBuilderUtils.registerEviction(properties, connectionManager, beanFactory)) {
+            if (BooleanUtils.isTrue(properties.getEvictExpiredConnections())) {
+                builder.evictExpiredConnections();
+            }
+            if (BooleanUtils.isTrue(properties.getEvictIdleConnections()) && properties.getMaxIdleTime() != null) {
+                builder.evictIdleConnections(TimeValue.ofMilliseconds(properties.getMaxIdleTime().toMillis()));
+            }
         }
         if (BooleanUtils.isFalse(properties.getRedirectHandlingEnabled())) {
             builder.disableRedirectHandling();
@@ -82,67 +211,67 @@ public abstract class SyncHttpClientBuilderUtils {
         if (BooleanUtils.isTrue(properties.getUseSystemProperties())) {
             builder.useSystemProperties();
         }
-        if (properties.getRoutePlanner() != null) {
-            builder.setRoutePlanner(BeanUtils.instantiateClass(properties.getRoutePlanner()));
+        HttpRoutePlanner routePlanner = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "routePlanner", properties.getRoutePlanner(), HttpRoutePlanner.class);    // $NON-NLS-1$
+        if (routePlanner != null) {
+            builder.setRoutePlanner(routePlanner);
+        } else if (properties.getProxyPool() != null && (!CollectionUtils.isEmpty(properties.getProxyPool().getProxies()) || !CollectionUtils.isEmpty(properties.getProxyPool().getRules()))) {
+            ProxyPoolRoutePlanner proxyPoolRoutePlanner = new ProxyPoolRoutePlanner(properties.getProxyPool());
+            builder.setRoutePlanner(proxyPoolRoutePlanner);
+            builder.addExecInterceptorBefore(ChainElement.CONNECT.name(), ProxyPoolExecHandler.HANDLER_NAME, new ProxyPoolExecHandler(proxyPoolRoutePlanner));
         }
-        if (properties.getCookieStore() != null) {
-            builder.setDefaultCookieStore(BeanUtils.instantiateClass(properties.getCookieStore()));
+        CookieStore cookieStore = AbstractHttpClientBuilderUtils.resolveCookieStore(properties, beanFactory);
+        if (cookieStore != null) {
+            builder.setDefaultCookieStore(cookieStore);
         }
-        if (properties.getKeepAliveStrategy() != null) {
-            builder.setKeepAliveStrategy(BeanUtils.instantiateClass(properties.getKeepAliveStrategy()));
+        ConnectionKeepAliveStrategy keepAliveStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "keepAliveStrategy", properties.getKeepAliveStrategy(), ConnectionKeepAliveStrategy.class);    // $NON-NLS-1$
+        if (keepAliveStrategy != null) {
+            builder.setKeepAliveStrategy(keepAliveStrategy);
         }
-        if (properties.getReuseStrategy() != null) {
-            builder.setConnectionReuseStrategy(BeanUtils.instantiateClass(properties.getReuseStrategy()));
+        ConnectionReuseStrategy reuseStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "reuseStrategy", properties.getReuseStrategy(), ConnectionReuseStrategy.class);    // $NON-NLS-1$
+        if (reuseStrategy != null) {
+            builder.setConnectionReuseStrategy(reuseStrategy);
         }
-        if (properties.getProxyAuthStrategy() != null) {
-            builder.setProxyAuthenticationStrategy(BeanUtils.instantiateClass(properties.getProxyAuthStrategy()));
+        AuthenticationStrategy proxyAuthStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "proxyAuthStrategy", properties.getProxyAuthStrategy(), AuthenticationStrategy.class);    // $NON-NLS-1$
+        if (proxyAuthStrategy != null) {
+            builder.setProxyAuthenticationStrategy(proxyAuthStrategy);
         }
-        if (properties.getTargetAuthStrategy() != null) {
-            builder.setTargetAuthenticationStrategy(BeanUtils.instantiateClass(properties.getTargetAuthStrategy()));
+        AuthenticationStrategy targetAuthStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "targetAuthStrategy", properties.getTargetAuthStrategy(), AuthenticationStrategy.class);    // $NON-NLS-1$
+        if (targetAuthStrategy != null) {
+            builder.setTargetAuthenticationStrategy(targetAuthStrategy);
         }
-        if (properties.getRedirectStrategy() != null) {
-            builder.setRedirectStrategy(BeanUtils.instantiateClass(properties.getRedirectStrategy()));
+        RedirectStrategy redirectStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "redirectStrategy", properties.getRedirectStrategy(), RedirectStrategy.class);    // $NON-NLS-1$
+        if (redirectStrategy != null) {
+            builder.setRedirectStrategy(redirectStrategy);
         }
-        if (properties.getCredentialsProvider() != null) {
-            builder.setDefaultCredentialsProvider(BeanUtils.instantiateClass(properties.getCredentialsProvider()));
+        CredentialsProvider credentialsProvider = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "credentialsProvider", properties.getCredentialsProvider(), CredentialsProvider.class);    // $NON-NLS-1$
+        if (credentialsProvider != null) {
+            builder.setDefaultCredentialsProvider(credentialsProvider);
         }
-        if (properties.getSchemePortResolver() != null) {
-            builder.setSchemePortResolver(BeanUtils.instantiateClass(properties.getSchemePortResolver()));
+        SchemePortResolver schemePortResolver = (connectionManager instanceof MonitoredHttpClientConnectionManager monitoredManager && monitoredManager.getSchemePortResolver() != null) ? monitoredManager.getSchemePortResolver() : AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "schemePortResolver", properties.getSchemePortResolver(), SchemePortResolver.class);    // $NON-NLS-1$
+        if (schemePortResolver != null) {
+            builder.setSchemePortResolver(schemePortResolver);
         }
-        if (properties.getUserTokenHandler() != null) {
-            builder.setUserTokenHandler(BeanUtils.instantiateClass(properties.getUserTokenHandler()));
+        UserTokenHandler userTokenHandler = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "userTokenHandler", properties.getUserTokenHandler(), UserTokenHandler.class);    // $NON-NLS-1$
+        if (userTokenHandler != null) {
+            builder.setUserTokenHandler(userTokenHandler);
         }
-        if (!CollectionUtils.isEmpty(properties.getRequestInterceptors())) {
-            for (Class<? extends HttpRequestInterceptor> interceptor : properties.getRequestInterceptors()) {
-                builder.addRequestInterceptorLast(BeanUtils.instantiateClass(interceptor));
-            }
+        HttpRequestRetryStrategy retryStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "retryStrategy", properties.getRetryStrategy(), HttpRequestRetryStrategy.class);    // $NON-NLS-1$
+        if (retryStrategy != null) {
+            builder.setRetryStrategy(retryStrategy);
         }
-        if (!CollectionUtils.isEmpty(properties.getResponseInterceptors())) {
-            for (Class<? extends HttpResponseInterceptor> interceptor : properties.getResponseInterceptors()) {
-                builder.addResponseInterceptorLast(BeanUtils.instantiateClass(interceptor));
-            }
+        for (HttpRequestInterceptor interceptor : AbstractHttpClientBuilderUtils.resolveComponents(properties, beanFactory, "requestInterceptors", properties.getRequestInterceptors(), HttpRequestInterceptor.class)) {    // $NON-NLS-1$
+            builder.addRequestInterceptorLast(interceptor);
         }
-        if (!CollectionUtils.isEmpty(properties.getAuthSchemeFactories())) {
-            Map<String, AuthSchemeFactory> nameFactories = new LinkedHashMap<>();
-            for (Map.Entry<String, Class<? extends AuthSchemeFactory>> entry : properties.getAuthSchemeFactories().entrySet()) {
-                if (StringUtils.isNotBlank(entry.getKey()) && entry.getValue() != null) {
-                    nameFactories.put(entry.getKey(), BeanUtils.instantiateClass(entry.getValue()));
-                }
-            }
-            if (!CollectionUtils.isEmpty(nameFactories)) {
-                builder.setDefaultAuthSchemeRegistry(LookupRegistryUtils.registryWithin(nameFactories));
-            }
+        for (HttpResponseInterceptor interceptor : AbstractHttpClientBuilderUtils.resolveComponents(properties, beanFactory, "responseInterceptors", properties.getResponseInterceptors(), HttpResponseInterceptor.class)) {    // $NON-NLS-1$
+            builder.addResponseInterceptorLast(interceptor);
         }
-        if (!CollectionUtils.isEmpty(properties.getCookieSpecFactories())) {
-            Map<String, CookieSpecFactory> nameFactories = new LinkedHashMap<>();
-            for (Map.Entry<String, Class<? extends CookieSpecFactory>> entry : properties.getCookieSpecFactories().entrySet()) {
-                if (StringUtils.isNotBlank(entry.getKey()) && entry.getValue() != null) {
-                    nameFactories.put(entry.getKey(), BeanUtils.instantiateClass(entry.getValue()));
-                }
-            }
-            if (!CollectionUtils.isEmpty(nameFactories)) {
-                builder.setDefaultCookieSpecRegistry(LookupRegistryUtils.registryWithin(nameFactories));
-            }
+        Map<String, AuthSchemeFactory> authSchemeFactories = AbstractHttpClientBuilderUtils.resolveNamedComponents(properties, beanFactory, "authSchemeFactories", properties.getAuthSchemeFactories(), AuthSchemeFactory.class);    // $NON-NLS-1$
+        if (!CollectionUtils.isEmpty(authSchemeFactories)) {
+            builder.setDefaultAuthSchemeRegistry(LookupRegistryUtils.registryWithin(authSchemeFactories));
+        }
+        Map<String, CookieSpecFactory> cookieSpecFactories = AbstractHttpClientBuilderUtils.resolveNamedComponents(properties, beanFactory, "cookieSpecFactories", properties.getCookieSpecFactories(), CookieSpecFactory.class);    // $NON-NLS-1$
+        if (!CollectionUtils.isEmpty(cookieSpecFactories)) {
+            builder.setDefaultCookieSpecRegistry(LookupRegistryUtils.registryWithin(cookieSpecFactories));
         }
         // Default headers
         if (!CollectionUtils.isEmpty(properties.getDefaultHeaders())) {
@@ -159,6 +288,14 @@ public abstract class SyncHttpClientBuilderUtils {
         if (requestConfig != null) {
             builder.setDefaultRequestConfig(requestConfig);
         }
+        // Route overrides
+        RouteOverrides routeOverrides = new RouteOverrides(properties.getRoutes());
+        if (!routeOverrides.isEmpty()) {
+            builder.addExecInterceptorFirst(RouteOverrideExecHandler.HANDLER_NAME, new RouteOverrideExecHandler(routeOverrides, AbstractHttpClientBuilderUtils.getPoolControl(connectionManager)));
+            if (routeOverrides.isRetryOverridden()) {
+                builder.setRetryStrategy(new RouteOverrideRetryStrategy(routeOverrides, (retryStrategy != null) ? retryStrategy : DefaultHttpRequestRetryStrategy.INSTANCE));
+            }
+        }
         // Sync customized properties
         if (StringUtils.isNotBlank(properties.getUserAgent())) {
             builder.setUserAgent(properties.getUserAgent());
@@ -166,36 +303,64 @@ public abstract class SyncHttpClientBuilderUtils {
         if (BooleanUtils.isFalse(properties.getDefaultUserAgentEnabled())) {
             builder.disableDefaultUserAgent();
         }
-        if (properties.getConnectionManager() != null) {
-            builder.setConnectionManager(BeanUtils.instantiateClass(properties.getConnectionManager()));
+        if (connectionManager != null) {
+            builder.setConnectionManager(connectionManager);
         }
-        if (properties.getRequestExecutor() != null) {
-            builder.setRequestExecutor(BeanUtils.instantiateClass(properties.getRequestExecutor()));
+        HttpRequestExecutor requestExecutor = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "requestExecutor", properties.getRequestExecutor(), HttpRequestExecutor.class);    // $NON-NLS-1$
+        if (requestExecutor != null) {
+            builder.setRequestExecutor(requestExecutor);
         }
-        if (properties.getBackoffManager() != null) {
-            builder.setBackoffManager(BeanUtils.instantiateClass(properties.getBackoffManager()));
+        BackoffManager backoffManager = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "backoffManager", properties.getBackoffManager(), BackoffManager.class);    // $NON-NLS-1$
+        if (backoffManager != null) {
+            builder.setBackoffManager(backoffManager);
         }
-        if (properties.getConnectionBackoffStrategy() != null) {
-            builder.setConnectionBackoffStrategy(BeanUtils.instantiateClass(properties.getConnectionBackoffStrategy()));
+        ConnectionBackoffStrategy connectionBackoffStrategy = AbstractHttpClientBuilderUtils.resolveComponent(properties, beanFactory, "connectionBackoffStrategy", properties.getConnectionBackoffStrategy(), ConnectionBackoffStrategy.class);    // $NON-NLS-1$
+        if (connectionBackoffStrategy != null) {
+            builder.setConnectionBackoffStrategy(connectionBackoffStrategy);
         }
-        if (!CollectionUtils.isEmpty(properties.getExecInterceptors())) {
-            for (Map.Entry<String, Class<? extends ExecChainHandler>> entry : properties.getExecInterceptors().entrySet()) {
-                if (StringUtils.isNotBlank(entry.getKey()) && entry.getValue() != null) {
-                    builder.addExecInterceptorLast(entry.getKey(), BeanUtils.instantiateClass(entry.getValue()));
-                }
-            }
+        for (Map.Entry<String, ExecChainHandler> entry : AbstractHttpClientBuilderUtils.resolveNamedComponents(properties, beanFactory, "execInterceptors", properties.getExecInterceptors(), ExecChainHandler.class).entrySet()) {    // $NON-NLS-1$
+            builder.addExecInterceptorLast(entry.getKey(), entry.getValue());
         }
-        if (!CollectionUtils.isEmpty(properties.getContentDecoderFactories())) {
-            LinkedHashMap<String, InputStreamFactory> nameFactories = new LinkedHashMap<>();
-            for (Map.Entry<String, Class<? extends InputStreamFactory>> entry : properties.getContentDecoderFactories().entrySet()) {
-                if (StringUtils.isNotBlank(entry.getKey()) && entry.getValue() != null) {
-                    nameFactories.put(entry.getKey(), BeanUtils.instantiateClass(entry.getValue()));
-                }
-            }
-            if (!CollectionUtils.isEmpty(nameFactories)) {
-                builder.setContentDecoderRegistry(nameFactories);
-            }
+        if (connectionManager instanceof MonitoredHttpClientConnectionManager monitoredManager && monitoredManager.getPriorityGate() != null) {
+            builder.addExecInterceptorBefore(ChainElement.CONNECT.name(), LeasePriorityExecHandler.HANDLER_NAME, new LeasePriorityExecHandler(monitoredManager.getPriorityGate()));
+        }
+        if (properties.getOauth2() != null && !CollectionUtils.isEmpty(properties.getOauth2().getRegistrations())) {
+            builder.addExecInterceptorBefore(ChainElement.CONNECT.name(), OAuth2ExecHandler.HANDLER_NAME, new OAuth2ExecHandler(new OAuth2TokenManager(properties.getOauth2().getRegistrations(), AbstractHttpClientBuilderUtils.buildTokenClient(properties, beanFactory))));
+        }
+        if (AbstractHttpClientBuilderUtils.isFlightRecorderEnabled(properties)) {
+            builder.addExecInterceptorLast(FlightRecorderExecHandler.HANDLER_NAME, new FlightRecorderExecHandler());
+        }
+        if (beanFactory != null) {
+            beanFactory.getBeanProvider(SyncHttpClientBuilderCustomizer.class).orderedStream().forEach(customizer -> customizer.customize(builder, connectionManager));
+        }
+        Map<String, InputStreamFactory> contentDecoderFactories = AbstractHttpClientBuilderUtils.resolveNamedComponents(properties, beanFactory, "contentDecoderFactories", properties.getContentDecoderFactories(), InputStreamFactory.class);    // $NON-NLS-1$
+        if (!CollectionUtils.isEmpty(contentDecoderFactories)) {
+            builder.setContentDecoderRegistry(new LinkedHashMap<>(contentDecoderFactories));
         }
         return builder;
     }
+
+    public static boolean isUnixDomainSocketEnabled(@Nonnull SyncHttpClientProperties properties) {
+        return properties.getUnixDomainSocket() != null && StringUtils.isNotBlank(properties.getUnixDomainSocket().getPath());
+    }
+
+    @Nonnull
+    private static PoolingHttpClientConnectionManagerBuilder connectionOperatorBuilder(@Nonnull SyncHttpClientProperties properties, @Nonnull HashedWheelTimer timer) {
+        AbstractHttpClientProperties.HappyEyeballs happyEyeballs = AbstractHttpClientBuilderUtils.isHappyEyeballsEnabled(properties) ? properties.getHappyEyeballs() : null;
+        SyncHttpClientProperties.UnixDomainSocket unixDomainSocket = isUnixDomainSocketEnabled(properties) ? properties.getUnixDomainSocket() : null;
+        return new PoolingHttpClientConnectionManagerBuilder() {
+            @Override
+            protected HttpClientConnectionOperator createConnectionOperator(SchemePortResolver schemePortResolver, DnsResolver dnsResolver, TlsSocketStrategy tlsSocketStrategy) {
+                Lookup<TlsSocketStrategy> tlsSocketStrategyLookup = (tlsSocketStrategy == null) ? null : RegistryBuilder.<TlsSocketStrategy>create().register(URIScheme.HTTPS.id, tlsSocketStrategy).build();
+                HttpClientConnectionOperator operator = super.createConnectionOperator(schemePortResolver, dnsResolver, tlsSocketStrategy);
+                if (happyEyeballs != null) {
+                    operator = new HappyEyeballsConnectionOperator(operator, schemePortResolver, dnsResolver, tlsSocketStrategyLookup, happyEyeballs.getAttemptDelay(), happyEyeballs.getFailureMemory());
+                }
+                if (unixDomainSocket != null) {
+                    operator = new UnixDomainSocketConnectionOperator(operator, Path.of(unixDomainSocket.getPath()), HostPatternMatcher.compile(unixDomainSocket.getHosts()), tlsSocketStrategyLookup, timer, null);
+                }
+                return operator;
+            }
+        };
+    }
 }
@@ -25,6 +25,7 @@ import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Objects;
@@ -34,12 +35,13 @@ import org.apache.commons.lang3.BooleanUtils;
 import org.apache.commons.lang3.ObjectUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.hc.client5.http.classic.HttpClient;
-import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
 import org.apache.hc.client5.http.config.RequestConfig;
 import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
 import org.apache.hc.core5.http.ClassicHttpRequest;
 import org.apache.hc.core5.http.ClassicHttpResponse;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpHeaders;
 import org.apache.hc.core5.http.HttpStatus;
 import org.apache.hc.core5.http.NameValuePair;
@@ -47,6 +49,8 @@ import org.apache.hc.core5.http.io.HttpClientResponseHandler;
 import org.apache.hc.core5.http.io.support.ClassicRequestBuilder;
 import org.apache.hc.core5.http.protocol.HttpContext;
 import org.springframework.util.CollectionUtils;
+import com.yookue.springstarter.httpclient.download.DownloadSyncIndex;
+import com.yookue.springstarter.httpclient.download.DownloadSyncResult;
 import lombok.extern.slf4j.Slf4j;
 
 
@@ -109,9 +113,6 @@ public abstract class SyncHttpClientExecutorUtils {
                 parameters.stream().filter(Objects::nonNull).forEach(builder::addParameter);
             }
             ClassicHttpRequest request = builder.build();
-            if (request instanceof HttpUriRequestBase) {
-                ((HttpUriRequestBase) request).setConfig(config);
-            }
             HttpClientResponseHandler<Boolean> handler = (@Nonnull ClassicHttpResponse response) -> {
                 if (response.getCode() == HttpStatus.SC_OK && response.getEntity() != null) {
                     response.getEntity().writeTo(output);
@@ -120,11 +121,91 @@ public abstract class SyncHttpClientExecutorUtils {
                 }
                 return false;
             };
-            return BooleanUtils.isTrue(executeHandler(client, request, null, handler));
+            return BooleanUtils.isTrue(executeHandler(client, request, configuredContext(config), handler));
         }
         return false;
     }
 
+    public static DownloadSyncResult syncDownload(@Nonnull HttpClient client, @Nonnull String uri, @Nonnull String pathname, @Nonnull DownloadSyncIndex index) throws IOException, URISyntaxException {
+        return syncDownload(client, uri, pathname, index, RequestConfigUtils.withDefaultTimeouts());
+    }
+
+    public static DownloadSyncResult syncDownload(@Nonnull HttpClient client, @Nonnull String uri, @Nonnull String pathname, @Nonnull DownloadSyncIndex index, @Nullable RequestConfig config) throws IOException, URISyntaxException {
+        return StringUtils.isNoneBlank(uri, pathname) ? syncDownload(client, uri, new File(pathname), index, config, null, null) : DownloadSyncResult.FAILED;
+    }
+
+    public static DownloadSyncResult syncDownload(@Nonnull HttpClient client, @Nonnull String uri, @Nonnull File output, @Nonnull DownloadSyncIndex index) throws IOException, URISyntaxException {
+        return syncDownload(client, uri, output, index, RequestConfigUtils.withDefaultTimeouts());
+    }
+
+    public static DownloadSyncResult syncDownload(@Nonnull HttpClient client, @Nonnull String uri, @Nonnull File output, @Nonnull DownloadSyncIndex index, @Nullable RequestConfig config) throws IOException, URISyntaxException {
+        return syncDownload(client, uri, output, index, config, null, null);
+    }
+
+    /**
+     * Downloads the body into the output file, unless the file is still current
+     * <p>
+     * The validators recorded in the index are sent as {@code If-None-Match} and {@code If-Modified-Since}.
+     * On {@code 304}, the file is left as is. On {@code 200}, the body is written to a temp file beside the output file,
+     * which then replaces the output file atomically.
+     *
+     * @param client the http client
+     * @param uri the uri to download
+     * @param output the output file
+     * @param index the index of the validators of the downloaded files
+     * @param config the request config
+     * @param parameters the request parameters
+     * @param charset the charset of the request parameters
+     *
+     * @return the outcome of the download
+     */
+    public static DownloadSyncResult syncDownload(@Nonnull HttpClient client, @Nonnull String uri, @Nonnull File output, @Nonnull DownloadSyncIndex index, @Nullable RequestConfig config, @Nullable List<NameValuePair> parameters, @Nullable Charset charset) throws IOException, URISyntaxException {
+        if (StringUtils.isBlank(uri)) {
+            return DownloadSyncResult.FAILED;
+        }
+        config = ObjectUtils.defaultIfNull(config, RequestConfigUtils.withDefaultTimeouts());
+        charset = ObjectUtils.defaultIfNull(charset, StandardCharsets.UTF_8);
+        ClassicRequestBuilder builder = ClassicRequestBuilder.get(uri).setCharset(charset);
+        if (!CollectionUtils.isEmpty(parameters)) {
+            parameters.stream().filter(Objects::nonNull).forEach(builder::addParameter);
+        }
+        Path target = output.toPath().toAbsolutePath().normalize();
+        DownloadSyncIndex.Entry entry = index.lookup(target);
+        if (entry != null && StringUtils.isNotBlank(entry.getEtag())) {
+            builder.setHeader(HttpHeaders.IF_NONE_MATCH, entry.getEtag());
+        }
+        if (entry != null && StringUtils.isNotBlank(entry.getLastModified())) {
+            builder.setHeader(HttpHeaders.IF_MODIFIED_SINCE, entry.getLastModified());
+        }
+        ClassicHttpRequest request = builder.build();
+        HttpClientResponseHandler<DownloadSyncResult> handler = (@Nonnull ClassicHttpResponse response) -> {
+            if (response.getCode() == HttpStatus.SC_NOT_MODIFIED && entry != null) {
+                index.touch(target);
+                return DownloadSyncResult.NOT_MODIFIED;
+            }
+            if (response.getCode() != HttpStatus.SC_OK || response.getEntity() == null) {
+                return DownloadSyncResult.FAILED;
+            }
+            Path directory = ObjectUtils.defaultIfNull(target.getParent(), target.toAbsolutePath().getRoot());
+            Files.createDirectories(directory);
+            Path temp = Files.createTempFile(directory, target.getFileName().toString(), ".part");    // $NON-NLS-1$
+            try {
+                try (OutputStream stream = Files.newOutputStream(temp)) {
+                    response.getEntity().writeTo(stream);
+                }
+                long size = Files.size(temp);
+                DownloadSyncIndex.moveAtomically(temp, target);
+                Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+                Header lastModified = response.getFirstHeader(HttpHeaders.LAST_MODIFIED);
+                index.update(target, (etag == null) ? null : etag.getValue(), (lastModified == null) ? null : lastModified.getValue(), size);
+                return DownloadSyncResult.DOWNLOADED;
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        };
+        return ObjectUtils.defaultIfNull(executeHandler(client, request, configuredContext(config), handler), DownloadSyncResult.FAILED);
+    }
+
     public static boolean uploadSimply(@Nonnull HttpClient client, @Nonnull String uri, @Nonnull String formField, @Nonnull File input) throws IllegalAccessException, IOException, URISyntaxException {
         return uploadSimply(client, uri, formField, input, RequestConfigUtils.withDefaultTimeouts());
     }
@@ -161,12 +242,23 @@ public abstract class SyncHttpClientExecutorUtils {
                 parameters.stream().filter(Objects::nonNull).forEach(pair -> builder.addTextBody(pair.getName(), pair.getValue()));
             }
             ClassicHttpRequest request = ClassicRequestBuilder.post(uri).setCharset(charset).build();
-            if (request instanceof HttpUriRequestBase) {
-                ((HttpUriRequestBase) request).setConfig(config);
-            }
             HttpClientResponseHandler<Boolean> handler = (@Nonnull ClassicHttpResponse response) -> response.getCode() == HttpStatus.SC_OK;
-            return BooleanUtils.isTrue(executeHandler(client, request, null, handler));
+            return BooleanUtils.isTrue(executeHandler(client, request, configuredContext(config), handler));
         }
         return false;
     }
+
+    /**
+     * Returns a context that carries the request config, since the requests of {@link org.apache.hc.core5.http.io.support.ClassicRequestBuilder} are not configurable
+     *
+     * @param config the request config
+     *
+     * @return a context that carries the request config
+     */
+    @Nonnull
+    private static HttpClientContext configuredContext(@Nonnull RequestConfig config) {
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(config);
+        return context;
+    }
 }
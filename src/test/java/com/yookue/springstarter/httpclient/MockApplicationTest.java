@@ -17,27 +17,71 @@
 package com.yookue.springstarter.httpclient;
 
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
 import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
 import com.yookue.springstarter.httpclient.util.SyncHttpClientExecutorUtils;
 
 
-@SpringBootTest(classes = MockApplicationInitializer.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@SpringBootTest(classes = MockApplicationInitializer.class, webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.http-client.sync-client.oauth2.registrations.stub.token-uri=${stub-server.base-uri}/token",    // $NON-NLS-1$
+    "spring.http-client.sync-client.oauth2.registrations.stub.client-id=client",    // $NON-NLS-1$
+    "spring.http-client.sync-client.oauth2.registrations.stub.client-secret=secret",    // $NON-NLS-1$
+    "spring.http-client.sync-client.oauth2.registrations.stub.hosts=127.0.0.1"    // $NON-NLS-1$
+})
 class MockApplicationTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
     @Autowired(required = false)
     @Qualifier(value = HttpClientAutoConfiguration.SYNC_HTTP_CLIENT)
     private HttpClient syncHttpClient;
 
+    @Value(value = "${" + StubServerExtension.BASE_URI_PROPERTY + "}")
+    private String stubBaseUri;
+
+    @TempDir
+    private Path tempDir;
+
+    @DynamicPropertySource
+    static void stubServerProperties(DynamicPropertyRegistry registry) {
+        STUB_SERVER.registerProperties(registry);
+    }
+
     @Test
-    void syncHttpClient() throws Exception {
+    void syncHttpClient(FaultInjectingStubServer server) throws Exception {
         Assertions.assertNotNull(syncHttpClient, "Sync http client can not be null");
-        String uri = "https://www.baidu.com/img/bd_logo.png", pathname = "D:/plexus-test/bd_logo.png";
-        boolean download = SyncHttpClientExecutorUtils.downloadSimply(syncHttpClient, uri, pathname);
+        server.script("/img/logo.png", StubScript.ok().withBodySize(8192));
+        Path pathname = tempDir.resolve("logo.png");
+        boolean download = SyncHttpClientExecutorUtils.downloadSimply(syncHttpClient, server.uri("/img/logo.png"), pathname.toString());
         Assertions.assertTrue(download, "downloadSimply must be true");
+        Assertions.assertEquals(8192L, Files.size(pathname), "Downloaded file size must match");
+    }
+
+    @Test
+    void stubServerProperties(FaultInjectingStubServer server) throws Exception {
+        Assertions.assertEquals(server.getBaseUri(), stubBaseUri);
+        server.script("/token", StubScript.ok().withBody("{\"access_token\":\"abc\",\"token_type\":\"Bearer\",\"expires_in\":3600}", ContentType.APPLICATION_JSON));    // $NON-NLS-1$ // $NON-NLS-2$
+        server.script("/protected", StubScript.ok());    // $NON-NLS-1$
+        int status = syncHttpClient.execute(new HttpGet(stubBaseUri + "/protected"), response -> response.getCode());    // $NON-NLS-1$
+        Assertions.assertEquals(HttpStatus.SC_OK, status);
+        Assertions.assertEquals(1, server.getRequestCount("/token"), "The auto-configured client must fetch the token from the stub server");    // $NON-NLS-1$
     }
 }
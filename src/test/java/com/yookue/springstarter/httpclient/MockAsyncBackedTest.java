@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.core.NestedExceptionUtils;
+import com.yookue.springstarter.httpclient.classic.AsyncBackedHttpClient;
+import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+
+
+class MockAsyncBackedTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @Test
+    void earlyCloseAbortsExchange(FaultInjectingStubServer server) throws Exception {
+        server.script("/drip", StubScript.ok().withBodySize(2 * 1024 * 1024).withSlowDrip(64 * 1024, Duration.ofMillis(100L)));    // $NON-NLS-1$
+        server.script("/small", StubScript.ok().withBodySize(1024));    // $NON-NLS-1$
+        try (CloseableHttpAsyncClient asyncClient = singleConnectionClient()) {
+            AsyncBackedHttpClient client = new AsyncBackedHttpClient(asyncClient);
+            long start = System.nanoTime();
+            client.execute(new HttpGet(server.uri("/drip")), response -> {    // $NON-NLS-1$
+                InputStream stream = response.getEntity().getContent();
+                Assertions.assertEquals(1024, stream.readNBytes(1024).length);
+                stream.close();
+                Assertions.assertThrows(IOException.class, stream::read, "A closed body must not be readable");
+                return null;
+            });
+            Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1500L, "Closing the body must not wait for the rest of it");
+            byte[] body = client.execute(new HttpGet(server.uri("/small")), response -> EntityUtils.toByteArray(response.getEntity()));    // $NON-NLS-1$
+            Assertions.assertEquals(1024, body.length, "The only connection must be released after an abort");
+            Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000L, "The next request must not wait for the aborted body");
+        }
+    }
+
+    @Test
+    void truncatedBody(FaultInjectingStubServer server) throws Exception {
+        server.script("/truncated", StubScript.ok().withBodySize(64 * 1024).withTruncatedBody(1000));    // $NON-NLS-1$
+        try (CloseableHttpAsyncClient asyncClient = singleConnectionClient()) {
+            AsyncBackedHttpClient client = new AsyncBackedHttpClient(asyncClient);
+            client.execute(new HttpGet(server.uri("/truncated")), response -> {    // $NON-NLS-1$
+                Assertions.assertEquals(64 * 1024, response.getEntity().getContentLength());
+                InputStream stream = response.getEntity().getContent();
+                Assertions.assertEquals(1000, stream.readNBytes(1000).length);
+                Assertions.assertThrows(IOException.class, stream::readAllBytes, "A truncated body must fail rather than end");
+                return null;
+            });
+        }
+    }
+
+    @Test
+    void backPressure(FaultInjectingStubServer server) throws Exception {
+        int size = 4 * 1024 * 1024, bufferSize = 16 * 1024;
+        server.script("/large", StubScript.ok().withBodySize(size));    // $NON-NLS-1$
+        server.script("/upload", StubScript.ok());    // $NON-NLS-1$
+        try (CloseableHttpAsyncClient asyncClient = singleConnectionClient()) {
+            AsyncBackedHttpClient client = new AsyncBackedHttpClient(asyncClient, bufferSize);
+            client.execute(new HttpGet(server.uri("/large")), response -> {    // $NON-NLS-1$
+                InputStream stream = response.getEntity().getContent();
+                pause(300L);
+                Assertions.assertTrue(stream.available() <= bufferSize + 128 * 1024, "The reactor must stop reading once the pipe and its own read buffer are full, but buffered " + stream.available());    // $NON-NLS-1$
+                Assertions.assertEquals(size, stream.readAllBytes().length);
+                return null;
+            });
+            HttpPost post = new HttpPost(server.uri("/upload"));    // $NON-NLS-1$
+            post.setEntity(new ByteArrayEntity(new byte[size], ContentType.APPLICATION_OCTET_STREAM));
+            Assertions.assertEquals(200, client.execute(post, HttpResponse::getCode), "A body larger than the pipe must be written through it");
+        }
+    }
+
+    @Test
+    void requestConfig(FaultInjectingStubServer server) throws Exception {
+        server.script("/stalled", StubScript.ok().withStalledHeaders(Duration.ofSeconds(3L)));    // $NON-NLS-1$
+        try (CloseableHttpAsyncClient asyncClient = singleConnectionClient()) {
+            AsyncBackedHttpClient client = new AsyncBackedHttpClient(asyncClient);
+            HttpGet request = new HttpGet(server.uri("/stalled"));    // $NON-NLS-1$
+            request.setConfig(RequestConfig.custom().setResponseTimeout(Timeout.ofMilliseconds(200L)).build());
+            Assertions.assertThrows(SocketTimeoutException.class, () -> client.execute(request, response -> EntityUtils.toByteArray(response.getEntity())), "The config of the request must apply");
+        }
+    }
+
+    @Test
+    void asyncClientRequired() {
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(HttpClientAutoConfiguration.class).web(WebApplicationType.NONE).bannerMode(Banner.Mode.OFF).logStartupInfo(false).properties("spring.http-client.sync-client.async-backed=true", "spring.http-client.async-client.enabled=false");    // $NON-NLS-1$ // $NON-NLS-2$
+        Exception ex = Assertions.assertThrows(Exception.class, builder::run, "Async backed mode without an async client must fail");
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(ex);
+        Assertions.assertInstanceOf(IllegalStateException.class, cause);
+        Assertions.assertTrue(cause.getMessage().contains("async-client.enabled"), cause.getMessage());    // $NON-NLS-1$
+    }
+
+    @Test
+    void framingHeaders(FaultInjectingStubServer server) throws Exception {
+        server.script("/upload", StubScript.ok());    // $NON-NLS-1$
+        try (CloseableHttpAsyncClient asyncClient = singleConnectionClient()) {
+            AsyncBackedHttpClient client = new AsyncBackedHttpClient(asyncClient);
+            HttpPost post = new HttpPost(server.uri("/upload"));    // $NON-NLS-1$
+            post.setEntity(new ByteArrayEntity(new byte[1024], ContentType.APPLICATION_OCTET_STREAM));
+            post.setHeader(HttpHeaders.CONTENT_LENGTH, "1024");    // $NON-NLS-1$
+            post.setHeader(HttpHeaders.TRANSFER_ENCODING, "chunked");    // $NON-NLS-1$
+            post.setHeader("X-Upload", "framing");    // $NON-NLS-1$ // $NON-NLS-2$
+            Assertions.assertEquals(200, client.execute(post, HttpResponse::getCode), "The framing headers of the request must be left to the async protocol");
+            Header[] headers = server.getLastHeaders("/upload");    // $NON-NLS-1$
+            Assertions.assertEquals(1, Arrays.stream(headers).filter(header -> header.getName().equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)).count());
+            Assertions.assertEquals("1024", Arrays.stream(headers).filter(header -> header.getName().equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)).findFirst().map(Header::getValue).orElse(null));    // $NON-NLS-1$
+            Assertions.assertTrue(Arrays.stream(headers).noneMatch(header -> header.getName().equalsIgnoreCase(HttpHeaders.TRANSFER_ENCODING)));
+            Assertions.assertTrue(Arrays.stream(headers).anyMatch(header -> header.getName().equals("X-Upload")), "Other headers must be copied");    // $NON-NLS-1$
+        }
+    }
+
+    private static void pause(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static CloseableHttpAsyncClient singleConnectionClient() {
+        CloseableHttpAsyncClient client = HttpAsyncClients.custom().setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create().setMaxConnTotal(1).setMaxConnPerRoute(1).build()).build();
+        client.start();
+        return client;
+    }
+}
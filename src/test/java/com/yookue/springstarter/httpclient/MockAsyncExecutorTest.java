@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.async.methods.SimpleResponseConsumer;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.LatencyDistribution;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+import com.yookue.springstarter.httpclient.util.AsyncHttpClientExecutorUtils;
+
+
+class MockAsyncExecutorTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @TempDir
+    private Path tempDir;
+
+    private CloseableHttpAsyncClient client;
+
+    @BeforeEach
+    void startClient() {
+        client = HttpAsyncClients.createDefault();
+        client.start();
+    }
+
+    @AfterEach
+    void closeClient() throws Exception {
+        client.close();
+    }
+
+    @Test
+    void completion(FaultInjectingStubServer server) throws Exception {
+        server.script("/ok", StubScript.ok().withBodySize(512));    // $NON-NLS-1$
+        CompletableFuture<SimpleHttpResponse> future = AsyncHttpClientExecutorUtils.executeHandler(client, SimpleRequestProducer.create(SimpleRequestBuilder.get(server.uri("/ok")).build()), SimpleResponseConsumer.create(), null);    // $NON-NLS-1$
+        SimpleHttpResponse response = future.get(5L, TimeUnit.SECONDS);
+        Assertions.assertEquals(HttpStatus.SC_OK, response.getCode());
+        Assertions.assertEquals(512, response.getBodyBytes().length);
+        Assertions.assertEquals(HttpStatus.SC_OK, future.thenApply(SimpleHttpResponse::getCode).get(5L, TimeUnit.SECONDS), "The future must compose like any completable future");
+    }
+
+    @Test
+    void failure(FaultInjectingStubServer server) throws Exception {
+        server.script("/truncated", StubScript.ok().withBodySize(4096).withTruncatedBody(100));    // $NON-NLS-1$
+        CompletableFuture<SimpleHttpResponse> refused = AsyncHttpClientExecutorUtils.executeHandler(client, SimpleRequestProducer.create(SimpleRequestBuilder.get("http://127.0.0.1:1/refused").build()), SimpleResponseConsumer.create(), null);    // $NON-NLS-1$
+        ExecutionException failure = Assertions.assertThrows(ExecutionException.class, () -> refused.get(5L, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(IOException.class, failure.getCause(), "A refused connect must fail the future");
+        TrackingChannel channel = new TrackingChannel();
+        CompletableFuture<Boolean> truncated = AsyncHttpClientExecutorUtils.downloadSimply(client, server.uri("/truncated"), channel);    // $NON-NLS-1$
+        Assertions.assertThrows(ExecutionException.class, () -> truncated.get(5L, TimeUnit.SECONDS), "A truncated body must fail the future");
+        Assertions.assertFalse(channel.isOpen(), "The channel must be closed when the exchange fails");
+    }
+
+    @Test
+    void cancellation(FaultInjectingStubServer server) throws Exception {
+        server.script("/slow", StubScript.ok().withBodySize(1024).withLatency(LatencyDistribution.fixed(Duration.ofSeconds(3L))));    // $NON-NLS-1$
+        TrackingChannel channel = new TrackingChannel();
+        CompletableFuture<Boolean> future = AsyncHttpClientExecutorUtils.downloadSimply(client, server.uri("/slow"), channel);    // $NON-NLS-1$
+        Thread.sleep(200L);
+        long start = System.nanoTime();
+        Assertions.assertTrue(future.cancel(true));
+        Assertions.assertThrows(CancellationException.class, future::join);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2L);
+        while (channel.isOpen() && System.nanoTime() < deadline) {
+            Thread.sleep(10L);
+        }
+        Assertions.assertFalse(channel.isOpen(), "Cancelling the future must abort the exchange and close the channel");
+        Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000L, "The exchange must not wait for the response");
+        Assertions.assertEquals(0, channel.getBytes().length);
+    }
+
+    @Test
+    void downloadPaths(FaultInjectingStubServer server) throws Exception {
+        server.script("/asset", StubScript.ok().withBodySize(2048));    // $NON-NLS-1$
+        server.script("/missing", StubScript.status(HttpStatus.SC_NOT_FOUND));    // $NON-NLS-1$
+        Path pathname = tempDir.resolve("by-path.bin");    // $NON-NLS-1$
+        Assertions.assertTrue(AsyncHttpClientExecutorUtils.downloadSimply(client, server.uri("/asset"), pathname.toString()).get(5L, TimeUnit.SECONDS));    // $NON-NLS-1$
+        Assertions.assertEquals(2048L, Files.size(pathname));
+        File file = tempDir.resolve("by-file.bin").toFile();    // $NON-NLS-1$
+        Files.write(file.toPath(), new byte[8192]);
+        Assertions.assertTrue(AsyncHttpClientExecutorUtils.downloadSimply(client, server.uri("/asset"), file).get(5L, TimeUnit.SECONDS));    // $NON-NLS-1$
+        Assertions.assertEquals(2048L, file.length(), "An existing file must be truncated");
+        TrackingChannel channel = new TrackingChannel();
+        Assertions.assertTrue(AsyncHttpClientExecutorUtils.downloadSimply(client, server.uri("/asset"), channel).get(5L, TimeUnit.SECONDS));    // $NON-NLS-1$
+        Assertions.assertEquals(2048, channel.getBytes().length);
+        Assertions.assertFalse(channel.isOpen(), "The channel must be closed when the exchange completes");
+        Assertions.assertFalse(AsyncHttpClientExecutorUtils.downloadSimply(client, server.uri("/missing"), new TrackingChannel()).get(5L, TimeUnit.SECONDS), "A non 200 response must not count as downloaded");    // $NON-NLS-1$
+        Assertions.assertFalse(AsyncHttpClientExecutorUtils.downloadSimply(client, " ", new TrackingChannel()).get(5L, TimeUnit.SECONDS));    // $NON-NLS-1$
+        Assertions.assertEquals(3, server.getRequestCount("/asset"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void unstartedExchange(FaultInjectingStubServer server) throws Exception {
+        TrackingChannel malformed = new TrackingChannel();
+        Assertions.assertThrows(IllegalArgumentException.class, () -> AsyncHttpClientExecutorUtils.downloadSimply(client, "http://127.0.0.1:1/a b", malformed));    // $NON-NLS-1$
+        Assertions.assertFalse(malformed.isOpen(), "The channel must be closed when the uri is malformed");
+        try (CloseableHttpAsyncClient inactive = HttpAsyncClients.createDefault()) {
+            TrackingChannel channel = new TrackingChannel();
+            CompletableFuture<Boolean> future = AsyncHttpClientExecutorUtils.downloadSimply(inactive, server.uri("/asset"), channel);    // $NON-NLS-1$
+            Assertions.assertThrows(CancellationException.class, () -> future.get(5L, TimeUnit.SECONDS), "A client that is not running must cancel the exchange");
+            Assertions.assertFalse(channel.isOpen(), "The channel must be closed when the client is not running");
+        }
+        Assertions.assertEquals(0, server.getRequestCount("/asset"));    // $NON-NLS-1$
+    }
+
+
+    private static class TrackingChannel implements WritableByteChannel {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private volatile boolean open = true;
+
+        @Override
+        public synchronized int write(ByteBuffer src) throws IOException {
+            int count = src.remaining();
+            byte[] chunk = new byte[count];
+            src.get(chunk);
+            bytes.write(chunk);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() {
+            open = false;
+        }
+
+        private synchronized byte[] getBytes() {
+            return bytes.toByteArray();
+        }
+    }
+}
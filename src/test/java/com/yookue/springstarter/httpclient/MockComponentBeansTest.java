@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.util.List;
+import java.util.Map;
+import org.apache.hc.client5.http.SchemePortResolver;
+import org.apache.hc.client5.http.classic.ExecChainHandler;
+import org.apache.hc.client5.http.impl.DefaultSchemePortResolver;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpRequestInterceptor;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import com.yookue.springstarter.httpclient.pool.MonitoredHttpClientConnectionManager;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.util.AbstractHttpClientBuilderUtils;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+
+
+class MockComponentBeansTest {
+    @Test
+    void listSlotBeans() {
+        HttpRequestInterceptor fooInterceptor = (request, entity, context) -> {
+        };
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("fooInterceptor", fooInterceptor);    // $NON-NLS-1$
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.setComponentBeans(Map.of("request-interceptors", "fooInterceptor"));    // $NON-NLS-1$ // $NON-NLS-2$
+        properties.setRequestInterceptors(List.of(MockRequestInterceptor.class));
+        List<HttpRequestInterceptor> interceptors = AbstractHttpClientBuilderUtils.resolveComponents(properties, beanFactory, "requestInterceptors", properties.getRequestInterceptors(), HttpRequestInterceptor.class);    // $NON-NLS-1$
+        Assertions.assertEquals(2, interceptors.size());
+        Assertions.assertSame(fooInterceptor, interceptors.get(0), "Referenced beans must come first");
+        Assertions.assertInstanceOf(MockRequestInterceptor.class, interceptors.get(1));
+    }
+
+    @Test
+    void mapSlotBeans() {
+        ExecChainHandler auditHandler = (request, scope, chain) -> chain.proceed(request, scope);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("auditHandler", auditHandler);    // $NON-NLS-1$
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.setComponentBeans(Map.of("exec-interceptors.audit", "auditHandler"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Map<String, ExecChainHandler> handlers = AbstractHttpClientBuilderUtils.resolveNamedComponents(properties, beanFactory, "execInterceptors", properties.getExecInterceptors(), ExecChainHandler.class);    // $NON-NLS-1$
+        Assertions.assertEquals(Map.of("audit", auditHandler), handlers);
+        Assertions.assertThrows(IllegalStateException.class, () -> AbstractHttpClientBuilderUtils.resolveNamedComponents(properties, null, "execInterceptors", null, ExecChainHandler.class));    // $NON-NLS-1$
+    }
+
+    @Test
+    void sharedSchemePortResolver() {
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.setSchemePortResolver(MockSchemePortResolver.class);
+        HttpClientConnectionManager connectionManager = SyncHttpClientBuilderUtils.connectionManager(properties, null);
+        SchemePortResolver resolver = ((MonitoredHttpClientConnectionManager) connectionManager).getSchemePortResolver();
+        Assertions.assertInstanceOf(MockSchemePortResolver.class, resolver);
+        HttpClientBuilder builder = SyncHttpClientBuilderUtils.clientBuilder(properties, connectionManager, null);
+        Assertions.assertSame(resolver, ReflectionTestUtils.getField(builder, "schemePortResolver"), "The client must share the resolver of the connection manager");    // $NON-NLS-1$
+    }
+
+    static class MockRequestInterceptor implements HttpRequestInterceptor {
+        @Override
+        public void process(HttpRequest request, EntityDetails entity, HttpContext context) {
+        }
+    }
+
+    static class MockSchemePortResolver extends DefaultSchemePortResolver {
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import org.apache.hc.client5.http.cookie.Cookie;
+import org.apache.hc.client5.http.impl.cookie.BasicClientCookie;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.springstarter.httpclient.cookie.IndexedCookieStore;
+
+
+class MockCookieStoreTest {
+    @Test
+    void indexes() {
+        IndexedCookieStore store = new IndexedCookieStore(null);
+        store.addCookie(cookie("session", "a", "Example.com", null));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        store.addCookie(cookie("session", "b", "example.com", "/api"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        store.addCookie(cookie("theme", "dark", "other.org", "/"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        Assertions.assertEquals(3, store.getCookies().size());
+        Assertions.assertEquals(2, store.getCookies("session").size());    // $NON-NLS-1$
+        Assertions.assertEquals(2, store.getCookiesByDomain("EXAMPLE.COM").size(), "Domains must be compared ignoring case");    // $NON-NLS-1$
+        Assertions.assertEquals("a", store.getCookie("example.com", "/", "session").getValue(), "A null path must equal /");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        Assertions.assertEquals("b", store.getCookie("example.com", "/api", "session").getValue());    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        store.addCookie(cookie("session", "c", "example.com", "/"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        Assertions.assertEquals(3, store.getCookies().size(), "Same identity must replace the cookie");
+        Assertions.assertEquals("c", store.getCookie("example.com", null, "session").getValue());    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        store.addCookie(expired(cookie("theme", "light", "other.org", "/")));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        Assertions.assertNull(store.getCookie("theme"), "An expired cookie must remove its identity");    // $NON-NLS-1$
+        Assertions.assertTrue(store.getCookiesByDomain("other.org").isEmpty(), "Empty index entries must be dropped");    // $NON-NLS-1$
+    }
+
+    @Test
+    void snapshotInvalidation() {
+        IndexedCookieStore store = new IndexedCookieStore(null);
+        store.addCookie(cookie("a", "1", "example.com", "/"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        List<Cookie> first = store.getCookies();
+        Assertions.assertSame(first, store.getCookies(), "Reads without writes must share the snapshot");
+        store.addCookie(cookie("b", "2", "example.com", "/"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        List<Cookie> second = store.getCookies();
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals(1, first.size(), "A snapshot must not change after writes");
+        Assertions.assertEquals(2, second.size());
+        BasicClientCookie expiring = cookie("c", "3", "example.com", "/");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        expiring.setExpiryDate(Instant.now().plus(1L, ChronoUnit.HOURS));
+        store.addCookie(expiring);
+        List<Cookie> third = store.getCookies();
+        Assertions.assertEquals(3, third.size());
+        Assertions.assertTrue(store.clearExpired(Instant.now().plus(2L, ChronoUnit.HOURS)));
+        Assertions.assertEquals(2, store.getCookies().size(), "Sweeping must invalidate the snapshot");
+        Assertions.assertFalse(store.clearExpired(Instant.now().plus(2L, ChronoUnit.HOURS)), "Nothing is left to sweep");
+        store.clear();
+        Assertions.assertTrue(store.getCookies().isEmpty(), "Clearing must invalidate the snapshot");
+        Assertions.assertTrue(store.getCookies("a").isEmpty());    // $NON-NLS-1$
+    }
+
+    private static BasicClientCookie cookie(String name, String value, String domain, String path) {
+        BasicClientCookie cookie = new BasicClientCookie(name, value);
+        cookie.setDomain(domain);
+        cookie.setPath(path);
+        return cookie;
+    }
+
+    private static BasicClientCookie expired(BasicClientCookie cookie) {
+        cookie.setExpiryDate(Instant.now().minus(1L, ChronoUnit.MINUTES));
+        return cookie;
+    }
+}
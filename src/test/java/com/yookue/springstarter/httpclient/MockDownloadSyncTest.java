@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.File;
+import java.net.SocketTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Stream;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import com.yookue.springstarter.httpclient.download.DownloadSyncIndex;
+import com.yookue.springstarter.httpclient.download.DownloadSyncResult;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientExecutorUtils;
+
+
+class MockDownloadSyncTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void conditionalDownload(FaultInjectingStubServer server) throws Exception {
+        server.script("/asset", StubScript.ok().withBodySize(4096).withEtag("\"v1\""));    // $NON-NLS-1$ // $NON-NLS-2$
+        DownloadSyncIndex index = new DownloadSyncIndex(tempDir.resolve("index.properties"));    // $NON-NLS-1$
+        File output = tempDir.resolve("asset.bin").toFile();    // $NON-NLS-1$
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            Assertions.assertEquals(DownloadSyncResult.DOWNLOADED, SyncHttpClientExecutorUtils.syncDownload(client, server.uri("/asset"), output, index));    // $NON-NLS-1$
+            Assertions.assertEquals(4096L, output.length());
+            Assertions.assertEquals("\"v1\"", index.lookup(output.toPath()).getEtag());    // $NON-NLS-1$
+            Assertions.assertEquals(DownloadSyncResult.NOT_MODIFIED, SyncHttpClientExecutorUtils.syncDownload(client, server.uri("/asset"), output, index), "A matching etag must be answered with 304");    // $NON-NLS-1$
+            Assertions.assertEquals(4096L, output.length());
+            server.script("/asset", StubScript.ok().withBodySize(2048).withEtag("\"v2\""));    // $NON-NLS-1$ // $NON-NLS-2$
+            Assertions.assertEquals(DownloadSyncResult.DOWNLOADED, SyncHttpClientExecutorUtils.syncDownload(client, server.uri("/asset"), output, index));    // $NON-NLS-1$
+            Assertions.assertEquals(2048L, output.length(), "A changed etag must replace the file");
+            Files.write(output.toPath(), new byte[16]);
+            Assertions.assertNull(index.lookup(output.toPath()), "A file that changed locally must not be trusted");
+            Assertions.assertEquals(DownloadSyncResult.DOWNLOADED, SyncHttpClientExecutorUtils.syncDownload(client, server.uri("/asset"), output, index));    // $NON-NLS-1$
+            Assertions.assertEquals(2048L, output.length());
+        }
+        Assertions.assertEquals(4, server.getRequestCount("/asset"));    // $NON-NLS-1$
+        assertNoPartialFiles();
+    }
+
+    @Test
+    void failedDownloadKeepsTarget(FaultInjectingStubServer server) throws Exception {
+        server.script("/asset", StubScript.ok().withBodySize(1024));    // $NON-NLS-1$
+        DownloadSyncIndex index = new DownloadSyncIndex(tempDir.resolve("index.properties"));    // $NON-NLS-1$
+        File output = tempDir.resolve("asset.bin").toFile();    // $NON-NLS-1$
+        RequestConfig config = RequestConfig.custom().setResponseTimeout(Timeout.ofMilliseconds(300L)).build();
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            Assertions.assertEquals(DownloadSyncResult.DOWNLOADED, SyncHttpClientExecutorUtils.syncDownload(client, server.uri("/asset"), output, index, config));    // $NON-NLS-1$
+            server.script("/asset", StubScript.ok().withBodySize(4096).withSlowDrip(1024, Duration.ofSeconds(1L)));    // $NON-NLS-1$
+            Assertions.assertThrows(SocketTimeoutException.class, () -> SyncHttpClientExecutorUtils.syncDownload(client, server.uri("/asset"), output, index, config), "The request config must reach the client");    // $NON-NLS-1$
+        }
+        Assertions.assertEquals(1024L, output.length(), "A failed download must leave the target as is");
+        Assertions.assertNotNull(index.lookup(output.toPath()));
+        assertNoPartialFiles();
+    }
+
+    @Test
+    void leastRecentlySyncedEviction(FaultInjectingStubServer server) throws Exception {
+        server.script("/a", StubScript.ok().withBodySize(2000).withEtag("\"a\""));    // $NON-NLS-1$ // $NON-NLS-2$
+        server.script("/b", StubScript.ok().withBodySize(2000).withEtag("\"b\""));    // $NON-NLS-1$ // $NON-NLS-2$
+        server.script("/c", StubScript.ok().withBodySize(2000).withEtag("\"c\""));    // $NON-NLS-1$ // $NON-NLS-2$
+        DownloadSyncIndex index = new DownloadSyncIndex(tempDir.resolve("index.properties"), 5000L);    // $NON-NLS-1$
+        Path a = tempDir.resolve("a.bin");    // $NON-NLS-1$
+        Path b = tempDir.resolve("b.bin");    // $NON-NLS-1$
+        Path c = tempDir.resolve("c.bin");    // $NON-NLS-1$
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            Assertions.assertEquals(DownloadSyncResult.DOWNLOADED, SyncHttpClientExecutorUtils.syncDownload(client, server.uri("/a"), a.toFile(), index));    // $NON-NLS-1$
+            Thread.sleep(5L);
+            Assertions.assertEquals(DownloadSyncResult.DOWNLOADED, SyncHttpClientExecutorUtils.syncDownload(client, server.uri("/b"), b.toFile(), index));    // $NON-NLS-1$
+            Thread.sleep(5L);
+            Assertions.assertEquals(DownloadSyncResult.NOT_MODIFIED, SyncHttpClientExecutorUtils.syncDownload(client, server.uri("/a"), a.toFile(), index));    // $NON-NLS-1$
+            Thread.sleep(5L);
+            Assertions.assertEquals(DownloadSyncResult.DOWNLOADED, SyncHttpClientExecutorUtils.syncDownload(client, server.uri("/c"), c.toFile(), index));    // $NON-NLS-1$
+        }
+        Assertions.assertTrue(Files.exists(a), "A file synced by 304 must count as recently used");
+        Assertions.assertFalse(Files.exists(b), "The least recently synced file must be evicted");
+        Assertions.assertTrue(Files.exists(c));
+        Assertions.assertEquals(2, index.size());
+        Assertions.assertEquals(4000L, index.getTotalSize());
+        DownloadSyncIndex reloaded = new DownloadSyncIndex(tempDir.resolve("index.properties"), 5000L);    // $NON-NLS-1$
+        Assertions.assertEquals(2, reloaded.size(), "The index must survive a reload");
+        Assertions.assertNull(reloaded.lookup(b));
+    }
+
+    private void assertNoPartialFiles() throws Exception {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            Assertions.assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".part")), "Temp files must not be left behind");    // $NON-NLS-1$
+        }
+    }
+}
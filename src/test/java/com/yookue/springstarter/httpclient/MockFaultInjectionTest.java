@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.core5.http.ConnectionRequestTimeoutException;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
+import com.yookue.springstarter.httpclient.endpoint.HttpClientEndpoint;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.LatencyDistribution;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+
+
+@SpringBootTest(classes = MockApplicationInitializer.class, webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.http-client.sync-client.default-request-config.request-timeout=500ms",
+    "spring.http-client.sync-client.default-request-config.response-timeout=3s",
+    "management.endpoints.web.exposure.include=" + HttpClientEndpoint.ENDPOINT_ID
+})
+class MockFaultInjectionTest {
+    private static final int DEFAULT_MAX_PER_ROUTE = 5;
+
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @Autowired
+    @Qualifier(value = HttpClientAutoConfiguration.SYNC_HTTP_CLIENT)
+    private HttpClient syncHttpClient;
+
+    @Autowired
+    private HttpClientEndpoint httpClientEndpoint;
+
+    @Test
+    void latencyDistribution(FaultInjectingStubServer server) throws Exception {
+        server.script("/latency", StubScript.ok().withLatency(LatencyDistribution.uniform(Duration.ofMillis(50L), Duration.ofMillis(100L))));
+        for (int i = 0; i < 10; i++) {
+            long start = System.nanoTime();
+            Assertions.assertEquals(HttpStatus.SC_OK, execute(server.uri("/latency")));
+            Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 50L, "Latency must be injected");
+        }
+    }
+
+    @Test
+    void stalledHeadersHitResponseTimeout(FaultInjectingStubServer server) {
+        server.script("/stalled", StubScript.ok().withStalledHeaders(Duration.ofSeconds(30L)));
+        long start = System.nanoTime();
+        Assertions.assertThrows(SocketTimeoutException.class, () -> execute(server.uri("/stalled")));
+        long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        Assertions.assertTrue(elapsed >= 2500L && elapsed < 10000L, "Response timeout must apply, elapsed " + elapsed + "ms");
+    }
+
+    @Test
+    void slowDripBody(FaultInjectingStubServer server) throws Exception {
+        server.script("/drip", StubScript.ok().withBodySize(4096).withSlowDrip(1024, Duration.ofMillis(200L)));
+        long start = System.nanoTime();
+        byte[] body = syncHttpClient.execute(new HttpGet(server.uri("/drip")), response -> EntityUtils.toByteArray(response.getEntity()));
+        Assertions.assertEquals(4096, body.length);
+        Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() >= 600L, "Body must be dripped");
+    }
+
+    @Test
+    void connectionResetIsRetriedOnce(FaultInjectingStubServer server) {
+        server.script("/reset", StubScript.ok().withConnectionReset());
+        Assertions.assertThrows(IOException.class, () -> execute(server.uri("/reset")));
+        Assertions.assertEquals(2, server.getRequestCount("/reset"), "Idempotent request must be retried once");
+    }
+
+    @Test
+    void errorRate(FaultInjectingStubServer server) throws Exception {
+        server.script("/flaky", StubScript.ok().withErrorRate(0.5D, HttpStatus.SC_INTERNAL_SERVER_ERROR));
+        int errors = 0;
+        for (int i = 0; i < 100; i++) {
+            if (execute(server.uri("/flaky")) == HttpStatus.SC_INTERNAL_SERVER_ERROR) {
+                errors++;
+            }
+        }
+        Assertions.assertTrue(errors > 25 && errors < 75, "Error rate must be injected, got " + errors);
+    }
+
+    @Test
+    void poolExhaustionFailsOnRequestTimeout(FaultInjectingStubServer server) throws Exception {
+        server.script("/slow", StubScript.ok().withLatency(LatencyDistribution.fixed(Duration.ofMillis(1500L))));
+        ExecutorService executor = Executors.newFixedThreadPool(DEFAULT_MAX_PER_ROUTE);
+        try {
+            CountDownLatch started = new CountDownLatch(DEFAULT_MAX_PER_ROUTE);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < DEFAULT_MAX_PER_ROUTE; i++) {
+                futures.add(executor.submit(() -> {
+                    started.countDown();
+                    return execute(server.uri("/slow"));
+                }));
+            }
+            Assertions.assertTrue(started.await(5L, TimeUnit.SECONDS));
+            Thread.sleep(300L);
+            long start = System.nanoTime();
+            Assertions.assertThrows(ConnectionRequestTimeoutException.class, () -> execute(server.uri("/slow")));
+            Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1400L, "Lease must time out before a connection is released");
+            HttpClientEndpoint.ClientPoolDescriptor exhausted = httpClientEndpoint.client(HttpClientAutoConfiguration.SYNC_HTTP_CLIENT);
+            Assertions.assertNotNull(exhausted);
+            Assertions.assertEquals(DEFAULT_MAX_PER_ROUTE, exhausted.getTotal().getLeased());
+            Assertions.assertEquals(DEFAULT_MAX_PER_ROUTE, exhausted.getInflightRequests());
+            for (Future<Integer> future : futures) {
+                Assertions.assertEquals(HttpStatus.SC_OK, future.get(10L, TimeUnit.SECONDS));
+            }
+            Assertions.assertEquals(DEFAULT_MAX_PER_ROUTE, server.getPeakActiveRequests(), "Pool must cap the concurrent requests per route");
+            HttpClientEndpoint.ClientPoolDescriptor drained = httpClientEndpoint.control(HttpClientAutoConfiguration.SYNC_HTTP_CLIENT, HttpClientEndpoint.PoolAction.CLOSE_IDLE, null, null, null);
+            Assertions.assertNotNull(drained);
+            Assertions.assertEquals(0, drained.getInflightRequests());
+            Assertions.assertEquals(0, drained.getTotal().getAvailable());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private int execute(String uri) throws IOException {
+        return syncHttpClient.execute(new HttpGet(uri), response -> {
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        });
+    }
+}
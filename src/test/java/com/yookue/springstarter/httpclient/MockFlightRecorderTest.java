@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+
+
+@SpringBootTest(classes = MockApplicationInitializer.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class MockFlightRecorderTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @Autowired
+    @Qualifier(value = HttpClientAutoConfiguration.SYNC_HTTP_CLIENT)
+    private HttpClient syncHttpClient;
+
+    @Autowired
+    @Qualifier(value = HttpClientAutoConfiguration.ASYNC_HTTP_CLIENT)
+    private CloseableHttpAsyncClient asyncHttpClient;
+
+    @Test
+    void exchangePhases(FaultInjectingStubServer server) throws Exception {
+        server.script("/phases", StubScript.ok().withBodySize(2048));
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.yookue.httpclient.*");    // $NON-NLS-1$
+            recording.start();
+            byte[] body = syncHttpClient.execute(new HttpGet(server.uri("/phases")), response -> EntityUtils.toByteArray(response.getEntity()));
+            Assertions.assertEquals(2048, body.length);
+            asyncHttpClient.start();
+            SimpleHttpResponse response = asyncHttpClient.execute(SimpleRequestBuilder.get(server.uri("/phases")).build(), null).get(10L, TimeUnit.SECONDS);
+            Assertions.assertEquals(HttpStatus.SC_OK, response.getCode());
+            recording.stop();
+            Path file = Files.createTempFile("httpclient", ".jfr");    // $NON-NLS-1$ // $NON-NLS-2$
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+        List<String> names = events.stream().map(event -> event.getEventType().getName()).collect(Collectors.toList());
+        for (String phase : List.of("ConnectionLease", "ConnectionConnect", "DnsLookup", "FirstByte", "BodyTransfer")) {
+            Assertions.assertEquals(2L, names.stream().filter(name -> name.equals("com.yookue.httpclient." + phase)).count(), "Both clients must emit " + phase);    // $NON-NLS-1$
+        }
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().endsWith("BodyTransfer")) {    // $NON-NLS-1$
+                Assertions.assertEquals(2048L, event.getLong("responseBytes"));    // $NON-NLS-1$
+                Assertions.assertEquals(HttpStatus.SC_OK, event.getInt("status"));    // $NON-NLS-1$
+                Assertions.assertEquals("GET", event.getString("method"));    // $NON-NLS-1$ // $NON-NLS-2$
+            }
+        }
+    }
+
+    @Test
+    void disabledPhases(FaultInjectingStubServer server) throws Exception {
+        server.script("/phases", StubScript.ok().withBodySize(2048));
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            recording.enable("com.yookue.httpclient.ConnectionLease");    // $NON-NLS-1$
+            recording.disable("com.yookue.httpclient.FirstByte");    // $NON-NLS-1$
+            recording.disable("com.yookue.httpclient.BodyTransfer");    // $NON-NLS-1$
+            recording.start();
+            byte[] body = syncHttpClient.execute(new HttpGet(server.uri("/phases")), response -> EntityUtils.toByteArray(response.getEntity()));
+            Assertions.assertEquals(2048, body.length);
+            asyncHttpClient.start();
+            SimpleHttpResponse response = asyncHttpClient.execute(SimpleRequestBuilder.get(server.uri("/phases")).build(), null).get(10L, TimeUnit.SECONDS);
+            Assertions.assertEquals(2048, response.getBodyBytes().length);
+            recording.stop();
+            Path file = Files.createTempFile("httpclient", ".jfr");    // $NON-NLS-1$ // $NON-NLS-2$
+            try {
+                recording.dump(file);
+                events = RecordingFile.readAllEvents(file);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+        List<String> names = events.stream().map(event -> event.getEventType().getName()).filter(name -> name.startsWith("com.yookue.httpclient.")).collect(Collectors.toList());    // $NON-NLS-1$
+        Assertions.assertEquals(2L, names.stream().filter(name -> name.equals("com.yookue.httpclient.ConnectionLease")).count(), "The enabled event must still be recorded");    // $NON-NLS-1$
+        Assertions.assertTrue(names.stream().noneMatch(name -> name.endsWith("FirstByte") || name.endsWith("BodyTransfer")), "The disabled events must record nothing: " + names);    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.DnsResolver;
+import org.apache.hc.client5.http.impl.io.DefaultHttpClientConnectionOperator;
+import org.apache.hc.client5.http.impl.io.ManagedHttpClientConnectionFactory;
+import org.apache.hc.client5.http.io.ManagedHttpClientConnection;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.client5.http.ssl.TlsSocketStrategy;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.config.RegistryBuilder;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import com.yookue.springstarter.httpclient.connect.HappyEyeballsConnectionOperator;
+
+
+class MockHappyEyeballsTest {
+    @Test
+    void blackholedAddressLosesRace() throws Exception {
+        InetAddress live = InetAddress.getByName("127.0.0.1");    // $NON-NLS-1$
+        InetAddress blackholed = InetAddress.getByName("127.0.0.2");    // $NON-NLS-1$
+        List<Socket> fillers = new ArrayList<>();
+        try (ServerSocket liveServer = new ServerSocket(0, 50, live); ServerSocket blackhole = new ServerSocket()) {
+            int port = liveServer.getLocalPort();
+            blackhole.bind(new InetSocketAddress(blackholed, port), 1);
+            Assumptions.assumeTrue(saturate(blackhole, fillers), "The accept queue of the loopback could not be saturated");
+            DnsResolver dnsResolver = new DnsResolver() {
+                @Override
+                public InetAddress[] resolve(String host) {
+                    return new InetAddress[] {blackholed, live};
+                }
+
+                @Override
+                public String resolveCanonicalHostname(String host) {
+                    return host;
+                }
+            };
+            HappyEyeballsConnectionOperator operator = new HappyEyeballsConnectionOperator(new DefaultHttpClientConnectionOperator(null, dnsResolver, RegistryBuilder.<TlsSocketStrategy>create().build()), null, dnsResolver, null, Duration.ofMillis(250L), Duration.ofMinutes(10L));
+            ManagedHttpClientConnection conn = ManagedHttpClientConnectionFactory.INSTANCE.createConnection(null);
+            long start = System.nanoTime();
+            try {
+                operator.connect(conn, new HttpHost("http", "race.test", port), null, null, Timeout.ofSeconds(10L), SocketConfig.DEFAULT, null, HttpClientContext.create());    // $NON-NLS-1$ // $NON-NLS-2$
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                Assertions.assertEquals(new InetSocketAddress(live, port), conn.getRemoteAddress(), "The live address must win the race");
+                Assertions.assertTrue(elapsed >= 200L, "The live address must start after the attempt delay, but took " + elapsed + "ms");    // $NON-NLS-1$
+                Assertions.assertTrue(elapsed < 2000L, "The blackholed address must not hold the connect until its timeout, but took " + elapsed + "ms");    // $NON-NLS-1$
+            } finally {
+                conn.close();
+            }
+        } finally {
+            for (Socket filler : fillers) {
+                filler.close();
+            }
+        }
+    }
+
+    private static boolean saturate(ServerSocket server, List<Socket> fillers) throws IOException {
+        for (int i = 0; i < 16; i++) {
+            Socket filler = new Socket();
+            try {
+                filler.connect(server.getLocalSocketAddress(), 200);
+                fillers.add(filler);
+            } catch (SocketTimeoutException ex) {
+                filler.close();
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
+import com.yookue.springstarter.httpclient.timer.HashedWheelTimer;
+
+
+class MockHashedWheelTimerTest {
+    private static final Duration TICK = Duration.ofMillis(10L);
+
+    @Test
+    void wheelSize() {
+        Assertions.assertEquals(4, new HashedWheelTimer("test-timer", TICK, 3).getTicksPerWheel(), "The wheel must round up to a power of two");    // $NON-NLS-1$
+        Assertions.assertEquals(8, new HashedWheelTimer("test-timer", TICK, 5).getTicksPerWheel());    // $NON-NLS-1$
+        Assertions.assertEquals(1, new HashedWheelTimer("test-timer", TICK, 0).getTicksPerWheel());    // $NON-NLS-1$
+        Assertions.assertEquals(1 << 16, new HashedWheelTimer("test-timer", TICK, 1 << 20).getTicksPerWheel(), "The wheel must be capped");    // $NON-NLS-1$
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new HashedWheelTimer("test-timer", Duration.ZERO, 4));    // $NON-NLS-1$
+    }
+
+    @Test
+    void roundArithmetic() throws InterruptedException {
+        // Ticks 1, 5, 9 and 25 all hash to slot 1 of a wheel of 4, so they differ only by their remaining rounds
+        long[] delays = {15L, 55L, 95L, 255L};
+        long[] fired = new long[delays.length];
+        CountDownLatch latch = new CountDownLatch(delays.length);
+        try (HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK, 4)) {    // $NON-NLS-1$
+            long start = System.nanoTime();
+            for (int i = delays.length - 1; i >= 0; i--) {
+                int index = i;
+                timer.schedule(() -> {
+                    fired[index] = System.nanoTime() - start;
+                    latch.countDown();
+                }, delays[i], TimeUnit.MILLISECONDS);
+            }
+            Assertions.assertTrue(latch.await(5L, TimeUnit.SECONDS));
+        }
+        for (int i = 0; i < delays.length; i++) {
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(fired[i]);
+            Assertions.assertTrue(fired[i] >= TimeUnit.MILLISECONDS.toNanos(delays[i]), "A task must not run before its deadline: " + elapsed);    // $NON-NLS-1$
+            Assertions.assertTrue(elapsed < delays[i] + 150L, "A task must run in the round of its deadline: " + elapsed);    // $NON-NLS-1$
+            if (i > 0) {
+                Assertions.assertTrue(fired[i] > fired[i - 1], "The tasks of the same slot must run in the order of their rounds");
+            }
+        }
+    }
+
+    @Test
+    void cancellation() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        try (HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK, 4)) {    // $NON-NLS-1$
+            Cancellable cancelled = timer.schedule(runs::incrementAndGet, 100L, TimeUnit.MILLISECONDS);
+            Assertions.assertTrue(cancelled.cancel());
+            Assertions.assertFalse(cancelled.cancel(), "A task must be cancelled once only");
+            Cancellable completed = timer.schedule(latch::countDown, 10L, TimeUnit.MILLISECONDS);
+            Assertions.assertTrue(latch.await(5L, TimeUnit.SECONDS));
+            Assertions.assertFalse(completed.cancel(), "A task that has run cannot be cancelled");
+            TimeUnit.MILLISECONDS.sleep(250L);
+            Assertions.assertEquals(0, runs.get(), "A cancelled task must never run");
+        }
+        HashedWheelTimer closed = new HashedWheelTimer("test-timer", TICK, 4);    // $NON-NLS-1$
+        closed.close();
+        Assertions.assertThrows(IllegalStateException.class, () -> closed.schedule(runs::incrementAndGet, 10L, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void periodicRescheduling() throws InterruptedException {
+        List<Long> starts = new ArrayList<>();
+        CountDownLatch latch = new CountDownLatch(5);
+        try (HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK, 4)) {    // $NON-NLS-1$
+            Cancellable task = timer.scheduleWithFixedDelay(() -> {
+                synchronized (starts) {
+                    starts.add(System.nanoTime());
+                }
+                latch.countDown();
+                if (latch.getCount() == 3L) {
+                    throw new IllegalStateException("Failure of the second run");    // $NON-NLS-1$
+                }
+            }, 0L, 30L, TimeUnit.MILLISECONDS);
+            Assertions.assertTrue(latch.await(5L, TimeUnit.SECONDS), "A failed run must keep the task scheduled");
+            Assertions.assertTrue(task.cancel());
+            TimeUnit.MILLISECONDS.sleep(50L);
+            int count;
+            synchronized (starts) {
+                count = starts.size();
+            }
+            TimeUnit.MILLISECONDS.sleep(200L);
+            synchronized (starts) {
+                Assertions.assertEquals(count, starts.size(), "A cancelled periodic task must stop running");
+                for (int i = 1; i < starts.size(); i++) {
+                    Assertions.assertTrue(starts.get(i) - starts.get(i - 1) >= TimeUnit.MILLISECONDS.toNanos(30L), "The runs must be apart by the delay at least");
+                }
+            }
+        }
+    }
+
+    @Test
+    void executorHandoff() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "test-handoff"));    // $NON-NLS-1$
+        AtomicReference<String> onceThread = new AtomicReference<>(), periodicThread = new AtomicReference<>();
+        CountDownLatch once = new CountDownLatch(1), periodic = new CountDownLatch(3);
+        try (HashedWheelTimer timer = new HashedWheelTimer("test-timer", TICK, 4)) {    // $NON-NLS-1$
+            timer.schedule(() -> {
+                onceThread.set(Thread.currentThread().getName());
+                once.countDown();
+            }, 10L, TimeUnit.MILLISECONDS, executor);
+            Cancellable task = timer.scheduleWithFixedDelay(() -> {
+                periodicThread.set(Thread.currentThread().getName());
+                periodic.countDown();
+            }, 0L, 20L, TimeUnit.MILLISECONDS, executor);
+            Assertions.assertTrue(once.await(5L, TimeUnit.SECONDS));
+            Assertions.assertTrue(periodic.await(5L, TimeUnit.SECONDS));
+            task.cancel();
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals("test-handoff", onceThread.get(), "The task must run on the executor");    // $NON-NLS-1$
+        Assertions.assertEquals("test-handoff", periodicThread.get(), "The periodic task must run on the executor");    // $NON-NLS-1$
+    }
+
+    @Test
+    void timerBean() {
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(HttpClientAutoConfiguration.class).web(WebApplicationType.NONE).bannerMode(Banner.Mode.OFF).logStartupInfo(false).run();
+        HashedWheelTimer timer;
+        try {
+            timer = context.getBean(HttpClientAutoConfiguration.HTTP_CLIENT_TIMER, HashedWheelTimer.class);
+            Assertions.assertNotSame(HashedWheelTimer.getShared(), timer, "The context must own its timer");
+            timer.schedule(() -> {
+            }, 10L, TimeUnit.MILLISECONDS);
+        } finally {
+            context.close();
+        }
+        Assertions.assertThrows(IllegalStateException.class, () -> timer.schedule(() -> {
+        }, 10L, TimeUnit.MILLISECONDS), "Closing the context must close the timer");
+    }
+}
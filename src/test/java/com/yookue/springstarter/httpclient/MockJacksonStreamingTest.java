@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.ClientProtocolException;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.async.methods.SimpleRequestProducer;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.Message;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.apache.hc.core5.http.nio.AsyncEntityConsumer;
+import org.apache.hc.core5.http.nio.support.BasicResponseConsumer;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.StreamReadConstraints;
+import com.fasterxml.jackson.core.exc.StreamConstraintsException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.yookue.springstarter.httpclient.consumer.JacksonAsyncEntityConsumer;
+import com.yookue.springstarter.httpclient.consumer.JacksonStreamingAsyncEntityConsumer;
+import com.yookue.springstarter.httpclient.exception.UnexpectedHttpResponseException;
+import com.yookue.springstarter.httpclient.handler.JacksonResponseHandler;
+import com.yookue.springstarter.httpclient.handler.JacksonStreamingResponseHandler;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+
+
+class MockJacksonStreamingTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String ITEMS = "[{\"name\":\"café\",\"qty\":1},{\"name\":\"水\",\"qty\":22},{\"name\":\"tea\",\"qty\":-3.5e2,\"tags\":[\"a\",{\"b\":null}]}]";    // $NON-NLS-1$
+
+    @Test
+    void splitTokens() throws Exception {
+        byte[] bytes = ITEMS.getBytes(StandardCharsets.UTF_8);
+        List<Object> expected = MAPPER.readValue(bytes, new TypeReference<>() {
+        });
+        for (int chunkSize = 1; chunkSize <= 7; chunkSize++) {
+            Future<List<Object>> value = drive(new JacksonAsyncEntityConsumer<>(MAPPER, new TypeReference<>() {
+            }), bytes, chunkSize);
+            Assertions.assertEquals(expected, value.get(), "Tokens split at every " + chunkSize + " bytes must be joined");    // $NON-NLS-1$ // $NON-NLS-2$
+            List<Map<String, Object>> elements = new ArrayList<>();
+            Future<Long> count = drive(new JacksonStreamingAsyncEntityConsumer<>(MAPPER, new TypeReference<Map<String, Object>>() {
+            }, elements::add), bytes, chunkSize);
+            Assertions.assertEquals(3L, count.get());
+            Assertions.assertEquals(expected, elements);
+        }
+        List<Object> scalars = new ArrayList<>();
+        Assertions.assertEquals(4L, drive(new JacksonStreamingAsyncEntityConsumer<>(MAPPER, Object.class, scalars::add), "[1, \"two\", true, null]".getBytes(StandardCharsets.UTF_8), 2).get());    // $NON-NLS-1$
+        Assertions.assertEquals(List.of(1, "two", true), scalars.subList(0, 3));    // $NON-NLS-1$
+        Assertions.assertNull(scalars.get(3));
+        List<Object> single = new ArrayList<>();
+        Assertions.assertEquals(1L, drive(new JacksonStreamingAsyncEntityConsumer<>(MAPPER, Object.class, single::add), "{\"a\":1}".getBytes(StandardCharsets.UTF_8), 3).get(), "A top level object must be emitted as a single element");    // $NON-NLS-1$
+        Assertions.assertEquals(List.of(Map.of("a", 1)), single);    // $NON-NLS-1$
+    }
+
+    @Test
+    void readLimits() {
+        ObjectMapper limited = new ObjectMapper(JsonFactory.builder().streamReadConstraints(StreamReadConstraints.builder().maxNestingDepth(4).maxStringLength(16).build()).build());
+        byte[] deep = "[[[[[[1]]]]]]".getBytes(StandardCharsets.UTF_8);    // $NON-NLS-1$
+        byte[] shallow = "[[[1]]]".getBytes(StandardCharsets.UTF_8);    // $NON-NLS-1$
+        byte[] longString = "[\"0123456789abcdefghij\"]".getBytes(StandardCharsets.UTF_8);    // $NON-NLS-1$
+        Assertions.assertDoesNotThrow(() -> drive(new JacksonAsyncEntityConsumer<>(limited, Object.class), shallow, 2).get());
+        assertFailure(StreamConstraintsException.class, drive(new JacksonAsyncEntityConsumer<>(limited, Object.class), deep, 2), "The nesting depth of the mapper must apply");
+        assertFailure(StreamConstraintsException.class, drive(new JacksonStreamingAsyncEntityConsumer<>(limited, Object.class, element -> {
+        }), deep, 2), "The nesting depth of the mapper must apply to the elements");
+        assertFailure(StreamConstraintsException.class, drive(new JacksonAsyncEntityConsumer<>(limited, Object.class), longString, 5), "The string length of the mapper must apply");
+        assertFailure(StreamConstraintsException.class, drive(new JacksonStreamingAsyncEntityConsumer<>(limited, Object.class, element -> {
+        }), longString, 5), "The string length of the mapper must apply to the elements");
+    }
+
+    @Test
+    void failurePropagation() throws Exception {
+        byte[] bytes = ITEMS.getBytes(StandardCharsets.UTF_8);
+        assertFailure(IOException.class, drive(new JacksonAsyncEntityConsumer<>(MAPPER, Object.class), ITEMS.substring(0, 40).getBytes(StandardCharsets.UTF_8), 4), "Truncated content must fail");
+        assertFailure(IOException.class, drive(new JacksonAsyncEntityConsumer<>(MAPPER, Object.class), "{\"a\":1} {\"b\":2}".getBytes(StandardCharsets.UTF_8), 3), "Trailing content must fail");    // $NON-NLS-1$
+        assertFailure(IOException.class, drive(new JacksonStreamingAsyncEntityConsumer<>(MAPPER, Object.class, element -> {
+        }), "[1,2".getBytes(StandardCharsets.UTF_8), 1), "A truncated array must fail");    // $NON-NLS-1$
+        assertFailure(IOException.class, drive(new JacksonAsyncEntityConsumer<>(MAPPER, Object.class), "{\"a\":}".getBytes(StandardCharsets.UTF_8), 2), "Malformed content must fail");    // $NON-NLS-1$
+        List<Object> elements = new ArrayList<>();
+        Future<Long> rejected = drive(new JacksonStreamingAsyncEntityConsumer<>(MAPPER, Object.class, element -> {
+            if (elements.size() == 1) {
+                throw new IllegalStateException("rejected");    // $NON-NLS-1$
+            }
+            elements.add(element);
+        }), bytes, 8);
+        assertFailure(IllegalStateException.class, rejected, "The failure of the element consumer must reach the future");
+        Assertions.assertEquals(1, elements.size(), "No element must be emitted after a failure");
+        JacksonAsyncEntityConsumer<Object> latin = new JacksonAsyncEntityConsumer<>(MAPPER, Object.class);
+        Assertions.assertThrows(UnsupportedEncodingException.class, () -> latin.streamStart(new BasicEntityDetails(-1L, ContentType.create("application/json", StandardCharsets.ISO_8859_1)), callback(new CompletableFuture<>())));    // $NON-NLS-1$
+    }
+
+    @Test
+    void syncDecode(FaultInjectingStubServer server) throws Exception {
+        server.script("/items", StubScript.ok().withBody(ITEMS, ContentType.APPLICATION_JSON).withSlowDrip(5, Duration.ofMillis(1L)));    // $NON-NLS-1$
+        server.script("/latin", StubScript.ok().withBody("{\"name\":\"café\"}", ContentType.create("application/json", StandardCharsets.ISO_8859_1)));    // $NON-NLS-1$ // $NON-NLS-2$
+        server.script("/missing", StubScript.status(404).withBody("{}", ContentType.APPLICATION_JSON));    // $NON-NLS-1$ // $NON-NLS-2$
+        server.script("/truncated", StubScript.ok().withBody(ITEMS, ContentType.APPLICATION_JSON).withTruncatedBody(40));    // $NON-NLS-1$
+        List<Object> expected = MAPPER.readValue(ITEMS, new TypeReference<>() {
+        });
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            Assertions.assertEquals(expected, client.execute(new HttpGet(server.uri("/items")), new JacksonResponseHandler<>(MAPPER, new TypeReference<List<Object>>() {    // $NON-NLS-1$
+            })));
+            List<Object> elements = new ArrayList<>();
+            Assertions.assertEquals(3L, client.execute(new HttpGet(server.uri("/items")), new JacksonStreamingResponseHandler<>(MAPPER, Object.class, elements::add)));    // $NON-NLS-1$
+            Assertions.assertEquals(expected, elements);
+            Assertions.assertEquals(Map.of("name", "café"), client.execute(new HttpGet(server.uri("/latin")), new JacksonResponseHandler<>(MAPPER, Object.class)), "A declared charset must be honored");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+            ClientProtocolException missing = Assertions.assertThrows(ClientProtocolException.class, () -> client.execute(new HttpGet(server.uri("/missing")), new JacksonResponseHandler<>(MAPPER, Object.class)));    // $NON-NLS-1$
+            Assertions.assertInstanceOf(UnexpectedHttpResponseException.class, missing.getCause(), "An unsuccessful status must not be decoded");
+            Assertions.assertThrows(IOException.class, () -> client.execute(new HttpGet(server.uri("/truncated")), new JacksonStreamingResponseHandler<>(MAPPER, Object.class, element -> {    // $NON-NLS-1$
+            })));
+        }
+    }
+
+    @Test
+    void asyncDecode(FaultInjectingStubServer server) throws Exception {
+        server.script("/items", StubScript.ok().withBody(ITEMS, ContentType.APPLICATION_JSON).withSlowDrip(5, Duration.ofMillis(1L)));    // $NON-NLS-1$
+        server.script("/truncated", StubScript.ok().withBody(ITEMS, ContentType.APPLICATION_JSON).withTruncatedBody(40));    // $NON-NLS-1$
+        List<Object> expected = MAPPER.readValue(ITEMS, new TypeReference<>() {
+        });
+        try (CloseableHttpAsyncClient client = HttpAsyncClients.createDefault()) {
+            client.start();
+            Message<HttpResponse, List<Object>> message = client.execute(SimpleRequestProducer.create(SimpleRequestBuilder.get(server.uri("/items")).build()), new BasicResponseConsumer<>(new JacksonAsyncEntityConsumer<>(MAPPER, new TypeReference<List<Object>>() {    // $NON-NLS-1$
+            })), null).get(5L, TimeUnit.SECONDS);
+            Assertions.assertEquals(200, message.getHead().getCode());
+            Assertions.assertEquals(expected, message.getBody());
+            List<Object> elements = new ArrayList<>();
+            Message<HttpResponse, Long> count = client.execute(SimpleRequestProducer.create(SimpleRequestBuilder.get(server.uri("/items")).build()), new BasicResponseConsumer<>(new JacksonStreamingAsyncEntityConsumer<>(MAPPER, Object.class, elements::add)), null).get(5L, TimeUnit.SECONDS);    // $NON-NLS-1$
+            Assertions.assertEquals(3L, count.getBody());
+            Assertions.assertEquals(expected, elements);
+            Future<Message<HttpResponse, Object>> truncated = client.execute(SimpleRequestProducer.create(SimpleRequestBuilder.get(server.uri("/truncated")).build()), new BasicResponseConsumer<>(new JacksonAsyncEntityConsumer<>(MAPPER, Object.class)), null);    // $NON-NLS-1$
+            ExecutionException failure = Assertions.assertThrows(ExecutionException.class, () -> truncated.get(5L, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(IOException.class, failure.getCause(), "A truncated body must fail the future");
+        }
+    }
+
+    /**
+     * Feed the bytes in chunks of the given size, and fail the consumer on any exception as the async exchange does
+     */
+    private static <T> Future<T> drive(AsyncEntityConsumer<T> consumer, byte[] bytes, int chunkSize) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            consumer.streamStart(new BasicEntityDetails(bytes.length, ContentType.APPLICATION_JSON), callback(future));
+            for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+                consumer.consume(ByteBuffer.wrap(bytes, offset, Math.min(chunkSize, bytes.length - offset)));
+            }
+            consumer.streamEnd(null);
+        } catch (Exception ex) {
+            consumer.failed(ex);
+        }
+        return future;
+    }
+
+    private static <T> FutureCallback<T> callback(CompletableFuture<T> future) {
+        return new FutureCallback<>() {
+            @Override
+            public void completed(T result) {
+                future.complete(result);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                future.completeExceptionally(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                future.cancel(false);
+            }
+        };
+    }
+
+    private static void assertFailure(Class<? extends Throwable> expected, Future<?> future, String message) {
+        ExecutionException failure = Assertions.assertThrows(ExecutionException.class, future::get, message);
+        Assertions.assertInstanceOf(expected, failure.getCause(), message);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.RequestFailedException;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.client5.http.nio.AsyncConnectionEndpoint;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import com.yookue.springstarter.httpclient.exception.ConnectionLeaseRejectedException;
+import com.yookue.springstarter.httpclient.pool.LeaseAdmissionControl;
+import com.yookue.springstarter.httpclient.pool.MonitoredAsyncClientConnectionManager;
+import com.yookue.springstarter.httpclient.pool.MonitoredHttpClientConnectionManager;
+import com.yookue.springstarter.httpclient.property.AsyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.LatencyDistribution;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+import com.yookue.springstarter.httpclient.util.AsyncHttpClientBuilderUtils;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+
+
+class MockLeaseAdmissionTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    private static final HttpRoute ROUTE = new HttpRoute(new HttpHost("http", "127.0.0.1", 8080));    // $NON-NLS-1$ // $NON-NLS-2$
+    private static final Timeout LEASE_TIMEOUT = Timeout.ofSeconds(5L);
+
+    @Test
+    void queueBound() throws Exception {
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.getConnectionPool().setMaxPerRoute(1);
+        properties.getConnectionPool().setMaxQueuedPerRoute(1);
+        try (MonitoredHttpClientConnectionManager manager = (MonitoredHttpClientConnectionManager) SyncHttpClientBuilderUtils.connectionManager(properties, null)) {
+            LeaseAdmissionControl admissionControl = manager.getAdmissionControl();
+            ConnectionEndpoint endpoint = manager.lease("held", ROUTE, LEASE_TIMEOUT, null).get(LEASE_TIMEOUT);    // $NON-NLS-1$
+            LeaseRequest queued = manager.lease("queued", ROUTE, LEASE_TIMEOUT, null);    // $NON-NLS-1$
+            Assertions.assertEquals(2, admissionControl.getOccupied(ROUTE));
+            LeaseRequest rejected = manager.lease("rejected", ROUTE, LEASE_TIMEOUT, null);    // $NON-NLS-1$
+            ExecutionException ex = Assertions.assertThrows(ExecutionException.class, () -> rejected.get(LEASE_TIMEOUT), "A lease beyond the queue bound must fail at once");
+            Assertions.assertInstanceOf(ConnectionLeaseRejectedException.class, ex.getCause());
+            Assertions.assertEquals(ROUTE, ((ConnectionLeaseRejectedException) ex.getCause()).getRoute());
+            Assertions.assertEquals(1L, admissionControl.getRejectedLeases(ROUTE));
+            Assertions.assertEquals(2, admissionControl.getOccupied(ROUTE), "A rejected lease must not occupy the route");
+            Assertions.assertTrue(queued.cancel());
+            Assertions.assertEquals(1, admissionControl.getOccupied(ROUTE), "A cancelled lease must leave the route");
+            manager.release(endpoint, null, TimeValue.ofMinutes(1L));
+            Assertions.assertEquals(0, admissionControl.getOccupied(ROUTE), "A released lease must leave the route");
+            ConnectionEndpoint next = manager.lease("next", ROUTE, LEASE_TIMEOUT, null).get(LEASE_TIMEOUT);    // $NON-NLS-1$
+            Assertions.assertEquals(1, admissionControl.getOccupied(ROUTE));
+            manager.release(next, null, TimeValue.ofMinutes(1L));
+            Assertions.assertEquals(0, admissionControl.getOccupied(ROUTE));
+        }
+    }
+
+    @Test
+    void estimatedWait() throws Exception {
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.getConnectionPool().setMaxPerRoute(1);
+        properties.getConnectionPool().setMaxEstimatedWait(Duration.ofMillis(100L));
+        try (MonitoredHttpClientConnectionManager manager = (MonitoredHttpClientConnectionManager) SyncHttpClientBuilderUtils.connectionManager(properties, null)) {
+            LeaseAdmissionControl admissionControl = manager.getAdmissionControl();
+            ConnectionEndpoint endpoint = manager.lease("first", ROUTE, LEASE_TIMEOUT, null).get(LEASE_TIMEOUT);    // $NON-NLS-1$
+            LeaseRequest unknown = manager.lease("unknown", ROUTE, LEASE_TIMEOUT, null);    // $NON-NLS-1$
+            Assertions.assertEquals(2, admissionControl.getOccupied(ROUTE), "A route without a hold time must not be rejected");
+            Assertions.assertTrue(unknown.cancel());
+            Thread.sleep(300L);
+            manager.release(endpoint, null, TimeValue.ofMinutes(1L));
+            endpoint = manager.lease("second", ROUTE, LEASE_TIMEOUT, null).get(LEASE_TIMEOUT);    // $NON-NLS-1$
+            Assertions.assertTrue(admissionControl.getEstimatedWait(ROUTE).toMillis() >= 250L, "The estimated wait must follow the hold time");
+            LeaseRequest rejected = manager.lease("rejected", ROUTE, LEASE_TIMEOUT, null);    // $NON-NLS-1$
+            ExecutionException ex = Assertions.assertThrows(ExecutionException.class, () -> rejected.get(LEASE_TIMEOUT), "A lease whose estimated wait exceeds the limit must fail at once");
+            Assertions.assertInstanceOf(ConnectionLeaseRejectedException.class, ex.getCause());
+            Assertions.assertEquals(1, admissionControl.getOccupied(ROUTE));
+            manager.release(endpoint, null, TimeValue.ofMinutes(1L));
+            Assertions.assertEquals(0, admissionControl.getOccupied(ROUTE));
+            Assertions.assertEquals(Duration.ZERO, admissionControl.getEstimatedWait(ROUTE), "A free route must not be waited for");
+        }
+    }
+
+    @Test
+    void rejectedRequestNotRetried(FaultInjectingStubServer server) throws Exception {
+        server.script("/slow", StubScript.ok().withBodySize(16).withLatency(LatencyDistribution.fixed(Duration.ofMillis(500L))));    // $NON-NLS-1$
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.getConnectionPool().setMaxPerRoute(1);
+        properties.getConnectionPool().setMaxQueuedPerRoute(0);
+        MonitoredHttpClientConnectionManager manager = (MonitoredHttpClientConnectionManager) SyncHttpClientBuilderUtils.connectionManager(properties, null);
+        HttpRoute route = new HttpRoute(new HttpHost("http", "127.0.0.1", server.getPort()));    // $NON-NLS-1$ // $NON-NLS-2$
+        try (CloseableHttpClient client = SyncHttpClientBuilderUtils.clientBuilder(properties, manager, null).build()) {
+            Thread holder = new Thread(() -> {
+                try {
+                    client.execute(new HttpGet(server.uri("/slow")), response -> EntityUtils.toByteArray(response.getEntity()));    // $NON-NLS-1$
+                } catch (Exception ignored) {
+                }
+            });
+            holder.start();
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (manager.getAdmissionControl().getOccupied(route) < 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            long start = System.nanoTime();
+            RequestFailedException ex = Assertions.assertThrows(RequestFailedException.class, () -> client.execute(new HttpGet(server.uri("/slow")), response -> EntityUtils.toByteArray(response.getEntity())));    // $NON-NLS-1$
+            Assertions.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 400L, "A rejected request must neither wait nor be retried");
+            Assertions.assertInstanceOf(ConnectionLeaseRejectedException.class, ex.getCause());
+            holder.join(5000L);
+        }
+        Assertions.assertEquals(1, server.getRequestCount("/slow"));    // $NON-NLS-1$
+        Assertions.assertEquals(1L, manager.getAdmissionControl().getRejectedLeases(route));
+        Assertions.assertEquals(0, manager.getAdmissionControl().getOccupied(route));
+    }
+
+    @Test
+    void asyncLease() throws Exception {
+        AsyncHttpClientProperties properties = new AsyncHttpClientProperties();
+        properties.getConnectionPool().setMaxPerRoute(1);
+        properties.getConnectionPool().setMaxQueuedPerRoute(1);
+        try (MonitoredAsyncClientConnectionManager manager = (MonitoredAsyncClientConnectionManager) AsyncHttpClientBuilderUtils.connectionManager(properties, null)) {
+            LeaseAdmissionControl admissionControl = manager.getAdmissionControl();
+            AsyncConnectionEndpoint endpoint = manager.lease("held", ROUTE, null, LEASE_TIMEOUT, null).get(5L, TimeUnit.SECONDS);    // $NON-NLS-1$
+            Future<AsyncConnectionEndpoint> queued = manager.lease("queued", ROUTE, null, LEASE_TIMEOUT, null);    // $NON-NLS-1$
+            Future<AsyncConnectionEndpoint> rejected = manager.lease("rejected", ROUTE, null, LEASE_TIMEOUT, null);    // $NON-NLS-1$
+            Assertions.assertTrue(rejected.isDone(), "A lease beyond the queue bound must fail at once");
+            ExecutionException ex = Assertions.assertThrows(ExecutionException.class, rejected::get);
+            Assertions.assertInstanceOf(ConnectionLeaseRejectedException.class, ex.getCause());
+            Assertions.assertEquals(2, admissionControl.getOccupied(ROUTE));
+            Assertions.assertTrue(queued.cancel(true));
+            Assertions.assertEquals(1, admissionControl.getOccupied(ROUTE), "A cancelled lease must leave the route");
+            manager.release(endpoint, null, TimeValue.ofMinutes(1L));
+            Assertions.assertEquals(0, admissionControl.getOccupied(ROUTE), "A released lease must leave the route");
+        }
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.core5.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import com.yookue.springstarter.httpclient.batch.MicroBatchCombiner;
+import com.yookue.springstarter.httpclient.batch.MicroBatchPolicy;
+import com.yookue.springstarter.httpclient.batch.MicroBatchSplitter;
+import com.yookue.springstarter.httpclient.batch.MicroBatcher;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+
+
+class MockMicroBatchTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    private static final MicroBatchSplitter<String, String> SPLITTER = (items, response) -> items.stream().map(item -> item + ':' + response.getCode()).collect(Collectors.toList());
+
+    private CloseableHttpAsyncClient client;
+
+    @BeforeEach
+    void startClient() {
+        client = HttpAsyncClients.createDefault();
+        client.start();
+    }
+
+    @AfterEach
+    void closeClient() throws Exception {
+        client.close();
+    }
+
+    @Test
+    void sizeFlush(FaultInjectingStubServer server) throws Exception {
+        server.script("/bulk", StubScript.ok());    // $NON-NLS-1$
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>(client, combiner(server), SPLITTER, policy(3, 0L, Duration.ofSeconds(10L)))) {
+            CompletableFuture<String> first = batcher.submit("a");    // $NON-NLS-1$
+            CompletableFuture<String> second = batcher.submit("b");    // $NON-NLS-1$
+            Assertions.assertEquals(2, batcher.getPendingCount());
+            CompletableFuture<String> third = batcher.submit("c");    // $NON-NLS-1$
+            Assertions.assertEquals(0, batcher.getPendingCount(), "Reaching the max items must flush at once");
+            Assertions.assertEquals(List.of("a:200", "b:200", "c:200"), List.of(first.get(5L, TimeUnit.SECONDS), second.get(5L, TimeUnit.SECONDS), third.get(5L, TimeUnit.SECONDS)));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        }
+        Assertions.assertEquals(1, server.getRequestCount("/bulk"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void bytesFlush(FaultInjectingStubServer server) throws Exception {
+        server.script("/bulk", StubScript.ok());    // $NON-NLS-1$
+        CompletableFuture<String> third;
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>(client, combiner(server), SPLITTER, policy(100, 10L, Duration.ofSeconds(10L)), String::length)) {
+            CompletableFuture<String> first = batcher.submit("aaaa");    // $NON-NLS-1$
+            CompletableFuture<String> second = batcher.submit("bbbb");    // $NON-NLS-1$
+            third = batcher.submit("cccc");    // $NON-NLS-1$
+            Assertions.assertEquals(1, batcher.getPendingCount(), "An item that would exceed the max bytes must start the next batch");
+            Assertions.assertEquals("aaaa:200", first.get(5L, TimeUnit.SECONDS));    // $NON-NLS-1$
+            Assertions.assertEquals("bbbb:200", second.get(5L, TimeUnit.SECONDS));    // $NON-NLS-1$
+            Assertions.assertFalse(third.isDone());
+            CompletableFuture<String> exact = batcher.submit("dddddd");    // $NON-NLS-1$
+            Assertions.assertEquals(0, batcher.getPendingCount(), "Reaching the max bytes must flush at once");
+            Assertions.assertEquals("dddddd:200", exact.get(5L, TimeUnit.SECONDS));    // $NON-NLS-1$
+        }
+        Assertions.assertEquals("cccc:200", third.get(5L, TimeUnit.SECONDS));    // $NON-NLS-1$
+        Assertions.assertEquals(2, server.getRequestCount("/bulk"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void delayFlush(FaultInjectingStubServer server) throws Exception {
+        server.script("/bulk", StubScript.ok());    // $NON-NLS-1$
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>(client, combiner(server), SPLITTER, policy(100, 0L, Duration.ofMillis(200L)))) {
+            long start = System.nanoTime();
+            CompletableFuture<String> first = batcher.submit("a");    // $NON-NLS-1$
+            CompletableFuture<String> second = batcher.submit("b");    // $NON-NLS-1$
+            Assertions.assertEquals("a:200", first.get(5L, TimeUnit.SECONDS));    // $NON-NLS-1$
+            Assertions.assertEquals("b:200", second.get(5L, TimeUnit.SECONDS));    // $NON-NLS-1$
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assertions.assertTrue(elapsed >= 150L, "The batch must wait for the max delay, but took " + elapsed + "ms");    // $NON-NLS-1$
+        }
+        Assertions.assertEquals(1, server.getRequestCount("/bulk"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void splitterSizeMismatch(FaultInjectingStubServer server) throws Exception {
+        server.script("/bulk", StubScript.ok());    // $NON-NLS-1$
+        MicroBatchSplitter<String, String> splitter = (items, response) -> items.subList(1, items.size());
+        try (MicroBatcher<String, String> batcher = new MicroBatcher<>(client, combiner(server), splitter, policy(2, 0L, Duration.ofSeconds(10L)))) {
+            CompletableFuture<String> first = batcher.submit("a");    // $NON-NLS-1$
+            CompletableFuture<String> second = batcher.submit("b");    // $NON-NLS-1$
+            for (CompletableFuture<String> future : List.of(first, second)) {
+                ExecutionException ex = Assertions.assertThrows(ExecutionException.class, () -> future.get(5L, TimeUnit.SECONDS));
+                Assertions.assertInstanceOf(IllegalStateException.class, ex.getCause(), "Every item of the batch must fail with the mismatch");
+            }
+        }
+    }
+
+    @Test
+    void closedRejects(FaultInjectingStubServer server) {
+        MicroBatcher<String, String> batcher = new MicroBatcher<>(client, combiner(server), SPLITTER, null);
+        batcher.close();
+        Assertions.assertTrue(batcher.submit("a").isCompletedExceptionally());    // $NON-NLS-1$
+    }
+
+    private static MicroBatchCombiner<String> combiner(FaultInjectingStubServer server) {
+        return items -> {
+            SimpleHttpRequest request = SimpleRequestBuilder.post(server.uri("/bulk")).build();    // $NON-NLS-1$
+            request.setBody(String.join(",", items), ContentType.TEXT_PLAIN);    // $NON-NLS-1$
+            return request;
+        };
+    }
+
+    private static MicroBatchPolicy policy(int maxItems, long maxBytes, Duration maxDelay) {
+        MicroBatchPolicy policy = new MicroBatchPolicy();
+        policy.setMaxItems(maxItems);
+        policy.setMaxBytes(maxBytes);
+        policy.setMaxDelay(maxDelay);
+        return policy;
+    }
+}
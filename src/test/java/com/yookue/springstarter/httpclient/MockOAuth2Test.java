@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import com.yookue.springstarter.httpclient.oauth2.OAuth2AccessToken;
+import com.yookue.springstarter.httpclient.oauth2.OAuth2TokenManager;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.LatencyDistribution;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+import com.yookue.springstarter.httpclient.util.AbstractHttpClientBuilderUtils;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+
+
+class MockOAuth2Test {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    private static final String TOKEN_BODY = "{\"access_token\":\"abc\",\"token_type\":\"Bearer\",\"expires_in\":3600}";    // $NON-NLS-1$
+
+    @Test
+    void singleFlight(FaultInjectingStubServer server) throws Exception {
+        server.script("/token", StubScript.ok().withBody(TOKEN_BODY, ContentType.APPLICATION_JSON).withLatency(LatencyDistribution.fixed(Duration.ofMillis(300L))));    // $NON-NLS-1$
+        SyncHttpClientProperties properties = properties(server);
+        OAuth2TokenManager tokenManager = new OAuth2TokenManager(properties.getOauth2().getRegistrations(), AbstractHttpClientBuilderUtils.buildTokenClient(properties, null));
+        List<CompletableFuture<OAuth2AccessToken>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> tokenManager.getToken("stub")).thenCompose(future -> future));    // $NON-NLS-1$
+        }
+        OAuth2AccessToken first = futures.get(0).get(10L, TimeUnit.SECONDS);
+        for (CompletableFuture<OAuth2AccessToken> future : futures) {
+            Assertions.assertEquals("abc", future.get(10L, TimeUnit.SECONDS).getTokenValue());    // $NON-NLS-1$
+        }
+        Assertions.assertEquals(1, server.getRequestCount("/token"), "Concurrent requests must share a single fetch");    // $NON-NLS-1$
+        Assertions.assertSame(first, tokenManager.getToken("stub").get(), "A valid token must be served from the cache");    // $NON-NLS-1$
+        Assertions.assertSame(first, tokenManager.refreshToken("stub", new OAuth2AccessToken("stale", "Bearer", first.getExpiresAt(), first.getRefreshAt())).get(), "A token that is replaced already must not be fetched again");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals(1, server.getRequestCount("/token"));    // $NON-NLS-1$
+    }
+
+    @Test
+    void unauthorizedForcesRefresh(FaultInjectingStubServer server) throws Exception {
+        server.script("/token", StubScript.ok().withBody(TOKEN_BODY, ContentType.APPLICATION_JSON));    // $NON-NLS-1$
+        server.script("/protected", StubScript.status(HttpStatus.SC_UNAUTHORIZED));    // $NON-NLS-1$
+        SyncHttpClientProperties properties = properties(server);
+        try (CloseableHttpClient client = SyncHttpClientBuilderUtils.clientBuilder(properties, SyncHttpClientBuilderUtils.connectionManager(properties, null), null).build()) {
+            int status = client.execute(new HttpGet(server.uri("/protected")), response -> response.getCode());    // $NON-NLS-1$
+            Assertions.assertEquals(HttpStatus.SC_UNAUTHORIZED, status);
+        }
+        Assertions.assertEquals(2, server.getRequestCount("/protected"), "A 401 must be retried once with a new token");    // $NON-NLS-1$
+        Assertions.assertEquals(2, server.getRequestCount("/token"), "A 401 must force a token fetch");    // $NON-NLS-1$
+    }
+
+    private static SyncHttpClientProperties properties(FaultInjectingStubServer server) {
+        AbstractHttpClientProperties.OAuth2Registration registration = new AbstractHttpClientProperties.OAuth2Registration();
+        registration.setTokenUri(server.uri("/token"));    // $NON-NLS-1$
+        registration.setClientId("client");    // $NON-NLS-1$
+        registration.setClientSecret("secret");    // $NON-NLS-1$
+        registration.setHosts(List.of("127.0.0.1"));    // $NON-NLS-1$
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.getOauth2().setRegistrations(Map.of("stub", registration));    // $NON-NLS-1$
+        return properties;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
+import com.yookue.springstarter.httpclient.observation.DefaultHttpClientObservationConvention;
+import com.yookue.springstarter.httpclient.observation.HttpClientObservationContext;
+import com.yookue.springstarter.httpclient.observation.ObservationPoolListener;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+import io.micrometer.common.KeyValue;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationHandler;
+import io.micrometer.observation.ObservationRegistry;
+
+
+@SpringBootTest(classes = MockApplicationInitializer.class, webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+    "spring.http-client.sync-client.routes.[127.0.0.1/flaky].max-retries=2",    // $NON-NLS-1$
+    "spring.http-client.sync-client.routes.[127.0.0.1/flaky].retry-interval=0"    // $NON-NLS-1$
+})
+class MockObservationTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    private static final String PROPAGATED_HEADER = "X-Observation";    // $NON-NLS-1$
+    private static final List<String> LOW_CARDINALITY_KEYS = List.of("method", "status", "outcome", "exception", "client.name", "connection");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+
+    @Autowired
+    private ObservationRegistry observationRegistry;
+
+    @Autowired
+    @Qualifier(value = HttpClientAutoConfiguration.SYNC_HTTP_CLIENT)
+    private HttpClient syncHttpClient;
+
+    @Autowired
+    @Qualifier(value = HttpClientAutoConfiguration.ASYNC_HTTP_CLIENT)
+    private CloseableHttpAsyncClient asyncHttpClient;
+
+    private static final List<HttpClientObservationContext> OBSERVATIONS = new CopyOnWriteArrayList<>();
+    private static boolean handlerRegistered;
+
+    @BeforeEach
+    void registerHandler() {
+        if (!handlerRegistered) {
+            observationRegistry.observationConfig().observationHandler(new CollectingHandler(OBSERVATIONS));
+            handlerRegistered = true;
+        }
+        OBSERVATIONS.clear();
+    }
+
+    @Test
+    void syncExchanges(FaultInjectingStubServer server) throws Exception {
+        server.script("/plain", StubScript.ok().withBodySize(256));    // $NON-NLS-1$
+        for (int i = 0; i < 2; i++) {
+            Assertions.assertEquals(256, syncHttpClient.execute(new HttpGet(server.uri("/plain")), response -> EntityUtils.toByteArray(response.getEntity())).length);    // $NON-NLS-1$
+        }
+        Assertions.assertEquals(2, OBSERVATIONS.size(), "Each exchange must be observed once");
+        HttpClientObservationContext first = OBSERVATIONS.get(0);
+        Assertions.assertEquals(DefaultHttpClientObservationConvention.OBSERVATION_NAME, first.getName());
+        Assertions.assertEquals("http get", first.getContextualName());    // $NON-NLS-1$
+        Assertions.assertEquals(LOW_CARDINALITY_KEYS, first.getLowCardinalityKeyValues().stream().map(KeyValue::getKey).sorted(this::keyOrder).collect(Collectors.toList()));
+        Assertions.assertEquals(Map.of("method", "GET", "status", "200", "outcome", "SUCCESS", "exception", "none", "client.name", "127.0.0.1", "connection", "new"), lowCardinality(first));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$ // $NON-NLS-7$ // $NON-NLS-8$ // $NON-NLS-9$ // $NON-NLS-10$ // $NON-NLS-11$ // $NON-NLS-12$
+        Assertions.assertEquals(server.uri("/plain"), first.getHighCardinalityKeyValue("http.url").getValue());    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(List.of(ObservationPoolListener.LEASE_REQUESTED.getName(), ObservationPoolListener.LEASE_ACQUIRED.getName(), ObservationPoolListener.CONNECT_STARTED.getName(), ObservationPoolListener.CONNECT_COMPLETED.getName()), events(first));
+        HttpClientObservationContext second = OBSERVATIONS.get(1);
+        Assertions.assertEquals("reused", lowCardinality(second).get("connection"), "The second exchange must reuse the pooled connection");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(List.of(ObservationPoolListener.LEASE_REQUESTED.getName(), ObservationPoolListener.LEASE_ACQUIRED.getName()), events(second));
+        Header header = lastHeader(server, "/plain");    // $NON-NLS-1$
+        Assertions.assertNotNull(header, "The context must be propagated through the request headers");
+        Assertions.assertEquals(String.valueOf(System.identityHashCode(second)), header.getValue());
+    }
+
+    @Test
+    void retriesInOneObservation(FaultInjectingStubServer server) throws Exception {
+        server.script("/flaky", StubScript.status(HttpStatus.SC_SERVICE_UNAVAILABLE));    // $NON-NLS-1$
+        int status = syncHttpClient.execute(new HttpGet(server.uri("/flaky")), response -> {    // $NON-NLS-1$
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        });
+        Assertions.assertEquals(HttpStatus.SC_SERVICE_UNAVAILABLE, status);
+        Assertions.assertEquals(3, server.getRequestCount("/flaky"), "The route override must retry twice");    // $NON-NLS-1$
+        Assertions.assertEquals(1, OBSERVATIONS.size(), "The retries must stay inside the observation of the exchange");
+        Assertions.assertEquals("503", lowCardinality(OBSERVATIONS.get(0)).get("status"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("SERVER_ERROR", lowCardinality(OBSERVATIONS.get(0)).get("outcome"));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void failedExchange() {
+        Assertions.assertThrows(Exception.class, () -> syncHttpClient.execute(new HttpGet("http://127.0.0.1:1/refused"), response -> response.getCode()));    // $NON-NLS-1$
+        Assertions.assertEquals(1, OBSERVATIONS.size());
+        HttpClientObservationContext context = OBSERVATIONS.get(0);
+        Assertions.assertNotNull(context.getError());
+        Map<String, String> keys = lowCardinality(context);
+        Assertions.assertEquals("CLIENT_ERROR", keys.get("status"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("UNKNOWN", keys.get("outcome"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(context.getError().getClass().getSimpleName(), keys.get("exception"));    // $NON-NLS-1$
+        Assertions.assertTrue(events(context).contains(ObservationPoolListener.CONNECT_FAILED.getName()), "A refused connect must be attached to the observation");
+    }
+
+    @Test
+    void asyncExchange(FaultInjectingStubServer server) throws Exception {
+        server.script("/async", StubScript.ok().withBodySize(128));    // $NON-NLS-1$
+        asyncHttpClient.start();
+        SimpleHttpResponse response = asyncHttpClient.execute(SimpleRequestBuilder.get(server.uri("/async")).build(), null).get(10L, TimeUnit.SECONDS);    // $NON-NLS-1$
+        Assertions.assertEquals(HttpStatus.SC_OK, response.getCode());
+        awaitObservations(1);
+        Assertions.assertEquals(1, OBSERVATIONS.size(), "The exchange must be observed once");
+        HttpClientObservationContext context = OBSERVATIONS.get(0);
+        Assertions.assertEquals(LOW_CARDINALITY_KEYS, context.getLowCardinalityKeyValues().stream().map(KeyValue::getKey).sorted(this::keyOrder).collect(Collectors.toList()));
+        Assertions.assertEquals("200", lowCardinality(context).get("status"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("SUCCESS", lowCardinality(context).get("outcome"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertTrue(events(context).containsAll(List.of(ObservationPoolListener.LEASE_REQUESTED.getName(), ObservationPoolListener.LEASE_ACQUIRED.getName())), "The lease events must be attached to the observation");
+        Header header = lastHeader(server, "/async");    // $NON-NLS-1$
+        Assertions.assertNotNull(header, "The context must be propagated through the request headers");
+        Assertions.assertEquals(String.valueOf(System.identityHashCode(context)), header.getValue());
+    }
+
+    /**
+     * The future of an async exchange may complete right before the exec chain stops the observation
+     */
+    private static void awaitObservations(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5L);
+        while (OBSERVATIONS.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(10L);
+        }
+    }
+
+    private int keyOrder(String first, String second) {
+        return Integer.compare(LOW_CARDINALITY_KEYS.indexOf(first), LOW_CARDINALITY_KEYS.indexOf(second));
+    }
+
+    private static Map<String, String> lowCardinality(HttpClientObservationContext context) {
+        return context.getLowCardinalityKeyValues().stream().collect(Collectors.toMap(KeyValue::getKey, KeyValue::getValue));
+    }
+
+    private static List<String> events(HttpClientObservationContext context) {
+        List<String> events = context.get(CollectingHandler.EVENTS_KEY);
+        return (events == null) ? List.of() : events;
+    }
+
+    private static Header lastHeader(FaultInjectingStubServer server, String path) {
+        Header[] headers = server.getLastHeaders(path);
+        if (headers == null) {
+            return null;
+        }
+        for (Header header : headers) {
+            if (PROPAGATED_HEADER.equalsIgnoreCase(header.getName())) {
+                return header;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * Handler that collects the stopped observations, and propagates an id like a tracing handler does
+     */
+    private static class CollectingHandler implements ObservationHandler<HttpClientObservationContext> {
+        private static final String EVENTS_KEY = "events";    // $NON-NLS-1$
+
+        private final List<HttpClientObservationContext> observations;
+
+        private CollectingHandler(List<HttpClientObservationContext> observations) {
+            this.observations = observations;
+        }
+
+        @Override
+        public void onStart(HttpClientObservationContext context) {
+            context.put(EVENTS_KEY, new CopyOnWriteArrayList<String>());
+            context.getSetter().set(context.getCarrier(), PROPAGATED_HEADER, String.valueOf(System.identityHashCode(context)));
+        }
+
+        @Override
+        public void onEvent(Observation.Event event, HttpClientObservationContext context) {
+            List<String> events = context.get(EVENTS_KEY);
+            events.add(event.getName());
+        }
+
+        @Override
+        public void onStop(HttpClientObservationContext context) {
+            observations.add(context);
+        }
+
+        @Override
+        public boolean supportsContext(Observation.Context context) {
+            return context instanceof HttpClientObservationContext;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import com.yookue.springstarter.httpclient.pool.MonitoredHttpClientConnectionManager;
+import com.yookue.springstarter.httpclient.pool.PriorityLeaseGate;
+import com.yookue.springstarter.httpclient.pool.RequestPriority;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.LatencyDistribution;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+
+
+class MockPriorityTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @Test
+    void priorityOfRequest() {
+        HttpGet request = new HttpGet("http://127.0.0.1/");    // $NON-NLS-1$
+        request.setHeader(RequestPriority.HEADER_NAME, " high ");    // $NON-NLS-1$
+        HttpContext context = HttpClientContext.create();
+        context.setAttribute(RequestPriority.CONTEXT_ATTRIBUTE, RequestPriority.LOW);
+        Assertions.assertEquals(RequestPriority.HIGH, RequestPriority.of(request, context), "The header must take precedence over the context");
+        Assertions.assertFalse(request.containsHeader(RequestPriority.HEADER_NAME), "The header must be removed before sending");
+        Assertions.assertEquals(RequestPriority.LOW, RequestPriority.of(request, context));
+        request.setHeader(RequestPriority.HEADER_NAME, "urgent");    // $NON-NLS-1$
+        Assertions.assertEquals(RequestPriority.LOW, RequestPriority.of(request, context), "An unknown header value must fall back to the context");
+        Assertions.assertNull(RequestPriority.of(new HttpGet("http://127.0.0.1/"), null));    // $NON-NLS-1$
+    }
+
+    @Test
+    void highBypassesSaturatedLow(FaultInjectingStubServer server) throws Exception {
+        server.script("/bulk", StubScript.ok().withBodySize(64).withLatency(LatencyDistribution.fixed(Duration.ofMillis(1500L))));    // $NON-NLS-1$
+        server.script("/urgent", StubScript.ok().withBodySize(64));    // $NON-NLS-1$
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.getConnectionPool().setMaxPerRoute(4);
+        properties.getConnectionPool().setPriorityEnabled(true);
+        properties.getConnectionPool().setHighPriorityReservedShare(0.25D);
+        MonitoredHttpClientConnectionManager connectionManager = (MonitoredHttpClientConnectionManager) SyncHttpClientBuilderUtils.connectionManager(properties, null);
+        PriorityLeaseGate gate = connectionManager.getPriorityGate();
+        HttpRoute route = new HttpRoute(new HttpHost("http", "127.0.0.1", server.getPort()));    // $NON-NLS-1$ // $NON-NLS-2$
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try (CloseableHttpClient client = SyncHttpClientBuilderUtils.clientBuilder(properties, connectionManager, null).build()) {
+            List<Future<Integer>> bulks = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                bulks.add(executor.submit(() -> execute(client, server.uri("/bulk"), RequestPriority.LOW)));    // $NON-NLS-1$
+            }
+            long deadline = System.currentTimeMillis() + 5000L;
+            while ((gate.getHeld(route) < 3 || gate.getPending(route) < 3) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            Assertions.assertEquals(3, gate.getHeld(route), "Low priority must leave the reserved share alone");
+            Assertions.assertEquals(3, gate.getPending(route));
+            long start = System.nanoTime();
+            Assertions.assertEquals(HttpStatus.SC_OK, execute(client, server.uri("/urgent"), RequestPriority.HIGH));    // $NON-NLS-1$
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assertions.assertTrue(elapsed < 1000L, "High priority must not wait behind the saturated low lane, but took " + elapsed + "ms");    // $NON-NLS-1$
+            Assertions.assertNotEquals(0, server.getLastHeaders("/urgent").length);    // $NON-NLS-1$
+            for (Header header : server.getLastHeaders("/urgent")) {    // $NON-NLS-1$
+                Assertions.assertNotEquals(RequestPriority.HEADER_NAME, header.getName(), "The priority header must not reach the server");
+            }
+            for (Future<Integer> bulk : bulks) {
+                Assertions.assertEquals(HttpStatus.SC_OK, bulk.get(10L, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        Assertions.assertEquals(0, gate.getHeld(route));
+    }
+
+    private static int execute(CloseableHttpClient client, String uri, RequestPriority priority) throws Exception {
+        HttpGet request = new HttpGet(uri);
+        request.setHeader(RequestPriority.HEADER_NAME, priority.name());
+        return client.execute(request, response -> {
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        });
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.util.Map;
+import org.apache.hc.client5.http.protocol.RequestAddCookies;
+import org.apache.hc.core5.http.impl.io.HttpRequestExecutor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.InMemoryGeneratedFiles;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.context.aot.ApplicationContextAotGenerator;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.javapoet.ClassName;
+import com.yookue.springstarter.httpclient.jfr.FlightRecorderAsyncExecHandler;
+import com.yookue.springstarter.httpclient.jfr.FlightRecorderExecHandler;
+
+
+class MockPropertiesAotTest {
+    @Test
+    void componentSlots() {
+        RuntimeHints hints = generateHints(Map.of(
+            "spring.http-client.sync-client.request-executor", HttpRequestExecutor.class.getName(),    // $NON-NLS-1$
+            "spring.http-client.sync-client.request-interceptors", RequestAddCookies.class.getName(),    // $NON-NLS-1$
+            "spring.http-client.sync-client.exec-interceptors.jfr", FlightRecorderExecHandler.class.getName(),    // $NON-NLS-1$
+            "spring.http-client.async-client.exec-interceptors.jfr", FlightRecorderAsyncExecHandler.class.getName(),    // $NON-NLS-1$
+            "spring.http-client.sync-client.routes.[https://example.com/upload].max-retries", "2"    // $NON-NLS-1$ // $NON-NLS-2$
+        ));
+        for (Class<?> type : new Class<?>[] {HttpRequestExecutor.class, RequestAddCookies.class, FlightRecorderExecHandler.class, FlightRecorderAsyncExecHandler.class}) {
+            Assertions.assertTrue(RuntimeHintsPredicates.reflection().onType(type).withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS).test(hints), "The named class must be registered: " + type.getName());    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void noComponentSlots() {
+        RuntimeHints hints = generateHints(Map.of("spring.http-client.sync-client.routes.[https://example.com/upload].max-retries", "2"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertFalse(RuntimeHintsPredicates.reflection().onType(HttpRequestExecutor.class).test(hints), "No class must be registered without a component slot");
+    }
+
+    private static RuntimeHints generateHints(Map<String, Object> properties) {
+        try (GenericApplicationContext context = new GenericApplicationContext()) {
+            context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("aot", properties));    // $NON-NLS-1$
+            DefaultGenerationContext generationContext = new DefaultGenerationContext(new ClassNameGenerator(ClassName.get(MockPropertiesAotTest.class)), new InMemoryGeneratedFiles());
+            new ApplicationContextAotGenerator().processAheadOfTime(context, generationContext);
+            return generationContext.getRuntimeHints();
+        }
+    }
+}
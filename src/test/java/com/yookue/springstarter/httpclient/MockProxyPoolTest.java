@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import com.yookue.springstarter.httpclient.route.ProxyPoolRoutePlanner;
+
+
+class MockProxyPoolTest {
+    private static final HttpHost TARGET = new HttpHost("http", "api.example.com", 80);    // $NON-NLS-1$ // $NON-NLS-2$
+
+    @Test
+    void ejectAndReadmit() throws Exception {
+        int flakyPort;
+        try (ServerSocket socket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            flakyPort = socket.getLocalPort();
+        }
+        try (ServerSocket steady = new ServerSocket(0, 50, InetAddress.getLoopbackAddress())) {
+            HttpHost flaky = new HttpHost("http", "127.0.0.1", flakyPort);    // $NON-NLS-1$ // $NON-NLS-2$
+            HttpHost backup = new HttpHost("http", "127.0.0.1", steady.getLocalPort());    // $NON-NLS-1$ // $NON-NLS-2$
+            ProxyPoolRoutePlanner planner = new ProxyPoolRoutePlanner(properties(flaky, backup));
+            exchange(planner, flaky, TimeUnit.MILLISECONDS.toNanos(1L));
+            exchange(planner, backup, TimeUnit.MILLISECONDS.toNanos(100L));
+            Assertions.assertEquals(flaky, proxyOf(planner), "The proxy of the lowest latency must be picked");
+            fail(planner, flaky, new IOException("Connection refused"));    // $NON-NLS-1$
+            fail(planner, flaky, new IOException("Connection refused"));    // $NON-NLS-1$
+            fail(planner, flaky, new IllegalStateException("Not an io failure"));    // $NON-NLS-1$
+            Assertions.assertTrue(planner.isInRotation(flaky), "Only io failures must count against a proxy");
+            fail(planner, flaky, new IOException("Connection refused"));    // $NON-NLS-1$
+            Assertions.assertFalse(planner.isInRotation(flaky), "Consecutive failures must eject the proxy");
+            Assertions.assertEquals(backup, proxyOf(planner));
+            Assertions.assertEquals(0, planner.getOutstanding(flaky));
+            Thread.sleep(300L);
+            Assertions.assertFalse(planner.isInRotation(flaky), "A proxy that refuses the probe must stay out of rotation");
+            try (ServerSocket revived = new ServerSocket()) {
+                revived.setReuseAddress(true);
+                revived.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), flakyPort));
+                long deadline = System.currentTimeMillis() + 5000L;
+                while (!planner.isInRotation(flaky) && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(20L);
+                }
+                Assertions.assertTrue(planner.isInRotation(flaky), "A proxy that accepts the probe must be readmitted");
+                Assertions.assertEquals(flaky, proxyOf(planner));
+            }
+        }
+    }
+
+    @Test
+    void successResetsFailures() throws Exception {
+        HttpHost first = new HttpHost("http", "127.0.0.1", 1);    // $NON-NLS-1$ // $NON-NLS-2$
+        HttpHost second = new HttpHost("http", "127.0.0.1", 2);    // $NON-NLS-1$ // $NON-NLS-2$
+        ProxyPoolRoutePlanner planner = new ProxyPoolRoutePlanner(properties(first, second));
+        fail(planner, first, new IOException("Connection reset"));    // $NON-NLS-1$
+        fail(planner, first, new IOException("Connection reset"));    // $NON-NLS-1$
+        exchange(planner, first, 1000L);
+        fail(planner, first, new IOException("Connection reset"));    // $NON-NLS-1$
+        fail(planner, first, new IOException("Connection reset"));    // $NON-NLS-1$
+        Assertions.assertTrue(planner.isInRotation(first), "A success must reset the consecutive failures");
+        Assertions.assertEquals(List.of(first, second), planner.getProxies());
+    }
+
+    private static AbstractHttpClientProperties.ProxyPool properties(HttpHost... proxies) {
+        AbstractHttpClientProperties.ProxyPool properties = new AbstractHttpClientProperties.ProxyPool();
+        properties.setProxies(Arrays.stream(proxies).map(HttpHost::toHostString).toList());
+        properties.setFailureThreshold(3);
+        properties.setProbeInterval(Duration.ofMillis(100L));
+        properties.setProbeTimeout(Duration.ofMillis(200L));
+        return properties;
+    }
+
+    private static HttpHost proxyOf(ProxyPoolRoutePlanner planner) throws Exception {
+        return planner.determineRoute(TARGET, HttpClientContext.create()).getProxyHost();
+    }
+
+    private static void exchange(ProxyPoolRoutePlanner planner, HttpHost proxy, long latencyNanos) {
+        planner.exchangeStarted(proxy);
+        planner.exchangeCompleted(proxy, latencyNanos);
+    }
+
+    private static void fail(ProxyPoolRoutePlanner planner, HttpHost proxy, Exception cause) {
+        planner.exchangeStarted(proxy);
+        planner.exchangeFailed(proxy, cause);
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.pool.ConnPoolControl;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.test.annotation.DirtiesContext;
+import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
+import com.yookue.springstarter.httpclient.refresh.RefreshableHttpAsyncClient;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.LatencyDistribution;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+
+
+@SpringBootTest(classes = MockApplicationInitializer.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@DirtiesContext
+class MockRefreshTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @Autowired
+    private ConfigurableApplicationContext applicationContext;
+
+    @Autowired
+    @Qualifier(value = HttpClientAutoConfiguration.SYNC_HTTP_CLIENT)
+    private HttpClient syncHttpClient;
+
+    @Autowired
+    @Qualifier(value = HttpClientAutoConfiguration.SYNC_CONNECTION_MANAGER)
+    private HttpClientConnectionManager syncConnectionManager;
+
+    @Autowired
+    @Qualifier(value = HttpClientAutoConfiguration.ASYNC_HTTP_CLIENT)
+    private CloseableHttpAsyncClient asyncHttpClient;
+
+    @Test
+    void refreshInPlace(FaultInjectingStubServer server) throws Exception {
+        server.script("/slow", StubScript.ok().withLatency(LatencyDistribution.fixed(Duration.ofMillis(1500L))));
+        Assertions.assertEquals(HttpStatus.SC_OK, execute(server.uri("/slow")));
+        ConnPoolControl<?> pool = (ConnPoolControl<?>) syncConnectionManager;
+        int available = pool.getTotalStats().getAvailable();
+        Assertions.assertTrue(available > 0, "Connection must be kept alive");
+
+        refresh(Map.of(
+            "spring.http-client.sync-client.connectionPool.maxTotal", 40,
+            "spring.http-client.sync-client.connection-pool.max-per-route", 8,
+            "spring.http-client.sync-client.default-request-config.response-timeout", "500ms"
+        ));
+        Assertions.assertEquals(40, pool.getMaxTotal());
+        Assertions.assertEquals(8, pool.getDefaultMaxPerRoute());
+        Assertions.assertThrows(SocketTimeoutException.class, () -> execute(server.uri("/slow")));
+
+        server.script("/fast", StubScript.ok());
+        Assertions.assertEquals(HttpStatus.SC_OK, execute(server.uri("/fast")));
+        available = pool.getTotalStats().getAvailable();
+        refresh(Map.of("spring.http-client.sync-client.user-agent", "Refreshed-Agent"));
+        Assertions.assertEquals(available, pool.getTotalStats().getAvailable(), "Rebuild must keep the pooled connections");
+        Assertions.assertEquals(HttpStatus.SC_OK, execute(server.uri("/fast")));
+        Assertions.assertThrows(SocketTimeoutException.class, () -> execute(server.uri("/slow")), "Rebuild must keep the refreshed request config");
+    }
+
+    @Test
+    void asyncExchangeSurvivesRebuild(FaultInjectingStubServer server) throws Exception {
+        server.script("/slower", StubScript.ok().withBodySize(1024).withLatency(LatencyDistribution.fixed(Duration.ofMillis(6500L))));
+        server.script("/fast", StubScript.ok());
+        asyncHttpClient.start();
+        Future<SimpleHttpResponse> inflight = asyncHttpClient.execute(SimpleRequestBuilder.get(server.uri("/slower")).build(), null);
+        Thread.sleep(300L);
+        long start = System.nanoTime();
+        refresh(Map.of("spring.http-client.async-client.user-agent", "Refreshed-Agent"));
+        Assertions.assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000L, "Rebuild must not wait for the running exchanges");
+        Assertions.assertEquals(1, ((RefreshableHttpAsyncClient) asyncHttpClient).getDrainingExchanges(), "Previous client must drain the running exchange");
+        Assertions.assertEquals(HttpStatus.SC_OK, asyncHttpClient.execute(SimpleRequestBuilder.get(server.uri("/fast")).build(), null).get(10L, TimeUnit.SECONDS).getCode());
+        SimpleHttpResponse response = inflight.get(15L, TimeUnit.SECONDS);
+        Assertions.assertEquals(HttpStatus.SC_OK, response.getCode(), "Running exchange must survive the rebuild");
+        Assertions.assertEquals(1024, response.getBodyBytes().length);
+        Thread.sleep(200L);
+        Assertions.assertEquals(0, ((RefreshableHttpAsyncClient) asyncHttpClient).getDrainingExchanges(), "Previous client must be closed once drained");
+    }
+
+    private void refresh(Map<String, Object> properties) {
+        applicationContext.getEnvironment().getPropertySources().addFirst(new MapPropertySource("refresh-" + System.nanoTime(), properties));    // $NON-NLS-1$
+        applicationContext.publishEvent(new EnvironmentChangeEvent(applicationContext, Set.copyOf(properties.keySet())));
+    }
+
+    private int execute(String uri) throws IOException {
+        return syncHttpClient.execute(new HttpGet(uri), response -> {
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        });
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.net.URIBuilder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import com.yookue.springstarter.httpclient.template.RequestTemplate;
+import com.yookue.springstarter.httpclient.template.RequestTemplates;
+import com.yookue.springstarter.httpclient.template.TemplateHttpRequest;
+
+
+class MockRequestTemplateTest {
+    private static final RequestTemplates TEMPLATES = new RequestTemplates();
+
+    @Test
+    void placeholderOrdering() {
+        RequestTemplate template = TEMPLATES.compile("get", "https://api.example.com/users/{ id }/posts/{post}?fields={fields}&owner={id}#top");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(List.of("id", "post", "fields"), template.getVariableNames(), "The placeholders must be ordered by their first appearance");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals("GET", template.getMethod());    // $NON-NLS-1$
+        Assertions.assertEquals(443, template.getTarget().getPort(), "The target must be resolved with its port");
+        TemplateHttpRequest request = template.render("7", 42, "a,b");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("/users/7/posts/42?fields=a%2Cb&owner=7", request.getPath(), "A repeated placeholder must take the value of its first appearance");    // $NON-NLS-1$
+        Assertions.assertEquals("https", request.getScheme());    // $NON-NLS-1$
+        Assertions.assertEquals("api.example.com", request.getAuthority().getHostName());    // $NON-NLS-1$
+        Assertions.assertEquals("/?q=x", TEMPLATES.compile("GET", "http://api.example.com?q={q}").render("x").getPath(), "A missing path must render as /");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        Assertions.assertEquals("/status", TEMPLATES.compile("GET", "http://api.example.com/status").render().getPath());    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertThrows(IllegalArgumentException.class, () -> template.render("7", 42), "The count of the values must match the placeholders");    // $NON-NLS-1$
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TEMPLATES.compile("GET", "https://api.example.com/users/{}"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TEMPLATES.compile("GET", "https://api.example.com/users/{id"));    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TEMPLATES.compile("GET", "https://{tenant}.example.com/users"), "The host must be fixed");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TEMPLATES.compile("GET", "/users/{id}"), "The uri must be absolute");    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void namedBinding() {
+        RequestTemplate template = TEMPLATES.compile("GET", "https://api.example.com/users/{id}/posts/{post}?owner={id}");    // $NON-NLS-1$ // $NON-NLS-2$
+        Map<String, Object> values = new HashMap<>();
+        values.put("post", 42);    // $NON-NLS-1$
+        values.put("id", "7");    // $NON-NLS-1$ // $NON-NLS-2$
+        values.put("unused", "x");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals(template.render("7", 42).getPath(), template.render(values).getPath(), "Named and positional binding must render the same request");    // $NON-NLS-1$
+        values.put("post", null);    // $NON-NLS-1$
+        Assertions.assertEquals("/users/7/posts/?owner=7", template.render(values).getPath(), "A null value must render as empty");    // $NON-NLS-1$
+        values.remove("post");    // $NON-NLS-1$
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class, () -> template.render(values));
+        Assertions.assertTrue(ex.getMessage().contains("'post'"), ex.getMessage());    // $NON-NLS-1$
+    }
+
+    @Test
+    void utf8Encoding() throws Exception {
+        RequestTemplate template = TEMPLATES.compile("GET", "https://api.example.com/items/{value}?q={value}");    // $NON-NLS-1$ // $NON-NLS-2$
+        String[] samples = {
+            "plain-._~09AZaz",    // $NON-NLS-1$
+            "a b+c/d?e&f=g#h%",    // $NON-NLS-1$
+            "café",    // $NON-NLS-1$
+            "中文",    // $NON-NLS-1$
+            "😀 smile",    // $NON-NLS-1$
+            "lone \ud83d high",    // $NON-NLS-1$
+            "lone \ude00 low",    // $NON-NLS-1$
+            "trailing \ud83d"    // $NON-NLS-1$
+        };
+        for (String sample : samples) {
+            URI expected = new URIBuilder().setScheme("https").setHost("api.example.com").setPathSegments("items", sample).addParameter("q", sample).build();    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+            Assertions.assertEquals(expected.getRawPath() + '?' + expected.getRawQuery(), template.render(sample).getPath(), "The encoding must match URIBuilder for: " + sample);    // $NON-NLS-1$
+        }
+        Assertions.assertEquals("/items/%F0%9F%98%80?q=%F0%9F%98%80", template.render("😀").getPath(), "A surrogate pair must encode as one code point");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("/items/%3F?q=%3F", template.render("\ud83d").getPath(), "A lone surrogate must encode as a replacement");    // $NON-NLS-1$ // $NON-NLS-2$
+        RequestTemplate latin = new RequestTemplates(null, null, StandardCharsets.ISO_8859_1).compile("GET", "https://api.example.com/items/{value}");    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("/items/caf%E9", latin.render("café").getPath(), "Other charsets must encode with their own octets");    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void headerInjection() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TEMPLATES.compile("GET", "https://api.example.com/", Map.of("X-Trace", "a\r\nX-Injected: 1")), "A header value must not break the line");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TEMPLATES.compile("GET", "https://api.example.com/", Map.of("X-Trace", "a\nb")));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        Assertions.assertThrows(IllegalArgumentException.class, () -> TEMPLATES.compile("GET", "https://api.example.com/", Map.of("X-Trace: 1\r\nX-Injected", "1")), "A header name must not break the line");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new RequestTemplates(Map.of("X-Default", "a\r\nb"), null, null).compile("GET", "https://api.example.com/"), "The default headers must be checked as well");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$
+        TemplateHttpRequest request = TEMPLATES.compile("GET", "https://api.example.com/users/{id}", Map.of("X-Trace", "abc")).render("7\r\nHost: evil");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$
+        Assertions.assertEquals("/users/7%0D%0AHost%3A%20evil", request.getPath(), "A value must not inject into the request line");    // $NON-NLS-1$
+        Assertions.assertEquals("abc", request.getFirstHeader("X-Trace").getValue());    // $NON-NLS-1$ // $NON-NLS-2$
+        Assertions.assertEquals("*/*", request.getFirstHeader(HttpHeaders.ACCEPT).getValue(), "The default headers must be sent");    // $NON-NLS-1$
+    }
+}
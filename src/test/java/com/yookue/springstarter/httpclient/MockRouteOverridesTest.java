@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.lang.ref.WeakReference;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.protocol.HttpClientContext;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.URIScheme;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.route.RouteOverride;
+import com.yookue.springstarter.httpclient.route.RouteOverrides;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.LatencyDistribution;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+
+
+class MockRouteOverridesTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @Test
+    void triePrecedence() {
+        Map<String, AbstractHttpClientProperties.Route> routes = new LinkedHashMap<>();
+        routes.put("*", route(Duration.ofSeconds(1L)));    // $NON-NLS-1$
+        routes.put("*.example.com", route(Duration.ofSeconds(2L)));    // $NON-NLS-1$
+        routes.put("api.example.com", route(Duration.ofSeconds(3L)));    // $NON-NLS-1$
+        routes.put("api.example.com/v1", route(Duration.ofSeconds(4L)));    // $NON-NLS-1$
+        routes.put("https://api.example.com", route(Duration.ofSeconds(5L)));    // $NON-NLS-1$
+        routes.put("*.api.example.com", route(Duration.ofSeconds(6L)));    // $NON-NLS-1$
+        RouteOverrides overrides = new RouteOverrides(routes);
+        Assertions.assertEquals("api.example.com", resolve(overrides, "http://api.example.com", "/users"), "An exact host must win over the wildcards");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals("https://api.example.com", resolve(overrides, "https://api.example.com", "/users"), "A matching scheme must win over no scheme");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals("api.example.com/v1", resolve(overrides, "https://api.example.com", "/v1/users"), "A path prefix must win on the same host");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals("api.example.com", resolve(overrides, "http://API.Example.COM.", "/"), "Hosts must be compared ignoring case and the trailing dot");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals("*.api.example.com", resolve(overrides, "http://eu.api.example.com", "/v1"), "A longer wildcard domain must win");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals("*.example.com", resolve(overrides, "http://a.b.example.com", "/"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals("*", resolve(overrides, "http://example.com", "/"), "A wildcard domain must not match its apex");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals("*", resolve(overrides, "http://example.org", "/"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals("*", resolve(overrides, "http://com", "/"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertEquals("api.example.com", resolve(overrides, "http://api.example.com", "/users"), "A cached host must resolve the same");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Map<String, AbstractHttpClientProperties.Route> ordered = new LinkedHashMap<>();
+        ordered.put("api.example.com", route(Duration.ofSeconds(1L)));    // $NON-NLS-1$
+        ordered.put("API.example.com", route(Duration.ofSeconds(2L)));    // $NON-NLS-1$
+        Assertions.assertEquals("api.example.com", resolve(new RouteOverrides(ordered), "http://api.example.com", "/"), "Equal patterns must resolve in declaration order");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertTrue(new RouteOverrides(null).isEmpty());
+        Assertions.assertNull(resolve(new RouteOverrides(Map.of("api.example.com", route(Duration.ofSeconds(1L)))), "http://example.com", "/"));    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+    }
+
+    @Test
+    void pathBoundary() {
+        Map<String, AbstractHttpClientProperties.Route> routes = new LinkedHashMap<>();
+        routes.put("example.com/v1", route(Duration.ofSeconds(1L)));    // $NON-NLS-1$
+        routes.put("example.com/v2/", route(Duration.ofSeconds(2L)));    // $NON-NLS-1$
+        RouteOverrides overrides = new RouteOverrides(routes);
+        for (String path : new String[] {"/v1", "/v1/", "/v1/users", "/v1?page=2", "/v1;jsessionid=1", "/v1#top"}) {    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$ // $NON-NLS-6$
+            Assertions.assertEquals("example.com/v1", resolve(overrides, "http://example.com", path), path);    // $NON-NLS-1$ // $NON-NLS-2$
+        }
+        for (String path : new String[] {"/v10", "/v1x", "/v", "/", "/api/v1", null}) {    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$ // $NON-NLS-4$ // $NON-NLS-5$
+            Assertions.assertNull(resolve(overrides, "http://example.com", path), "A path must match on a segment boundary only: " + path);    // $NON-NLS-1$ // $NON-NLS-2$
+        }
+        Assertions.assertEquals("example.com/v2/", resolve(overrides, "http://example.com", "/v2"), "A trailing slash of the pattern must be ignored");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        Assertions.assertNull(resolve(overrides, "http://example.com", "/v2beta"));    // $NON-NLS-1$ // $NON-NLS-2$
+    }
+
+    @Test
+    void mergedConfigReset() {
+        Map<String, AbstractHttpClientProperties.Route> routes = new LinkedHashMap<>();
+        routes.put("a.example.com", route(Duration.ofSeconds(1L)));    // $NON-NLS-1$
+        routes.put("b.example.com", route(Duration.ofSeconds(2L)));    // $NON-NLS-1$
+        AbstractHttpClientProperties.Route retriesOnly = new AbstractHttpClientProperties.Route();
+        retriesOnly.setMaxRetries(3);
+        routes.put("c.example.com", retriesOnly);    // $NON-NLS-1$
+        RouteOverrides overrides = new RouteOverrides(routes);
+        RequestConfig base = RequestConfig.custom().setConnectionRequestTimeout(Timeout.ofSeconds(7L)).setResponseTimeout(Timeout.ofSeconds(10L)).build();
+        RequestConfig mergedA = overrides.selectRequestConfig(base, override(overrides, "http://a.example.com"));    // $NON-NLS-1$
+        Assertions.assertEquals(Timeout.ofSeconds(1L), mergedA.getResponseTimeout());
+        Assertions.assertEquals(Timeout.ofSeconds(7L), mergedA.getConnectionRequestTimeout(), "Settings that are not overridden must come from the base");
+        Assertions.assertSame(mergedA, overrides.selectRequestConfig(base, override(overrides, "http://a.example.com")), "The merged config must be cached for the same base");    // $NON-NLS-1$
+        Assertions.assertSame(base, overrides.selectRequestConfig(mergedA, null), "A reused context must go back to the base without an override");
+        Assertions.assertSame(base, overrides.selectRequestConfig(mergedA, override(overrides, "http://c.example.com")), "An override without request settings must go back to the base");    // $NON-NLS-1$
+        RequestConfig mergedB = overrides.selectRequestConfig(mergedA, override(overrides, "http://b.example.com"));    // $NON-NLS-1$
+        Assertions.assertEquals(Timeout.ofSeconds(2L), mergedB.getResponseTimeout());
+        Assertions.assertEquals(Timeout.ofSeconds(7L), mergedB.getConnectionRequestTimeout(), "An override must apply on the base rather than the other merged config");
+        Assertions.assertSame(mergedA, overrides.selectRequestConfig(mergedB, override(overrides, "http://a.example.com")), "Switching back must reuse the merged config");    // $NON-NLS-1$
+        Assertions.assertNull(overrides.selectRequestConfig(null, null));
+    }
+
+    @Test
+    void perRequestConfigs() throws Exception {
+        Map<String, AbstractHttpClientProperties.Route> routes = new LinkedHashMap<>();
+        routes.put("a.example.com", route(Duration.ofSeconds(1L)));    // $NON-NLS-1$
+        routes.put("b.example.com", route(Duration.ofSeconds(2L)));    // $NON-NLS-1$
+        RouteOverrides overrides = new RouteOverrides(routes);
+        RouteOverride overrideA = override(overrides, "http://a.example.com"), overrideB = override(overrides, "http://b.example.com");    // $NON-NLS-1$ // $NON-NLS-2$
+        for (int i = 1; i <= 100; i++) {
+            RequestConfig base = RequestConfig.custom().setConnectionRequestTimeout(Timeout.ofMilliseconds(i)).build();
+            RequestConfig mergedA = overrides.selectRequestConfig(base, overrideA);
+            RequestConfig mergedB = overrides.selectRequestConfig(mergedA, overrideB);
+            Assertions.assertEquals(Timeout.ofSeconds(2L), mergedB.getResponseTimeout());
+            Assertions.assertEquals(Timeout.ofMilliseconds(i), mergedB.getConnectionRequestTimeout(), "Each per-request config must be tracked as the base of its own merged configs");
+            Assertions.assertSame(base, overrides.selectRequestConfig(mergedB, null));
+        }
+        WeakReference<RequestConfig> reference = mergeOnce(overrides, overrideA);
+        overrides.selectRequestConfig(RequestConfig.custom().build(), overrideA);
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(20L);
+            overrides.selectRequestConfig(RequestConfig.DEFAULT, overrideB);
+        }
+        Assertions.assertNull(reference.get(), "A per-request config must not be retained once its exchange is done");
+    }
+
+    @Test
+    void mergedConfigResetOnReusedContext(FaultInjectingStubServer server) throws Exception {
+        server.script("/fast/ping", StubScript.ok().withBodySize(16));    // $NON-NLS-1$
+        server.script("/slow", StubScript.ok().withBodySize(16).withLatency(LatencyDistribution.fixed(Duration.ofMillis(600L))));    // $NON-NLS-1$
+        server.script("/fast/slow", StubScript.ok().withBodySize(16).withLatency(LatencyDistribution.fixed(Duration.ofMillis(600L))));    // $NON-NLS-1$
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.setRoutes(Map.of("127.0.0.1/fast", route(Duration.ofMillis(300L))));    // $NON-NLS-1$
+        HttpClientContext context = HttpClientContext.create();
+        try (CloseableHttpClient client = SyncHttpClientBuilderUtils.clientBuilder(properties, SyncHttpClientBuilderUtils.connectionManager(properties, null), null).build()) {
+            client.execute(new HttpGet(server.uri("/fast/ping")), context, response -> EntityUtils.toByteArray(response.getEntity()));    // $NON-NLS-1$
+            Assertions.assertEquals(Timeout.ofMilliseconds(300L), context.getRequestConfig().getResponseTimeout(), "The override must be put into the context");
+            client.execute(new HttpGet(server.uri("/slow")), context, response -> EntityUtils.toByteArray(response.getEntity()));    // $NON-NLS-1$
+            Assertions.assertNotEquals(Timeout.ofMilliseconds(300L), context.getRequestConfig().getResponseTimeout(), "A reused context must not keep the override of the previous route");
+            Assertions.assertThrows(SocketTimeoutException.class, () -> client.execute(new HttpGet(server.uri("/fast/slow")), context, response -> EntityUtils.toByteArray(response.getEntity())));    // $NON-NLS-1$
+        }
+    }
+
+    private static WeakReference<RequestConfig> mergeOnce(RouteOverrides overrides, RouteOverride override) {
+        RequestConfig base = RequestConfig.custom().setConnectionRequestTimeout(Timeout.ofSeconds(9L)).build();
+        Assertions.assertNotNull(overrides.selectRequestConfig(base, override));
+        return new WeakReference<>(base);
+    }
+
+    private static AbstractHttpClientProperties.Route route(Duration responseTimeout) {
+        AbstractHttpClientProperties.Route route = new AbstractHttpClientProperties.Route();
+        route.setResponseTimeout(responseTimeout);
+        return route;
+    }
+
+    private static RouteOverride override(RouteOverrides overrides, String target) {
+        return overrides.resolve(targetRoute(target), "/");    // $NON-NLS-1$
+    }
+
+    private static String resolve(RouteOverrides overrides, String target, String path) {
+        RouteOverride override = overrides.resolve(targetRoute(target), path);
+        return (override == null) ? null : override.getPattern();
+    }
+
+    private static HttpRoute targetRoute(String target) {
+        URI uri = URI.create(target);
+        return new HttpRoute(new HttpHost(uri.getScheme(), uri.getHost(), URIScheme.HTTPS.same(uri.getScheme()) ? 443 : 80));
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.client5.http.ConnectTimeoutException;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.SystemDefaultDnsResolver;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.io.Closer;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import com.yookue.springstarter.httpclient.connect.RouteConfigResolver;
+import com.yookue.springstarter.httpclient.property.AbstractHttpClientProperties;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.LatencyDistribution;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+import com.yookue.springstarter.httpclient.util.AbstractHttpClientBuilderUtils;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+
+
+class MockRouteTimeoutsTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @Test
+    void resolvedConfigs() {
+        SyncHttpClientProperties properties = properties();
+        RouteConfigResolver<SocketConfig> socketConfigs = AbstractHttpClientBuilderUtils.buildSocketConfigResolver(properties.getSocket());
+        RouteConfigResolver<ConnectionConfig> connectionConfigs = AbstractHttpClientBuilderUtils.buildConnectionConfigResolver(properties.getConnection());
+        Assertions.assertNotNull(socketConfigs);
+        Assertions.assertNotNull(connectionConfigs);
+        Assertions.assertEquals(Timeout.ofMilliseconds(300L), socketConfigs.resolve(route("slow.test")).getSoTimeout());    // $NON-NLS-1$
+        Assertions.assertEquals(Timeout.ofMilliseconds(300L), socketConfigs.resolve(route("api.slow.test")).getSoTimeout(), "A wildcard host must match");    // $NON-NLS-1$
+        Assertions.assertEquals(Timeout.ofSeconds(3L), socketConfigs.resolve(route("plain.test")).getSoTimeout(), "Other routes must keep the default");    // $NON-NLS-1$
+        Assertions.assertTrue(socketConfigs.resolve(route("slow.test")).isTcpNoDelay(), "A route must inherit the options it does not override");    // $NON-NLS-1$
+        Assertions.assertEquals(Timeout.ofMilliseconds(300L), connectionConfigs.resolve(route("slow.test")).getConnectTimeout());    // $NON-NLS-1$
+        Assertions.assertEquals(Timeout.ofSeconds(2L), connectionConfigs.resolve(route("plain.test")).getConnectTimeout(), "Other routes must keep the default");    // $NON-NLS-1$
+        Assertions.assertEquals(Timeout.ofSeconds(2L), connectionConfigs.resolve(null).getConnectTimeout());
+    }
+
+    @Test
+    void routeSoTimeout(FaultInjectingStubServer server) throws Exception {
+        server.script("/stall", StubScript.ok().withLatency(LatencyDistribution.fixed(Duration.ofSeconds(1L))));    // $NON-NLS-1$
+        try (CloseableHttpClient client = client(properties())) {
+            long start = System.nanoTime();
+            Assertions.assertThrows(SocketTimeoutException.class, () -> client.execute(stubRequest(server, "slow.test"), response -> EntityUtils.toString(response.getEntity())));    // $NON-NLS-1$
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assertions.assertTrue(elapsed < 900L, "The soTimeout of the matching route must apply: " + elapsed);    // $NON-NLS-1$
+            int status = client.execute(stubRequest(server, "plain.test"), response -> response.getCode());    // $NON-NLS-1$
+            Assertions.assertEquals(200, status, "The default soTimeout must apply to other routes");
+        }
+    }
+
+    @Test
+    void routeConnectTimeout() throws Exception {
+        List<Socket> fillers = new ArrayList<>();
+        try (ServerSocket listener = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), listener.getLocalPort());
+            boolean saturated = false;
+            for (int i = 0; i < 64 && !saturated; i++) {
+                Socket filler = new Socket();
+                fillers.add(filler);
+                try {
+                    filler.connect(address, 200);
+                } catch (SocketTimeoutException ex) {
+                    saturated = true;
+                }
+            }
+            Assumptions.assumeTrue(saturated, "The backlog of the socket cannot be saturated");
+            try (CloseableHttpClient client = client(properties())) {
+                Assertions.assertEquals(300L, connectElapsed(client, "http://slow.test:" + listener.getLocalPort() + "/"), 250L, "The connect timeout of the matching route must apply");    // $NON-NLS-1$ // $NON-NLS-2$
+                Assertions.assertEquals(2000L, connectElapsed(client, "http://plain.test:" + listener.getLocalPort() + "/"), 600L, "The default connect timeout must apply to other routes");    // $NON-NLS-1$ // $NON-NLS-2$
+            }
+        } finally {
+            fillers.forEach(Closer::closeQuietly);
+        }
+    }
+
+    private static HttpGet stubRequest(FaultInjectingStubServer server, String host) {
+        HttpGet request = new HttpGet("http://" + host + ":" + server.getPort() + "/stall");    // $NON-NLS-1$ // $NON-NLS-2$ // $NON-NLS-3$
+        // The stub server only serves its canonical host name
+        request.setHeader(HttpHeaders.HOST, StringUtils.removeStart(server.getBaseUri(), "http://"));    // $NON-NLS-1$
+        return request;
+    }
+
+    private static long connectElapsed(CloseableHttpClient client, String uri) {
+        long start = System.nanoTime();
+        Assertions.assertThrows(ConnectTimeoutException.class, () -> client.execute(new HttpGet(uri), response -> response.getCode()));
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private static SyncHttpClientProperties properties() {
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.getDefaultRequestConfig().setResponseTimeout(null);
+        properties.getSocket().setSoTimeout(Duration.ofSeconds(3L));
+        properties.getSocket().setTcpNoDelay(true);
+        AbstractHttpClientProperties.SocketRoute socketRoute = new AbstractHttpClientProperties.SocketRoute();
+        socketRoute.setHosts(List.of("slow.test", "*.slow.test"));    // $NON-NLS-1$ // $NON-NLS-2$
+        socketRoute.setSoTimeout(Duration.ofMillis(300L));
+        properties.getSocket().setRoutes(List.of(socketRoute));
+        properties.getConnection().setConnectTimeout(Duration.ofSeconds(2L));
+        AbstractHttpClientProperties.ConnectionRoute connectionRoute = new AbstractHttpClientProperties.ConnectionRoute();
+        connectionRoute.setHosts(List.of("slow.test"));    // $NON-NLS-1$
+        connectionRoute.setConnectTimeout(Duration.ofMillis(300L));
+        properties.getConnection().setRoutes(List.of(connectionRoute));
+        return properties;
+    }
+
+    private static CloseableHttpClient client(SyncHttpClientProperties properties) {
+        HttpClientConnectionManager connectionManager = SyncHttpClientBuilderUtils.connectionManagerBuilder(properties, null).setDnsResolver(new SystemDefaultDnsResolver() {
+            @Override
+            public InetAddress[] resolve(String host) throws UnknownHostException {
+                return host.endsWith(".test") ? new InetAddress[] {InetAddress.getLoopbackAddress()} : super.resolve(host);    // $NON-NLS-1$
+            }
+        }).build();
+        return SyncHttpClientBuilderUtils.clientBuilder(properties, connectionManager, null).build();
+    }
+
+    private static HttpRoute route(String host) {
+        return new HttpRoute(new HttpHost("http", host, 80));    // $NON-NLS-1$
+    }
+}
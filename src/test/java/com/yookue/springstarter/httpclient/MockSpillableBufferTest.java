@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.junit.jupiter.api.io.TempDir;
+import com.yookue.springstarter.httpclient.buffer.SpillPolicy;
+import com.yookue.springstarter.httpclient.buffer.SpillableBuffer;
+import com.yookue.springstarter.httpclient.exception.ResponseBodyTooLargeException;
+import com.yookue.springstarter.httpclient.handler.SpillingResponseHandler;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+
+
+class MockSpillableBufferTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void thresholdSpill() throws IOException {
+        byte[] body = bytes(10000);
+        SpillableBuffer buffer = new SpillableBuffer(policy(4096, 0L));
+        try (buffer) {
+            buffer.write(body, 0, 4096);
+            Assertions.assertFalse(buffer.isSpilled(), "A body up to the threshold must stay on the heap");
+            Assertions.assertEquals(0L, countTempFiles());
+            buffer.write(ByteBuffer.wrap(body, 4096, body.length - 4096));
+            Assertions.assertTrue(buffer.isSpilled(), "A body over the threshold must spill");
+            Assertions.assertEquals(tempDir, buffer.getFile().getParent(), "The temp file must go to the directory of the policy");
+            Assertions.assertThrows(IOException.class, buffer::toByteBuffer, "An incomplete buffer must not be readable");
+            buffer.complete();
+            Assertions.assertEquals(body.length, buffer.length());
+            Assertions.assertArrayEquals(body, buffer.toByteArray(), "The heap part must be written before the rest");
+            ByteBuffer mapped = buffer.toByteBuffer();
+            Assertions.assertTrue(mapped.isReadOnly());
+            Assertions.assertEquals(body[9999], mapped.get(9999));
+            Assertions.assertArrayEquals(body, buffer.toByteArray(), "The body must be readable many times");
+            Assertions.assertThrows(IOException.class, () -> buffer.write(body, 0, 1), "A completed buffer must not be writable");
+        }
+        Assertions.assertEquals(0L, countTempFiles(), "Closing must delete the temp file");
+        Assertions.assertThrows(IOException.class, buffer::getInputStream);
+        try (SpillableBuffer heapBuffer = new SpillableBuffer(policy(4096, 0L), 100L)) {
+            heapBuffer.write(body, 0, 100);
+            heapBuffer.complete();
+            Assertions.assertFalse(heapBuffer.isSpilled());
+            Assertions.assertArrayEquals(Arrays.copyOf(body, 100), heapBuffer.toByteArray());
+        }
+    }
+
+    @Test
+    void maxBodyAbort(FaultInjectingStubServer server) throws IOException {
+        Assertions.assertThrows(ResponseBodyTooLargeException.class, () -> new SpillableBuffer(policy(1024, 8192L), 8193L), "An expected length over the limit must fail at once");
+        byte[] body = bytes(8192);
+        try (SpillableBuffer buffer = new SpillableBuffer(policy(1024, 8192L))) {
+            buffer.write(body, 0, body.length);
+            Assertions.assertTrue(buffer.isSpilled());
+            ResponseBodyTooLargeException ex = Assertions.assertThrows(ResponseBodyTooLargeException.class, () -> buffer.write(body, 0, 1), "One byte over the limit must abort");
+            Assertions.assertEquals(8192L, ex.getMaxBodySize());
+            Assertions.assertEquals(8192L, buffer.length(), "A rejected write must not change the length");
+        }
+        Assertions.assertEquals(0L, countTempFiles());
+        server.script("/large", StubScript.ok().withBodySize(65536));    // $NON-NLS-1$
+        server.script("/small", StubScript.ok().withBodySize(4096));    // $NON-NLS-1$
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            SpillingResponseHandler<byte[]> handler = new SpillingResponseHandler<>(response -> EntityUtils.toByteArray(response.getEntity()), policy(1024, 16384L));
+            Assertions.assertThrows(ResponseBodyTooLargeException.class, () -> client.execute(new HttpGet(server.uri("/large")), handler));    // $NON-NLS-1$
+            Assertions.assertEquals(0L, countTempFiles(), "An aborted body must delete its temp file");
+            Assertions.assertEquals(4096, client.execute(new HttpGet(server.uri("/small")), handler).length, "The client must stay usable after an abort");    // $NON-NLS-1$
+        }
+        Assertions.assertEquals(0L, countTempFiles());
+    }
+
+    private SpillPolicy policy(int memoryThreshold, long maxBodySize) {
+        SpillPolicy policy = new SpillPolicy();
+        policy.setMemoryThreshold(memoryThreshold);
+        policy.setMaxBodySize(maxBodySize);
+        policy.setDirectory(tempDir.toString());
+        return policy;
+    }
+
+    private long countTempFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+
+    private static byte[] bytes(int count) {
+        byte[] result = new byte[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (byte) (i * 31 + (i >>> 8));
+        }
+        return result;
+    }
+}
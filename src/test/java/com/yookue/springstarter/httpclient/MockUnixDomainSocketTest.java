@@ -0,0 +1,306 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLServerSocket;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.ssl.DefaultClientTlsStrategy;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.io.Closer;
+import org.apache.hc.core5.ssl.SSLContexts;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import com.yookue.springstarter.httpclient.property.SyncHttpClientProperties;
+import com.yookue.springstarter.httpclient.util.SyncHttpClientBuilderUtils;
+
+
+class MockUnixDomainSocketTest {
+    private static final char[] KEYSTORE_PASSWORD = "changeit".toCharArray();    // $NON-NLS-1$
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void plainExchange() throws Exception {
+        Path socketPath = directory.resolve("plain.sock");    // $NON-NLS-1$
+        try (UdsServer server = new UdsServer(socketPath, UdsServer::respond); CloseableHttpClient client = client(socketPath, null, null, null)) {
+            String body = client.execute(new HttpGet("http://uds.test:8080/info"), response -> EntityUtils.toString(response.getEntity()));    // $NON-NLS-1$
+            Assertions.assertEquals("ok", body);    // $NON-NLS-1$
+            Assertions.assertEquals("GET /info HTTP/1.1", server.requestLine);    // $NON-NLS-1$
+            Assertions.assertEquals("uds.test:8080", server.headers.get("host"), "The Host header must keep the logical host");    // $NON-NLS-1$ // $NON-NLS-2$
+            client.execute(new HttpGet("http://uds.test:8080/again"), response -> EntityUtils.toString(response.getEntity()));    // $NON-NLS-1$
+            Assertions.assertEquals(1, server.accepted, "The connection must be reused");
+        }
+    }
+
+    @Test
+    void readTimeout() throws Exception {
+        Path socketPath = directory.resolve("read.sock");    // $NON-NLS-1$
+        try (UdsServer server = new UdsServer(socketPath, UdsServer::hang); CloseableHttpClient client = client(socketPath, Duration.ofMillis(300L), null, null)) {
+            long start = System.nanoTime();
+            SocketTimeoutException ex = Assertions.assertThrows(SocketTimeoutException.class, () -> client.execute(new HttpGet("http://uds.test/slow"), response -> EntityUtils.toString(response.getEntity())));    // $NON-NLS-1$
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            Assertions.assertEquals("Read timed out", ex.getMessage());    // $NON-NLS-1$
+            Assertions.assertTrue(elapsed >= 250L && elapsed < 3000L, "The socket timeout must bound the read: " + elapsed);    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void writeTimeout() throws Exception {
+        Path socketPath = directory.resolve("write.sock");    // $NON-NLS-1$
+        try (UdsServer server = new UdsServer(socketPath, UdsServer::hang); CloseableHttpClient client = client(socketPath, Duration.ofMillis(300L), null, null)) {
+            HttpPost request = new HttpPost("http://uds.test/upload");    // $NON-NLS-1$
+            request.setEntity(new ByteArrayEntity(new byte[64 << 20], null));
+            SocketTimeoutException ex = Assertions.assertThrows(SocketTimeoutException.class, () -> client.execute(request, response -> EntityUtils.toString(response.getEntity())));
+            Assertions.assertEquals("Write timed out", ex.getMessage(), "A stalled write must not report a read timeout");    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void connectTimeout() throws Exception {
+        Path socketPath = directory.resolve("connect.sock");    // $NON-NLS-1$
+        List<SocketChannel> fillers = new ArrayList<>();
+        try (ServerSocketChannel listener = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            listener.bind(UnixDomainSocketAddress.of(socketPath), 1);
+            boolean saturated = false;
+            for (int i = 0; i < 64 && !saturated; i++) {
+                SocketChannel filler = SocketChannel.open(StandardProtocolFamily.UNIX);
+                fillers.add(filler);
+                filler.configureBlocking(false);
+                try {
+                    filler.connect(UnixDomainSocketAddress.of(socketPath));
+                } catch (IOException ex) {
+                    saturated = true;
+                }
+            }
+            Assumptions.assumeTrue(saturated, "The backlog of the socket cannot be saturated");
+            try (CloseableHttpClient client = client(socketPath, null, Duration.ofMillis(300L), null)) {
+                long start = System.nanoTime();
+                SocketTimeoutException ex = Assertions.assertThrows(SocketTimeoutException.class, () -> client.execute(new HttpGet("http://uds.test/"), response -> EntityUtils.toString(response.getEntity())));    // $NON-NLS-1$
+                long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                Assertions.assertEquals("Connect timed out", ex.getMessage());    // $NON-NLS-1$
+                Assertions.assertTrue(elapsed >= 250L && elapsed < 3000L, "The connect timeout must bound the connect: " + elapsed);    // $NON-NLS-1$
+            }
+        } finally {
+            fillers.forEach(Closer::closeQuietly);
+        }
+    }
+
+    @Test
+    void tlsExchange() throws Exception {
+        SSLContext serverContext = SSLContexts.custom().loadKeyMaterial(getClass().getResource("/uds-test.p12"), KEYSTORE_PASSWORD, KEYSTORE_PASSWORD).build();    // $NON-NLS-1$
+        SSLContext clientContext = SSLContexts.custom().loadTrustMaterial(getClass().getResource("/uds-test.p12"), KEYSTORE_PASSWORD).build();    // $NON-NLS-1$
+        Path socketPath = directory.resolve("tls.sock");    // $NON-NLS-1$
+        Map<String, String> headers = new ConcurrentHashMap<>();
+        try (SSLServerSocket tlsListener = (SSLServerSocket) serverContext.getServerSocketFactory().createServerSocket(0)) {
+            Thread tlsServer = new Thread(() -> {
+                try (Socket socket = tlsListener.accept()) {
+                    headers.putAll(UdsServer.readHeaders(socket.getInputStream()));
+                    UdsServer.writeResponse(socket.getOutputStream(), "tls");    // $NON-NLS-1$
+                } catch (IOException ignored) {
+                }
+            }, "uds-tls-server");    // $NON-NLS-1$
+            tlsServer.setDaemon(true);
+            tlsServer.start();
+            try (UdsServer bridge = new UdsServer(socketPath, (server, channel) -> UdsServer.bridge(channel, tlsListener.getLocalPort())); CloseableHttpClient client = client(socketPath, null, null, clientContext)) {
+                String body = client.execute(new HttpGet("https://uds.test/secure"), response -> EntityUtils.toString(response.getEntity()));    // $NON-NLS-1$
+                Assertions.assertEquals("tls", body, "TLS must layer over the unix domain socket");    // $NON-NLS-1$
+                Assertions.assertEquals("uds.test", headers.get("host"));    // $NON-NLS-1$ // $NON-NLS-2$
+            }
+        }
+    }
+
+    private static CloseableHttpClient client(Path socketPath, Duration soTimeout, Duration connectTimeout, SSLContext sslContext) {
+        SyncHttpClientProperties properties = new SyncHttpClientProperties();
+        properties.getUnixDomainSocket().setPath(socketPath.toString());
+        properties.getUnixDomainSocket().setHosts(List.of("uds.test"));    // $NON-NLS-1$
+        properties.getSocket().setSoTimeout(soTimeout);
+        properties.getConnection().setConnectTimeout(connectTimeout);
+        properties.getDefaultRequestConfig().setResponseTimeout(null);
+        HttpClientConnectionManager connectionManager = (sslContext == null) ? SyncHttpClientBuilderUtils.connectionManager(properties, null) : SyncHttpClientBuilderUtils.connectionManagerBuilder(properties, null).setTlsSocketStrategy(new DefaultClientTlsStrategy(sslContext)).build();
+        return SyncHttpClientBuilderUtils.clientBuilder(properties, connectionManager, null).build();
+    }
+
+
+    private interface ChannelHandler {
+        void handle(UdsServer server, SocketChannel channel) throws IOException;
+    }
+
+
+    private static final class UdsServer implements Closeable {
+        private final ServerSocketChannel listener;
+        private final ChannelHandler handler;
+        private final List<SocketChannel> channels = new ArrayList<>();
+        private volatile int accepted;
+        private volatile String requestLine;
+        private final Map<String, String> headers = new ConcurrentHashMap<>();
+
+        private UdsServer(Path socketPath, ChannelHandler handler) throws IOException {
+            this.listener = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+            this.handler = handler;
+            listener.bind(UnixDomainSocketAddress.of(socketPath));
+            Thread thread = new Thread(this::serve, "uds-server");    // $NON-NLS-1$
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private void serve() {
+            try {
+                while (listener.isOpen()) {
+                    SocketChannel channel = listener.accept();
+                    synchronized (channels) {
+                        channels.add(channel);
+                    }
+                    accepted++;
+                    Thread thread = new Thread(() -> {
+                        try {
+                            handler.handle(this, channel);
+                        } catch (IOException ignored) {
+                        }
+                    }, "uds-connection");    // $NON-NLS-1$
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            } catch (IOException ignored) {
+            }
+        }
+
+        private static void respond(UdsServer server, SocketChannel channel) throws IOException {
+            InputStream input = Channels.newInputStream(channel);
+            OutputStream output = Channels.newOutputStream(channel);
+            for (;;) {
+                Map<String, String> request = readHeaders(input);
+                if (request.isEmpty()) {
+                    return;
+                }
+                server.headers.clear();
+                server.headers.putAll(request);
+                server.requestLine = request.get("");    // $NON-NLS-1$
+                writeResponse(output, "ok");    // $NON-NLS-1$
+            }
+        }
+
+        private static void hang(UdsServer server, SocketChannel channel) {
+            try {
+                TimeUnit.SECONDS.sleep(10L);
+            } catch (InterruptedException ignored) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static void bridge(SocketChannel channel, int port) throws IOException {
+            // Reads and writes the channel directly, since the streams of Channels serialize both directions on one lock
+            try (SocketChannel target = SocketChannel.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), port))) {
+                Thread upstream = new Thread(() -> pump(channel, target), "uds-bridge");    // $NON-NLS-1$
+                upstream.setDaemon(true);
+                upstream.start();
+                pump(target, channel);
+            } finally {
+                Closer.closeQuietly(channel);
+            }
+        }
+
+        private static void pump(SocketChannel source, SocketChannel target) {
+            ByteBuffer buffer = ByteBuffer.allocate(8192);
+            try {
+                while (source.read(buffer) >= 0) {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        target.write(buffer);
+                    }
+                    buffer.clear();
+                }
+                target.shutdownOutput();
+            } catch (IOException ignored) {
+            }
+        }
+
+        private static Map<String, String> readHeaders(InputStream input) throws IOException {
+            Map<String, String> result = new ConcurrentHashMap<>();
+            String line = readLine(input);
+            if (line == null) {
+                return result;
+            }
+            result.put("", line);    // $NON-NLS-1$
+            while ((line = readLine(input)) != null && !line.isEmpty()) {
+                int colon = line.indexOf(':');
+                result.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+            return result;
+        }
+
+        private static String readLine(InputStream input) throws IOException {
+            StringBuilder builder = new StringBuilder();
+            for (int value = input.read(); value >= 0; value = input.read()) {
+                if (value == '\n') {
+                    return builder.toString();
+                }
+                if (value != '\r') {
+                    builder.append((char) value);
+                }
+            }
+            return builder.isEmpty() ? null : builder.toString();
+        }
+
+        private static void writeResponse(OutputStream output, String body) throws IOException {
+            byte[] content = body.getBytes(StandardCharsets.US_ASCII);
+            output.write(("HTTP/1.1 200 OK\r\nContent-Type: text/plain\r\nContent-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));    // $NON-NLS-1$ // $NON-NLS-2$
+            output.write(content);
+            output.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            listener.close();
+            synchronized (channels) {
+                channels.forEach(Closer::closeQuietly);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient;
+
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpResponse;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.client.RestClientAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.client.RestTemplateAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.ClientHttpConnectorAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.reactive.function.client.WebClientAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClient;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
+import com.yookue.springstarter.httpclient.config.HttpClientAutoConfiguration;
+import com.yookue.springstarter.httpclient.config.HttpClientWebAutoConfiguration;
+import com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer;
+import com.yookue.springstarter.httpclient.stub.StubScript;
+import com.yookue.springstarter.httpclient.stub.StubServerExtension;
+import reactor.core.publisher.Mono;
+
+
+class MockWebIntegrationTest {
+    @RegisterExtension
+    static final StubServerExtension STUB_SERVER = new StubServerExtension();
+
+    @Test
+    void backedClients(FaultInjectingStubServer server) {
+        server.script("/web", StubScript.ok().withBody("backed", ContentType.TEXT_PLAIN));    // $NON-NLS-1$ // $NON-NLS-2$
+        try (ConfigurableApplicationContext context = run(WebConfiguration.class)) {
+            HttpComponentsClientHttpRequestFactory requestFactory = context.getBean(HttpClientWebAutoConfiguration.SYNC_REQUEST_FACTORY, HttpComponentsClientHttpRequestFactory.class);
+            Assertions.assertSame(context.getBean(HttpClientAutoConfiguration.SYNC_HTTP_CLIENT), requestFactory.getHttpClient());
+            RestClient restClient = context.getBean(RestClient.Builder.class).build();
+            Assertions.assertSame(requestFactory, ReflectionTestUtils.getField(restClient, "clientRequestFactory"), "RestClient must be backed by the sync client");    // $NON-NLS-1$
+            Assertions.assertEquals("backed", restClient.get().uri(server.uri("/web")).retrieve().body(String.class));    // $NON-NLS-1$ // $NON-NLS-2$
+            RestTemplate restTemplate = context.getBean(RestTemplateBuilder.class).build();
+            Assertions.assertSame(requestFactory, restTemplate.getRequestFactory(), "RestTemplate must be backed by the sync client");
+            Assertions.assertEquals("backed", restTemplate.getForObject(server.uri("/web"), String.class));    // $NON-NLS-1$ // $NON-NLS-2$
+            WebClient.Builder webClientBuilder = context.getBean(WebClient.Builder.class);
+            Assertions.assertSame(context.getBean(HttpClientWebAutoConfiguration.ASYNC_CLIENT_CONNECTOR), ReflectionTestUtils.getField(webClientBuilder, "connector"), "WebClient must be backed by the async client");    // $NON-NLS-1$
+            Assertions.assertEquals("backed", webClientBuilder.build().get().uri(server.uri("/web")).retrieve().bodyToMono(String.class).block(Duration.ofSeconds(10L)));    // $NON-NLS-1$ // $NON-NLS-2$
+            Assertions.assertEquals(3, server.getRequestCount("/web"));    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void userFactoryAndConnector() {
+        try (ConfigurableApplicationContext context = run(UserConfiguration.class, WebConfiguration.class)) {
+            for (String name : new String[] {HttpClientWebAutoConfiguration.SYNC_REQUEST_FACTORY, HttpClientWebAutoConfiguration.ASYNC_CLIENT_CONNECTOR, HttpClientWebAutoConfiguration.REST_CLIENT_CUSTOMIZER, HttpClientWebAutoConfiguration.REST_TEMPLATE_CUSTOMIZER, HttpClientWebAutoConfiguration.WEB_CLIENT_CUSTOMIZER}) {
+                Assertions.assertFalse(context.containsBean(name), "Bean '" + name + "' must back off");    // $NON-NLS-1$ // $NON-NLS-2$
+            }
+            Assertions.assertInstanceOf(SimpleClientHttpRequestFactory.class, context.getBean(ClientHttpRequestFactory.class));
+            HttpClient syncHttpClient = context.getBean(HttpClientAutoConfiguration.SYNC_HTTP_CLIENT, HttpClient.class);
+            ClientHttpRequestFactory requestFactory = context.getBean(RestTemplateBuilder.class).build().getRequestFactory();
+            Assertions.assertFalse(requestFactory instanceof HttpComponentsClientHttpRequestFactory componentsFactory && componentsFactory.getHttpClient() == syncHttpClient, "RestTemplate must not be backed by the sync client");
+            Assertions.assertSame(context.getBean(ClientHttpConnector.class), ReflectionTestUtils.getField(context.getBean(WebClient.Builder.class), "connector"), "WebClient must use the connector of the user");    // $NON-NLS-1$
+        }
+    }
+
+    @Test
+    void sharedClientClosedOnce() {
+        CountingHttpClient syncHttpClient;
+        try (ConfigurableApplicationContext context = run(CountingConfiguration.class, WebConfiguration.class)) {
+            syncHttpClient = context.getBean(HttpClientAutoConfiguration.SYNC_HTTP_CLIENT, CountingHttpClient.class);
+            Assertions.assertSame(syncHttpClient, context.getBean(HttpClientWebAutoConfiguration.SYNC_REQUEST_FACTORY, HttpComponentsClientHttpRequestFactory.class).getHttpClient());
+        }
+        Assertions.assertEquals(1, syncHttpClient.closes.get(), "The request factory must leave closing the client to the client bean");
+    }
+
+    private static ConfigurableApplicationContext run(Class<?>... sources) {
+        return new SpringApplicationBuilder(sources).web(WebApplicationType.NONE).bannerMode(Banner.Mode.OFF).logStartupInfo(false).run();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    @ImportAutoConfiguration(value = {HttpClientAutoConfiguration.class, HttpClientWebAutoConfiguration.class, RestClientAutoConfiguration.class, RestTemplateAutoConfiguration.class, ClientHttpConnectorAutoConfiguration.class, WebClientAutoConfiguration.class})
+    static class WebConfiguration {
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class UserConfiguration {
+        @Bean
+        public ClientHttpRequestFactory userRequestFactory() {
+            return new SimpleClientHttpRequestFactory();
+        }
+
+        @Bean
+        public ClientHttpConnector userClientConnector() {
+            return (method, uri, requestCallback) -> Mono.error(new IllegalStateException("Not connected"));    // $NON-NLS-1$
+        }
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class CountingConfiguration {
+        @Bean(name = HttpClientAutoConfiguration.SYNC_HTTP_CLIENT)
+        public CountingHttpClient syncHttpClient() {
+            return new CountingHttpClient();
+        }
+    }
+
+    static class CountingHttpClient extends CloseableHttpClient {
+        private final CloseableHttpClient delegate = HttpClients.createMinimal();
+        private final AtomicInteger closes = new AtomicInteger();
+
+        @Override
+        protected CloseableHttpResponse doExecute(HttpHost target, ClassicHttpRequest request, HttpContext context) throws IOException {
+            return CloseableHttpResponse.adapt(delegate.executeOpen(target, request, context));
+        }
+
+        @Override
+        public void close(CloseMode closeMode) {
+            closes.incrementAndGet();
+            delegate.close(closeMode);
+        }
+
+        @Override
+        public void close() throws IOException {
+            closes.incrementAndGet();
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.stub;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.Nonnull;
+import jakarta.annotation.Nullable;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.apache.hc.core5.http.ClassicHttpResponse;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.ExceptionListener;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpStatus;
+import org.apache.hc.core5.http.impl.bootstrap.HttpServer;
+import org.apache.hc.core5.http.impl.bootstrap.ServerBootstrap;
+import org.apache.hc.core5.http.impl.io.DefaultBHttpServerConnection;
+import org.apache.hc.core5.http.impl.io.DefaultBHttpServerConnectionFactory;
+import org.apache.hc.core5.http.io.HttpConnectionFactory;
+import org.apache.hc.core5.http.io.SocketConfig;
+import org.apache.hc.core5.http.io.entity.AbstractHttpEntity;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.io.CloseMode;
+
+
+/**
+ * Embedded stub server with scriptable faults, built on the httpcore5 classic bootstrap server
+ * <p>
+ * Every path could be scripted with latency distributions, slow-drip or truncated bodies, connection resets, stalled headers and error rates.
+ * Unscripted paths respond with {@code 404}.
+ *
+ * @author David Hsing
+ * @see com.yookue.springstarter.httpclient.stub.StubScript
+ * @see com.yookue.springstarter.httpclient.stub.StubServerExtension
+ */
+@SuppressWarnings({"unused", "BusyWait"})
+public class FaultInjectingStubServer implements AutoCloseable {
+    private final Map<String, StubScript> scripts = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+    private final Map<String, Header[]> lastHeaders = new ConcurrentHashMap<>();
+    private final Map<SocketAddress, Socket> sockets = new ConcurrentHashMap<>();
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger peakActiveRequests = new AtomicInteger();
+    private final Random random;
+    private HttpServer server;
+
+    public FaultInjectingStubServer() {
+        this(new Random());
+    }
+
+    public FaultInjectingStubServer(long seed) {
+        this(new Random(seed));
+    }
+
+    private FaultInjectingStubServer(@Nonnull Random random) {
+        this.random = random;
+    }
+
+    public void start() throws IOException {
+        HttpConnectionFactory<DefaultBHttpServerConnection> delegate = DefaultBHttpServerConnectionFactory.builder().build();
+        server = ServerBootstrap.bootstrap()
+            .setLocalAddress(InetAddress.getLoopbackAddress())
+            .setListenerPort(0)
+            .setCanonicalHostName("127.0.0.1")    // $NON-NLS-1$
+            .setSocketConfig(SocketConfig.custom().setTcpNoDelay(true).build())
+            .setConnectionFactory(socket -> {
+                sockets.put(socket.getRemoteSocketAddress(), socket);
+                return delegate.createConnection(socket);
+            })
+            .setExceptionListener(ExceptionListener.NO_OP)
+            .register("*", this::handle)    // $NON-NLS-1$
+            .create();
+        server.start();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.close(CloseMode.IMMEDIATE);
+            server = null;
+        }
+        sockets.clear();
+    }
+
+    public int getPort() {
+        return server == null ? -1 : server.getLocalPort();
+    }
+
+    @Nonnull
+    public String getBaseUri() {
+        return "http://127.0.0.1:" + getPort();    // $NON-NLS-1$
+    }
+
+    @Nonnull
+    public String uri(@Nonnull String path) {
+        return getBaseUri() + path;
+    }
+
+    /**
+     * Script the behaviours of the given path
+     *
+     * @param path the path to script, without query string
+     * @param script the script of the path
+     */
+    public void script(@Nonnull String path, @Nonnull StubScript script) {
+        scripts.put(path, script);
+    }
+
+    /**
+     * Forget all the scripts and the counters
+     */
+    public void reset() {
+        scripts.clear();
+        requestCounts.clear();
+        lastHeaders.clear();
+        peakActiveRequests.set(activeRequests.get());
+    }
+
+    public int getRequestCount(@Nonnull String path) {
+        AtomicInteger count = requestCounts.get(path);
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * Return the headers of the last request to the given path, or an empty array if there is none
+     */
+    @Nonnull
+    public Header[] getLastHeaders(@Nonnull String path) {
+        Header[] headers = lastHeaders.get(path);
+        return headers == null ? new Header[0] : headers;
+    }
+
+    /**
+     * Return the maximum number of requests that have been processed concurrently since the last reset
+     */
+    public int getPeakActiveRequests() {
+        return peakActiveRequests.get();
+    }
+
+    private void handle(@Nonnull ClassicHttpRequest request, @Nonnull ClassicHttpResponse response, @Nonnull HttpContext context) throws IOException {
+        String path = StringUtils.substringBefore(request.getPath(), "?");    // $NON-NLS-1$
+        requestCounts.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+        lastHeaders.put(path, request.getHeaders());
+        int active = activeRequests.incrementAndGet();
+        peakActiveRequests.accumulateAndGet(active, Math::max);
+        try {
+            EntityUtils.consume(request.getEntity());
+            StubScript script = scripts.get(path);
+            if (script == null) {
+                response.setCode(HttpStatus.SC_NOT_FOUND);
+                return;
+            }
+            if (script.isConnectionReset()) {
+                resetConnection(context);
+                return;
+            }
+            pause(script.getStall());
+            pause(nextLatency(script.getLatency()));
+            if (script.getErrorRate() > 0.0D && nextDouble() < script.getErrorRate()) {
+                response.setCode(script.getErrorStatus());
+                response.setEntity(new ByteArrayEntity(new byte[0], ContentType.TEXT_PLAIN));
+                return;
+            }
+            if (script.getEtag() != null) {
+                response.setHeader(HttpHeaders.ETAG, script.getEtag());
+                Header match = request.getFirstHeader(HttpHeaders.IF_NONE_MATCH);
+                if (match != null && StringUtils.equals(match.getValue(), script.getEtag())) {
+                    response.setCode(HttpStatus.SC_NOT_MODIFIED);
+                    return;
+                }
+            }
+            response.setCode(script.getStatus());
+            if (script.getTruncateAfter() >= 0) {
+                response.setEntity(new TruncatedEntity(script.getBody(), script.getContentType(), script.getTruncateAfter(), context));
+            } else if (script.getDripChunkSize() > 0) {
+                response.setEntity(new DripEntity(script.getBody(), script.getContentType(), script.getDripChunkSize(), script.getDripInterval()));
+            } else {
+                response.setEntity(new ByteArrayEntity(script.getBody(), script.getContentType()));
+            }
+        } finally {
+            activeRequests.decrementAndGet();
+        }
+    }
+
+    private void resetConnection(@Nonnull HttpContext context) throws IOException {
+        closeConnection(context, true);
+    }
+
+    private void closeConnection(@Nonnull HttpContext context, boolean reset) throws IOException {
+        SocketAddress remoteAddress = HttpCoreContext.cast(context).getEndpointDetails().getRemoteAddress();
+        Socket socket = sockets.remove(remoteAddress);
+        if (socket != null) {
+            if (reset) {
+                socket.setSoLinger(true, 0);
+            }
+            socket.close();
+        }
+    }
+
+    @Nonnull
+    private Duration nextLatency(@Nonnull LatencyDistribution distribution) {
+        synchronized (random) {
+            return distribution.next(random);
+        }
+    }
+
+    private double nextDouble() {
+        synchronized (random) {
+            return random.nextDouble();
+        }
+    }
+
+    private static void pause(@Nullable Duration duration) throws IOException {
+        if (duration == null || duration.isZero() || duration.isNegative()) {
+            return;
+        }
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Stub server has been stopped", ex);    // $NON-NLS-1$
+        }
+    }
+
+
+    private static class DripEntity extends AbstractHttpEntity {
+        private final byte[] body;
+        private final int chunkSize;
+        private final Duration interval;
+
+        private DripEntity(@Nonnull byte[] body, @Nonnull ContentType contentType, int chunkSize, @Nonnull Duration interval) {
+            super(contentType, null);
+            this.body = body;
+            this.chunkSize = chunkSize;
+            this.interval = interval;
+        }
+
+        @Override
+        public void writeTo(@Nonnull OutputStream output) throws IOException {
+            for (int offset = 0; offset < body.length; offset += chunkSize) {
+                if (offset > 0) {
+                    pause(interval);
+                }
+                output.write(body, offset, Math.min(chunkSize, body.length - offset));
+                output.flush();
+            }
+        }
+
+        @Override
+        public InputStream getContent() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+
+    private class TruncatedEntity extends AbstractHttpEntity {
+        private final byte[] body;
+        private final int truncateAfter;
+        private final HttpContext context;
+
+        private TruncatedEntity(@Nonnull byte[] body, @Nonnull ContentType contentType, int truncateAfter, @Nonnull HttpContext context) {
+            super(contentType, null);
+            this.body = body;
+            this.truncateAfter = truncateAfter;
+            this.context = context;
+        }
+
+        @Override
+        public void writeTo(@Nonnull OutputStream output) throws IOException {
+            output.write(body, 0, Math.min(truncateAfter, body.length));
+            output.flush();
+            closeConnection(context, false);
+        }
+
+        @Override
+        public InputStream getContent() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.stub;
+
+
+import java.time.Duration;
+import java.util.Random;
+import jakarta.annotation.Nonnull;
+
+
+/**
+ * Distribution of the latencies injected by {@link com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer}
+ *
+ * @author David Hsing
+ */
+@FunctionalInterface
+public interface LatencyDistribution {
+    LatencyDistribution NONE = random -> Duration.ZERO;
+
+    @Nonnull
+    Duration next(@Nonnull Random random);
+
+    @Nonnull
+    static LatencyDistribution fixed(@Nonnull Duration latency) {
+        return random -> latency;
+    }
+
+    @Nonnull
+    static LatencyDistribution uniform(@Nonnull Duration min, @Nonnull Duration max) {
+        long minMillis = min.toMillis(), rangeMillis = Math.max(max.toMillis() - minMillis, 0L);
+        return random -> Duration.ofMillis(minMillis + (rangeMillis == 0L ? 0L : (long) (random.nextDouble() * rangeMillis)));
+    }
+
+    @Nonnull
+    static LatencyDistribution exponential(@Nonnull Duration mean) {
+        double meanMillis = mean.toMillis();
+        return random -> Duration.ofMillis((long) (-meanMillis * Math.log(1.0D - random.nextDouble())));
+    }
+
+    /**
+     * Return a distribution that mostly returns the base latency, but returns the spike latency with the given probability
+     * <p>
+     * Useful for simulating tail latencies
+     */
+    @Nonnull
+    static LatencyDistribution spiky(@Nonnull Duration base, @Nonnull Duration spike, double probability) {
+        return random -> random.nextDouble() < probability ? spike : base;
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.stub;
+
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import jakarta.annotation.Nonnull;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpStatus;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+
+/**
+ * Script of the behaviours of a path served by {@link com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer}
+ * <p>
+ * Faults are applied in the order of: connection reset, stalled headers, latency, error rate, then slow-drip or truncated body
+ *
+ * @author David Hsing
+ */
+@Getter(value = AccessLevel.PACKAGE)
+@SuppressWarnings("unused")
+public class StubScript {
+    private int status = HttpStatus.SC_OK;
+    private byte[] body = new byte[0];
+    private ContentType contentType = ContentType.APPLICATION_OCTET_STREAM;
+    private LatencyDistribution latency = LatencyDistribution.NONE;
+    private Duration stall = Duration.ZERO;
+    private boolean connectionReset;
+    private double errorRate;
+    private int errorStatus = HttpStatus.SC_SERVICE_UNAVAILABLE;
+    private int dripChunkSize;
+    private Duration dripInterval = Duration.ZERO;
+    private String etag;
+    private int truncateAfter = -1;
+
+    @Nonnull
+    public static StubScript ok() {
+        return new StubScript();
+    }
+
+    @Nonnull
+    public static StubScript status(int status) {
+        return new StubScript().withStatus(status);
+    }
+
+    @Nonnull
+    public StubScript withStatus(int status) {
+        this.status = status;
+        return this;
+    }
+
+    @Nonnull
+    public StubScript withBody(@Nonnull byte[] body, @Nonnull ContentType contentType) {
+        this.body = body;
+        this.contentType = contentType;
+        return this;
+    }
+
+    @Nonnull
+    public StubScript withBody(@Nonnull String body, @Nonnull ContentType contentType) {
+        return withBody(body.getBytes(contentType.getCharset() == null ? StandardCharsets.UTF_8 : contentType.getCharset()), contentType);
+    }
+
+    /**
+     * Respond with a body of the given size
+     */
+    @Nonnull
+    public StubScript withBodySize(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) ('a' + (i % 26));
+        }
+        return withBody(bytes, ContentType.APPLICATION_OCTET_STREAM);
+    }
+
+    /**
+     * Delay the response with a latency drawn from the distribution
+     */
+    @Nonnull
+    public StubScript withLatency(@Nonnull LatencyDistribution latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Hold the response headers back for the given duration, or until the server stops
+     */
+    @Nonnull
+    public StubScript withStalledHeaders(@Nonnull Duration stall) {
+        this.stall = stall;
+        return this;
+    }
+
+    /**
+     * Reset the connection with a TCP RST instead of responding
+     */
+    @Nonnull
+    public StubScript withConnectionReset() {
+        this.connectionReset = true;
+        return this;
+    }
+
+    /**
+     * Respond with the error status for the given ratio of the requests
+     */
+    @Nonnull
+    public StubScript withErrorRate(double errorRate, int errorStatus) {
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+        return this;
+    }
+
+    /**
+     * Write the body in chunks of the given size, pausing the given interval after each chunk
+     */
+    @Nonnull
+    public StubScript withSlowDrip(int chunkSize, @Nonnull Duration interval) {
+        this.dripChunkSize = chunkSize;
+        this.dripInterval = interval;
+        return this;
+    }
+
+    /**
+     * Respond with the given {@code ETag}, and with {@code 304} to the requests whose {@code If-None-Match} matches it
+     */
+    @Nonnull
+    public StubScript withEtag(@Nonnull String etag) {
+        this.etag = etag;
+        return this;
+    }
+
+    /**
+     * Announce the whole body, but close the connection after writing the given count of bytes
+     */
+    @Nonnull
+    public StubScript withTruncatedBody(int truncateAfter) {
+        this.truncateAfter = truncateAfter;
+        return this;
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2020 Yookue Ltd. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.yookue.springstarter.httpclient.stub;
+
+
+import java.io.IOException;
+import jakarta.annotation.Nonnull;
+import org.junit.jupiter.api.extension.AfterAllCallback;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.jupiter.api.extension.ParameterContext;
+import org.junit.jupiter.api.extension.ParameterResolver;
+import org.springframework.test.context.DynamicPropertyRegistry;
+
+
+/**
+ * JUnit extension that runs a {@link com.yookue.springstarter.httpclient.stub.FaultInjectingStubServer} for a test class
+ * <p>
+ * Register it as a static field with {@link org.junit.jupiter.api.extension.RegisterExtension}, the server starts before all the tests,
+ * forgets its scripts before each test, and could be injected into test methods as a parameter.
+ * The spring tests could expose the base uri of the server as {@value #BASE_URI_PROPERTY} by {@link #registerProperties(org.springframework.test.context.DynamicPropertyRegistry)},
+ * so that the properties of the auto-configured clients could refer to it with a placeholder.
+ *
+ * @author David Hsing
+ */
+@SuppressWarnings("unused")
+public class StubServerExtension implements BeforeAllCallback, AfterAllCallback, BeforeEachCallback, ParameterResolver {
+    public static final String BASE_URI_PROPERTY = "stub-server.base-uri";    // $NON-NLS-1$
+
+    private final FaultInjectingStubServer server;
+
+    public StubServerExtension() {
+        this(new FaultInjectingStubServer(20200101L));
+    }
+
+    public StubServerExtension(@Nonnull FaultInjectingStubServer server) {
+        this.server = server;
+    }
+
+    @Nonnull
+    public FaultInjectingStubServer getServer() {
+        return server;
+    }
+
+    /**
+     * Register the base uri of the server, call it from a {@link org.springframework.test.context.DynamicPropertySource} method
+     */
+    public void registerProperties(@Nonnull DynamicPropertyRegistry registry) {
+        registry.add(BASE_URI_PROPERTY, () -> {
+            ensureStarted();
+            return server.getBaseUri();
+        });
+    }
+
+    @Override
+    public void beforeAll(@Nonnull ExtensionContext context) {
+        ensureStarted();
+    }
+
+    @Override
+    public void afterAll(@Nonnull ExtensionContext context) {
+        server.close();
+    }
+
+    @Override
+    public void beforeEach(@Nonnull ExtensionContext context) {
+        server.reset();
+    }
+
+    @Override
+    public boolean supportsParameter(@Nonnull ParameterContext parameterContext, @Nonnull ExtensionContext extensionContext) {
+        return parameterContext.getParameter().getType() == FaultInjectingStubServer.class;
+    }
+
+    @Override
+    public Object resolveParameter(@Nonnull ParameterContext parameterContext, @Nonnull ExtensionContext extensionContext) {
+        return server;
+    }
+
+    private synchronized void ensureStarted() {
+        if (server.getPort() < 0) {
+            try {
+                server.start();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to start stub server", ex);    // $NON-NLS-1$
+            }
+        }
+    }
+}